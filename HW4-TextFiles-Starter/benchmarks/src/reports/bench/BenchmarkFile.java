@@ -0,0 +1,88 @@
+// NAME: Logan Noonan
+
+package reports.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The generated data file of a benchmark, for every file of 1, 10, and 100 years with 50, 500, and 5000
+ *  companies ranked per year, see FortuneCsvGenerator.
+ * Each file is written once per trial into a directory of its own, without any sidecar files, so the first
+ *  warmup iterations build the sidecar files a first run would; the directory is deleted with whatever
+ *  sidecar files the tree being measured wrote, so the benchmarks need none of its index classes.
+ * @author Logan Noonan
+ *
+ */
+@State(Scope.Benchmark)
+public abstract class BenchmarkFile
+{
+	/**
+	 * The number of years of the generated file.
+	 */
+	@Param({"1", "10", "100"})
+	public int years;
+
+	/**
+	 * The number of companies ranked each year in the generated file.
+	 */
+	@Param({"50", "500", "5000"})
+	public int companiesPerYear;
+
+	/**
+	 * The directory of the data file.
+	 */
+	protected File directory;
+
+	/**
+	 * The generated data file.
+	 */
+	protected File dataFile;
+
+	/**
+	 * Generates the data file, then prepares the benchmark's state, see prepare.
+	 * @throws IOException Thrown if the file cannot be written.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		this.directory = Files.createTempDirectory("fortune500-").toFile();
+		this.dataFile = new File(this.directory, "fortune500-" + this.years + "-" + this.companiesPerYear + ".csv");
+		new FortuneCsvGenerator(this.years, this.companiesPerYear, 500).write(this.dataFile);
+		this.prepare();
+	}
+
+	/**
+	 * Prepares the benchmark's state once the data file is written.
+	 * @throws IOException Thrown if a file cannot be written.
+	 */
+	protected void prepare() throws IOException
+	{
+	}
+
+	/**
+	 * Deletes the directory of the data file, with the data file, its sidecar files, and any other file
+	 *  the benchmark wrote there.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		File[] files = this.directory.listFiles();
+		if (files != null)
+		{
+			for (File file : files)
+			{
+				file.delete();
+			}
+		}
+		this.directory.delete();
+	}
+}
@@ -0,0 +1,42 @@
+// NAME: Logan Noonan
+
+package reports.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import reports.ReportEngine;
+
+/**
+ * JMH benchmark of processing every year and company report through a ReportEngine, with the same files and
+ *  settings as ReportBenchmarks. It is kept apart from ReportBenchmarks so those can still be run against a
+ *  tree without ReportEngine, see README.md.
+ * @author Logan Noonan
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmarks extends BenchmarkFile
+{
+	/**
+	 * Processes every year and company report with one scan of the file.
+	 * @return The engine holding the processed reports.
+	 */
+	@Benchmark
+	public ReportEngine processAllReports()
+	{
+		ReportEngine result = new ReportEngine(this.dataFile);
+		result.processReports();
+		return result;
+	}
+}
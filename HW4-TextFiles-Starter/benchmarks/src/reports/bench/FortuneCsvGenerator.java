@@ -0,0 +1,136 @@
+// NAME: Logan Noonan
+
+package reports.bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+import reports.Report;
+
+/**
+ * Writes synthetic Fortune 500 csv files for benchmarking, in the same layout as the real data file:
+ *
+ * Year,Rank,Company,Revenue (in millions),Profit (in millions)
+ * YEAR,RANK,COMPANY,REVENUE,PROFIT
+ * ...
+ *
+ * Years start at Report.MINYEAR and each year ranks the given number of companies, drawn from a pool of
+ *  twice as many so companies move in and out of the list. The company named by companyName(0) is
+ *  ranked every year. Files are generated from a seed, so the same arguments always give the same file.
+ * @author Logan Noonan
+ *
+ */
+public class FortuneCsvGenerator
+{
+	/**
+	 * The number of years of the file.
+	 */
+	private int years;
+
+	/**
+	 * The number of companies ranked each year.
+	 */
+	private int companiesPerYear;
+
+	/**
+	 * The seed of the random values.
+	 */
+	private long seed;
+
+	/**
+	 * Creates new FortuneCsvGenerator.
+	 * @param yearsIn - Number of years of the file.
+	 * @param companiesPerYearIn - Number of companies ranked each year.
+	 * @param seedIn - Seed of the random values.
+	 */
+	public FortuneCsvGenerator(int yearsIn, int companiesPerYearIn, long seedIn)
+	{
+		if (yearsIn < 1 || companiesPerYearIn < 1)
+		{
+			throw new IllegalArgumentException("A file needs at least one year and one company.");
+		}
+		this.years = yearsIn;
+		this.companiesPerYear = companiesPerYearIn;
+		this.seed = seedIn;
+	}
+
+	/**
+	 * Returns the name of a company of the pool.
+	 * @param idIn - Number of the company, from 0 to twice the companies per year.
+	 * @return The company's name.
+	 */
+	public static String companyName(int idIn)
+	{
+		return "Company " + idIn;
+	}
+
+	/**
+	 * Writes the file.
+	 * @param outputFile - File to write to.
+	 * @throws IOException Thrown if the file cannot be written.
+	 */
+	public void write(File outputFile) throws IOException
+	{
+		Random random = new Random(this.seed);
+		int[] pool = new int[this.companiesPerYear * 2];
+		for (int id = 0; id < pool.length; id++)
+		{
+			pool[id] = id;
+		}
+		try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(outputFile))))
+		{
+			writer.print("Year,Rank,Company,Revenue (in millions),Profit (in millions)\n");
+			for (int year = Report.MINYEAR; year < Report.MINYEAR + this.years; year++)
+			{
+				// Shuffle the pool and rank its first companies, keeping company 0 among them.
+				for (int index = pool.length - 1; index > 0; index--)
+				{
+					int other = random.nextInt(index + 1);
+					int swap = pool[index];
+					pool[index] = pool[other];
+					pool[other] = swap;
+				}
+				for (int index = this.companiesPerYear; index < pool.length; index++)
+				{
+					if (pool[index] == 0)
+					{
+						pool[index] = pool[0];
+						pool[0] = 0;
+					}
+				}
+				for (int rank = 1; rank <= this.companiesPerYear; rank++)
+				{
+					double revenue = (5000000 / rank + random.nextInt(1000)) / 10.0;
+					double profit = (random.nextInt(40000) - 10000) / 10.0;
+					writer.print(year + "," + rank + "," + companyName(pool[rank - 1]) + "," + revenue + ","
+							+ profit + "\n");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes a synthetic file from the command line.
+	 * @param args - The output file, the number of years, the number of companies per year,
+	 *  and optionally the seed.
+	 * @throws IOException Thrown if the file cannot be written.
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 3)
+		{
+			System.err.println("usage: FortuneCsvGenerator OUTPUT YEARS COMPANIES [SEED]");
+			System.exit(2);
+		}
+		long seed = 500;
+		if (args.length > 3)
+		{
+			seed = Long.parseLong(args[3]);
+		}
+		new FortuneCsvGenerator(Integer.parseInt(args[1]), Integer.parseInt(args[2]), seed).write(new File(args[0]));
+	}
+}
@@ -0,0 +1,133 @@
+// NAME: Logan Noonan
+
+package reports.bench;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import reports.CompanyReport;
+import reports.DataNotProcessedException;
+import reports.Report;
+import reports.YearReport;
+
+/**
+ * JMH benchmarks of the report hot paths: processing a CompanyReport and a YearReport, formatting a
+ *  processed report with toString, and writing it with writeReport. Processing every report through a
+ *  ReportEngine is benchmarked by EngineBenchmarks.
+ * Each benchmark runs against the synthetic files of BenchmarkFile. Build and run them with the pom.xml of
+ *  this directory and the gc profiler, see README.md:
+ *
+ * java -cp target/benchmarks.jar:COURSEJAR org.openjdk.jmh.Main -prof gc
+ *
+ * @author Logan Noonan
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReportBenchmarks extends BenchmarkFile
+{
+	/**
+	 * The file reports are written to.
+	 */
+	private File outputFile;
+
+	/**
+	 * A processed report of the first year, for the formatting and writing benchmarks.
+	 */
+	private YearReport yearReport;
+
+	/**
+	 * A processed report of a company ranked every year, for the formatting and writing benchmarks.
+	 */
+	private CompanyReport companyReport;
+
+	/**
+	 * Processes the reports used by the formatting and writing benchmarks.
+	 */
+	@Override
+	protected void prepare()
+	{
+		this.outputFile = new File(this.directory, "report.txt");
+		this.yearReport = new YearReport(this.dataFile, Report.MINYEAR);
+		this.yearReport.processReport();
+		this.companyReport = new CompanyReport(this.dataFile, FortuneCsvGenerator.companyName(0));
+		this.companyReport.processReport();
+	}
+
+	/**
+	 * Processes the report of a company ranked every year.
+	 * @return The processed report.
+	 */
+	@Benchmark
+	public CompanyReport processCompanyReport()
+	{
+		CompanyReport result = new CompanyReport(this.dataFile, FortuneCsvGenerator.companyName(0));
+		result.processReport();
+		return result;
+	}
+
+	/**
+	 * Processes the report of the first year.
+	 * @return The processed report.
+	 */
+	@Benchmark
+	public YearReport processYearReport()
+	{
+		YearReport result = new YearReport(this.dataFile, Report.MINYEAR);
+		result.processReport();
+		return result;
+	}
+
+	/**
+	 * Formats a processed year report.
+	 * @return The formatted report.
+	 */
+	@Benchmark
+	public String formatYearReport()
+	{
+		return this.yearReport.toString();
+	}
+
+	/**
+	 * Formats a processed company report.
+	 * @return The formatted report.
+	 */
+	@Benchmark
+	public String formatCompanyReport()
+	{
+		return this.companyReport.toString();
+	}
+
+	/**
+	 * Writes a processed year report to a file.
+	 * @return true if the report was written.
+	 * @throws DataNotProcessedException Thrown if the report was not processed.
+	 */
+	@Benchmark
+	public boolean writeYearReport() throws DataNotProcessedException
+	{
+		return this.yearReport.writeReport(this.outputFile);
+	}
+
+	/**
+	 * Writes a processed company report to a file.
+	 * @return true if the report was written.
+	 * @throws DataNotProcessedException Thrown if the report was not processed.
+	 */
+	@Benchmark
+	public boolean writeCompanyReport() throws DataNotProcessedException
+	{
+		return this.companyReport.writeReport(this.outputFile);
+	}
+}
@@ -2,19 +2,36 @@
 
 package reports;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.Scanner;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Arrays;
 
-import analytics.Data;
+import reports.io.ColumnarCache;
+import reports.io.CompanyIndex;
+import reports.io.CompanyMatcher;
+import reports.io.CsvRowReader;
+import reports.io.DataSource;
+import reports.io.FortuneDataset;
+import reports.io.ReportWriter;
 
 /**
  * A report for a single company of Fortune 500 data.
  * Report includes the minimum, maximum, average, and standard deviation of revenues, profits, and rank
  *  for all years in which the company was ranked in the Fortune 500.
+ * Companies are matched through the data file's CompanyIndex, ignoring case and extra spaces
+ *  and resolving aliases.
+ * A report may be processed again at any time to pick up changes to the data file. The results of each
+ *  processing are published whole, so a report can be shared between threads and read while it is being
+ *  processed again without locking.
  * @author Logan Noonan
  *
  */
@@ -25,157 +42,302 @@ public class CompanyReport implements Report
 	 */
 	private File theFile;
 	
-	/**
-	 * A boolean value to test if the file was processed or not.
-	 */
-	private boolean isProcessed;
-
 	/**
 	 * A boolean to check if the file was created properly or not.
 	 */
 	private boolean fileExists;
 	
 	/**
-	 * A scanner to read the file.
-	 */
-	private Scanner inputScanner;
-	
-	/**
-	 * A string of the files next line.
-	 */
-	private String nextLine;
-	
-	/**
-	 * A scanner to parse the next line in the file.
-	 */
-	private Scanner lineParser;
-	
-	/**
-	 * The company minimum revenue.
-	 */
-	private Double minRevenue;
-	
-	/**
-	 * The company maximum revenue.
-	 */
-	private Double maxRevenue;
-	
-	/**
-	 * The company average revenue.
-	 */
-	private Double avgRevenue;
-	
-	/**
-	 * The company's standard deviation of revenue.
-	 */
-	private Double sDRevenue;
-	
-	/**
-	 * The company minimum profit.
-	 */
-	private Double minProfit;
-	
-	/**
-	 * The company maximum profit.
-	 */
-	private Double maxProfit;
-	
-	/**
-	 * The company average profit.
-	 */
-	private Double avgProfit;
-	
-	/**
-	 * The company's standard deviation of revenue.
-	 */
-	private Double sDProfit;
-	
-	/**
-	 * The companies minimum rank across all years.
+	 * Where the data is read from when it is not a plain file, or null if it is a plain file.
 	 */
-	private Double minRank;
+	private DataSource source;
 	
 	/**
-	 * The companies maximum rank across all years.
+	 * The statistics of the rows supplied through addRow by a ReportEngine, published by markProcessed.
 	 */
-	private Double maxRank;
+	private Snapshot pending;
 	
 	/**
-	 * The companies average rank across all years.
+	 * The statistics of the last completed processing, or null if the report has not been processed.
+	 * A new snapshot replaces the old one in a single write, so readers never see a partly processed report.
 	 */
-	private Double avgRank;
+	private volatile Snapshot snapshot;
 	
 	/**
-	 * The companies standard deviation rank across all years.
+	 * The company to process a report on.
 	 */
-	private Double sDRank;
+	private String theCompany;
 	
 	/**
-	 * The companies rank for any given year.
+	 * How rows with a missing revenue or profit are treated.
 	 */
-	private Integer yearlyRank;
+	private MissingValues missingValues = MissingValues.COUNT;
 	
 	/**
-	 * An array to hold the companies revenue values for each year it was listed.
+	 * The counts and timings of this report's processing and writing, or null until the report is first
+	 *  processed or written, so the reports a ReportEngine routes rows to carry no counters.
 	 */
-	private Double[] totalRevenue;
+	private ReportMetrics metrics;
 	
 	/**
-	 * An array to hold the companies profit values for each year it was listed.
+	 * The statistics of one processing of a CompanyReport.
+	 * A snapshot is only added to while it is being built and is never changed once published.
 	 */
-	private Double[] totalProfit;
+	private static class Snapshot
+	{
+		/**
+		 * The statistics of the company's revenue for each year it was listed.
+		 */
+		private final Statistics revenues = new Statistics();
+		
+		/**
+		 * The statistics of the company's profit for each year it was listed.
+		 */
+		private final Statistics profits = new Statistics();
+		
+		/**
+		 * The statistics of the company's rank for each year it was listed.
+		 */
+		private final Statistics ranks = new Statistics();
+		
+		/**
+		 * The number of missing revenues and profits in the company's rows.
+		 */
+		private int missing;
+		
+		/**
+		 * The rank, revenue, and profit of each row read but not yet added to the statistics, in threes, or
+		 *  null if there are none.
+		 */
+		private double[] readRows;
+		
+		/**
+		 * The number of rows in readRows.
+		 */
+		private int readCount;
+		
+		/**
+		 * The number of rows read to find the company's rows.
+		 */
+		private long rowsScanned;
+		
+		/**
+		 * The number of bytes of data read to find the company's rows.
+		 */
+		private long bytesRead;
+		
+		/**
+		 * Counts the rows and bytes a reader has read.
+		 * @param rowReader The reader.
+		 */
+		void countInput(CsvRowReader rowReader)
+		{
+			this.rowsScanned = rowReader.getRowsRead();
+			this.bytesRead = rowReader.getBytesRead();
+		}
+		
+		/**
+		 * Adds the values of one row ranking the company.
+		 * @param rankIn The company's rank for the row's year.
+		 * @param revenueIn The company's revenue for the row's year, or Double.NaN if it is missing.
+		 * @param profitIn The company's profit for the row's year, or Double.NaN if it is missing.
+		 * @param missingIn How to treat a missing value.
+		 */
+		void addRow(int rankIn, double revenueIn, double profitIn, MissingValues missingIn)
+		{
+			if (Double.isNaN(revenueIn) || Double.isNaN(profitIn))
+			{
+				this.addIncompleteRow(rankIn, revenueIn, profitIn, missingIn);
+			}
+			else
+			{
+				this.ranks.add(rankIn);
+				this.revenues.add(revenueIn);
+				this.profits.add(profitIn);
+			}
+		}
+		
+		/**
+		 * Keeps the values of one row ranking the company to be added by addReadRows, so the time spent reading
+		 *  rows and the time spent computing their statistics can be measured apart.
+		 * @param rankIn The company's rank for the row's year.
+		 * @param revenueIn The company's revenue for the row's year, or Double.NaN if it is missing.
+		 * @param profitIn The company's profit for the row's year, or Double.NaN if it is missing.
+		 */
+		void readRow(int rankIn, double revenueIn, double profitIn)
+		{
+			if (this.readRows == null)
+			{
+				this.readRows = new double[3 * 16];
+			}
+			else if (3 * this.readCount == this.readRows.length)
+			{
+				this.readRows = Arrays.copyOf(this.readRows, 2 * this.readRows.length);
+			}
+			this.readRows[3 * this.readCount] = rankIn;
+			this.readRows[3 * this.readCount + 1] = revenueIn;
+			this.readRows[3 * this.readCount + 2] = profitIn;
+			this.readCount++;
+		}
+		
+		/**
+		 * Adds the values of the rows kept by readRow, in the order they were read.
+		 * @param missingIn How to treat a missing value.
+		 */
+		void addReadRows(MissingValues missingIn)
+		{
+			for (int row = 0; row < this.readCount; row++)
+			{
+				this.addRow((int) this.readRows[3 * row], this.readRows[3 * row + 1], this.readRows[3 * row + 2],
+						missingIn);
+			}
+			this.readRows = null;
+			this.readCount = 0;
+		}
+		
+		/**
+		 * Counts the missing values of a row and adds the row as the policy says.
+		 * @param rankIn The company's rank for the row's year.
+		 * @param revenueIn The company's revenue for the row's year, or Double.NaN if it is missing.
+		 * @param profitIn The company's profit for the row's year, or Double.NaN if it is missing.
+		 * @param missingIn How to treat a missing value.
+		 */
+		private void addIncompleteRow(int rankIn, double revenueIn, double profitIn, MissingValues missingIn)
+		{
+			if (missingIn == MissingValues.SKIP)
+			{
+				this.missing += (Double.isNaN(revenueIn) ? 1 : 0) + (Double.isNaN(profitIn) ? 1 : 0);
+			}
+			else
+			{
+				this.ranks.add(rankIn);
+				this.missing += missingIn.add(this.revenues, revenueIn) + missingIn.add(this.profits, profitIn);
+			}
+		}
+		
+		/**
+		 * Writes the statistics and the count of missing values so they can be restored with readState.
+		 * @param outputIn The output to write to.
+		 * @throws IOException Thrown if the output cannot be written.
+		 */
+		void writeState(DataOutput outputIn) throws IOException
+		{
+			this.ranks.writeState(outputIn);
+			this.revenues.writeState(outputIn);
+			this.profits.writeState(outputIn);
+			outputIn.writeInt(this.missing);
+		}
+		
+		/**
+		 * Replaces the statistics and the count of missing values with ones written by writeState.
+		 * @param inputIn The input to read from.
+		 * @throws IOException Thrown if the input cannot be read.
+		 */
+		void readState(DataInput inputIn) throws IOException
+		{
+			this.ranks.readState(inputIn);
+			this.revenues.readState(inputIn);
+			this.profits.readState(inputIn);
+			this.missing = inputIn.readInt();
+		}
+	}
 	
 	/**
-	 * An array to hold the companies rank values for each year it was listed.
+	 * Creates new CompanyReport for given company; data to be read from given file.
+	 * @param inputFileIn - File containing Fortune 500 data for this report.
+	 * @param companyIn - Company to report Fortune 500 data.
 	 */
-	private Double[] totalRanks;
+	public CompanyReport(File inputFileIn, String companyIn)
+	{
+		this.setCompany(companyIn);
+		this.fileExists = false;
+		try 
+		{
+			this.setFile(inputFileIn);
+			this.fileExists = true;
+		} 
+		catch (FileNotFoundException e) 
+		{
+			e.printStackTrace();
+		}
+		this.snapshot = null;
+	}
 	
 	/**
-	 * Tracks the current index in the revenue array.
+	 * Creates new CompanyReport for given company; data to be read from given path, see DataSource.
+	 * @param inputPathIn - Path of a Fortune 500 csv file for this report, plain or gzip compressed.
+	 * @param companyIn - Company to report Fortune 500 data.
 	 */
-	private int revenueIndex;
+	public CompanyReport(Path inputPathIn, String companyIn)
+	{
+		this(DataSource.of(inputPathIn), companyIn);
+	}
 	
 	/**
-	 * Tracks the current index in the profit array.
+	 * Creates new CompanyReport for given company; data to be read from given stream, see DataSource.
+	 * @param inputStreamIn - Stream of Fortune 500 csv data for this report, read once.
+	 * @param companyIn - Company to report Fortune 500 data.
 	 */
-	private int profitIndex;
+	public CompanyReport(InputStream inputStreamIn, String companyIn)
+	{
+		this(DataSource.of(inputStreamIn), companyIn);
+	}
 	
 	/**
-	 * Tracks the current index in the rank array.
+	 * Creates new CompanyReport for given company; data to be read from given Reader, see DataSource.
+	 * @param inputReaderIn - Reader of Fortune 500 csv data for this report, read once.
+	 * @param companyIn - Company to report Fortune 500 data.
 	 */
-	private int rankIndex;
+	public CompanyReport(Reader inputReaderIn, String companyIn)
+	{
+		this(DataSource.of(inputReaderIn), companyIn);
+	}
 	
 	/**
-	 * The company to process a report on.
+	 * Creates new CompanyReport for given company; data to be read from given channel, see DataSource.
+	 * @param inputChannelIn - Channel of Fortune 500 csv data for this report, read once.
+	 * @param companyIn - Company to report Fortune 500 data.
 	 */
-	private String theCompany;
+	public CompanyReport(ReadableByteChannel inputChannelIn, String companyIn)
+	{
+		this(DataSource.of(inputChannelIn), companyIn);
+	}
 	
 	/**
-	 * Creates new CompanyReport for given company; data to be read from given file.
-	 * @param inputFileIn - File containing Fortune 500 data for this report.
+	 * Creates new CompanyReport for given company; data to be read from given source.
+	 * A source that is not a plain file is read in full each time the report is processed, without the
+	 *  file's company index or columnar cache; companies are still matched ignoring case and extra spaces,
+	 *  but aliases are not resolved.
+	 * @param sourceIn - Source of Fortune 500 data for this report.
 	 * @param companyIn - Company to report Fortune 500 data.
 	 */
-	public CompanyReport(File inputFileIn, String companyIn)
+	public CompanyReport(DataSource sourceIn, String companyIn)
 	{
 		this.setCompany(companyIn);
 		this.fileExists = false;
-		try 
+		if (sourceIn != null)
 		{
-			this.setFile(inputFileIn);
-			this.inputScanner = new Scanner(this.theFile);
+			this.theFile = sourceIn.getFile();
+			if (this.theFile == null)
+			{
+				this.source = sourceIn;
+			}
 			this.fileExists = true;
-		} 
-		catch (FileNotFoundException e) 
-		{
-			e.printStackTrace();
 		}
-		this.totalRevenue = new Double[Report.NUMCOMPANIES];
-		this.totalProfit = new Double[Report.NUMCOMPANIES];
-		this.totalRanks = new Double[Report.MAXYEAR - Report.MINYEAR];
-		this.revenueIndex = 0;
-		this.profitIndex = 0;
-		this.rankIndex = 0;
-		this.isProcessed = false;	
+		this.snapshot = null;
+	}
+	
+	/**
+	 * Creates new CompanyReport for given company whose rows are supplied by a ReportEngine
+	 *  through addRow instead of being read from a file.
+	 * @param companyIn - Company to report Fortune 500 data.
+	 */
+	CompanyReport(String companyIn)
+	{
+		this.setCompany(companyIn);
+		this.fileExists = false;
+		this.pending = new Snapshot();
+		this.snapshot = null;
 	}
 	
 	/**
@@ -196,199 +358,434 @@ public class CompanyReport implements Report
 	}
 	
 	/**
-	 * Reads data from Fortune 500 data file; processes the data.
-	 * The file is a csv file and can be assumed is formatted correctly.
-	 * See supplemental document for details on reading from csv files.
-	 * Calculates the minimum, maximum, average, and standard deviation of revenues, profits, and rank
-	 *  for all years the company is ranked using tools in the Data class.
-	 * @return true if processing successful, false if the input file does not exist.
+	 * Restores the company's statistics from the file's snapshot, see ReportSnapshot. Snapshots are written
+	 *  with MissingValues.COUNT, so they are only used by reports treating missing values that way.
+	 * @param building The statistics being built.
+	 * @return true if the statistics were restored, false if the file has no up to date snapshot holding
+	 *  the company or it cannot be read.
 	 */
-	public boolean processReport() 
+	private boolean restoreSnapshot(Snapshot building)
 	{
-		boolean result = false;
-		if (this.fileExists)
+		if (this.missingValues != MissingValues.COUNT)
 		{
-			this.extractNumbers();
-			this.minRevenue = Data.minimum(this.getRevenuesList());
-			this.maxRevenue = Data.maximum(this.getRevenuesList());
-			this.avgRevenue = Data.average(this.getRevenuesList());
-			this.sDRevenue = Data.standardDeviation(this.getRevenuesList());
-			this.minProfit = Data.minimum(this.getProfitsList());
-			this.maxProfit = Data.maximum(this.getProfitsList());
-			this.avgProfit = Data.average(this.getProfitsList());
-			this.sDProfit = Data.standardDeviation(this.getProfitsList());
-			this.minRank = Data.minimum(this.getRanksList());
-			this.maxRank = Data.maximum(this.getRanksList());
-			this.avgRank = Data.average(this.getRanksList());
-			this.sDRank = Data.standardDeviation(this.getRanksList());
-			result = true;
-			this.isProcessed = true;
+			return false;
+		}
+		try
+		{
+			ReportSnapshot saved = ReportSnapshot.openIfCurrent(this.theFile);
+			DataInput input = saved != null ? saved.findCompany(this.theCompany) : null;
+			if (input != null)
+			{
+				building.readState(input);
+			}
+			return input != null;
+		}
+		catch (IOException e)
+		{
+			return false;
 		}
-		return result;
 	}
 	
 	/**
-	 * This method is responsible for retrieving all of the values from the file for the given company.
+	 * Opens the file's columnar cache, see ColumnarCache.
+	 * @return The cache, or null if the file has no up to date cache or it cannot be read.
 	 */
-	private void extractNumbers()
+	private ColumnarCache openCache()
 	{
-		if (this.inputScanner.hasNextLine())
+		try
+		{
+			return ColumnarCache.openIfCurrent(this.theFile);
+		}
+		catch (IOException e)
 		{
-			this.nextLine = this.inputScanner.nextLine(); // Need to skip the first line since it
-		}                                               // only contains column names.
-		while (this.inputScanner.hasNextLine())
+			return null;
+		}
+	}
+	
+	/**
+	 * Reads data from Fortune 500 data file; processes the data.
+	 * The file is a csv file and can be assumed is formatted correctly.
+	 * See supplemental document for details on reading from csv files.
+	 * Calculates the minimum, maximum, average, and standard deviation of revenues, profits, and rank
+	 *  for all years the company is ranked. The company's rows are read first and their values then added
+	 *  to the report's Statistics, so parsing and computing statistics are timed apart in the metrics.
+	 * When the file's FortuneDataset is loaded, the company's rows are read from the shared dataset instead,
+	 *  and otherwise the company's statistics are restored from the file's ReportSnapshot if it is up to date, or
+	 *  read from the columns of the file's ColumnarCache if it is up to date, see ColumnarCache.convert.
+	 * Every call reads the file afresh into new Statistics, which replace the previous results only once
+	 *  processing completes, so a report can be processed again to pick up changes to the file while other
+	 *  threads keep reading the previous results.
+	 * Each processing is recorded in the report's metrics, see getMetrics.
+	 * @return true if processing successful, false if the input file does not exist or cannot be read,
+	 *  or the data is a stream that has already been read.
+	 */
+	public boolean processReport() 
+	{
+		boolean result = false;
+		if (this.fileExists)
 		{
-			this.nextLine = this.inputScanner.nextLine();
-			this.lineParser = new Scanner(this.nextLine); 
-			this.lineParser.useDelimiter(","); 
-			this.lineParser.next(); // Skip this value to get to the rank.
-			yearlyRank = this.lineParser.nextInt();
-			if (this.lineParser.next().equals(this.theCompany))
+			try
 			{
-				this.sumRank();
-				this.sumRevenues();
-				this.sumProfits();
+				ReportMetrics.ProcessEvent event = ReportMetrics.beginProcess();
+				long started = System.nanoTime();
+				Snapshot building = new Snapshot();
+				FortuneDataset dataset = null;
+				if (this.source == null)
+				{
+					dataset = FortuneDataset.getIfLoaded(this.theFile);
+				}
+				if (this.source != null)
+				{
+					this.extractStream(building);
+				}
+				else if (dataset != null)
+				{
+					this.extractDataset(dataset, building);
+				}
+				else if (!this.restoreSnapshot(building))
+				{
+					ColumnarCache cache = this.openCache();
+					if (cache != null)
+					{
+						this.extractColumns(cache, building);
+					}
+					else
+					{
+						this.extractNumbers(building);
+					}
+				}
+				long parsed = System.nanoTime();
+				building.addReadRows(this.missingValues);
+				this.snapshot = building;
+				this.getMetrics().recordProcess(event, "CompanyReport", this.theCompany, building.rowsScanned,
+						building.ranks.getCount(), building.bytesRead, parsed - started, System.nanoTime() - parsed);
+				result = true;
+			}
+			catch (IOException e)
+			{
+				result = false;
 			}
 		}
-		this.inputScanner.close();
-		this.lineParser.close();
+		return result;
 	}
 	
 	/**
-	 * This method is called to add new rank values to the rank array.
+	 * Returns a new report of the same data and MissingValues policy that shares this report's published
+	 *  statistics, used by a ReportCache so a caller processing the report it is given replaces only that
+	 *  report's statistics and never the cached report's.
+	 * @param companyIn - The name the new report gives the company, matching the same rows as this report's.
+	 * @return The new report.
 	 */
-	private void sumRank()
+	CompanyReport copy(String companyIn)
 	{
-		this.totalRanks[this.rankIndex] = (Double) (double) this.yearlyRank;
-		this.rankIndex++;
+		CompanyReport result = new CompanyReport(companyIn);
+		result.theFile = this.theFile;
+		result.fileExists = this.fileExists;
+		result.source = this.source;
+		result.pending = null;
+		result.missingValues = this.missingValues;
+		result.snapshot = this.snapshot;
+		return result;
 	}
 	
 	/**
-	 * This method is called to add new revenue values to the revenue array.
+	 * Marks the report as processed once every row has been added, publishing the added rows' statistics.
 	 */
-	private void sumRevenues()
+	void markProcessed()
 	{
-		this.totalRevenue[this.revenueIndex] = this.lineParser.nextDouble();
-		this.revenueIndex++;
+		this.snapshot = this.pending;
 	}
 	
 	/**
-	 * This method is called to add new profit values to the profit array.
+	 * Adds the values of one row ranking this company, used when rows are routed by a ReportEngine.
+	 * @param rankIn The company's rank for the row's year.
+	 * @param revenueIn The company's revenue for the row's year, or Double.NaN if it is missing.
+	 * @param profitIn The company's profit for the row's year, or Double.NaN if it is missing.
 	 */
-	private void sumProfits()
+	void addRow(int rankIn, double revenueIn, double profitIn)
 	{
-		this.totalProfit[this.profitIndex] = this.lineParser.nextDouble();
-		this.profitIndex++;
+		this.pending.addRow(rankIn, revenueIn, profitIn, this.missingValues);
 	}
 	
 	/**
-	 * This method retrieves the revenue array.
-	 * @return The revenue array.
+	 * This method is responsible for retrieving all of the values from the file for the given company.
+	 * The file's company index is used to read only the company's rows; the whole file is scanned
+	 *  only if the index cannot be built, matching the company as the index does.
+	 * @param building The snapshot to add the company's values to.
+	 * @throws IOException Thrown if the file cannot be read.
 	 */
-	private Double[] getRevenuesList()
+	private void extractNumbers(Snapshot building) throws IOException
 	{
-		return this.totalRevenue;
+		FileInputStream inputStream = new FileInputStream(this.theFile);
+		try (CsvRowReader rowReader = new CsvRowReader(inputStream))
+		{
+			CompanyIndex index = this.openIndex();
+			if (index != null)
+			{
+				CsvRowReader companyRows = index.openRows(inputStream.getChannel(), this.theCompany);
+				while (companyRows.nextRow())
+				{
+					building.readRow(companyRows.getRank(), companyRows.getRevenue(), companyRows.getProfit());
+				}
+				building.countInput(companyRows);
+			}
+			else
+			{
+				this.extractAll(rowReader, building);
+				building.countInput(rowReader);
+			}
+		}
 	}
 	
 	/**
-	 * This method retrieves the profit array.
-	 * @return The profits array.
+	 * This method retrieves the values for the given company by scanning the whole file.
+	 * Companies are matched as CompanyIndex.normalize matches them, see CompanyMatcher.
+	 * @param rowReader A reader of the rows of the file, positioned at its start.
+	 * @param building The snapshot to add the company's values to.
+	 * @throws IOException Thrown if the file cannot be read.
 	 */
-	private Double[] getProfitsList()
+	private void extractAll(CsvRowReader rowReader, Snapshot building) throws IOException
 	{
-		return this.totalProfit;
+		CompanyMatcher company = new CompanyMatcher(this.theCompany, Charset.defaultCharset());
+		rowReader.nextRow(); // Need to skip the first line since it only contains column names.
+		while (rowReader.nextRow())
+		{
+			if (company.matches(rowReader))
+			{
+				building.readRow(rowReader.getRank(), rowReader.getRevenue(), rowReader.getProfit());
+			}
+		}
 	}
 	
 	/**
-	 * This method retrieves the rank array.
-	 * @return The ranks array.
+	 * This method retrieves the values for the given company from a source that is not a plain file,
+	 *  reading it as a stream. Companies are matched as CompanyIndex.normalize matches them, see CompanyMatcher.
+	 * @param building The snapshot to add the company's values to.
+	 * @throws IOException Thrown if the source cannot be read.
 	 */
-	private Double[] getRanksList()
+	private void extractStream(Snapshot building) throws IOException
 	{
-		return this.totalRanks;
+		try (CsvRowReader rowReader = new CsvRowReader(this.source.open(), this.source.getCharset()))
+		{
+			CompanyMatcher company = new CompanyMatcher(this.theCompany, this.source.getCharset());
+			rowReader.nextRow(); // Need to skip the first line since it only contains column names.
+			while (rowReader.nextRow())
+			{
+				if (company.matches(rowReader))
+				{
+					building.readRow(rowReader.getRank(), rowReader.getRevenue(), rowReader.getProfit());
+				}
+			}
+			building.countInput(rowReader);
+		}
 	}
 	
 	/**
-	 * This method returns the minimum rank.
-	 * @return The minimum rank
+	 * This method retrieves all of the values for the given company from the file's loaded dataset, through
+	 *  the company index loaded with it.
+	 * @param dataset The file's dataset.
+	 * @param building The snapshot to add the company's values to.
 	 */
-	private String getMinRank()
+	private void extractDataset(FortuneDataset dataset, Snapshot building)
 	{
-		if (this.minRank == null)
+		CompanyIndex index = dataset.getCompanyIndex();
+		if (index != null)
 		{
-			return null;
+			int[] rows = index.getRowNumbers(this.theCompany);
+			for (int row : rows)
+			{
+				building.readRow(dataset.getRank(row), dataset.getRevenue(row), dataset.getProfit(row));
+			}
+			building.rowsScanned = rows.length;
 		}
 		else
 		{
-			String s = this.minRank.toString();
-			// I must test the length of the string to make the correct slice.
-			if (s.length() == 3)
+			int[] companies = dataset.getDictionary().findMatching(this.theCompany);
+			for (int row = 0; companies.length > 0 && row < dataset.getRowCount(); row++)
 			{
-				s = s.substring(0, 1);
+				if (Arrays.binarySearch(companies, dataset.getCompanyId(row)) >= 0)
+				{
+					building.readRow(dataset.getRank(row), dataset.getRevenue(row), dataset.getProfit(row));
+				}
 			}
-			else if (s.length() == 4)
+			building.rowsScanned = companies.length > 0 ? dataset.getRowCount() : 0;
+		}
+	}
+	
+	/**
+	 * This method retrieves all of the values for the given company from the file's columnar cache.
+	 * @param cache The file's columnar cache.
+	 * @param building The snapshot to add the company's values to.
+	 */
+	private void extractColumns(ColumnarCache cache, Snapshot building)
+	{
+		CompanyIndex index = this.openIndex();
+		if (index != null)
+		{
+			int[] rows = index.getRowNumbers(this.theCompany);
+			for (int row : rows)
 			{
-				s = s.substring(0, 2);
+				building.readRow(cache.getRank(row), cache.getRevenue(row), cache.getProfit(row));
 			}
-			else
+			building.rowsScanned = rows.length;
+		}
+		else
+		{
+			int[] companies = cache.findMatching(this.theCompany);
+			for (int row = 0; companies.length > 0 && row < cache.getRowCount(); row++)
 			{
-				s = s.substring(0, 3);
+				if (Arrays.binarySearch(companies, cache.getCompanyId(row)) >= 0)
+				{
+					building.readRow(cache.getRank(row), cache.getRevenue(row), cache.getProfit(row));
+				}
 			}
-			return s;
+			building.rowsScanned = companies.length > 0 ? cache.getRowCount() : 0;
 		}
 	}
 	
 	/**
-	 * This method returns the maximum rank.
-	 * @return The maximum rank
+	 * Opens the file's company index, see CompanyIndex.
+	 * @return The index, or null if it cannot be built.
 	 */
-	private String getMaxRank()
+	private CompanyIndex openIndex()
 	{
-		if (this.maxRank == null)
+		try
+		{
+			return CompanyIndex.forFile(this.theFile);
+		}
+		catch (IOException e)
 		{
 			return null;
 		}
+	}
+	
+	/**
+	 * This method appends a rank as a whole number, or "null" if there is no rank.
+	 * @param builder The builder to append to.
+	 * @param rankIn The rank, or null.
+	 * @return The builder.
+	 */
+	private static StringBuilder appendRank(StringBuilder builder, Double rankIn)
+	{
+		if (rankIn == null)
+		{
+			return builder.append("null");
+		}
+		double rank = rankIn;
+		if (0 <= rank && rank < 1000 && rank == Math.rint(rank))
+		{
+			return builder.append((int) rank);
+		}
+		String s = rankIn.toString();
+		// I must test the length of the string to make the correct slice.
+		if (s.length() == 3)
+		{
+			s = s.substring(0, 1);
+		}
+		else if (s.length() == 4)
+		{
+			s = s.substring(0, 2);
+		}
 		else
 		{
-			String s = this.maxRank.toString();
-			// I must test the length of the string to make the correct slice.
-			if (s.length() == 3)
-			{
-				s = s.substring(0, 1);
-			}
-			else if (s.length() == 4)
-			{
-				s = s.substring(0, 2);
-			}
-			else
-			{
-				s = s.substring(0, 3);
-			}
-			return s;
+			s = s.substring(0, 3);
 		}
+		return builder.append(s);
 	}
 	
+	/**
+	 * Writes the statistics of the processed report so they can be restored with readState.
+	 * @param outputIn The output to write to.
+	 * @throws IOException Thrown if the output cannot be written.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	void writeState(DataOutput outputIn) throws IOException, DataNotProcessedException
+	{
+		Snapshot current = this.snapshot;
+		if (current == null)
+		{
+			throw new DataNotProcessedException();
+		}
+		current.writeState(outputIn);
+	}
+
+	/**
+	 * Restores statistics written by writeState as the rows already added, before more rows are added
+	 *  through addRow, used when a ReportEngine updates its reports.
+	 * @param inputIn The input to read from.
+	 * @throws IOException Thrown if the input cannot be read.
+	 */
+	void readState(DataInput inputIn) throws IOException
+	{
+		this.pending.readState(inputIn);
+	}
+
+	/**
+	 * Appends the processed report to a builder, as it would be returned by CompanyReport's toString.
+	 * @param builder The builder to append to.
+	 * @return The builder.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	StringBuilder appendReport(StringBuilder builder) throws DataNotProcessedException
+	{
+		Snapshot current = this.snapshot;
+		if (current == null)
+		{
+			throw new DataNotProcessedException();
+		}
+		return this.format(builder, current);
+	}
+
+	/**
+	 * Appends the processed report to a builder as a JSON object of the form:
+	 *
+	 * {"company":COMPANY,"ranked":RANKED,"revenue":STATISTICS,"profit":STATISTICS,"rank":STATISTICS}
+	 *
+	 * Where each STATISTICS is an object as described by Statistics.appendJsonTo.
+	 * @param builder The builder to append to.
+	 * @return The builder.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	StringBuilder appendJson(StringBuilder builder) throws DataNotProcessedException
+	{
+		Snapshot current = this.snapshot;
+		if (current == null)
+		{
+			throw new DataNotProcessedException();
+		}
+		ReportWriter.appendJsonString(builder.append("{\"company\":"), this.theCompany);
+		builder.append(",\"ranked\":").append(current.ranks.getCount());
+		current.revenues.appendJsonTo(builder.append(",\"revenue\":"));
+		current.profits.appendJsonTo(builder.append(",\"profit\":"));
+		current.ranks.appendJsonTo(builder.append(",\"rank\":"));
+		return builder.append('}');
+	}
+
 	/**
 	 * Writes the processed report to the given file.
 	 * The given file's contents will look like the result of calling CompanyReport's toString.
+	 * Each write is recorded in the report's metrics, see getMetrics.
 	 * @param outputFile - File to write report to.
 	 * @throws DataNotProcessedException - Thrown if write attempted and report has not yet been processed.
 	 * @return true if write successful, false if file cannot be created. 
 	 */
 	public boolean writeReport(File outputFile) throws DataNotProcessedException
 	{
-		if (!this.isProcessed)
+		Snapshot current = this.snapshot;
+		if (current == null)
 		{
 			throw new DataNotProcessedException();
 		}
 		boolean result = false;
 		try 
 		{
-			FileOutputStream fos = new FileOutputStream(outputFile);
-			PrintWriter writer =  new PrintWriter(fos);
-			writer.print(this.toString());
-			writer.close();
-			fos.close();
+			ReportMetrics.WriteEvent event = ReportMetrics.beginWrite();
+			long started = System.nanoTime();
+			StringBuilder text = this.format(ReportWriter.builder(), current);
+			long formatted = System.nanoTime();
+			long bytes = ReportWriter.write(outputFile, text);
+			this.getMetrics().recordWrite(event, "CompanyReport", this.theCompany, outputFile.getPath(), bytes,
+					formatted - started, System.nanoTime() - formatted);
 			result = true;
 		}
 		catch (IOException e) 
@@ -425,19 +822,30 @@ public class CompanyReport implements Report
 	@Override
 	public String toString()
 	{
-		String result;
-		result = String.format("Fortune 500 Report for %s ranked %d times\n"
-				+ "Revenue\n"
-				+ "Min: %.3f Max: %.3f Avg: %.3f StD: %.3f\n"
-				+ "Profit\n"
-				+ "Min: %.3f Max: %.3f Avg: %.3f StD: %.3f\n"
-				+ "Rank\n"
-				+ "Min: %s Max: %s Avg: %.3f StD: %.3f", this.getCompany(), this.rankIndex,
-				this.minRevenue, 
-				this.maxRevenue, this.avgRevenue, this.sDRevenue, this.minProfit,
-				this.maxProfit, this.avgProfit, this.sDProfit, this.getMinRank(),
-				this.getMaxRank(), this.avgRank, this.sDRank);
-		return result;
+		Snapshot current = this.snapshot;
+		if (current == null)
+		{
+			current = new Snapshot();
+		}
+		return this.format(ReportWriter.builder(), current).toString();
+	}
+
+	/**
+	 * Appends the statistics of one snapshot to a builder as described by toString.
+	 * @param builder The builder to append to.
+	 * @param current The snapshot to format.
+	 * @return The builder.
+	 */
+	private StringBuilder format(StringBuilder builder, Snapshot current)
+	{
+		builder.append("Fortune 500 Report for ").append(this.getCompany()).append(" ranked ");
+		ReportWriter.appendWhole(builder, current.ranks.getCount()).append(" times");
+		current.revenues.appendTo(builder.append("\nRevenue\n"));
+		current.profits.appendTo(builder.append("\nProfit\n"));
+		appendRank(builder.append("\nRank\nMin: "), current.ranks.getMinimum());
+		appendRank(builder.append(" Max: "), current.ranks.getMaximum());
+		ReportWriter.appendDecimal(builder.append(" Avg: "), current.ranks.getAverage());
+		return ReportWriter.appendDecimal(builder.append(" StD: "), current.ranks.getStandardDeviation());
 	}
 
 	/**
@@ -448,6 +856,70 @@ public class CompanyReport implements Report
 	{
 		return this.theCompany;
 	}
+
+	/**
+	 * Returns how rows with a missing revenue or profit are treated.
+	 * @return The policy, MissingValues.COUNT unless set with setMissingValues.
+	 */
+	public MissingValues getMissingValues()
+	{
+		return this.missingValues;
+	}
+
+	/**
+	 * Sets how rows with a missing revenue or profit are treated the next time the report is processed.
+	 * @param missingValuesIn - The policy.
+	 */
+	public void setMissingValues(MissingValues missingValuesIn)
+	{
+		this.missingValues = missingValuesIn;
+	}
+
+	/**
+	 * Returns the number of missing revenues and profits found in the company's rows by the last
+	 *  processing, counted whatever the report's MissingValues policy.
+	 * @return The number of missing values.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	public int getMissingCount() throws DataNotProcessedException
+	{
+		Snapshot current = this.snapshot;
+		if (current == null)
+		{
+			throw new DataNotProcessedException();
+		}
+		return current.missing;
+	}
+
+	/**
+	 * Returns the number of years the company was ranked in the rows read by the last processing, which is
+	 *  0 when the data has no rows of the company.
+	 * @return The number of years ranked.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	public int getRankedCount() throws DataNotProcessedException
+	{
+		Snapshot current = this.snapshot;
+		if (current == null)
+		{
+			throw new DataNotProcessedException();
+		}
+		return current.ranks.getCount();
+	}
+
+	/**
+	 * Returns the counts and timings of every processing and writing of this report. The metrics can be
+	 *  registered with JMX, see ReportMetrics.register.
+	 * @return The report's metrics.
+	 */
+	public synchronized ReportMetrics getMetrics()
+	{
+		if (this.metrics == null)
+		{
+			this.metrics = new ReportMetrics();
+		}
+		return this.metrics;
+	}
 	
 	/**
 	 * This method sets proper company names.
@@ -0,0 +1,817 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import reports.io.ColumnarCache;
+import reports.io.CompanyIndex;
+import reports.io.CompanyMatcher;
+import reports.io.CsvRowReader;
+import reports.io.DataSource;
+import reports.io.FortuneDataset;
+import reports.io.ReportWriter;
+
+/**
+ * A report of the history of a single company of Fortune 500 data, year by year.
+ * Report includes the company's rank, revenue, and profit for every year it was ranked, sorted by year,
+ *  along with the year over year growth of revenue and profit, the change in rank, the compound annual
+ *  growth rate of revenue and profit, and rolling averages of revenue and profit over any number of windows.
+ * The rows are kept in primitive arrays, and every derived series is computed in one pass over them once
+ *  the company's rows have been read, so a report for a range of years does not need the data read again.
+ * Growth is the change from the previous year as a percentage of the previous year's value, and is only
+ *  computed between consecutive years; a rank change is positive when the company moved up. The rolling
+ *  average of a window of W years at a year is the average over the years the company was ranked among
+ *  that year and the W - 1 years before it.
+ * Companies are matched as CompanyReport matches them. Like CompanyReport, the results of each processing
+ *  are published whole, so a report can be shared between threads and read while it is being processed again.
+ * @author Logan Noonan
+ *
+ */
+public class CompanyTimeSeriesReport implements Report
+{
+	/**
+	 * The rolling average windows used by the constructors without windows, in years.
+	 */
+	private static final int[] DEFAULT_WINDOWS = {3, 5};
+
+	/**
+	 * Where the data is read from.
+	 */
+	private DataSource source;
+
+	/**
+	 * The results of the last completed processing, or null if the report has not been processed.
+	 */
+	private volatile Snapshot snapshot;
+
+	/**
+	 * The company to process a report on.
+	 */
+	private String theCompany;
+
+	/**
+	 * The rolling average windows, in years.
+	 */
+	private int[] windows;
+
+	/**
+	 * The rows and derived series of one processing of a CompanyTimeSeriesReport.
+	 * A snapshot is only added to while it is being built and is never changed once published.
+	 * Derived values that do not exist, such as the growth of the first year, are NaN.
+	 */
+	private static class Snapshot
+	{
+		/**
+		 * The number of rows.
+		 */
+		private int size;
+
+		/**
+		 * The year of each row.
+		 */
+		private int[] years = new int[16];
+
+		/**
+		 * The company's rank in each row.
+		 */
+		private int[] ranks = new int[16];
+
+		/**
+		 * The company's revenue in each row.
+		 */
+		private double[] revenues = new double[16];
+
+		/**
+		 * The company's profit in each row.
+		 */
+		private double[] profits = new double[16];
+
+		/**
+		 * The change in rank from the previous year of each row.
+		 */
+		private double[] rankChanges;
+
+		/**
+		 * The growth of revenue from the previous year of each row, in percent.
+		 */
+		private double[] revenueGrowth;
+
+		/**
+		 * The growth of profit from the previous year of each row, in percent.
+		 */
+		private double[] profitGrowth;
+
+		/**
+		 * The rolling averages of revenue of each row, one array per window.
+		 */
+		private double[][] revenueAverages;
+
+		/**
+		 * The rolling averages of profit of each row, one array per window.
+		 */
+		private double[][] profitAverages;
+
+		/**
+		 * The compound annual growth rate of revenue from the first row to the last, in percent.
+		 */
+		private double revenueRate = Double.NaN;
+
+		/**
+		 * The compound annual growth rate of profit from the first row to the last, in percent.
+		 */
+		private double profitRate = Double.NaN;
+
+		/**
+		 * Adds one row ranking the company, growing the arrays if needed.
+		 * @param yearIn The row's year.
+		 * @param rankIn The company's rank for the row's year.
+		 * @param revenueIn The company's revenue for the row's year.
+		 * @param profitIn The company's profit for the row's year.
+		 */
+		void addRow(int yearIn, int rankIn, double revenueIn, double profitIn)
+		{
+			if (this.size == this.years.length)
+			{
+				int capacity = this.size * 2;
+				this.years = Arrays.copyOf(this.years, capacity);
+				this.ranks = Arrays.copyOf(this.ranks, capacity);
+				this.revenues = Arrays.copyOf(this.revenues, capacity);
+				this.profits = Arrays.copyOf(this.profits, capacity);
+			}
+			// Rows almost always arrive in year order, so this only moves rows of a file that is not grouped by year.
+			int index = this.size++;
+			while (index > 0 && this.years[index - 1] > yearIn)
+			{
+				this.years[index] = this.years[index - 1];
+				this.ranks[index] = this.ranks[index - 1];
+				this.revenues[index] = this.revenues[index - 1];
+				this.profits[index] = this.profits[index - 1];
+				index--;
+			}
+			this.years[index] = yearIn;
+			this.ranks[index] = rankIn;
+			this.revenues[index] = revenueIn;
+			this.profits[index] = profitIn;
+		}
+
+		/**
+		 * Computes every derived series in one pass over the rows, once every row has been added.
+		 * @param windowsIn The rolling average windows, in years.
+		 */
+		void finish(int[] windowsIn)
+		{
+			this.rankChanges = new double[this.size];
+			this.revenueGrowth = new double[this.size];
+			this.profitGrowth = new double[this.size];
+			this.revenueAverages = new double[windowsIn.length][this.size];
+			this.profitAverages = new double[windowsIn.length][this.size];
+			int[] starts = new int[windowsIn.length];
+			for (int row = 0; row < this.size; row++)
+			{
+				boolean consecutive = row > 0 && this.years[row - 1] == this.years[row] - 1;
+				this.rankChanges[row] = consecutive ? this.ranks[row - 1] - this.ranks[row] : Double.NaN;
+				this.revenueGrowth[row] = consecutive ? growth(this.revenues[row - 1], this.revenues[row]) : Double.NaN;
+				this.profitGrowth[row] = consecutive ? growth(this.profits[row - 1], this.profits[row]) : Double.NaN;
+				for (int window = 0; window < windowsIn.length; window++)
+				{
+					while (this.years[starts[window]] <= this.years[row] - windowsIn[window])
+					{
+						starts[window]++;
+					}
+					// A window holds at most W rows, so it is summed afresh rather than kept as a running sum
+					//  that would pick up rounding errors as rows leave it.
+					double revenueSum = 0.0;
+					double profitSum = 0.0;
+					for (int inWindow = starts[window]; inWindow <= row; inWindow++)
+					{
+						revenueSum += this.revenues[inWindow];
+						profitSum += this.profits[inWindow];
+					}
+					int count = row - starts[window] + 1;
+					this.revenueAverages[window][row] = revenueSum / count;
+					this.profitAverages[window][row] = profitSum / count;
+				}
+			}
+			if (this.size > 1)
+			{
+				int span = this.years[this.size - 1] - this.years[0];
+				this.revenueRate = rate(this.revenues[0], this.revenues[this.size - 1], span);
+				this.profitRate = rate(this.profits[0], this.profits[this.size - 1], span);
+			}
+		}
+
+		/**
+		 * Returns the growth from one value to the next.
+		 * @param previous The previous value.
+		 * @param current The current value.
+		 * @return The change as a percentage of the size of the previous value, or NaN if it is zero.
+		 */
+		private static double growth(double previous, double current)
+		{
+			if (previous == 0.0)
+			{
+				return Double.NaN;
+			}
+			return (current - previous) / Math.abs(previous) * 100.0;
+		}
+
+		/**
+		 * Returns the compound annual growth rate from one value to another.
+		 * @param first The first value.
+		 * @param last The last value.
+		 * @param span The number of years between the values.
+		 * @return The rate in percent, or NaN if either value is not positive or the span is not positive.
+		 */
+		private static double rate(double first, double last, int span)
+		{
+			if (first <= 0.0 || last <= 0.0 || span <= 0)
+			{
+				return Double.NaN;
+			}
+			return (Math.pow(last / first, 1.0 / span) - 1.0) * 100.0;
+		}
+	}
+
+	/**
+	 * Creates new CompanyTimeSeriesReport for given company with rolling averages over 3 and 5 years;
+	 *  data to be read from given file.
+	 * @param inputFileIn - File containing Fortune 500 data for this report.
+	 * @param companyIn - Company to report Fortune 500 data.
+	 */
+	public CompanyTimeSeriesReport(File inputFileIn, String companyIn)
+	{
+		this(inputFileIn == null ? null : DataSource.of(inputFileIn), companyIn, DEFAULT_WINDOWS);
+	}
+
+	/**
+	 * Creates new CompanyTimeSeriesReport for given company; data to be read from given source.
+	 * A source that is not a plain file is read in full each time the report is processed, matching
+	 *  companies as CompanyReport does.
+	 * @param sourceIn - Source of Fortune 500 data for this report.
+	 * @param companyIn - Company to report Fortune 500 data.
+	 * @param windowsIn - Rolling average windows, in years, each at least 1.
+	 */
+	public CompanyTimeSeriesReport(DataSource sourceIn, String companyIn, int... windowsIn)
+	{
+		for (int window : windowsIn)
+		{
+			if (window < 1)
+			{
+				throw new IllegalArgumentException("A rolling average window must be at least one year.");
+			}
+		}
+		this.source = sourceIn;
+		this.theCompany = companyIn;
+		this.windows = windowsIn.clone();
+		this.snapshot = null;
+	}
+
+	/**
+	 * Reads data from Fortune 500 data file; processes the data.
+	 * The company's rows are read through the file's loaded FortuneDataset, columnar cache, or company index
+	 *  when the data is a plain file, and the data is scanned in full otherwise. Every derived series is then computed in one
+	 *  pass, and the results replace the previous results only once processing completes.
+	 * @return true if processing successful, false if the input file does not exist or cannot be read,
+	 *  or the data is a stream that has already been read.
+	 */
+	public boolean processReport()
+	{
+		if (this.source == null)
+		{
+			return false;
+		}
+		boolean result;
+		try
+		{
+			Snapshot building = new Snapshot();
+			File file = this.source.getFile();
+			FortuneDataset dataset = null;
+			ColumnarCache cache = null;
+			if (file != null)
+			{
+				dataset = FortuneDataset.getIfLoaded(file);
+			}
+			if (file != null && dataset == null)
+			{
+				cache = openCache(file);
+			}
+			if (file == null)
+			{
+				this.extractStream(building);
+			}
+			else if (dataset != null)
+			{
+				this.extractDataset(dataset, building);
+			}
+			else if (cache != null)
+			{
+				this.extractColumns(file, cache, building);
+			}
+			else
+			{
+				this.extractNumbers(file, building);
+			}
+			building.finish(this.windows);
+			this.snapshot = building;
+			result = true;
+		}
+		catch (IOException e)
+		{
+			result = false;
+		}
+		return result;
+	}
+
+	/**
+	 * Opens a file's columnar cache, see ColumnarCache.
+	 * @param file The data file.
+	 * @return The cache, or null if the file has no up to date cache or it cannot be read.
+	 */
+	private static ColumnarCache openCache(File file)
+	{
+		try
+		{
+			return ColumnarCache.openIfCurrent(file);
+		}
+		catch (IOException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Opens a file's company index, see CompanyIndex.
+	 * @param file The data file.
+	 * @return The index, or null if it cannot be built.
+	 */
+	private static CompanyIndex openIndex(File file)
+	{
+		try
+		{
+			return CompanyIndex.forFile(file);
+		}
+		catch (IOException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Retrieves the company's rows from a plain file through its company index; the whole file is scanned
+	 *  only if the index cannot be built, matching the company as the index does, see CompanyMatcher.
+	 * @param file The data file.
+	 * @param building The snapshot to add the company's rows to.
+	 * @throws IOException Thrown if the file cannot be read.
+	 */
+	private void extractNumbers(File file, Snapshot building) throws IOException
+	{
+		FileInputStream inputStream = new FileInputStream(file);
+		try (CsvRowReader rowReader = new CsvRowReader(inputStream))
+		{
+			CompanyIndex index = openIndex(file);
+			if (index != null)
+			{
+				CsvRowReader companyRows = index.openRows(inputStream.getChannel(), this.theCompany);
+				while (companyRows.nextRow())
+				{
+					addRow(companyRows, building);
+				}
+			}
+			else
+			{
+				CompanyMatcher company = new CompanyMatcher(this.theCompany, Charset.defaultCharset());
+				rowReader.nextRow(); // Skip the first line since it is column names.
+				while (rowReader.nextRow())
+				{
+					if (company.matches(rowReader))
+					{
+						addRow(rowReader, building);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Retrieves the company's rows from a source that is not a plain file, reading it as a stream.
+	 * Companies are matched as CompanyIndex.normalize matches them, see CompanyMatcher.
+	 * @param building The snapshot to add the company's rows to.
+	 * @throws IOException Thrown if the source cannot be read.
+	 */
+	private void extractStream(Snapshot building) throws IOException
+	{
+		try (CsvRowReader rowReader = new CsvRowReader(this.source.open(), this.source.getCharset()))
+		{
+			CompanyMatcher company = new CompanyMatcher(this.theCompany, this.source.getCharset());
+			rowReader.nextRow(); // Skip the first line since it is column names.
+			while (rowReader.nextRow())
+			{
+				if (company.matches(rowReader))
+				{
+					addRow(rowReader, building);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Retrieves the company's rows from a file's columnar cache.
+	 * @param file The data file.
+	 * @param cache The file's columnar cache.
+	 * @param building The snapshot to add the company's rows to.
+	 */
+	private void extractColumns(File file, ColumnarCache cache, Snapshot building)
+	{
+		CompanyIndex index = openIndex(file);
+		if (index != null)
+		{
+			for (int row : index.getRowNumbers(this.theCompany))
+			{
+				building.addRow(cache.getYear(row), cache.getRank(row), cache.getRevenue(row), cache.getProfit(row));
+			}
+		}
+		else
+		{
+			int[] companies = cache.findMatching(this.theCompany);
+			for (int row = 0; companies.length > 0 && row < cache.getRowCount(); row++)
+			{
+				if (Arrays.binarySearch(companies, cache.getCompanyId(row)) >= 0)
+				{
+					building.addRow(cache.getYear(row), cache.getRank(row), cache.getRevenue(row), cache.getProfit(row));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Retrieves the company's rows from a file's loaded dataset, through the company index loaded with it.
+	 * @param dataset The file's dataset.
+	 * @param building The snapshot to add the company's rows to.
+	 */
+	private void extractDataset(FortuneDataset dataset, Snapshot building)
+	{
+		CompanyIndex index = dataset.getCompanyIndex();
+		if (index != null)
+		{
+			for (int row : index.getRowNumbers(this.theCompany))
+			{
+				building.addRow(dataset.getYear(row), dataset.getRank(row), dataset.getRevenue(row),
+						dataset.getProfit(row));
+			}
+		}
+		else
+		{
+			int[] companies = dataset.getDictionary().findMatching(this.theCompany);
+			for (int row = 0; companies.length > 0 && row < dataset.getRowCount(); row++)
+			{
+				if (Arrays.binarySearch(companies, dataset.getCompanyId(row)) >= 0)
+				{
+					building.addRow(dataset.getYear(row), dataset.getRank(row), dataset.getRevenue(row),
+							dataset.getProfit(row));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the current row of a reader to a snapshot.
+	 * @param rowReader A reader positioned at a row of the company.
+	 * @param building The snapshot to add the row to.
+	 */
+	private static void addRow(CsvRowReader rowReader, Snapshot building)
+	{
+		building.addRow(rowReader.getYear(), rowReader.getRank(), rowReader.getRevenue(), rowReader.getProfit());
+	}
+
+	/**
+	 * Returns the published snapshot.
+	 * @return The snapshot.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	private Snapshot current() throws DataNotProcessedException
+	{
+		Snapshot current = this.snapshot;
+		if (current == null)
+		{
+			throw new DataNotProcessedException();
+		}
+		return current;
+	}
+
+	/**
+	 * Writes the processed report to the given file.
+	 * The given file's contents will look like the result of calling CompanyTimeSeriesReport's toString.
+	 * @param outputFile - File to write report to.
+	 * @return true if write successful, false if file cannot be created.
+	 * @throws DataNotProcessedException - Thrown if write attempted and report has not yet been processed.
+	 */
+	public boolean writeReport(File outputFile) throws DataNotProcessedException
+	{
+		Snapshot current = this.current();
+		boolean result;
+		try
+		{
+			ReportWriter.write(outputFile, this.format(ReportWriter.builder(), current));
+			result = true;
+		}
+		catch (IOException e)
+		{
+			result = false;
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the processed report to the given file as csv, one line per year after a line of column names:
+	 *  year,rank,rank_change,revenue,revenue_growth,profit,profit_growth, then revenue_avg_W and profit_avg_W
+	 *  for each window W.
+	 * Values are written in full precision with a '.' decimal separator whatever the default locale, and
+	 *  values that do not exist are left empty.
+	 * @param outputFile - File to write the csv to.
+	 * @return true if write successful, false if file cannot be created.
+	 * @throws DataNotProcessedException - Thrown if write attempted and report has not yet been processed.
+	 */
+	public boolean writeCsv(File outputFile) throws DataNotProcessedException
+	{
+		Snapshot current = this.current();
+		StringBuilder builder = ReportWriter.builder();
+		builder.append("year,rank,rank_change,revenue,revenue_growth,profit,profit_growth");
+		for (int window : this.windows)
+		{
+			builder.append(",revenue_avg_").append(window).append(",profit_avg_").append(window);
+		}
+		for (int row = 0; row < current.size; row++)
+		{
+			builder.append('\n').append(current.years[row]).append(',').append(current.ranks[row]).append(',');
+			if (!Double.isNaN(current.rankChanges[row]))
+			{
+				builder.append((int) current.rankChanges[row]);
+			}
+			appendCsv(appendCsv(builder.append(','), current.revenues[row]).append(','), current.revenueGrowth[row]);
+			appendCsv(appendCsv(builder.append(','), current.profits[row]).append(','), current.profitGrowth[row]);
+			for (int window = 0; window < this.windows.length; window++)
+			{
+				appendCsv(builder.append(','), current.revenueAverages[window][row]);
+				appendCsv(builder.append(','), current.profitAverages[window][row]);
+			}
+		}
+		builder.append('\n');
+		boolean result;
+		try
+		{
+			ReportWriter.write(outputFile, builder);
+			result = true;
+		}
+		catch (IOException e)
+		{
+			result = false;
+		}
+		return result;
+	}
+
+	/**
+	 * Appends a csv value, or nothing if the value does not exist.
+	 * @param builder The builder to append to.
+	 * @param value The value, or NaN.
+	 * @return The builder.
+	 */
+	private static StringBuilder appendCsv(StringBuilder builder, double value)
+	{
+		if (!Double.isNaN(value))
+		{
+			builder.append(value);
+		}
+		return builder;
+	}
+
+	/**
+	 * Returns a formatted String of this report suitable for writing to an output file. String is of the form:
+	 *
+	 * Fortune 500 Time Series Report for COMPANY ranked RANKED times
+	 * Revenue CAGR: REVRATE Profit CAGR: PRORATE
+	 * YEAR Rank: RANK Change: CHANGE Revenue: REV Growth: REVGROWTH Profit: PRO Growth: PROGROWTH Avg W: REVAVG PROAVG
+	 * ...
+	 *
+	 * Where COMPANY is the company, RANKED is the number of years it was ranked, REVRATE and PRORATE are the
+	 *  compound annual growth rates of revenue and profit, and there is one line per year in order of year,
+	 *  with "Avg W: " followed by the rolling averages of revenue and profit for each window W.
+	 * Values are formatted to exactly three decimals like CompanyReport, except for YEAR, RANK, CHANGE, and W
+	 *  which are whole numbers; values that do not exist are shown as "nul", or "null" for CHANGE.
+	 * There are no blank lines, and the String does not end in a new line.
+	 */
+	@Override
+	public String toString()
+	{
+		Snapshot current = this.snapshot;
+		if (current == null)
+		{
+			current = new Snapshot();
+			current.finish(this.windows);
+		}
+		return this.format(ReportWriter.builder(), current).toString();
+	}
+
+	/**
+	 * Appends one snapshot to a builder as described by toString.
+	 * @param builder The builder to append to.
+	 * @param current The snapshot to format.
+	 * @return The builder.
+	 */
+	private StringBuilder format(StringBuilder builder, Snapshot current)
+	{
+		builder.append("Fortune 500 Time Series Report for ").append(this.theCompany).append(" ranked ");
+		ReportWriter.appendWhole(builder, current.size).append(" times");
+		appendValue(builder.append("\nRevenue CAGR: "), current.revenueRate);
+		appendValue(builder.append(" Profit CAGR: "), current.profitRate);
+		for (int row = 0; row < current.size; row++)
+		{
+			ReportWriter.appendWhole(builder.append('\n'), current.years[row]);
+			ReportWriter.appendWhole(builder.append(" Rank: "), current.ranks[row]);
+			builder.append(" Change: ");
+			if (Double.isNaN(current.rankChanges[row]))
+			{
+				builder.append("null");
+			}
+			else
+			{
+				ReportWriter.appendWhole(builder, (long) current.rankChanges[row]);
+			}
+			appendValue(builder.append(" Revenue: "), current.revenues[row]);
+			appendValue(builder.append(" Growth: "), current.revenueGrowth[row]);
+			appendValue(builder.append(" Profit: "), current.profits[row]);
+			appendValue(builder.append(" Growth: "), current.profitGrowth[row]);
+			for (int window = 0; window < this.windows.length; window++)
+			{
+				ReportWriter.appendWhole(builder.append(" Avg "), this.windows[window]).append(": ");
+				appendValue(builder, current.revenueAverages[window][row]).append(' ');
+				appendValue(builder, current.profitAverages[window][row]);
+			}
+		}
+		return builder;
+	}
+
+	/**
+	 * Appends a value to exactly three decimals, or "nul" if the value does not exist.
+	 * @param builder The builder to append to.
+	 * @param value The value, or NaN.
+	 * @return The builder.
+	 */
+	private static StringBuilder appendValue(StringBuilder builder, double value)
+	{
+		return ReportWriter.appendDecimal(builder, Double.isNaN(value) ? null : Double.valueOf(value));
+	}
+
+	/**
+	 * Returns the years the company was ranked, in order.
+	 * @return The years.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	public int[] getYears() throws DataNotProcessedException
+	{
+		Snapshot current = this.current();
+		return Arrays.copyOf(current.years, current.size);
+	}
+
+	/**
+	 * Returns the company's rank in each year of getYears.
+	 * @return The ranks.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	public int[] getRanks() throws DataNotProcessedException
+	{
+		Snapshot current = this.current();
+		return Arrays.copyOf(current.ranks, current.size);
+	}
+
+	/**
+	 * Returns the company's revenue in each year of getYears.
+	 * @return The revenues.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	public double[] getRevenues() throws DataNotProcessedException
+	{
+		Snapshot current = this.current();
+		return Arrays.copyOf(current.revenues, current.size);
+	}
+
+	/**
+	 * Returns the company's profit in each year of getYears.
+	 * @return The profits.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	public double[] getProfits() throws DataNotProcessedException
+	{
+		Snapshot current = this.current();
+		return Arrays.copyOf(current.profits, current.size);
+	}
+
+	/**
+	 * Returns the change in rank from the previous year for each year of getYears, positive when the company
+	 *  moved up, or NaN when the company was not ranked the previous year.
+	 * @return The rank changes.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	public double[] getRankChanges() throws DataNotProcessedException
+	{
+		return this.current().rankChanges.clone();
+	}
+
+	/**
+	 * Returns the year over year growth of revenue for each year of getYears, in percent, or NaN when there
+	 *  is no previous year.
+	 * @return The revenue growth.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	public double[] getRevenueGrowth() throws DataNotProcessedException
+	{
+		return this.current().revenueGrowth.clone();
+	}
+
+	/**
+	 * Returns the year over year growth of profit for each year of getYears, in percent, or NaN when there
+	 *  is no previous year or its profit was zero.
+	 * @return The profit growth.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	public double[] getProfitGrowth() throws DataNotProcessedException
+	{
+		return this.current().profitGrowth.clone();
+	}
+
+	/**
+	 * Returns the rolling average of revenue over a window for each year of getYears.
+	 * @param windowIn - One of the report's windows, in years.
+	 * @return The rolling averages.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	public double[] getRevenueAverages(int windowIn) throws DataNotProcessedException
+	{
+		return this.current().revenueAverages[this.windowIndex(windowIn)].clone();
+	}
+
+	/**
+	 * Returns the rolling average of profit over a window for each year of getYears.
+	 * @param windowIn - One of the report's windows, in years.
+	 * @return The rolling averages.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	public double[] getProfitAverages(int windowIn) throws DataNotProcessedException
+	{
+		return this.current().profitAverages[this.windowIndex(windowIn)].clone();
+	}
+
+	/**
+	 * Finds a window among the report's windows.
+	 * @param window The window, in years.
+	 * @return The index of the window.
+	 */
+	private int windowIndex(int window)
+	{
+		for (int index = 0; index < this.windows.length; index++)
+		{
+			if (this.windows[index] == window)
+			{
+				return index;
+			}
+		}
+		throw new IllegalArgumentException("The report has no rolling average over " + window + " years.");
+	}
+
+	/**
+	 * Returns the compound annual growth rate of revenue from the company's first ranked year to its last.
+	 * @return The rate in percent, or null if the company was ranked in fewer than two years or either
+	 *  revenue is not positive.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	public Double getRevenueGrowthRate() throws DataNotProcessedException
+	{
+		double rate = this.current().revenueRate;
+		return Double.isNaN(rate) ? null : Double.valueOf(rate);
+	}
+
+	/**
+	 * Returns the compound annual growth rate of profit from the company's first ranked year to its last.
+	 * @return The rate in percent, or null if the company was ranked in fewer than two years or either
+	 *  profit is not positive.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	public Double getProfitGrowthRate() throws DataNotProcessedException
+	{
+		double rate = this.current().profitRate;
+		return Double.isNaN(rate) ? null : Double.valueOf(rate);
+	}
+
+	/**
+	 * Returns the company of this report.
+	 * @return Company of this report.
+	 */
+	public String getCompany()
+	{
+		return this.theCompany;
+	}
+}
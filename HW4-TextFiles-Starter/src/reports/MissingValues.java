@@ -0,0 +1,50 @@
+// NAME: Logan Noonan
+
+package reports;
+
+/**
+ * How a report treats a row whose revenue or profit is missing from the data file, such as a profit of N.A.
+ *  or an empty field; see CsvRowReader.isMissing. Whatever the policy, every missing value found is counted,
+ *  see YearReport.getMissingCount and CompanyReport.getMissingCount.
+ * @author Logan Noonan
+ *
+ */
+public enum MissingValues
+{
+	/**
+	 * A row with a missing value is left out of a report entirely. A ReportQuery leaves out only the missing
+	 *  value, as COUNT does, since it leaves out rows by its filters.
+	 */
+	SKIP,
+
+	/**
+	 * A missing value is left out of its own statistics, and the row's other values are still reported.
+	 */
+	COUNT,
+
+	/**
+	 * A missing value is reported as zero.
+	 */
+	ZERO;
+
+	/**
+	 * Adds a value that may be missing to statistics, leaving a missing value out or adding zero in its
+	 *  place as the policy says. Reports leave out rows under SKIP before their values are added.
+	 * @param statisticsIn The statistics to add to.
+	 * @param valueIn The value, or Double.NaN if it is missing.
+	 * @return 1 if the value is missing, 0 otherwise, so callers can count missing values.
+	 */
+	int add(Statistics statisticsIn, double valueIn)
+	{
+		if (!Double.isNaN(valueIn))
+		{
+			statisticsIn.add(valueIn);
+			return 0;
+		}
+		if (this == ZERO)
+		{
+			statisticsIn.add(0);
+		}
+		return 1;
+	}
+}
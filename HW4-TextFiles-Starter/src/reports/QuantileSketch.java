@@ -0,0 +1,301 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A streaming estimate of the quantiles of a series of values, using a KLL sketch.
+ * Values are added one at a time to a stack of compactors. When the sketch is full, the lowest full
+ *  compactor is sorted and every other value in it is promoted to the compactor above, where it stands
+ *  for twice as many values; the rest are dropped. Higher compactors hold fewer values, so the memory used
+ *  grows only with the logarithm of the number of values added, and the whole series is never sorted.
+ * Quantiles are exact until more values have been added than the sketch size; after that the rank of a
+ *  returned quantile is typically within about 1.7 / sqrt(size) of the rank asked for, around 1.2% for
+ *  the default size.
+ * The choice of which values are promoted comes from a fixed seed, so adding the same values in the same
+ *  order always gives the same quantiles. Values that are not numbers are ignored.
+ * @author Logan Noonan
+ *
+ */
+public class QuantileSketch
+{
+	/**
+	 * The sketch size used by the constructor without a size.
+	 */
+	public static final int DEFAULT_SIZE = 200;
+
+	/**
+	 * The smallest capacity of a compactor.
+	 */
+	private static final int MIN_CAPACITY = 8;
+
+	/**
+	 * How much smaller each compactor is than the one above it.
+	 */
+	private static final double DECAY = 2.0 / 3.0;
+
+	/**
+	 * The capacity of the top compactor.
+	 */
+	private int size;
+
+	/**
+	 * The values of each compactor; a value in compactor h stands for 2^h values added.
+	 */
+	private double[][] levels;
+
+	/**
+	 * The number of values in each compactor.
+	 */
+	private int[] counts;
+
+	/**
+	 * The capacity of each compactor; the top compactor holds the sketch size and each one below it holds
+	 *  two thirds as many, but never fewer than MIN_CAPACITY.
+	 */
+	private int[] capacities;
+
+	/**
+	 * The number of compactors in use.
+	 */
+	private int height;
+
+	/**
+	 * The number of values held in all compactors.
+	 */
+	private int items;
+
+	/**
+	 * The sum of the capacities of the compactors in use.
+	 */
+	private int totalCapacity;
+
+	/**
+	 * The number of values added.
+	 */
+	private long count;
+
+	/**
+	 * The state of the generator of the promotion choices.
+	 */
+	private long random;
+
+	/**
+	 * Creates new QuantileSketch of the default size.
+	 */
+	public QuantileSketch()
+	{
+		this(DEFAULT_SIZE);
+	}
+
+	/**
+	 * Creates new QuantileSketch.
+	 * @param sizeIn - The sketch size; larger sketches are more accurate and use more memory.
+	 */
+	public QuantileSketch(int sizeIn)
+	{
+		if (sizeIn < MIN_CAPACITY)
+		{
+			throw new IllegalArgumentException("The sketch size must be at least " + MIN_CAPACITY + ".");
+		}
+		this.size = sizeIn;
+		this.levels = new double[4][];
+		this.counts = new int[4];
+		this.capacities = new int[4];
+		this.height = 0;
+		this.items = 0;
+		this.grow();
+		this.count = 0;
+		this.random = 0x9E3779B97F4A7C15L;
+	}
+
+	/**
+	 * Adds a value to the sketch.
+	 * @param valueIn - The value.
+	 */
+	public void add(double valueIn)
+	{
+		if (Double.isNaN(valueIn))
+		{
+			return;
+		}
+		this.push(0, valueIn);
+		this.items++;
+		this.count++;
+		if (this.items >= this.totalCapacity)
+		{
+			this.compress();
+		}
+	}
+
+	/**
+	 * Compacts the lowest compactor that is at or over its capacity, adding a compactor on top first if
+	 *  the values promoted would otherwise have nowhere to go.
+	 */
+	private void compress()
+	{
+		int level = 0;
+		while (this.counts[level] < this.capacities[level])
+		{
+			level++;
+		}
+		if (level == this.height - 1)
+		{
+			this.grow();
+		}
+		double[] values = this.levels[level];
+		int held = this.counts[level];
+		Arrays.sort(values, 0, held);
+		// The smallest value stays behind when there is an odd number, so each promoted value
+		//  stands for exactly two.
+		int kept = held % 2;
+		int promoted = 0;
+		for (int index = kept + this.nextBit(); index < held; index += 2)
+		{
+			this.push(level + 1, values[index]);
+			promoted++;
+		}
+		this.counts[level] = kept;
+		this.items -= promoted;
+	}
+
+	/**
+	 * Adds a compactor on top of the others and works out the new capacities.
+	 */
+	private void grow()
+	{
+		if (this.height == this.levels.length)
+		{
+			this.levels = Arrays.copyOf(this.levels, this.height * 2);
+			this.counts = Arrays.copyOf(this.counts, this.height * 2);
+			this.capacities = Arrays.copyOf(this.capacities, this.height * 2);
+		}
+		this.levels[this.height] = new double[MIN_CAPACITY];
+		this.counts[this.height] = 0;
+		this.height++;
+		this.totalCapacity = 0;
+		for (int level = 0; level < this.height; level++)
+		{
+			int depth = this.height - 1 - level;
+			this.capacities[level] = Math.max(MIN_CAPACITY, (int) Math.ceil(this.size * Math.pow(DECAY, depth)));
+			this.totalCapacity += this.capacities[level];
+		}
+	}
+
+	/**
+	 * Adds a value to a compactor, growing its array if needed.
+	 * @param level The compactor.
+	 * @param value The value.
+	 */
+	private void push(int level, double value)
+	{
+		if (this.counts[level] == this.levels[level].length)
+		{
+			this.levels[level] = Arrays.copyOf(this.levels[level], this.counts[level] * 2);
+		}
+		this.levels[level][this.counts[level]++] = value;
+	}
+
+	/**
+	 * Returns the next promotion choice.
+	 * @return 0 or 1.
+	 */
+	private int nextBit()
+	{
+		this.random ^= this.random << 13;
+		this.random ^= this.random >>> 7;
+		this.random ^= this.random << 17;
+		return (int) (this.random >>> 63);
+	}
+
+	/**
+	 * Returns the number of values added.
+	 * @return The number of values.
+	 */
+	public long getCount()
+	{
+		return this.count;
+	}
+
+	/**
+	 * Returns the value at a quantile: the smallest value held such that the values up to it stand for at
+	 *  least the given fraction of the values added, so the 0.5 quantile is the median.
+	 * @param quantileIn - The fraction, from 0 to 1.
+	 * @return The value, or null if no values have been added.
+	 */
+	public Double getQuantile(double quantileIn)
+	{
+		if (!(0.0 <= quantileIn && quantileIn <= 1.0))
+		{
+			throw new IllegalArgumentException("A quantile must be from 0 to 1.");
+		}
+		if (this.count == 0)
+		{
+			return null;
+		}
+		int items = this.items;
+		double[] values = new double[items];
+		long[] weights = new long[items];
+		int next = 0;
+		for (int level = 0; level < this.height; level++)
+		{
+			for (int index = 0; index < this.counts[level]; index++)
+			{
+				values[next] = this.levels[level][index];
+				weights[next] = 1L << level;
+				next++;
+			}
+		}
+		sortTogether(values, weights);
+		long wanted = Math.max(1, (long) Math.ceil(quantileIn * this.count));
+		long total = 0;
+		for (int index = 0; index < items; index++)
+		{
+			total += weights[index];
+			if (total >= wanted)
+			{
+				return values[index];
+			}
+		}
+		return values[items - 1];
+	}
+
+	/**
+	 * Sorts values into increasing order, moving each weight along with its value.
+	 * @param values The values.
+	 * @param weights The weight of each value.
+	 */
+	private static void sortTogether(double[] values, long[] weights)
+	{
+		Integer[] order = new Integer[values.length];
+		for (int index = 0; index < order.length; index++)
+		{
+			order[index] = index;
+		}
+		Arrays.sort(order, new Comparator<Integer>()
+		{
+			/**
+			 * Compares the values at two indexes.
+			 * @param first The first index.
+			 * @param second The second index.
+			 * @return The comparison of the values.
+			 */
+			@Override
+			public int compare(Integer first, Integer second)
+			{
+				return Double.compare(values[first], values[second]);
+			}
+		});
+		double[] sortedValues = new double[values.length];
+		long[] sortedWeights = new long[values.length];
+		for (int index = 0; index < order.length; index++)
+		{
+			sortedValues[index] = values[order[index]];
+			sortedWeights[index] = weights[order[index]];
+		}
+		System.arraycopy(sortedValues, 0, values, 0, values.length);
+		System.arraycopy(sortedWeights, 0, weights, 0, weights.length);
+	}
+}
@@ -0,0 +1,262 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import reports.io.ReportWriter;
+
+/**
+ * The result of a ReportQuery: the rows that matched the query's filters, grouped as the query asked, with
+ *  the minimum, maximum, average, and standard deviation of the revenues, profits, and ranks of each group.
+ * A result is never changed once the query has run, so it may be read by any number of threads.
+ * @author Logan Noonan
+ *
+ */
+public class QueryResult
+{
+	/**
+	 * The groups, in order of their key.
+	 */
+	private final List<Group> groups;
+
+	/**
+	 * The number of rows the query read.
+	 */
+	private final long rowsScanned;
+
+	/**
+	 * The number of rows that matched the query's filters.
+	 */
+	private final long rowsMatched;
+
+	/**
+	 * The rows of one group of a query's result, such as one year or one company.
+	 */
+	public static class Group
+	{
+		/**
+		 * The year, company, or range of ranks of the group.
+		 */
+		private final String label;
+
+		/**
+		 * The statistics of the revenues of the group's rows.
+		 */
+		private final Statistics revenues = new Statistics();
+
+		/**
+		 * The statistics of the profits of the group's rows.
+		 */
+		private final Statistics profits = new Statistics();
+
+		/**
+		 * The statistics of the ranks of the group's rows.
+		 */
+		private final Statistics ranks = new Statistics();
+
+		/**
+		 * The number of missing revenues and profits in the group's rows.
+		 */
+		private int missing;
+
+		/**
+		 * Creates new empty Group.
+		 * @param labelIn The year, company, or range of ranks of the group.
+		 */
+		Group(String labelIn)
+		{
+			this.label = labelIn;
+		}
+
+		/**
+		 * Adds the values of one row to the group.
+		 * @param rankIn The row's rank.
+		 * @param revenueIn The row's revenue, or Double.NaN if it is missing.
+		 * @param profitIn The row's profit, or Double.NaN if it is missing.
+		 * @param missingIn How to treat a missing value.
+		 */
+		void addRow(int rankIn, double revenueIn, double profitIn, MissingValues missingIn)
+		{
+			this.ranks.add(rankIn);
+			this.missing += missingIn.add(this.revenues, revenueIn) + missingIn.add(this.profits, profitIn);
+		}
+
+		/**
+		 * Returns the year, company, or range of ranks of the group, such as 1990, Company 12, or 1-100,
+		 *  or All if the query was not grouped.
+		 * @return The group's label.
+		 */
+		public String getLabel()
+		{
+			return this.label;
+		}
+
+		/**
+		 * Returns the number of rows in the group.
+		 * @return The number of rows.
+		 */
+		public int getCount()
+		{
+			return this.ranks.getCount();
+		}
+
+		/**
+		 * Returns the number of missing revenues and profits in the group's rows.
+		 * @return The number of missing values.
+		 */
+		public int getMissingCount()
+		{
+			return this.missing;
+		}
+
+		/**
+		 * Returns the statistics of the revenues of the group's rows.
+		 * @return The revenue statistics.
+		 */
+		public Statistics getRevenues()
+		{
+			return this.revenues;
+		}
+
+		/**
+		 * Returns the statistics of the profits of the group's rows.
+		 * @return The profit statistics.
+		 */
+		public Statistics getProfits()
+		{
+			return this.profits;
+		}
+
+		/**
+		 * Returns the statistics of the ranks of the group's rows.
+		 * @return The rank statistics.
+		 */
+		public Statistics getRanks()
+		{
+			return this.ranks;
+		}
+	}
+
+	/**
+	 * Creates new QueryResult.
+	 * @param groupsIn The groups, in order of their key.
+	 * @param rowsScannedIn The number of rows the query read.
+	 * @param rowsMatchedIn The number of rows that matched the query's filters.
+	 */
+	QueryResult(List<Group> groupsIn, long rowsScannedIn, long rowsMatchedIn)
+	{
+		this.groups = Collections.unmodifiableList(groupsIn);
+		this.rowsScanned = rowsScannedIn;
+		this.rowsMatched = rowsMatchedIn;
+	}
+
+	/**
+	 * Returns the groups of the result in order of their key: years and ranges of ranks in increasing order,
+	 *  and companies in the order they first appear in the file. Only groups with matching rows are included.
+	 * @return The groups.
+	 */
+	public List<Group> getGroups()
+	{
+		return this.groups;
+	}
+
+	/**
+	 * Returns the number of rows the query read, including rows skipped by its filters.
+	 * @return The number of rows scanned.
+	 */
+	public long getRowsScanned()
+	{
+		return this.rowsScanned;
+	}
+
+	/**
+	 * Returns the number of rows that matched the query's filters.
+	 * @return The number of rows matched.
+	 */
+	public long getRowsMatched()
+	{
+		return this.rowsMatched;
+	}
+
+	/**
+	 * Returns the number of missing revenues and profits in the rows that matched, see
+	 *  ReportQuery.missingValues.
+	 * @return The number of missing values.
+	 */
+	public long getMissingCount()
+	{
+		long result = 0;
+		for (Group group : this.groups)
+		{
+			result += group.missing;
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the result to the given file.
+	 * The given file's contents will look like the result of calling QueryResult's toString.
+	 * @param outputFile - File to write the result to.
+	 * @return true if write successful, false if file cannot be created.
+	 */
+	public boolean writeReport(File outputFile)
+	{
+		boolean result;
+		try
+		{
+			ReportWriter.write(outputFile, this.format(ReportWriter.builder()));
+			result = true;
+		}
+		catch (IOException e)
+		{
+			result = false;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a formatted String of this result suitable for writing to an output file. String is of the form:
+	 *
+	 * Fortune 500 Query of MATCHED rows in GROUPS groups
+	 * LABEL ranked COUNT times
+	 * Revenue
+	 * Min: MINREV Max: MAXREV Avg: AVGREV StD: STDREV
+	 * Profit
+	 * Min: MINPRO Max: MAXPRO Avg: AVGPRO StD: STDPRO
+	 * Rank
+	 * Min: MINRANK Max: MAXRANK Avg: AVGRANK StD: STDRANK
+	 *
+	 * Where the last seven lines are repeated for each group, LABEL is the group's label, and the values
+	 *  are formatted as in CompanyReport, except that the rank minimum and maximum have three decimals.
+	 * There are no blank lines, and the String does not end in a new line.
+	 */
+	@Override
+	public String toString()
+	{
+		return this.format(ReportWriter.builder()).toString();
+	}
+
+	/**
+	 * Appends the result to a builder as described by toString.
+	 * @param builder The builder to append to.
+	 * @return The builder.
+	 */
+	private StringBuilder format(StringBuilder builder)
+	{
+		ReportWriter.appendWhole(builder.append("Fortune 500 Query of "), this.rowsMatched).append(" rows in ");
+		ReportWriter.appendWhole(builder, this.groups.size()).append(" groups");
+		for (Group group : this.groups)
+		{
+			builder.append('\n').append(group.label).append(" ranked ");
+			ReportWriter.appendWhole(builder, group.getCount()).append(" times");
+			group.revenues.appendTo(builder.append("\nRevenue\n"));
+			group.profits.appendTo(builder.append("\nProfit\n"));
+			group.ranks.appendTo(builder.append("\nRank\n"));
+		}
+		return builder;
+	}
+}
@@ -0,0 +1,221 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads reports back from an archive written by a ReportArchiveWriter.
+ * The archive's index is read when it is opened; each report is then read on its own with a single
+ *  positional read, so reading one report does not read any other.
+ * The archive file is of the form:
+ *
+ * MAGIC VERSION
+ * REPORTS
+ * INDEX INDEXOFFSET MAGIC
+ *
+ * Where REPORTS is the UTF-8 text of each report one after another, and INDEX is described by
+ *  ReportArchiveWriter.close.
+ * An archive may be read by many threads at once.
+ * @author Logan Noonan
+ *
+ */
+public class ReportArchive implements Closeable
+{
+	/**
+	 * The first and last int of every archive file.
+	 */
+	static final int MAGIC = 0x52415243;
+
+	/**
+	 * The version of the archive file layout.
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * The number of bytes after the index: the index offset and the closing magic.
+	 */
+	private static final int TRAILER = Long.BYTES + Integer.BYTES;
+
+	/**
+	 * The channel of the archive file.
+	 */
+	private FileChannel channel;
+
+	/**
+	 * The names of the reports, in the order they were added.
+	 */
+	private List<String> names;
+
+	/**
+	 * The offset and length of each report, keyed by name.
+	 */
+	private Map<String, long[]> entries;
+
+	/**
+	 * Opens an archive and reads its index.
+	 * @param archiveFileIn - Archive file written by a ReportArchiveWriter.
+	 * @throws IOException Thrown if the file cannot be read or is not a complete archive.
+	 */
+	public ReportArchive(File archiveFileIn) throws IOException
+	{
+		this.channel = FileChannel.open(archiveFileIn.toPath(), StandardOpenOption.READ);
+		try
+		{
+			long size = this.channel.size();
+			if (size < 2 * Integer.BYTES + Integer.BYTES + TRAILER)
+			{
+				throw new IOException(archiveFileIn + " is not a report archive.");
+			}
+			ByteBuffer header = this.read(0, 2 * Integer.BYTES);
+			ByteBuffer trailer = this.read(size - TRAILER, TRAILER);
+			long indexOffset = trailer.getLong();
+			if (header.getInt() != MAGIC || header.getInt() != VERSION || trailer.getInt() != MAGIC
+					|| indexOffset < 2 * Integer.BYTES || indexOffset > size - TRAILER)
+			{
+				throw new IOException(archiveFileIn + " is not a complete report archive.");
+			}
+			ByteBuffer index = this.read(indexOffset, (int) (size - TRAILER - indexOffset));
+			int count = index.getInt();
+			this.names = new ArrayList<String>(count);
+			this.entries = new HashMap<String, long[]>(count * 2);
+			for (int entry = 0; entry < count; entry++)
+			{
+				byte[] name = new byte[index.getInt()];
+				index.get(name);
+				String key = new String(name, StandardCharsets.UTF_8);
+				this.names.add(key);
+				this.entries.put(key, new long[] {index.getLong(), index.getLong()});
+			}
+		}
+		catch (RuntimeException e)
+		{
+			this.channel.close();
+			throw new IOException(archiveFileIn + " has a damaged index.", e);
+		}
+		catch (IOException e)
+		{
+			this.channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the name a year report is stored under.
+	 * @param yearIn - Year of the report.
+	 * @return The report's name.
+	 */
+	public static String yearName(int yearIn)
+	{
+		return "year/" + yearIn;
+	}
+
+	/**
+	 * Returns the name a company report is stored under.
+	 * @param companyIn - Company of the report.
+	 * @return The report's name.
+	 */
+	public static String companyName(String companyIn)
+	{
+		return "company/" + companyIn;
+	}
+
+	/**
+	 * Reads bytes of the file with positional reads.
+	 * @param offset The offset of the first byte.
+	 * @param length The number of bytes.
+	 * @return A buffer of the bytes, ready to be read.
+	 * @throws IOException Thrown if the file cannot be read or ends too soon.
+	 */
+	private ByteBuffer read(long offset, int length) throws IOException
+	{
+		ByteBuffer result = ByteBuffer.allocate(length);
+		while (result.hasRemaining())
+		{
+			if (this.channel.read(result, offset + result.position()) < 0)
+			{
+				throw new IOException("The archive ends too soon.");
+			}
+		}
+		result.flip();
+		return result;
+	}
+
+	/**
+	 * Returns the names of the reports in the archive, in the order they were added.
+	 * @return The names.
+	 */
+	public List<String> getNames()
+	{
+		return new ArrayList<String>(this.names);
+	}
+
+	/**
+	 * Returns whether the archive holds a report.
+	 * @param nameIn - Name of the report, see yearName and companyName.
+	 * @return true if the archive holds the report.
+	 */
+	public boolean contains(String nameIn)
+	{
+		return this.entries.containsKey(nameIn);
+	}
+
+	/**
+	 * Reads one report, as its toString returned it when it was added.
+	 * @param nameIn - Name of the report, see yearName and companyName.
+	 * @return The report's text, or null if the archive does not hold the report.
+	 * @throws IOException Thrown if the archive cannot be read.
+	 */
+	public String read(String nameIn) throws IOException
+	{
+		long[] entry = this.entries.get(nameIn);
+		if (entry == null)
+		{
+			return null;
+		}
+		ByteBuffer bytes = this.read(entry[0], (int) entry[1]);
+		return new String(bytes.array(), 0, bytes.limit(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads the report of a year.
+	 * @param yearIn - Year of the report.
+	 * @return The report's text, or null if the archive does not hold the report.
+	 * @throws IOException Thrown if the archive cannot be read.
+	 */
+	public String readYearReport(int yearIn) throws IOException
+	{
+		return this.read(yearName(yearIn));
+	}
+
+	/**
+	 * Reads the report of a company.
+	 * @param companyIn - Company of the report.
+	 * @return The report's text, or null if the archive does not hold the report.
+	 * @throws IOException Thrown if the archive cannot be read.
+	 */
+	public String readCompanyReport(String companyIn) throws IOException
+	{
+		return this.read(companyName(companyIn));
+	}
+
+	/**
+	 * Closes the archive.
+	 * @throws IOException Thrown if the file cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		this.channel.close();
+	}
+}
@@ -0,0 +1,225 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import reports.io.ReportWriter;
+
+/**
+ * Writes many processed YearReports and CompanyReports into one archive file instead of one file per
+ *  report. Each report is stored as the UTF-8 text of its toString, and the archive ends with an index
+ *  of where each report starts, so a ReportArchive can read any one report back without reading the others.
+ * Reports are named by ReportArchive.yearName and ReportArchive.companyName, and each name may only be
+ *  added once. The archive can only be read once the writer has been closed.
+ * A writer may be shared between threads; reports are appended one at a time.
+ * @author Logan Noonan
+ *
+ */
+public class ReportArchiveWriter implements Closeable
+{
+	/**
+	 * The channel of the archive file.
+	 */
+	private FileChannel channel;
+
+	/**
+	 * The buffer reports are encoded into before being written.
+	 */
+	private ByteBuffer buffer;
+
+	/**
+	 * The encoder of the reports' text.
+	 */
+	private CharsetEncoder encoder;
+
+	/**
+	 * The number of bytes written to the file so far, not counting the bytes still in the buffer.
+	 */
+	private long written;
+
+	/**
+	 * The offset and length of each report written, keyed by name, in the order they were added.
+	 */
+	private Map<String, long[]> entries;
+
+	/**
+	 * Creates new ReportArchiveWriter, replacing the file if it exists.
+	 * @param archiveFileIn - File to write the archive to.
+	 * @throws IOException Thrown if the file cannot be created.
+	 */
+	public ReportArchiveWriter(File archiveFileIn) throws IOException
+	{
+		this.channel = FileChannel.open(archiveFileIn.toPath(), StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		this.buffer = ByteBuffer.allocateDirect(64 * 1024);
+		this.encoder = StandardCharsets.UTF_8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.entries = new LinkedHashMap<String, long[]>();
+		this.buffer.putInt(ReportArchive.MAGIC);
+		this.buffer.putInt(ReportArchive.VERSION);
+		this.written = 0;
+	}
+
+	/**
+	 * Adds a processed year report to the archive under ReportArchive.yearName of its year.
+	 * @param reportIn - Report to add.
+	 * @throws DataNotProcessedException - Thrown if the report has not yet been processed.
+	 * @throws IOException Thrown if the archive cannot be written.
+	 */
+	public void add(YearReport reportIn) throws DataNotProcessedException, IOException
+	{
+		this.add(ReportArchive.yearName(reportIn.getYear()), reportIn.appendReport(ReportWriter.builder()));
+	}
+
+	/**
+	 * Adds a processed company report to the archive under ReportArchive.companyName of its company.
+	 * @param reportIn - Report to add.
+	 * @throws DataNotProcessedException - Thrown if the report has not yet been processed.
+	 * @throws IOException Thrown if the archive cannot be written.
+	 */
+	public void add(CompanyReport reportIn) throws DataNotProcessedException, IOException
+	{
+		this.add(ReportArchive.companyName(reportIn.getCompany()),
+				reportIn.appendReport(ReportWriter.builder()));
+	}
+
+	/**
+	 * Appends the text of a report to the archive.
+	 * @param name The report's name.
+	 * @param text The report's text.
+	 * @throws IOException Thrown if the archive cannot be written or is closed.
+	 */
+	private synchronized void add(String name, CharSequence text) throws IOException
+	{
+		if (this.entries == null)
+		{
+			throw new IOException("The archive is closed.");
+		}
+		if (this.entries.containsKey(name))
+		{
+			throw new IllegalArgumentException("The archive already holds " + name);
+		}
+		long start = this.written + this.buffer.position();
+		CharBuffer chars = CharBuffer.wrap(text);
+		this.encoder.reset();
+		CoderResult result = this.encoder.encode(chars, this.buffer, true);
+		while (result.isOverflow())
+		{
+			this.flush();
+			result = this.encoder.encode(chars, this.buffer, true);
+		}
+		result = this.encoder.flush(this.buffer);
+		while (result.isOverflow())
+		{
+			this.flush();
+			result = this.encoder.flush(this.buffer);
+		}
+		long end = this.written + this.buffer.position();
+		this.entries.put(name, new long[] {start, end - start});
+	}
+
+	/**
+	 * Writes the buffer to the file and empties it.
+	 * @throws IOException Thrown if the file cannot be written.
+	 */
+	private void flush() throws IOException
+	{
+		this.buffer.flip();
+		while (this.buffer.hasRemaining())
+		{
+			this.written += this.channel.write(this.buffer);
+		}
+		this.buffer.clear();
+	}
+
+	/**
+	 * Writes the index of the reports and closes the archive.
+	 * The index is of the form:
+	 *
+	 * COUNT
+	 * NAMELENGTH NAME OFFSET LENGTH
+	 * ...
+	 * INDEXOFFSET MAGIC
+	 *
+	 * Where there is one NAMELENGTH NAME OFFSET LENGTH entry for each of the COUNT reports, NAME is
+	 *  NAMELENGTH bytes of UTF-8, and INDEXOFFSET is the offset of COUNT from the start of the file.
+	 * @throws IOException Thrown if the archive cannot be written.
+	 */
+	@Override
+	public synchronized void close() throws IOException
+	{
+		if (this.entries == null)
+		{
+			return;
+		}
+		try
+		{
+			long indexOffset = this.written + this.buffer.position();
+			this.putInt(this.entries.size());
+			for (Map.Entry<String, long[]> entry : this.entries.entrySet())
+			{
+				byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+				this.putInt(name.length);
+				for (int index = 0; index < name.length; index++)
+				{
+					if (!this.buffer.hasRemaining())
+					{
+						this.flush();
+					}
+					this.buffer.put(name[index]);
+				}
+				this.putLong(entry.getValue()[0]);
+				this.putLong(entry.getValue()[1]);
+			}
+			this.putLong(indexOffset);
+			this.putInt(ReportArchive.MAGIC);
+			this.flush();
+		}
+		finally
+		{
+			this.entries = null;
+			this.channel.close();
+		}
+	}
+
+	/**
+	 * Adds an int to the buffer, writing the buffer first if it is full.
+	 * @param value The int.
+	 * @throws IOException Thrown if the file cannot be written.
+	 */
+	private void putInt(int value) throws IOException
+	{
+		if (this.buffer.remaining() < Integer.BYTES)
+		{
+			this.flush();
+		}
+		this.buffer.putInt(value);
+	}
+
+	/**
+	 * Adds a long to the buffer, writing the buffer first if it is full.
+	 * @param value The long.
+	 * @throws IOException Thrown if the file cannot be written.
+	 */
+	private void putLong(long value) throws IOException
+	{
+		if (this.buffer.remaining() < Long.BYTES)
+		{
+			this.flush();
+		}
+		this.buffer.putLong(value);
+	}
+}
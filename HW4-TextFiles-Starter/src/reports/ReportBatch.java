@@ -0,0 +1,340 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import reports.io.CompanyIndex;
+import reports.io.YearIndex;
+
+/**
+ * Generates and writes many YearReports and CompanyReports of one Fortune 500 data file in parallel.
+ * Reports are generated on an executor, by default the common ForkJoinPool; any executor may be
+ *  supplied, such as a ForkJoinPool of a chosen size or, on newer JVMs, a virtual thread per task executor.
+ * Each report is written with writeReport to its own file in the output directory, named
+ *  year_YEAR.txt or company_COMPANY.txt, where characters of the company that are not letters,
+ *  digits, dots, dashes, or underscores are replaced by underscores, and only the first MAX_NAME_LENGTH
+ *  characters of the company are kept. Companies whose file names are the same ignoring case get a number
+ *  added to the name, so no report overwrites another on a file system that ignores case.
+ * The counts and timings of every report of the batch are added up in the batch's metrics, see getMetrics,
+ *  and the global metrics are registered with JMX when a batch is created, see ReportMetrics.getGlobal.
+ * @author Logan Noonan
+ *
+ */
+public class ReportBatch
+{
+	/**
+	 * The most characters of a company's name kept in the name of its report's file, which keeps file
+	 *  names well within the 255 bytes most file systems allow.
+	 */
+	public static final int MAX_NAME_LENGTH = 100;
+
+	/**
+	 * This is the cvs file to read data from.
+	 */
+	private File theFile;
+
+	/**
+	 * The directory the reports are written to.
+	 */
+	private File outputDirectory;
+
+	/**
+	 * The executor the reports are generated on.
+	 */
+	private ExecutorService executor;
+
+	/**
+	 * The counts and timings of the reports of the batch.
+	 */
+	private final ReportMetrics metrics = new ReportMetrics();
+
+	/**
+	 * Creates new ReportBatch that generates reports on the common ForkJoinPool.
+	 * @param inputFileIn - File containing Fortune 500 data for the reports.
+	 * @param outputDirectoryIn - Directory to write the reports to; it is created if needed.
+	 */
+	public ReportBatch(File inputFileIn, File outputDirectoryIn)
+	{
+		this(inputFileIn, outputDirectoryIn, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates new ReportBatch that generates reports on the given executor.
+	 * @param inputFileIn - File containing Fortune 500 data for the reports.
+	 * @param outputDirectoryIn - Directory to write the reports to; it is created if needed.
+	 * @param executorIn - Executor to generate the reports on; it is not shut down by the batch.
+	 */
+	public ReportBatch(File inputFileIn, File outputDirectoryIn, ExecutorService executorIn)
+	{
+		this.theFile = inputFileIn;
+		this.outputDirectory = outputDirectoryIn;
+		this.executor = executorIn;
+		ReportMetrics.getGlobal();
+	}
+
+	/**
+	 * Generates and writes the report of each of the given years.
+	 * Each report is processed on its own through the file's YearIndex, which is brought up to date once
+	 *  before the reports are started.
+	 * @param yearsIn - Years to report.
+	 * @return The number of reports written.
+	 * @throws IOException Thrown if the file cannot be read, the output directory cannot be created,
+	 *  or the batch is interrupted.
+	 * @throws YearNotFoundException - Thrown if a year is before Report.MINYEAR, or is after
+	 *  Report.MAXYEAR and not present in the file.
+	 */
+	public int writeYearReports(List<Integer> yearsIn) throws IOException
+	{
+		this.prepareOutput();
+		YearIndex.forFile(this.theFile);
+		List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(yearsIn.size());
+		for (final int year : yearsIn)
+		{
+			tasks.add(new Callable<Boolean>()
+			{
+				@Override
+				public Boolean call() throws DataNotProcessedException
+				{
+					YearReport report = new YearReport(ReportBatch.this.theFile, year);
+					try
+					{
+						return report.processReport() && report.writeReport(ReportBatch.this.yearFile(year));
+					}
+					finally
+					{
+						ReportBatch.this.metrics.add(report.getMetrics());
+					}
+				}
+			});
+		}
+		return this.run(tasks);
+	}
+
+	/**
+	 * Generates and writes the report of each of the given companies.
+	 * Each report is processed on its own through the file's CompanyIndex, which is brought up to date
+	 *  once before the reports are started.
+	 * @param companiesIn - Companies to report.
+	 * @return The number of reports written.
+	 * @throws IOException Thrown if the file cannot be read, the output directory cannot be created,
+	 *  or the batch is interrupted.
+	 */
+	public int writeCompanyReports(List<String> companiesIn) throws IOException
+	{
+		this.prepareOutput();
+		CompanyIndex.forFile(this.theFile);
+		List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(companiesIn.size());
+		Set<String> names = new HashSet<String>();
+		for (final String company : companiesIn)
+		{
+			final File outputFile = this.companyFile(company, names);
+			tasks.add(new Callable<Boolean>()
+			{
+				@Override
+				public Boolean call() throws DataNotProcessedException
+				{
+					CompanyReport report = new CompanyReport(ReportBatch.this.theFile, company);
+					try
+					{
+						return report.processReport() && report.writeReport(outputFile);
+					}
+					finally
+					{
+						ReportBatch.this.metrics.add(report.getMetrics());
+					}
+				}
+			});
+		}
+		return this.run(tasks);
+	}
+
+	/**
+	 * Generates and writes the report of every year from Report.MINYEAR to Report.MAXYEAR or the file's last
+	 *  year, whichever is later, and of every company in the file. The file is read once, in parallel parts,
+	 *  by a ReportEngine, and the reports are then written in parallel.
+	 * @return The number of reports written.
+	 * @throws IOException Thrown if the file cannot be read, the output directory cannot be created,
+	 *  or the batch is interrupted.
+	 */
+	public int writeAllReports() throws IOException
+	{
+		this.prepareOutput();
+		ReportEngine engine = new ReportEngine(this.theFile);
+		if (!engine.processReports(this.executor))
+		{
+			throw new IOException("Cannot read " + this.theFile);
+		}
+		this.metrics.add(engine.getMetrics());
+		List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+		try
+		{
+			for (final YearReport report : engine.getYearReports())
+			{
+				tasks.add(this.writeTask(report, this.yearFile(report.getYear())));
+			}
+			Set<String> names = new HashSet<String>();
+			for (final CompanyReport report : engine.getCompanyReports())
+			{
+				tasks.add(this.writeTask(report, this.companyFile(report.getCompany(), names)));
+			}
+		}
+		catch (DataNotProcessedException e)
+		{
+			throw new IllegalStateException(e); // The engine has just processed its reports.
+		}
+		return this.run(tasks);
+	}
+
+	/**
+	 * Creates a task that writes a processed year report.
+	 * @param reportIn The report to write.
+	 * @param outputFile The file to write the report to.
+	 * @return The task, returning true if the report was written.
+	 */
+	private Callable<Boolean> writeTask(final YearReport reportIn, final File outputFile)
+	{
+		return new Callable<Boolean>()
+		{
+			@Override
+			public Boolean call() throws DataNotProcessedException
+			{
+				try
+				{
+					return reportIn.writeReport(outputFile);
+				}
+				finally
+				{
+					ReportBatch.this.metrics.add(reportIn.getMetrics());
+				}
+			}
+		};
+	}
+
+	/**
+	 * Creates a task that writes a processed company report.
+	 * @param reportIn The report to write.
+	 * @param outputFile The file to write the report to.
+	 * @return The task, returning true if the report was written.
+	 */
+	private Callable<Boolean> writeTask(final CompanyReport reportIn, final File outputFile)
+	{
+		return new Callable<Boolean>()
+		{
+			@Override
+			public Boolean call() throws DataNotProcessedException
+			{
+				try
+				{
+					return reportIn.writeReport(outputFile);
+				}
+				finally
+				{
+					ReportBatch.this.metrics.add(reportIn.getMetrics());
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns the counts and timings of every report the batch has processed and written, added up over
+	 *  every call of the batch's write methods. The metrics can be registered with JMX, see
+	 *  ReportMetrics.register.
+	 * @return The batch's metrics.
+	 */
+	public ReportMetrics getMetrics()
+	{
+		return this.metrics;
+	}
+
+	/**
+	 * Runs tasks on the executor and counts the ones that succeed.
+	 * @param tasks The tasks.
+	 * @return The number of tasks that returned true.
+	 * @throws IOException Thrown if the batch is interrupted.
+	 */
+	private int run(List<Callable<Boolean>> tasks) throws IOException
+	{
+		int result = 0;
+		try
+		{
+			for (Future<Boolean> future : this.executor.invokeAll(tasks))
+			{
+				try
+				{
+					if (future.get())
+					{
+						result++;
+					}
+				}
+				catch (ExecutionException e)
+				{
+					if (e.getCause() instanceof RuntimeException)
+					{
+						throw (RuntimeException) e.getCause();
+					}
+					// A report that cannot be processed or written is not counted.
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		return result;
+	}
+
+	/**
+	 * Creates the output directory if it does not exist.
+	 * @throws IOException Thrown if the output directory cannot be created.
+	 */
+	private void prepareOutput() throws IOException
+	{
+		if (!this.outputDirectory.isDirectory() && !this.outputDirectory.mkdirs())
+		{
+			throw new IOException("Cannot create " + this.outputDirectory);
+		}
+	}
+
+	/**
+	 * Returns the file the report of a year is written to.
+	 * @param year The year.
+	 * @return The year's output file.
+	 */
+	private File yearFile(int year)
+	{
+		return new File(this.outputDirectory, "year_" + year + ".txt");
+	}
+
+	/**
+	 * Returns the file the report of a company is written to, adding a number to the name if another
+	 *  company of the batch already has the same file name ignoring case.
+	 * @param company The company.
+	 * @param names The lower case file names already used by the batch; the new name is added.
+	 * @return The company's output file.
+	 */
+	private File companyFile(String company, Set<String> names)
+	{
+		String replaced = String.valueOf(company).replaceAll("[^A-Za-z0-9._-]", "_");
+		String base = "company_" + replaced.substring(0, Math.min(replaced.length(), MAX_NAME_LENGTH));
+		String name = base;
+		for (int copy = 2; !names.add(name.toLowerCase(Locale.ROOT)); copy++)
+		{
+			name = base + "_" + copy;
+		}
+		return new File(this.outputDirectory, name + ".txt");
+	}
+}
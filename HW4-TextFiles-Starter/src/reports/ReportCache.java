@@ -0,0 +1,421 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import reports.io.CompanyIndex;
+
+/**
+ * A cache of processed YearReports and CompanyReports, so a report asked for again is not read
+ *  from the data file again.
+ * Reports are keyed by the data file, the file's version, the MissingValues policy, the type of report,
+ *  and its year or company.
+ * The version of a file is its length and last modified time, along with the last modified time of
+ *  its aliases file, see CompanyIndex. When a file changes, its cached reports are no longer returned
+ *  and are dropped the next time one of its reports is asked for.
+ * The version of a file is taken before its report is processed, but a watched file's report is processed
+ *  from its previous dataset until the new one is swapped in, see DatasetWatcher, so a report can be older
+ *  than its version. Holders of a watched file call invalidate once the new dataset is swapped in; a report
+ *  whose processing started before the latest invalidate or clear is given to its caller but not kept.
+ * The cache holds at most a given number of reports and a given estimated number of bytes; the least
+ *  recently used reports are evicted first. The size of a report is estimated from the length of its
+ *  toString output.
+ * The cache may be shared between threads. The cached reports are never handed out; callers are given
+ *  new reports sharing their published statistics, which are never changed and may be read concurrently,
+ *  see YearReport and CompanyReport.
+ * @author Logan Noonan
+ *
+ */
+public class ReportCache
+{
+	/**
+	 * The estimated number of bytes used by a cached report apart from its text.
+	 */
+	private static final long ENTRY_OVERHEAD = 256;
+
+	/**
+	 * A cached report and the values needed to invalidate and evict it.
+	 */
+	private static class Entry
+	{
+		/**
+		 * The path of the data file of the report.
+		 */
+		private final String path;
+
+		/**
+		 * The version of the data file when the report was processed.
+		 */
+		private final String version;
+
+		/**
+		 * The processed report, a YearReport or a CompanyReport.
+		 */
+		private final Object report;
+
+		/**
+		 * The estimated number of bytes used by the report.
+		 */
+		private final long bytes;
+
+		/**
+		 * Creates new Entry.
+		 * @param pathIn The path of the data file of the report.
+		 * @param versionIn The version of the data file when the report was processed.
+		 * @param reportIn The processed report.
+		 * @param bytesIn The estimated number of bytes used by the report.
+		 */
+		Entry(String pathIn, String versionIn, Object reportIn, long bytesIn)
+		{
+			this.path = pathIn;
+			this.version = versionIn;
+			this.report = reportIn;
+			this.bytes = bytesIn;
+		}
+	}
+
+	/**
+	 * The largest number of reports kept.
+	 */
+	private int maxEntries;
+
+	/**
+	 * The largest estimated number of bytes of reports kept.
+	 */
+	private long maxBytes;
+
+	/**
+	 * The cached reports, keyed by file, version, policy, type, and year or company, in order of last use.
+	 */
+	private LinkedHashMap<String, Entry> entries;
+
+	/**
+	 * The estimated number of bytes of the cached reports.
+	 */
+	private long bytes;
+
+	/**
+	 * The number of reports found in the cache.
+	 */
+	private long hits;
+
+	/**
+	 * The number of reports that had to be processed.
+	 */
+	private long misses;
+
+	/**
+	 * The number of reports evicted to stay within the limits or because their file changed.
+	 */
+	private long evictions;
+
+	/**
+	 * The number of times reports were invalidated or cleared, so reports processed before are not kept.
+	 */
+	private long generation;
+
+	/**
+	 * Creates new ReportCache.
+	 * @param maxEntriesIn - Largest number of reports to keep.
+	 * @param maxBytesIn - Largest estimated number of bytes of reports to keep.
+	 */
+	public ReportCache(int maxEntriesIn, long maxBytesIn)
+	{
+		if (maxEntriesIn < 1 || maxBytesIn < 1)
+		{
+			throw new IllegalArgumentException("The cache must be able to hold a report.");
+		}
+		this.maxEntries = maxEntriesIn;
+		this.maxBytes = maxBytesIn;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+		this.bytes = 0;
+		this.hits = 0;
+		this.misses = 0;
+		this.evictions = 0;
+		this.generation = 0;
+	}
+
+	/**
+	 * Returns the processed report of a year, treating missing values as MissingValues.COUNT, processing
+	 *  it only if the cache holds no report of the year for the file's current version.
+	 * @param inputFileIn - File containing Fortune 500 data for the report.
+	 * @param yearIn - Year to report Fortune 500 data.
+	 * @return The processed report.
+	 * @throws IOException Thrown if the report cannot be processed because the file cannot be read.
+	 * @throws YearNotFoundException - Thrown if the year is before Report.MINYEAR, or is after
+	 *  Report.MAXYEAR and not present in the file.
+	 */
+	public YearReport getYearReport(File inputFileIn, int yearIn) throws IOException
+	{
+		return this.getYearReport(inputFileIn, yearIn, MissingValues.COUNT);
+	}
+
+	/**
+	 * Returns the processed report of a year, processing it only if the cache holds no report of the
+	 *  year and policy for the file's current version.
+	 * Each call returns a new report sharing the cached statistics, so processing it again or changing its
+	 *  policy does not change the report other callers are given.
+	 * @param inputFileIn - File containing Fortune 500 data for the report.
+	 * @param yearIn - Year to report Fortune 500 data.
+	 * @param missingValuesIn - How rows with a missing revenue or profit are treated.
+	 * @return The processed report.
+	 * @throws IOException Thrown if the report cannot be processed because the file cannot be read.
+	 * @throws YearNotFoundException - Thrown if the year is before Report.MINYEAR, or is after
+	 *  Report.MAXYEAR and not present in the file.
+	 */
+	public YearReport getYearReport(File inputFileIn, int yearIn, MissingValues missingValuesIn)
+			throws IOException
+	{
+		String path = inputFileIn.getAbsolutePath();
+		String version = versionOf(inputFileIn);
+		String key = path + '\0' + version + '\0' + missingValuesIn + "\0year\0" + yearIn;
+		long started = this.getGeneration();
+		Object cached = this.lookup(key, path, version);
+		if (cached != null)
+		{
+			return ((YearReport) cached).copy();
+		}
+		YearReport result = new YearReport(inputFileIn, yearIn);
+		result.setMissingValues(missingValuesIn);
+		if (!result.processReport())
+		{
+			throw new IOException("Cannot read " + inputFileIn);
+		}
+		this.store(key, new Entry(path, version, result, estimate(key, result.toString())), started);
+		return result.copy();
+	}
+
+	/**
+	 * Returns the processed report of a company, treating missing values as MissingValues.COUNT,
+	 *  processing it only if the cache holds no report of the company for the file's current version.
+	 * @param inputFileIn - File containing Fortune 500 data for the report.
+	 * @param companyIn - Company to report Fortune 500 data.
+	 * @return The processed report.
+	 * @throws IOException Thrown if the report cannot be processed because the file cannot be read.
+	 */
+	public CompanyReport getCompanyReport(File inputFileIn, String companyIn) throws IOException
+	{
+		return this.getCompanyReport(inputFileIn, companyIn, MissingValues.COUNT);
+	}
+
+	/**
+	 * Returns the processed report of a company, processing it only if the cache holds no report of the
+	 *  company and policy for the file's current version.
+	 * Companies are cached under their name normalized by CompanyIndex.normalize, which is how a
+	 *  CompanyReport matches them, so names that find the same rows share one cached report.
+	 * Each call returns a new report naming the company as given and sharing the cached statistics, so
+	 *  processing it again or changing its policy does not change the report other callers are given.
+	 * @param inputFileIn - File containing Fortune 500 data for the report.
+	 * @param companyIn - Company to report Fortune 500 data.
+	 * @param missingValuesIn - How rows with a missing revenue or profit are treated.
+	 * @return The processed report.
+	 * @throws IOException Thrown if the report cannot be processed because the file cannot be read.
+	 */
+	public CompanyReport getCompanyReport(File inputFileIn, String companyIn, MissingValues missingValuesIn)
+			throws IOException
+	{
+		String path = inputFileIn.getAbsolutePath();
+		String version = versionOf(inputFileIn);
+		String key = path + '\0' + version + '\0' + missingValuesIn + "\0company"
+				+ (companyIn != null ? '\0' + CompanyIndex.normalize(companyIn) : "");
+		long started = this.getGeneration();
+		Object cached = this.lookup(key, path, version);
+		if (cached != null)
+		{
+			return ((CompanyReport) cached).copy(companyIn);
+		}
+		CompanyReport result = new CompanyReport(inputFileIn, companyIn);
+		result.setMissingValues(missingValuesIn);
+		if (!result.processReport())
+		{
+			throw new IOException("Cannot read " + inputFileIn);
+		}
+		this.store(key, new Entry(path, version, result, estimate(key, result.toString())), started);
+		return result.copy(companyIn);
+	}
+
+	/**
+	 * Returns the version of a data file.
+	 * @param fileIn The data file.
+	 * @return The file's length and last modified time, and the last modified time of its aliases file.
+	 */
+	private static String versionOf(File fileIn)
+	{
+		return fileIn.length() + ":" + fileIn.lastModified() + ":"
+				+ CompanyIndex.aliasesFileFor(fileIn).lastModified();
+	}
+
+	/**
+	 * Returns the estimated number of bytes used by a cached report.
+	 * @param key The report's key.
+	 * @param text The report's toString output.
+	 * @return The estimate.
+	 */
+	private static long estimate(String key, String text)
+	{
+		return ENTRY_OVERHEAD + 2L * (key.length() + text.length());
+	}
+
+	/**
+	 * Finds a cached report, counting a hit or a miss. On a miss, the reports of older versions
+	 *  of the file are dropped.
+	 * @param key The report's key.
+	 * @param path The path of the data file of the report.
+	 * @param version The current version of the data file.
+	 * @return The report, or null if it is not cached.
+	 */
+	private synchronized Object lookup(String key, String path, String version)
+	{
+		Entry entry = this.entries.get(key);
+		if (entry != null)
+		{
+			this.hits++;
+			return entry.report;
+		}
+		this.misses++;
+		Iterator<Entry> iterator = this.entries.values().iterator();
+		while (iterator.hasNext())
+		{
+			Entry other = iterator.next();
+			if (other.path.equals(path) && !other.version.equals(version))
+			{
+				iterator.remove();
+				this.bytes -= other.bytes;
+				this.evictions++;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the number of times reports were invalidated or cleared.
+	 * @return The generation of the cache.
+	 */
+	private synchronized long getGeneration()
+	{
+		return this.generation;
+	}
+
+	/**
+	 * Caches a processed report, then evicts the least recently used reports until the cache is within
+	 *  its limits. A report too large for the cache on its own is not kept, nor is a report whose processing
+	 *  started before reports were last invalidated or cleared, since it may have read the data dropped.
+	 * @param key The report's key.
+	 * @param entry The report's entry.
+	 * @param started The generation of the cache when the report's processing started.
+	 */
+	private synchronized void store(String key, Entry entry, long started)
+	{
+		if (started != this.generation)
+		{
+			return;
+		}
+		Entry replaced = this.entries.put(key, entry);
+		if (replaced != null)
+		{
+			this.bytes -= replaced.bytes;
+		}
+		this.bytes += entry.bytes;
+		Iterator<Entry> iterator = this.entries.values().iterator();
+		while (iterator.hasNext() && (this.entries.size() > this.maxEntries || this.bytes > this.maxBytes))
+		{
+			Entry eldest = iterator.next();
+			iterator.remove();
+			this.bytes -= eldest.bytes;
+			this.evictions++;
+		}
+	}
+
+	/**
+	 * Drops every cached report of a data file, and keeps none of the reports being processed meanwhile.
+	 * @param inputFileIn - File containing Fortune 500 data.
+	 */
+	public synchronized void invalidate(File inputFileIn)
+	{
+		this.generation++;
+		String path = inputFileIn.getAbsolutePath();
+		Iterator<Entry> iterator = this.entries.values().iterator();
+		while (iterator.hasNext())
+		{
+			Entry entry = iterator.next();
+			if (entry.path.equals(path))
+			{
+				iterator.remove();
+				this.bytes -= entry.bytes;
+			}
+		}
+	}
+
+	/**
+	 * Drops every cached report, and keeps none of the reports being processed meanwhile.
+	 */
+	public synchronized void clear()
+	{
+		this.generation++;
+		this.entries.clear();
+		this.bytes = 0;
+	}
+
+	/**
+	 * Returns the number of cached reports.
+	 * @return The number of reports.
+	 */
+	public synchronized int getSize()
+	{
+		return this.entries.size();
+	}
+
+	/**
+	 * Returns the estimated number of bytes of the cached reports.
+	 * @return The estimated size in bytes.
+	 */
+	public synchronized long getBytes()
+	{
+		return this.bytes;
+	}
+
+	/**
+	 * Returns the number of reports found in the cache.
+	 * @return The number of hits.
+	 */
+	public synchronized long getHits()
+	{
+		return this.hits;
+	}
+
+	/**
+	 * Returns the number of reports that were not in the cache and had to be processed.
+	 * @return The number of misses.
+	 */
+	public synchronized long getMisses()
+	{
+		return this.misses;
+	}
+
+	/**
+	 * Returns the number of reports evicted to stay within the limits or because their file changed.
+	 * @return The number of evictions.
+	 */
+	public synchronized long getEvictions()
+	{
+		return this.evictions;
+	}
+
+	/**
+	 * Returns the limits and counters of the cache.
+	 * @return A String of the form "ReportCache SIZE/MAXENTRIES reports BYTES/MAXBYTES bytes
+	 *  hits HITS misses MISSES evictions EVICTIONS".
+	 */
+	@Override
+	public synchronized String toString()
+	{
+		return "ReportCache " + this.entries.size() + "/" + this.maxEntries + " reports " + this.bytes + "/"
+				+ this.maxBytes + " bytes hits " + this.hits + " misses " + this.misses + " evictions "
+				+ this.evictions;
+	}
+}
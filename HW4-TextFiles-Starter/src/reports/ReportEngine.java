@@ -0,0 +1,1073 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+import reports.io.ColumnarCache;
+import reports.io.CompanyDictionary;
+import reports.io.CsvRowReader;
+import reports.io.DataSource;
+
+/**
+ * Builds every YearReport and CompanyReport of a Fortune 500 data file from a single scan of the file.
+ * Each row is routed to the report of its year and the report of its company, so generating all reports
+ *  reads the file once instead of once per report.
+ * The reports produced have the same toString output as reports processed on their own, except that a
+ *  year report includes every row of its year rather than only the first block of rows for that year.
+ * The reports can also be updated from a saved state when rows are only appended to the file, see
+ *  updateReports.
+ * Processing again builds a new set of reports that replaces the old set once it is complete, so the
+ *  reports can be read from other threads while the file is processed again.
+ * @author Logan Noonan
+ *
+ */
+public class ReportEngine
+{
+	/**
+	 * The suffix added to the name of a csv file to name the saved state of its reports, see updateReports.
+	 */
+	public static final String STATE_SUFFIX = ".f500s";
+
+	/**
+	 * The first int of every state file.
+	 */
+	private static final int STATE_MAGIC = 0x46355353;
+
+	/**
+	 * The version of the state file layout.
+	 */
+	private static final int STATE_VERSION = 4;
+
+	/**
+	 * The number of bytes read at a time to compute the checksum of the rows already read.
+	 */
+	private static final int CHECKED_BYTES = 64 * 1024;
+
+	/**
+	 * The smallest part of the file worth reading on a thread of its own, in bytes.
+	 */
+	private static final long MIN_PART_SIZE = 256 * 1024;
+
+	/**
+	 * The parsed rows of one part of the file, read in parallel with the other parts.
+	 */
+	private static class Part
+	{
+		/**
+		 * The number of rows in the part.
+		 */
+		private int count = 0;
+
+		/**
+		 * The year of each row.
+		 */
+		private int[] years = new int[1024];
+
+		/**
+		 * The rank of each row.
+		 */
+		private int[] ranks = new int[1024];
+
+		/**
+		 * The company names of the part, so each distinct name is decoded once per part.
+		 */
+		private final CompanyDictionary dictionary = new CompanyDictionary();
+
+		/**
+		 * The id in the part's dictionary of the company of each row.
+		 */
+		private int[] companies = new int[1024];
+
+		/**
+		 * The revenue of each row.
+		 */
+		private double[] revenues = new double[1024];
+
+		/**
+		 * The profit of each row.
+		 */
+		private double[] profits = new double[1024];
+
+		/**
+		 * The number of rows read, including any read past the end of the part.
+		 */
+		private long rowsScanned = 0;
+
+		/**
+		 * The number of bytes read.
+		 */
+		private long bytesRead = 0;
+
+		/**
+		 * The offset in the file after the last row of the part, including its line ending.
+		 */
+		private long rowsEnd = 0;
+
+		/**
+		 * Whether a row of the part could not be parsed, which happens when the part began inside a row.
+		 */
+		private boolean unparsed = false;
+
+		/**
+		 * Adds the current row of a reader to the part.
+		 * @param rowReader The reader.
+		 */
+		void add(CsvRowReader rowReader)
+		{
+			if (this.count == this.years.length)
+			{
+				this.years = Arrays.copyOf(this.years, this.count * 2);
+				this.ranks = Arrays.copyOf(this.ranks, this.count * 2);
+				this.companies = Arrays.copyOf(this.companies, this.count * 2);
+				this.revenues = Arrays.copyOf(this.revenues, this.count * 2);
+				this.profits = Arrays.copyOf(this.profits, this.count * 2);
+			}
+			this.years[this.count] = rowReader.getYear();
+			this.ranks[this.count] = rowReader.getRank();
+			this.companies[this.count] = rowReader.getCompanyId(this.dictionary);
+			this.revenues[this.count] = rowReader.getRevenue();
+			this.profits[this.count] = rowReader.getProfit();
+			this.count++;
+		}
+	}
+
+	/**
+	 * The year and company reports of one processing of the file.
+	 */
+	private static class Reports
+	{
+		/**
+		 * The year reports, keyed by year, for every year from Report.MINYEAR to Report.MAXYEAR and every
+		 *  later year of the file.
+		 */
+		private final Map<Integer, YearReport> years = new TreeMap<Integer, YearReport>();
+
+		/**
+		 * The year reports from Report.MINYEAR to Report.MAXYEAR, indexed by year less Report.MINYEAR, so most
+		 *  rows find their year without boxing it.
+		 */
+		private final YearReport[] reportedYears = new YearReport[Report.MAXYEAR - Report.MINYEAR + 1];
+
+		/**
+		 * The distinct company names of the file, whose ids are in the order the companies first appear.
+		 */
+		private final CompanyDictionary dictionary = new CompanyDictionary();
+
+		/**
+		 * The company reports, indexed by the key id of their names in the dictionary, see
+		 *  CompanyDictionary.getKeyId, so they are in the order the companies first appear; names that are
+		 *  the same once normalized share one report, just as a CompanyReport processed on its own reads the
+		 *  rows of all of them.
+		 */
+		private final List<CompanyReport> companies = new ArrayList<CompanyReport>();
+
+		/**
+		 * The number of rows routed.
+		 */
+		private long rowsRouted = 0;
+
+		/**
+		 * The number of rows read to route them.
+		 */
+		private long rowsScanned = 0;
+
+		/**
+		 * The number of bytes of data read to route the rows.
+		 */
+		private long bytesRead = 0;
+
+		/**
+		 * The time spent reading and parsing rows, in nanoseconds.
+		 */
+		private long parseNanos = 0;
+
+		/**
+		 * Counts the rows and bytes a reader has read.
+		 * @param rowReader The reader.
+		 */
+		void countInput(CsvRowReader rowReader)
+		{
+			this.rowsScanned += rowReader.getRowsRead();
+			this.bytesRead += rowReader.getBytesRead();
+		}
+
+		/**
+		 * Creates new Reports with an empty report for every year from Report.MINYEAR to Report.MAXYEAR.
+		 */
+		Reports()
+		{
+			for (int year = Report.MINYEAR; year <= Report.MAXYEAR; year++)
+			{
+				this.reportedYears[year - Report.MINYEAR] = new YearReport(year);
+				this.years.put(year, this.reportedYears[year - Report.MINYEAR]);
+			}
+		}
+
+		/**
+		 * Returns the report of a year, adding a report for a year after Report.MAXYEAR the first time
+		 *  the file has a row of that year.
+		 * @param year The year.
+		 * @return The year's report, or null if the year is before Report.MINYEAR.
+		 */
+		YearReport yearReport(int year)
+		{
+			if (year >= Report.MINYEAR && year <= Report.MAXYEAR)
+			{
+				return this.reportedYears[year - Report.MINYEAR];
+			}
+			YearReport result = this.years.get(year);
+			if (result == null && year > Report.MAXYEAR)
+			{
+				result = new YearReport(year);
+				this.years.put(year, result);
+			}
+			return result;
+		}
+
+		/**
+		 * Sends the values of one row to the report of its year and the report of its company.
+		 * @param year The row's year; rows of years before Report.MINYEAR are only sent to their company.
+		 * @param rank The row's rank.
+		 * @param company The id of the row's company in the dictionary.
+		 * @param revenue The row's revenue.
+		 * @param profit The row's profit.
+		 */
+		void route(int year, int rank, int company, double revenue, double profit)
+		{
+			YearReport yearReport = this.yearReport(year);
+			if (yearReport != null)
+			{
+				yearReport.addRow(revenue, profit);
+			}
+			this.companyReport(company).addRow(rank, revenue, profit);
+			this.rowsRouted++;
+		}
+
+		/**
+		 * Returns the report of a company, adding it the first time a name of the company is routed.
+		 * Key ids are given in the order names first appear, and each name is routed as soon as it is added,
+		 *  so a new company's key id is the number of companies routed.
+		 * @param company The id of the company's name in the dictionary.
+		 * @return The company's report.
+		 */
+		CompanyReport companyReport(int company)
+		{
+			int key = this.dictionary.getKeyId(company);
+			if (key == this.companies.size())
+			{
+				this.companies.add(new CompanyReport(this.dictionary.getName(company)));
+			}
+			return this.companies.get(key);
+		}
+
+		/**
+		 * Sends the values of every row of the file's columnar cache to the report of its year
+		 *  and the report of its company.
+		 * @param cache The file's columnar cache.
+		 */
+		void routeColumns(ColumnarCache cache)
+		{
+			int[] ids = new int[cache.getCompanyCount()];
+			Arrays.fill(ids, -1);
+			for (int row = 0; row < cache.getRowCount(); row++)
+			{
+				int rank = cache.getRank(row);
+				double revenue = cache.getRevenue(row);
+				double profit = cache.getProfit(row);
+
+				YearReport yearReport = this.yearReport(cache.getYear(row));
+				if (yearReport != null)
+				{
+					yearReport.addRow(revenue, profit);
+				}
+				int company = cache.getCompanyId(row);
+				if (ids[company] < 0)
+				{
+					ids[company] = this.dictionary.intern(cache.getCompany(company));
+				}
+				this.companyReport(ids[company]).addRow(rank, revenue, profit);
+			}
+			this.rowsRouted += cache.getRowCount();
+			this.rowsScanned += cache.getRowCount();
+		}
+
+		/**
+		 * Marks every report as processed once every row has been routed, and freezes the company
+		 *  dictionary, which is shared with callers of getCompanyDictionary.
+		 */
+		void markProcessed()
+		{
+			this.dictionary.freeze();
+			for (YearReport report : this.years.values())
+			{
+				report.markProcessed();
+			}
+			for (CompanyReport report : this.companies)
+			{
+				report.markProcessed();
+			}
+		}
+	}
+
+	/**
+	 * This is the cvs file to read data from.
+	 */
+	private File theFile;
+
+	/**
+	 * Where the data is read from when it is not a plain file, or null if it is a plain file.
+	 */
+	private DataSource source;
+
+	/**
+	 * The reports of the last completed processing, or null if the file has not been processed.
+	 * New reports replace the old ones in a single write, so readers never see a partly processed file.
+	 */
+	private volatile Reports reports;
+
+	/**
+	 * The counts and timings of every processing of the file.
+	 */
+	private final ReportMetrics metrics = new ReportMetrics();
+
+	/**
+	 * Creates new ReportEngine; data to be read from given file.
+	 * @param inputFileIn - File containing Fortune 500 data for the reports.
+	 */
+	public ReportEngine(File inputFileIn)
+	{
+		this.theFile = inputFileIn;
+		this.reports = null;
+	}
+
+	/**
+	 * Creates new ReportEngine; data to be read from given path, see DataSource.
+	 * @param inputPathIn - Path of a Fortune 500 csv file for the reports, plain or gzip compressed.
+	 */
+	public ReportEngine(Path inputPathIn)
+	{
+		this(DataSource.of(inputPathIn));
+	}
+
+	/**
+	 * Creates new ReportEngine; data to be read from given stream, see DataSource.
+	 * @param inputStreamIn - Stream of Fortune 500 csv data for the reports, read once.
+	 */
+	public ReportEngine(InputStream inputStreamIn)
+	{
+		this(DataSource.of(inputStreamIn));
+	}
+
+	/**
+	 * Creates new ReportEngine; data to be read from given Reader, see DataSource.
+	 * @param inputReaderIn - Reader of Fortune 500 csv data for the reports, read once.
+	 */
+	public ReportEngine(Reader inputReaderIn)
+	{
+		this(DataSource.of(inputReaderIn));
+	}
+
+	/**
+	 * Creates new ReportEngine; data to be read from given channel, see DataSource.
+	 * @param inputChannelIn - Channel of Fortune 500 csv data for the reports, read once.
+	 */
+	public ReportEngine(ReadableByteChannel inputChannelIn)
+	{
+		this(DataSource.of(inputChannelIn));
+	}
+
+	/**
+	 * Creates new ReportEngine; data to be read from given source.
+	 * A source that is not a plain file is read as a stream on the calling thread, without the file's
+	 *  columnar cache, and without a saved state when updating.
+	 * @param sourceIn - Source of Fortune 500 data for the reports.
+	 */
+	public ReportEngine(DataSource sourceIn)
+	{
+		if (sourceIn != null)
+		{
+			this.theFile = sourceIn.getFile();
+			if (this.theFile == null)
+			{
+				this.source = sourceIn;
+			}
+		}
+		this.reports = null;
+	}
+
+	/**
+	 * Reads the Fortune 500 data file once and processes every year and company report.
+	 * The file's columnar cache is read instead when it is up to date, see ColumnarCache.
+	 * The file is a csv file and can be assumed is formatted correctly.
+	 * @return true if processing successful, false if the input file does not exist or cannot be read.
+	 */
+	public boolean processReports()
+	{
+		return this.processReports(null);
+	}
+
+	/**
+	 * Reads the Fortune 500 data file once and processes every year and company report, splitting the
+	 *  file into parts at line breaks and reading the parts in parallel on the given executor.
+	 * The parsed rows are routed to the reports in file order, so the results are the same as
+	 *  reading the file in one piece.
+	 * The file's columnar cache is read instead when it is up to date, see ColumnarCache.
+	 * Each processing is recorded in the engine's metrics, see getMetrics.
+	 * @param executorIn - Executor to read the parts on, such as a ForkJoinPool, or null to read
+	 *  the file on the calling thread.
+	 * @return true if processing successful, false if the input file does not exist or cannot be read,
+	 *  or the data is a stream that has already been read.
+	 */
+	public boolean processReports(ExecutorService executorIn)
+	{
+		boolean result = false;
+		if (this.theFile != null || this.source != null)
+		{
+			try
+			{
+				ReportMetrics.ProcessEvent event = ReportMetrics.beginProcess();
+				long started = System.nanoTime();
+				ColumnarCache cache = null;
+				if (this.theFile != null)
+				{
+					cache = ColumnarCache.openIfCurrent(this.theFile);
+				}
+				Reports building = new Reports();
+				if (cache != null)
+				{
+					building.routeColumns(cache);
+				}
+				else if (executorIn == null || this.source != null)
+				{
+					this.routeRows(building);
+				}
+				else
+				{
+					this.routeParts(executorIn, building);
+				}
+				building.markProcessed();
+				this.reports = building;
+				this.record(event, building, started);
+				result = true;
+			}
+			catch (IOException e)
+			{
+				result = false;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Records one processing in the engine's metrics. Whatever time was not spent parsing was spent
+	 *  routing rows to the reports, which is counted as statistics time.
+	 * @param event The processing's event, begun when processing began.
+	 * @param building The reports processed.
+	 * @param started The value of System.nanoTime when processing began.
+	 */
+	private void record(ReportMetrics.ProcessEvent event, Reports building, long started)
+	{
+		String subject = this.theFile != null ? this.theFile.getPath() : "stream";
+		this.metrics.recordProcess(event, "ReportEngine", subject, building.rowsScanned, building.rowsRouted,
+				building.bytesRead, building.parseNanos, System.nanoTime() - started - building.parseNanos);
+	}
+
+	/**
+	 * Returns the state file of the given csv file.
+	 * @param sourceIn - A Fortune 500 csv file.
+	 * @return The file the state of the csv file's reports is saved in.
+	 */
+	public static File stateFileFor(File sourceIn)
+	{
+		return new File(sourceIn.getPath() + STATE_SUFFIX);
+	}
+
+	/**
+	 * Processes every year and company report, reading only the rows added to the file since the reports
+	 *  were last updated.
+	 * The statistics of every report are saved next to the file along with how far into the file they
+	 *  were read, the file's length and last modified time, and a checksum of every byte read, see
+	 *  stateFileFor. When the file has only grown since then, the saved statistics are restored and only
+	 *  the new rows are read and added to them; otherwise the whole file is read. The rows already read are
+	 *  read again to check their checksum only when the file's length or last modified time has changed.
+	 * Either way the reports are the same as processReports gives, and the new state is saved.
+	 * Data that is not a plain file is processed in full with processReports.
+	 * A year after Report.MAXYEAR is reported once the file has rows for it.
+	 * @return true if processing successful, false if the input file does not exist or cannot be read.
+	 */
+	public boolean updateReports()
+	{
+		if (this.source != null)
+		{
+			return this.processReports(null);
+		}
+		boolean result = false;
+		if (this.theFile != null)
+		{
+			try
+			{
+				ReportMetrics.ProcessEvent event = ReportMetrics.beginProcess();
+				long started = System.nanoTime();
+				File stateFile = stateFileFor(this.theFile);
+				long length = this.theFile.length();
+				long modified = this.theFile.lastModified();
+				long[] offset = new long[2];
+				Reports building = this.loadState(stateFile, offset);
+				if (building == null)
+				{
+					building = new Reports();
+					offset[0] = 0;
+				}
+				long end = this.routeTail(building, offset[0]);
+				building.markProcessed();
+				this.reports = building;
+				this.record(event, building, started);
+				try
+				{
+					long checksum = end == offset[0] ? offset[1] : this.checksum(end);
+					this.saveState(building, end, length, modified, checksum, stateFile);
+				}
+				catch (IOException | DataNotProcessedException e)
+				{
+					// The whole file is read again next time.
+				}
+				result = true;
+			}
+			catch (IOException e)
+			{
+				result = false;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Sends the values of every row from an offset to the end of the file to the report of its year and
+	 *  the report of its company. An offset of 0 skips the column names.
+	 * @param building The reports to route the rows to.
+	 * @param start The offset of the first row to read, which is the start of a line.
+	 * @return The offset after the last row read.
+	 * @throws IOException Thrown if the file cannot be read.
+	 */
+	private long routeTail(Reports building, long start) throws IOException
+	{
+		long started = System.nanoTime();
+		long result = start;
+		FileInputStream inputStream = new FileInputStream(this.theFile);
+		try (CsvRowReader rowReader = new CsvRowReader(inputStream))
+		{
+			inputStream.getChannel().position(start);
+			if (start == 0 && rowReader.nextRow()) // Skip the first line since it is column names.
+			{
+				result = rowReader.getNextRowOffset();
+			}
+			while (rowReader.nextRow())
+			{
+				int company = rowReader.getCompanyId(building.dictionary);
+				building.route(rowReader.getYear(), rowReader.getRank(), company, rowReader.getRevenue(),
+						rowReader.getProfit());
+				result = start + rowReader.getNextRowOffset();
+			}
+			building.countInput(rowReader);
+		}
+		// The rows are routed as they are parsed, so the routing is part of the parse time.
+		building.parseNanos += System.nanoTime() - started;
+		return result;
+	}
+
+	/**
+	 * Restores the reports from a state file if the rows it was saved from are still the start of the file.
+	 * The state is only used when the file is at least as long as the rows read, the rows end at the end
+	 *  of a line, and the file still has the length and last modified time that were saved; or, once the
+	 *  file has changed, when every byte of the rows read still has the checksum that was saved.
+	 * @param stateFile The state file.
+	 * @param offsetOut An array whose first element is set to the offset after the last row read, and whose
+	 *  second element is set to the checksum of the rows read.
+	 * @return The restored reports, not yet marked processed, or null if the state cannot be used.
+	 */
+	private Reports loadState(File stateFile, long[] offsetOut)
+	{
+		if (!stateFile.isFile())
+		{
+			return null;
+		}
+		try (DataInputStream input = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(stateFile))))
+		{
+			if (input.readInt() != STATE_MAGIC || input.readInt() != STATE_VERSION)
+			{
+				return null;
+			}
+			long offset = input.readLong();
+			long length = input.readLong();
+			long modified = input.readLong();
+			long checksum = input.readLong();
+			boolean unchanged = length == this.theFile.length() && modified == this.theFile.lastModified();
+			if (offset > this.theFile.length() || (!unchanged && checksum != this.checksum(offset))
+					|| (offset < this.theFile.length() && !this.endsLine(offset)))
+			{
+				return null;
+			}
+			Reports result = new Reports();
+			int years = input.readInt();
+			for (int index = 0; index < years; index++)
+			{
+				YearReport report = result.yearReport(input.readInt());
+				if (report == null)
+				{
+					return null;
+				}
+				report.readState(input);
+			}
+			int companies = input.readInt();
+			for (int index = 0; index < companies; index++)
+			{
+				result.companyReport(result.dictionary.intern(input.readUTF())).readState(input);
+			}
+			offsetOut[0] = offset;
+			offsetOut[1] = checksum;
+			return result;
+		}
+		catch (IOException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Saves the statistics of processed reports to a state file. The state is written to a new temporary
+	 *  file in the same directory that then replaces the state file, so a partly written state is never
+	 *  read, and programs saving the state at the same time do not write over each other's temporary files.
+	 * @param current The processed reports.
+	 * @param offset The offset after the last row read.
+	 * @param length The length of the file before its rows were read.
+	 * @param modified The last modified time of the file before its rows were read.
+	 * @param checksum The checksum of the rows read, see checksum.
+	 * @param stateFile The state file.
+	 * @throws IOException Thrown if the state file cannot be written.
+	 * @throws DataNotProcessedException Thrown if the reports have not been processed.
+	 */
+	private void saveState(Reports current, long offset, long length, long modified, long checksum,
+			File stateFile) throws IOException, DataNotProcessedException
+	{
+		File target = stateFile.getAbsoluteFile();
+		Path temporary = Files.createTempFile(target.getParentFile().toPath(), target.getName(), ".tmp");
+		try
+		{
+			try (DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(temporary))))
+			{
+				output.writeInt(STATE_MAGIC);
+				output.writeInt(STATE_VERSION);
+				output.writeLong(offset);
+				output.writeLong(length);
+				output.writeLong(modified);
+				output.writeLong(checksum);
+				output.writeInt(current.years.size());
+				for (YearReport report : current.years.values())
+				{
+					output.writeInt(report.getYear());
+					report.writeState(output);
+				}
+				output.writeInt(current.companies.size());
+				for (CompanyReport report : current.companies)
+				{
+					output.writeUTF(report.getCompany());
+					report.writeState(output);
+				}
+			}
+			Files.move(temporary, target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally
+		{
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * Returns the CRC-32 checksum of every byte of the file before an offset.
+	 * @param offset The offset.
+	 * @return The checksum.
+	 * @throws IOException Thrown if the file cannot be read.
+	 */
+	private long checksum(long offset) throws IOException
+	{
+		CRC32 crc = new CRC32();
+		try (FileChannel channel = FileChannel.open(this.theFile.toPath(), StandardOpenOption.READ))
+		{
+			ByteBuffer bytes = ByteBuffer.allocate(CHECKED_BYTES);
+			long position = 0;
+			while (position < offset)
+			{
+				bytes.clear();
+				bytes.limit((int) Math.min(CHECKED_BYTES, offset - position));
+				while (bytes.hasRemaining())
+				{
+					if (channel.read(bytes, position + bytes.position()) < 0)
+					{
+						throw new IOException(this.theFile + " is shorter than " + offset + " bytes.");
+					}
+				}
+				bytes.flip();
+				crc.update(bytes);
+				position += bytes.limit();
+			}
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * Checks whether the byte before an offset is the end of a line, so rows added after it start a new line.
+	 * @param offset The offset, at least 1.
+	 * @return true if the byte before the offset is a line break.
+	 * @throws IOException Thrown if the file cannot be read.
+	 */
+	private boolean endsLine(long offset) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(this.theFile.toPath(), StandardOpenOption.READ))
+		{
+			ByteBuffer last = ByteBuffer.allocate(1);
+			return offset > 0 && channel.read(last, offset - 1) == 1 && last.get(0) == '\n';
+		}
+	}
+
+	/**
+	 * Parses the parts of the file in parallel, then routes the rows of each part in file order.
+	 * Only the parsing is spread across threads, so every report adds its values in the same order
+	 *  as a single scan and the results are identical.
+	 * Parts are split at line breaks, so if one began inside a row, which only happens when a quoted field
+	 *  holds a line break, the parts are dropped and the rows are read by a single scan instead. Such a part
+	 *  is found either because the part before it read a row past its end, or because the part could not
+	 *  parse the rest of the row it began in; a row that a single scan cannot parse either still fails.
+	 * @param executorIn The executor to read the parts on.
+	 * @param building The reports to route the rows to.
+	 * @throws IOException Thrown if the file cannot be read or the reading is interrupted.
+	 */
+	private void routeParts(ExecutorService executorIn, Reports building) throws IOException
+	{
+		int threads = Runtime.getRuntime().availableProcessors();
+		if (executorIn instanceof ForkJoinPool)
+		{
+			threads = ((ForkJoinPool) executorIn).getParallelism();
+		}
+		long length = this.theFile.length();
+		int parts = (int) Math.max(1, Math.min(threads, length / MIN_PART_SIZE));
+		long[] boundaries = this.findBoundaries(parts, length);
+
+		List<Callable<Part>> tasks = new ArrayList<Callable<Part>>(parts);
+		for (int part = 0; part < parts; part++)
+		{
+			final long start = boundaries[part];
+			final long end = boundaries[part + 1];
+			tasks.add(new Callable<Part>()
+			{
+				@Override
+				public Part call() throws IOException
+				{
+					return ReportEngine.this.parsePart(start, end);
+				}
+			});
+		}
+		try
+		{
+			long started = System.nanoTime();
+			List<Future<Part>> futures = executorIn.invokeAll(tasks);
+			building.parseNanos += System.nanoTime() - started;
+			List<Part> parsed = new ArrayList<Part>(parts);
+			for (Future<Part> future : futures)
+			{
+				parsed.add(future.get());
+			}
+			for (int part = 0; part < parts; part++)
+			{
+				if (parsed.get(part).unparsed || part > 0 && parsed.get(part - 1).rowsEnd > boundaries[part])
+				{
+					// A quoted field holds the line break a part began after, so the part began inside a row.
+					this.routeRows(building);
+					return;
+				}
+			}
+			for (Part part : parsed)
+			{
+				building.rowsScanned += part.rowsScanned;
+				building.bytesRead += part.bytesRead;
+				// Part ids are turned into ids of the whole file in row order, so companies keep the order
+				//  they first appear in the file.
+				int[] ids = new int[part.dictionary.getSize()];
+				Arrays.fill(ids, -1);
+				for (int row = 0; row < part.count; row++)
+				{
+					int company = part.companies[row];
+					if (ids[company] < 0)
+					{
+						ids[company] = building.dictionary.intern(part.dictionary.getName(company));
+					}
+					building.route(part.years[row], part.ranks[row], ids[company], part.revenues[row],
+							part.profits[row]);
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof IOException)
+			{
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Splits the file into parts of about the same size that start at the beginning of a line.
+	 * @param parts The number of parts.
+	 * @param length The length of the file.
+	 * @return The offset of the start of each part, followed by the length of the file.
+	 * @throws IOException Thrown if the file cannot be read.
+	 */
+	private long[] findBoundaries(int parts, long length) throws IOException
+	{
+		long[] result = new long[parts + 1];
+		result[parts] = length;
+		try (FileChannel channel = FileChannel.open(this.theFile.toPath(), StandardOpenOption.READ))
+		{
+			ByteBuffer chunk = ByteBuffer.allocate(4096);
+			for (int part = 1; part < parts; part++)
+			{
+				long position = Math.max(result[part - 1], length * part / parts - 1);
+				result[part] = length;
+				boolean found = false;
+				while (!found && position < length)
+				{
+					chunk.clear();
+					int read = channel.read(chunk, position);
+					for (int index = 0; index < read && !found; index++)
+					{
+						if (chunk.get(index) == '\n')
+						{
+							result[part] = position + index + 1;
+							found = true;
+						}
+					}
+					position += Math.max(read, 1);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Sends the values of every row of the data to the report of its year and the report of its company.
+	 * @param building The reports to route the rows to.
+	 * @throws IOException Thrown if the file cannot be read.
+	 */
+	private void routeRows(Reports building) throws IOException
+	{
+		long started = System.nanoTime();
+		CsvRowReader opened;
+		if (this.source != null)
+		{
+			opened = new CsvRowReader(this.source.open(), this.source.getCharset());
+		}
+		else
+		{
+			opened = new CsvRowReader(new FileInputStream(this.theFile));
+		}
+		try (CsvRowReader rowReader = opened)
+		{
+			rowReader.nextRow(); // Skip the first line since it is column names.
+			while (rowReader.nextRow())
+			{
+				int company = rowReader.getCompanyId(building.dictionary);
+				building.route(rowReader.getYear(), rowReader.getRank(), company, rowReader.getRevenue(),
+						rowReader.getProfit());
+			}
+			building.countInput(rowReader);
+		}
+		// The rows are routed as they are parsed, so the routing is part of the parse time.
+		building.parseNanos += System.nanoTime() - started;
+	}
+
+	/**
+	 * Parses the rows of part of the file. The first part skips the column names.
+	 * A part that began inside a row may not be able to parse it; parsing then stops and the part is marked
+	 *  as unparsed, so its rows are read again by a single scan, see routeParts.
+	 * @param start The offset of the start of the part, which is the start of a line.
+	 * @param end The offset after the end of the part.
+	 * @return The part's rows.
+	 * @throws IOException Thrown if the file cannot be read.
+	 */
+	private Part parsePart(long start, long end) throws IOException
+	{
+		Part result = new Part();
+		result.rowsEnd = start;
+		FileInputStream inputStream = new FileInputStream(this.theFile);
+		try (CsvRowReader rowReader = new CsvRowReader(inputStream))
+		{
+			inputStream.getChannel().position(start);
+			if (start == 0)
+			{
+				rowReader.nextRow(); // Skip the first line since it is column names.
+			}
+			try
+			{
+				while (rowReader.nextRow() && start + rowReader.getRowOffset() < end)
+				{
+					result.add(rowReader);
+					result.rowsEnd = start + rowReader.getNextRowOffset();
+				}
+			}
+			catch (NumberFormatException | IndexOutOfBoundsException e)
+			{
+				result.unparsed = true;
+			}
+			result.rowsScanned = rowReader.getRowsRead();
+			result.bytesRead = rowReader.getBytesRead();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the processed report of the given year.
+	 * @param yearIn - Year of the report.
+	 * @return The processed report for the year.
+	 * @throws DataNotProcessedException - Thrown if the reports have not yet been processed.
+	 * @throws YearNotFoundException - Thrown if the year is before Report.MINYEAR, or is after
+	 *  Report.MAXYEAR and the file has no rows for it.
+	 */
+	public YearReport getYearReport(int yearIn) throws DataNotProcessedException
+	{
+		Reports current = this.reports;
+		if (current == null)
+		{
+			throw new DataNotProcessedException();
+		}
+		YearReport result = current.years.get(yearIn);
+		if (result == null)
+		{
+			throw new YearNotFoundException();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the processed report of the given company.
+	 * Companies are matched as CompanyIndex.normalize matches them, just as a CompanyReport processed on its
+	 *  own matches them. A company that is never ranked in the file, or a null company, gets a report ranked
+	 *  0 times, just as a CompanyReport processed on its own would.
+	 * @param companyIn - Company of the report.
+	 * @return The processed report for the company.
+	 * @throws DataNotProcessedException - Thrown if the reports have not yet been processed.
+	 */
+	public CompanyReport getCompanyReport(String companyIn) throws DataNotProcessedException
+	{
+		Reports current = this.reports;
+		if (current == null)
+		{
+			throw new DataNotProcessedException();
+		}
+		int key = companyIn != null ? current.dictionary.findKey(companyIn) : -1;
+		if (key >= 0)
+		{
+			return current.companies.get(key);
+		}
+		CompanyReport result = new CompanyReport(companyIn);
+		result.markProcessed();
+		return result;
+	}
+
+	/**
+	 * Returns the processed reports of every year, in order of year.
+	 * @return The year reports.
+	 * @throws DataNotProcessedException - Thrown if the reports have not yet been processed.
+	 */
+	public List<YearReport> getYearReports() throws DataNotProcessedException
+	{
+		Reports current = this.reports;
+		if (current == null)
+		{
+			throw new DataNotProcessedException();
+		}
+		return new ArrayList<YearReport>(current.years.values());
+	}
+
+	/**
+	 * Returns the processed reports of every company ranked in the file, in the order the companies first
+	 *  appear, with one report for the names that are the same once normalized by CompanyIndex.normalize.
+	 * @return The company reports.
+	 * @throws DataNotProcessedException - Thrown if the reports have not yet been processed.
+	 */
+	public List<CompanyReport> getCompanyReports() throws DataNotProcessedException
+	{
+		Reports current = this.reports;
+		if (current == null)
+		{
+			throw new DataNotProcessedException();
+		}
+		return new ArrayList<CompanyReport>(current.companies);
+	}
+
+	/**
+	 * Returns the dictionary of the company names of the file, whose ids are in the order the names first
+	 *  appear. The dictionary can be searched by prefix and by edit distance, see CompanyDictionary, and the
+	 *  report of a name found is returned by getCompanyReport.
+	 * The dictionary is frozen, see CompanyDictionary.freeze, so names cannot be added to it; processing the
+	 *  file again builds a new dictionary.
+	 * @return The company dictionary, read only.
+	 * @throws DataNotProcessedException - Thrown if the reports have not yet been processed.
+	 */
+	public CompanyDictionary getCompanyDictionary() throws DataNotProcessedException
+	{
+		Reports current = this.reports;
+		if (current == null)
+		{
+			throw new DataNotProcessedException();
+		}
+		return current.dictionary;
+	}
+
+	/**
+	 * Returns the counts and timings of every processing of the file by this engine. When the file is read
+	 *  in parallel parts, the parse time is the time until every part is parsed and the statistics time is
+	 *  the time spent routing the parsed rows; otherwise rows are routed as they are parsed and the routing
+	 *  is counted as parse time. The metrics can be registered with JMX, see ReportMetrics.register.
+	 * @return The engine's metrics.
+	 */
+	public ReportMetrics getMetrics()
+	{
+		return this.metrics;
+	}
+}
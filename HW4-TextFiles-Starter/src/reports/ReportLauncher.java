@@ -0,0 +1,217 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import reports.io.ColumnarCache;
+import reports.io.CsvRowReader;
+
+/**
+ * Command line entry point producing one report per run, for scheduled jobs that start a new JVM for each
+ *  report. Usage:
+ *
+ * java reports.ReportLauncher year YEAR DATAFILE OUTFILE
+ * java reports.ReportLauncher company COMPANY DATAFILE OUTFILE
+ * java reports.ReportLauncher cache DATAFILE
+ * java reports.ReportLauncher snapshot DATAFILE
+ * java reports.ReportLauncher train DATAFILE
+ *
+ * The year and company commands write one report as YearReport and CompanyReport do. Their cost is mostly
+ *  starting the JVM and reading the data file. The cache command converts the file to its ColumnarCache,
+ *  after which reports read the cache's columns instead of parsing the file until the file changes, and the
+ *  snapshot command writes the file's ColumnarCache and ReportSnapshot, after which each report is restored
+ *  from the snapshot.
+ * The launcher loads no more classes than the report it writes needs: arguments are parsed without regular
+ *  expressions, output is formatted by ReportWriter without a Formatter, and nothing is started in static
+ *  initializers, so the classes it loads can be stored in an AppCDS archive, and a JVM checkpointed after
+ *  a train run holds no state tied to the data file. The train command writes one year and one company
+ *  report of the file to a temporary file, loading every class either command needs, so an archive is made
+ *  and used with:
+ *
+ * java -XX:ArchiveClassesAtExit=reports.jsa -cp CLASSPATH reports.ReportLauncher train DATAFILE
+ * java -XX:SharedArchiveFile=reports.jsa -cp CLASSPATH reports.ReportLauncher year YEAR DATAFILE OUTFILE
+ *
+ * The exit status is 0 on success, 1 if the report cannot be processed or written, and 2 for bad arguments.
+ * @author Logan Noonan
+ *
+ */
+public class ReportLauncher
+{
+	/**
+	 * The exit status of a run whose report cannot be processed or written.
+	 */
+	private static final int FAILED = 1;
+
+	/**
+	 * The exit status of a run given bad arguments.
+	 */
+	private static final int USAGE = 2;
+
+	/**
+	 * This class only has static methods.
+	 */
+	private ReportLauncher()
+	{
+	}
+
+	/**
+	 * Runs one command, exiting with a non-zero status if it fails.
+	 * @param args - The command and its arguments, see the class description.
+	 */
+	public static void main(String[] args)
+	{
+		int status = run(args);
+		if (status != 0)
+		{
+			System.exit(status);
+		}
+	}
+
+	/**
+	 * Runs one command.
+	 * @param args - The command and its arguments, see the class description.
+	 * @return The exit status: 0 on success, 1 on failure, or 2 for bad arguments.
+	 */
+	public static int run(String[] args)
+	{
+		String command = args.length > 0 ? args[0] : "";
+		try
+		{
+			if (command.equals("year") && args.length == 4)
+			{
+				return writeYear(new File(args[2]), Integer.parseInt(args[1]), new File(args[3]));
+			}
+			else if (command.equals("company") && args.length == 4)
+			{
+				return writeCompany(new File(args[2]), args[1], new File(args[3]));
+			}
+			else if (command.equals("cache") && args.length == 2)
+			{
+				ColumnarCache written = ColumnarCache.convert(new File(args[1]));
+				System.out.println("Wrote " + written.getRowCount() + " rows of " + written.getCompanyCount()
+						+ " companies to " + ColumnarCache.cacheFileFor(new File(args[1])));
+				return 0;
+			}
+			else if (command.equals("snapshot") && args.length == 2)
+			{
+				ReportSnapshot written = ReportSnapshot.write(new File(args[1]));
+				System.out.println("Wrote " + written.getYearCount() + " years and " + written.getCompanyCount()
+						+ " companies to " + ReportSnapshot.snapshotFileFor(new File(args[1])));
+				return 0;
+			}
+			else if (command.equals("train") && args.length == 2)
+			{
+				return train(new File(args[1]));
+			}
+		}
+		catch (NumberFormatException e)
+		{
+			System.err.println("Not a year: " + args[1]);
+			return USAGE;
+		}
+		catch (YearNotFoundException e)
+		{
+			System.err.println("No data for " + args[1]);
+			return FAILED;
+		}
+		catch (IOException | DataNotProcessedException e)
+		{
+			System.err.println(e.getMessage());
+			return FAILED;
+		}
+		System.err.println("Usage: java reports.ReportLauncher year YEAR DATAFILE OUTFILE");
+		System.err.println("       java reports.ReportLauncher company COMPANY DATAFILE OUTFILE");
+		System.err.println("       java reports.ReportLauncher cache DATAFILE");
+		System.err.println("       java reports.ReportLauncher snapshot DATAFILE");
+		System.err.println("       java reports.ReportLauncher train DATAFILE");
+		return USAGE;
+	}
+
+	/**
+	 * Processes and writes the report of one year.
+	 * @param dataFile The data file.
+	 * @param year The year.
+	 * @param outputFile The file to write the report to.
+	 * @return The exit status.
+	 * @throws DataNotProcessedException Thrown if the report is written before it is processed.
+	 */
+	private static int writeYear(File dataFile, int year, File outputFile) throws DataNotProcessedException
+	{
+		YearReport report = new YearReport(dataFile, year);
+		if (!report.processReport())
+		{
+			System.err.println("Cannot read " + dataFile);
+			return FAILED;
+		}
+		if (!report.writeReport(outputFile))
+		{
+			System.err.println("Cannot write " + outputFile);
+			return FAILED;
+		}
+		return 0;
+	}
+
+	/**
+	 * Processes and writes the report of one company.
+	 * @param dataFile The data file.
+	 * @param company The company.
+	 * @param outputFile The file to write the report to.
+	 * @return The exit status.
+	 * @throws DataNotProcessedException Thrown if the report is written before it is processed.
+	 */
+	private static int writeCompany(File dataFile, String company, File outputFile) throws DataNotProcessedException
+	{
+		CompanyReport report = new CompanyReport(dataFile, company);
+		if (!report.processReport())
+		{
+			System.err.println("Cannot read " + dataFile);
+			return FAILED;
+		}
+		if (!report.writeReport(outputFile))
+		{
+			System.err.println("Cannot write " + outputFile);
+			return FAILED;
+		}
+		return 0;
+	}
+
+	/**
+	 * Writes the report of Report.MAXYEAR and of the file's first company to a temporary file, which is then
+	 *  deleted, loading the classes the year and company commands need.
+	 * @param dataFile The data file.
+	 * @return The exit status.
+	 * @throws IOException Thrown if the data file cannot be read or the temporary file cannot be created.
+	 * @throws DataNotProcessedException Thrown if a report is written before it is processed.
+	 */
+	private static int train(File dataFile) throws IOException, DataNotProcessedException
+	{
+		String company = null;
+		try (CsvRowReader rowReader = new CsvRowReader(new FileInputStream(dataFile)))
+		{
+			rowReader.nextRow(); // Skip the first line since it is column names.
+			if (rowReader.nextRow())
+			{
+				company = rowReader.getCompany();
+			}
+		}
+		File output = File.createTempFile("report", ".txt");
+		try
+		{
+			int status = writeYear(dataFile, Report.MAXYEAR, output);
+			if (status == 0 && company != null)
+			{
+				status = writeCompany(dataFile, company, output);
+			}
+			boolean restored = ReportSnapshot.openIfCurrent(dataFile) != null;
+			System.out.println("Trained on " + dataFile + (restored ? " and its snapshot" : ""));
+			return status;
+		}
+		finally
+		{
+			output.delete();
+		}
+	}
+}
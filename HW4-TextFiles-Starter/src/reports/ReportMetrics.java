@@ -0,0 +1,544 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Counters and phase timings of report processing and writing, so a slow run can be told apart as
+ *  reading, parsing, computing statistics, formatting, or writing to the filesystem.
+ * Each YearReport, CompanyReport, and ReportEngine keeps its own metrics, see their getMetrics; a report
+ *  creates its metrics when it is first processed or written, so the many reports a ReportEngine routes rows
+ *  to have none. A ReportBatch adds up the metrics of its reports. Everything recorded is also added to the global metrics,
+ *  which are registered with the platform MBeanServer as reports:type=ReportMetrics the first time
+ *  getGlobal is called; any other metrics can be registered under a name of their own with register.
+ * Each processing and writing is also emitted as a JFR event, reports.Process or reports.Write, when a
+ *  flight recording with the events enabled is running, for example with
+ *  -XX:StartFlightRecording:filename=reports.jfr. No event is created until a flight recording has been
+ *  started in the JVM, since creating the first one initializes JFR's event support, which takes a large
+ *  part of a second and would dominate short runs such as those of ReportLauncher.
+ * Metrics may be recorded and read by any number of threads at once. The counts are read one at a time,
+ *  so counts read while reports are running may be from slightly different moments.
+ * @author Logan Noonan
+ *
+ */
+public class ReportMetrics implements ReportMetricsMBean
+{
+	/**
+	 * The name the global metrics are registered under.
+	 */
+	public static final String GLOBAL_NAME = "reports:type=ReportMetrics";
+
+	/**
+	 * The metrics of every report of the JVM.
+	 */
+	private static final ReportMetrics GLOBAL = new ReportMetrics();
+
+	/**
+	 * Whether the global metrics have been registered, or have failed to be.
+	 */
+	private static boolean globalRegistered = false;
+
+	/**
+	 * The number of reports processed.
+	 */
+	private final AtomicLong reportsProcessed = new AtomicLong();
+
+	/**
+	 * The number of reports written.
+	 */
+	private final AtomicLong reportsWritten = new AtomicLong();
+
+	/**
+	 * The number of rows scanned.
+	 */
+	private final AtomicLong rowsScanned = new AtomicLong();
+
+	/**
+	 * The number of rows matched.
+	 */
+	private final AtomicLong rowsMatched = new AtomicLong();
+
+	/**
+	 * The number of bytes read.
+	 */
+	private final AtomicLong bytesRead = new AtomicLong();
+
+	/**
+	 * The number of bytes written.
+	 */
+	private final AtomicLong bytesWritten = new AtomicLong();
+
+	/**
+	 * The time spent parsing, in nanoseconds.
+	 */
+	private final AtomicLong parseNanos = new AtomicLong();
+
+	/**
+	 * The time spent computing statistics, in nanoseconds.
+	 */
+	private final AtomicLong statisticsNanos = new AtomicLong();
+
+	/**
+	 * The time spent formatting, in nanoseconds.
+	 */
+	private final AtomicLong formatNanos = new AtomicLong();
+
+	/**
+	 * The time spent writing, in nanoseconds.
+	 */
+	private final AtomicLong writeNanos = new AtomicLong();
+
+	/**
+	 * A JFR event of one processing of a report.
+	 */
+	@Name("reports.Process")
+	@Label("Report Processing")
+	@Category("Fortune 500 Reports")
+	@Description("Reading a Fortune 500 data file and computing the statistics of one or more reports")
+	static final class ProcessEvent extends Event
+	{
+		/**
+		 * The kind of report, such as YearReport.
+		 */
+		@Label("Report Type")
+		String reportType;
+
+		/**
+		 * The year or company of the report, or the file of a ReportEngine.
+		 */
+		@Label("Subject")
+		String subject;
+
+		/**
+		 * The number of rows scanned.
+		 */
+		@Label("Rows Scanned")
+		long rowsScanned;
+
+		/**
+		 * The number of rows matched.
+		 */
+		@Label("Rows Matched")
+		long rowsMatched;
+
+		/**
+		 * The number of bytes read.
+		 */
+		@Label("Bytes Read")
+		@DataAmount
+		long bytesRead;
+
+		/**
+		 * The time spent parsing.
+		 */
+		@Label("Parse Time")
+		@Timespan
+		long parseTime;
+
+		/**
+		 * The time spent computing statistics apart from parsing.
+		 */
+		@Label("Statistics Time")
+		@Timespan
+		long statisticsTime;
+	}
+
+	/**
+	 * A JFR event of one writing of a report to a file.
+	 */
+	@Name("reports.Write")
+	@Label("Report Writing")
+	@Category("Fortune 500 Reports")
+	@Description("Formatting a processed report and writing it to a file")
+	static final class WriteEvent extends Event
+	{
+		/**
+		 * The kind of report, such as YearReport.
+		 */
+		@Label("Report Type")
+		String reportType;
+
+		/**
+		 * The year or company of the report.
+		 */
+		@Label("Subject")
+		String subject;
+
+		/**
+		 * The file written.
+		 */
+		@Label("Path")
+		String path;
+
+		/**
+		 * The number of bytes written.
+		 */
+		@Label("Bytes Written")
+		@DataAmount
+		long bytesWritten;
+
+		/**
+		 * The time spent formatting.
+		 */
+		@Label("Format Time")
+		@Timespan
+		long formatTime;
+
+		/**
+		 * The time spent writing.
+		 */
+		@Label("Write Time")
+		@Timespan
+		long writeTime;
+	}
+
+	/**
+	 * Creates new ReportMetrics with every count and time at zero.
+	 */
+	public ReportMetrics()
+	{
+		// The counters start at zero.
+	}
+
+	/**
+	 * Returns the metrics of every report of the JVM, registering them with the platform MBeanServer as
+	 *  GLOBAL_NAME the first time. The metrics are returned even if they cannot be registered.
+	 * @return The global metrics.
+	 */
+	public static ReportMetrics getGlobal()
+	{
+		synchronized (ReportMetrics.class)
+		{
+			if (!globalRegistered)
+			{
+				globalRegistered = true;
+				GLOBAL.register(GLOBAL_NAME);
+			}
+		}
+		return GLOBAL;
+	}
+
+	/**
+	 * Registers the metrics with the platform MBeanServer so JMX clients can read them.
+	 * @param nameIn - The object name to register under, such as reports:type=ReportMetrics,name=batch.
+	 * @return true if the metrics were registered, false if the name is not valid or already in use
+	 *  or the MBeanServer cannot be reached.
+	 */
+	public boolean register(String nameIn)
+	{
+		boolean result;
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(nameIn));
+			result = true;
+		}
+		catch (JMException | SecurityException e)
+		{
+			result = false;
+		}
+		return result;
+	}
+
+	/**
+	 * Begins the JFR event of one processing of a report.
+	 * @return The begun event, or null if no flight recording has been started in the JVM.
+	 */
+	static ProcessEvent beginProcess()
+	{
+		ProcessEvent result = null;
+		if (FlightRecorder.isInitialized())
+		{
+			result = new ProcessEvent();
+			result.begin();
+		}
+		return result;
+	}
+
+	/**
+	 * Begins the JFR event of one writing of a report.
+	 * @return The begun event, or null if no flight recording has been started in the JVM.
+	 */
+	static WriteEvent beginWrite()
+	{
+		WriteEvent result = null;
+		if (FlightRecorder.isInitialized())
+		{
+			result = new WriteEvent();
+			result.begin();
+		}
+		return result;
+	}
+
+	/**
+	 * Records one processing of a report, adding it to these metrics and the global metrics, and ends and
+	 *  commits its JFR event.
+	 * @param event The event begun by beginProcess when processing began, or null if there is none.
+	 * @param reportType The kind of report.
+	 * @param subject The year or company of the report.
+	 * @param scanned The number of rows scanned.
+	 * @param matched The number of rows matched.
+	 * @param bytes The number of bytes read.
+	 * @param parse The time spent parsing, in nanoseconds.
+	 * @param statistics The time spent computing statistics apart from parsing, in nanoseconds.
+	 */
+	void recordProcess(ProcessEvent event, String reportType, Object subject, long scanned, long matched, long bytes,
+			long parse, long statistics)
+	{
+		this.addProcess(scanned, matched, bytes, parse, statistics);
+		if (this != GLOBAL)
+		{
+			GLOBAL.addProcess(scanned, matched, bytes, parse, statistics);
+		}
+		if (event == null)
+		{
+			return;
+		}
+		event.end();
+		if (event.shouldCommit())
+		{
+			event.reportType = reportType;
+			event.subject = String.valueOf(subject);
+			event.rowsScanned = scanned;
+			event.rowsMatched = matched;
+			event.bytesRead = bytes;
+			event.parseTime = parse;
+			event.statisticsTime = statistics;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Records one writing of a report, adding it to these metrics and the global metrics, and ends and
+	 *  commits its JFR event.
+	 * @param event The event begun by beginWrite when formatting began, or null if there is none.
+	 * @param reportType The kind of report.
+	 * @param subject The year or company of the report.
+	 * @param path The file written.
+	 * @param bytes The number of bytes written.
+	 * @param format The time spent formatting, in nanoseconds.
+	 * @param write The time spent writing, in nanoseconds.
+	 */
+	void recordWrite(WriteEvent event, String reportType, Object subject, String path, long bytes, long format,
+			long write)
+	{
+		this.addWrite(bytes, format, write);
+		if (this != GLOBAL)
+		{
+			GLOBAL.addWrite(bytes, format, write);
+		}
+		if (event == null)
+		{
+			return;
+		}
+		event.end();
+		if (event.shouldCommit())
+		{
+			event.reportType = reportType;
+			event.subject = String.valueOf(subject);
+			event.path = path;
+			event.bytesWritten = bytes;
+			event.formatTime = format;
+			event.writeTime = write;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Adds one processing to the counters.
+	 * @param scanned The number of rows scanned.
+	 * @param matched The number of rows matched.
+	 * @param bytes The number of bytes read.
+	 * @param parse The time spent parsing, in nanoseconds.
+	 * @param statistics The time spent computing statistics, in nanoseconds.
+	 */
+	private void addProcess(long scanned, long matched, long bytes, long parse, long statistics)
+	{
+		this.reportsProcessed.incrementAndGet();
+		this.rowsScanned.addAndGet(scanned);
+		this.rowsMatched.addAndGet(matched);
+		this.bytesRead.addAndGet(bytes);
+		this.parseNanos.addAndGet(parse);
+		this.statisticsNanos.addAndGet(statistics);
+	}
+
+	/**
+	 * Adds one writing to the counters.
+	 * @param bytes The number of bytes written.
+	 * @param format The time spent formatting, in nanoseconds.
+	 * @param write The time spent writing, in nanoseconds.
+	 */
+	private void addWrite(long bytes, long format, long write)
+	{
+		this.reportsWritten.incrementAndGet();
+		this.bytesWritten.addAndGet(bytes);
+		this.formatNanos.addAndGet(format);
+		this.writeNanos.addAndGet(write);
+	}
+
+	/**
+	 * Adds the counts and times of other metrics to these, as a ReportBatch does with the metrics of its
+	 *  reports. The global metrics are not changed, since the other metrics were already added to them.
+	 * @param otherIn - The metrics to add.
+	 */
+	public void add(ReportMetrics otherIn)
+	{
+		this.reportsProcessed.addAndGet(otherIn.getReportsProcessed());
+		this.reportsWritten.addAndGet(otherIn.getReportsWritten());
+		this.rowsScanned.addAndGet(otherIn.getRowsScanned());
+		this.rowsMatched.addAndGet(otherIn.getRowsMatched());
+		this.bytesRead.addAndGet(otherIn.getBytesRead());
+		this.bytesWritten.addAndGet(otherIn.getBytesWritten());
+		this.parseNanos.addAndGet(otherIn.getParseNanos());
+		this.statisticsNanos.addAndGet(otherIn.getStatisticsNanos());
+		this.formatNanos.addAndGet(otherIn.getFormatNanos());
+		this.writeNanos.addAndGet(otherIn.getWriteNanos());
+	}
+
+	/**
+	 * Returns the number of times a report was processed.
+	 * @return The number of reports processed.
+	 */
+	@Override
+	public long getReportsProcessed()
+	{
+		return this.reportsProcessed.get();
+	}
+
+	/**
+	 * Returns the number of times a report was written to a file.
+	 * @return The number of reports written.
+	 */
+	@Override
+	public long getReportsWritten()
+	{
+		return this.reportsWritten.get();
+	}
+
+	/**
+	 * Returns the number of rows read while processing.
+	 * @return The number of rows scanned.
+	 */
+	@Override
+	public long getRowsScanned()
+	{
+		return this.rowsScanned.get();
+	}
+
+	/**
+	 * Returns the number of rows that were added to a report's results.
+	 * @return The number of rows matched.
+	 */
+	@Override
+	public long getRowsMatched()
+	{
+		return this.rowsMatched.get();
+	}
+
+	/**
+	 * Returns the number of bytes of data read while processing.
+	 * @return The number of bytes read.
+	 */
+	@Override
+	public long getBytesRead()
+	{
+		return this.bytesRead.get();
+	}
+
+	/**
+	 * Returns the number of bytes written to report files.
+	 * @return The number of bytes written.
+	 */
+	@Override
+	public long getBytesWritten()
+	{
+		return this.bytesWritten.get();
+	}
+
+	/**
+	 * Returns the time spent reading and parsing rows.
+	 * @return The parse time in nanoseconds.
+	 */
+	@Override
+	public long getParseNanos()
+	{
+		return this.parseNanos.get();
+	}
+
+	/**
+	 * Returns the time spent computing statistics apart from parsing: adding the values read to the statistics
+	 *  of a YearReport or CompanyReport, or routing rows to the reports of a ReportEngine. A ReportQuery adds
+	 *  to its groups as each row is read, so its statistics time is part of its parse time.
+	 * @return The statistics time in nanoseconds.
+	 */
+	@Override
+	public long getStatisticsNanos()
+	{
+		return this.statisticsNanos.get();
+	}
+
+	/**
+	 * Returns the time spent formatting reports as text.
+	 * @return The format time in nanoseconds.
+	 */
+	@Override
+	public long getFormatNanos()
+	{
+		return this.formatNanos.get();
+	}
+
+	/**
+	 * Returns the time spent encoding reports and writing them to files.
+	 * @return The write time in nanoseconds.
+	 */
+	@Override
+	public long getWriteNanos()
+	{
+		return this.writeNanos.get();
+	}
+
+	/**
+	 * Sets every count and time to zero.
+	 */
+	@Override
+	public void reset()
+	{
+		this.reportsProcessed.set(0);
+		this.reportsWritten.set(0);
+		this.rowsScanned.set(0);
+		this.rowsMatched.set(0);
+		this.bytesRead.set(0);
+		this.bytesWritten.set(0);
+		this.parseNanos.set(0);
+		this.statisticsNanos.set(0);
+		this.formatNanos.set(0);
+		this.writeNanos.set(0);
+	}
+
+	/**
+	 * Returns the metrics as one line of text, with times in milliseconds.
+	 * @return The metrics.
+	 */
+	@Override
+	public String toString()
+	{
+		return "processed=" + this.getReportsProcessed() + " written=" + this.getReportsWritten()
+				+ " rowsScanned=" + this.getRowsScanned() + " rowsMatched=" + this.getRowsMatched()
+				+ " bytesRead=" + this.getBytesRead() + " bytesWritten=" + this.getBytesWritten()
+				+ " parseMs=" + this.getParseNanos() / 1000000 + " statisticsMs=" + this.getStatisticsNanos() / 1000000
+				+ " formatMs=" + this.getFormatNanos() / 1000000 + " writeMs=" + this.getWriteNanos() / 1000000;
+	}
+}
@@ -0,0 +1,82 @@
+// NAME: Logan Noonan
+
+package reports;
+
+/**
+ * The management interface of ReportMetrics, through which a JMX client such as JConsole reads the counters
+ *  and phase timings of report processing and writing.
+ * Times are in nanoseconds and counts are totals since the metrics were created or last reset.
+ * @author Logan Noonan
+ *
+ */
+public interface ReportMetricsMBean
+{
+	/**
+	 * Returns the number of times a report was processed.
+	 * @return The number of reports processed.
+	 */
+	long getReportsProcessed();
+
+	/**
+	 * Returns the number of times a report was written to a file.
+	 * @return The number of reports written.
+	 */
+	long getReportsWritten();
+
+	/**
+	 * Returns the number of rows read while processing, including rows of other years or companies
+	 *  that were read past.
+	 * @return The number of rows scanned.
+	 */
+	long getRowsScanned();
+
+	/**
+	 * Returns the number of rows that were added to a report's results.
+	 * @return The number of rows matched.
+	 */
+	long getRowsMatched();
+
+	/**
+	 * Returns the number of bytes of data read from files and streams while processing; rows read from a
+	 *  loaded FortuneDataset or a columnar cache are not counted.
+	 * @return The number of bytes read.
+	 */
+	long getBytesRead();
+
+	/**
+	 * Returns the number of bytes written to report files.
+	 * @return The number of bytes written.
+	 */
+	long getBytesWritten();
+
+	/**
+	 * Returns the time spent reading and parsing rows. When a report adds each row to its statistics as
+	 *  the row is parsed, the time of the statistics is counted here.
+	 * @return The parse time in nanoseconds.
+	 */
+	long getParseNanos();
+
+	/**
+	 * Returns the time spent computing statistics apart from parsing, as when a ReportEngine routes the
+	 *  parsed rows of a file to its reports.
+	 * @return The statistics time in nanoseconds.
+	 */
+	long getStatisticsNanos();
+
+	/**
+	 * Returns the time spent formatting reports as text.
+	 * @return The format time in nanoseconds.
+	 */
+	long getFormatNanos();
+
+	/**
+	 * Returns the time spent encoding reports and writing them to files.
+	 * @return The write time in nanoseconds.
+	 */
+	long getWriteNanos();
+
+	/**
+	 * Sets every count and time to zero.
+	 */
+	void reset();
+}
@@ -0,0 +1,726 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import reports.io.ColumnarCache;
+import reports.io.CompanyDictionary;
+import reports.io.CompanyIndex;
+import reports.io.CsvRowReader;
+import reports.io.DataSource;
+import reports.io.FortuneDataset;
+
+/**
+ * An ad hoc question about a Fortune 500 data file, built up with filters and a grouping and answered with
+ *  one pass over the rows, for example:
+ *
+ * new ReportQuery(file).years(1990, 1999).ranks(1, 100).minProfit(0).groupByYear().run()
+ *
+ * Rows can be filtered by ranges of years and ranks, by revenue and profit thresholds, and by company name,
+ *  either exactly or with a pattern in which * stands for any characters and ? for any one character.
+ *  Company names are matched ignoring case and extra spaces, as CompanyIndex.normalize matches them.
+ * The rows that match every filter are grouped by year, company, or range of ranks, or all kept together,
+ *  and the minimum, maximum, average, and standard deviation of each group's revenues, profits, and ranks
+ *  are computed as Statistics, the same as YearReport and CompanyReport give.
+ * The filters are applied in the order of the row's fields while the row is parsed, so a row of the wrong
+ *  year or rank is skipped before its company is hashed or its revenue and profit are parsed, and each
+ *  distinct company name is matched against the pattern only once however many rows it has. When the
+ *  file's FortuneDataset is loaded or its columnar cache is up to date, the rows are read from them instead
+ *  and nothing is parsed at all.
+ * A query may be run any number of times, and changed between runs; it should be used by one thread at a time.
+ * @author Logan Noonan
+ *
+ */
+public class ReportQuery
+{
+	/**
+	 * How the matching rows of a query are grouped.
+	 */
+	private enum Grouping
+	{
+		/**
+		 * Every matching row in one group.
+		 */
+		NONE,
+
+		/**
+		 * A group for each year.
+		 */
+		YEAR,
+
+		/**
+		 * A group for each company.
+		 */
+		COMPANY,
+
+		/**
+		 * A group for each range of ranks.
+		 */
+		RANK
+	}
+
+	/**
+	 * This is the cvs file to read data from.
+	 */
+	private File theFile;
+
+	/**
+	 * Where the data is read from when it is not a plain file, or null if it is a plain file.
+	 */
+	private DataSource source;
+
+	/**
+	 * The first year of the rows matched.
+	 */
+	private int fromYear = Integer.MIN_VALUE;
+
+	/**
+	 * The last year of the rows matched.
+	 */
+	private int toYear = Integer.MAX_VALUE;
+
+	/**
+	 * The best rank of the rows matched.
+	 */
+	private int fromRank = Integer.MIN_VALUE;
+
+	/**
+	 * The worst rank of the rows matched.
+	 */
+	private int toRank = Integer.MAX_VALUE;
+
+	/**
+	 * The smallest revenue of the rows matched.
+	 */
+	private double minRevenue = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * The largest revenue of the rows matched.
+	 */
+	private double maxRevenue = Double.POSITIVE_INFINITY;
+
+	/**
+	 * The smallest profit of the rows matched.
+	 */
+	private double minProfit = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * The largest profit of the rows matched.
+	 */
+	private double maxProfit = Double.POSITIVE_INFINITY;
+
+	/**
+	 * The pattern the normalized company names of the rows matched must match, or null to match every company.
+	 */
+	private Pattern companyPattern = null;
+
+	/**
+	 * How the matching rows are grouped.
+	 */
+	private Grouping grouping = Grouping.NONE;
+
+	/**
+	 * The number of ranks in each group when grouping by rank.
+	 */
+	private int rankBucket = 1;
+
+	/**
+	 * How rows with a missing revenue or profit are treated.
+	 */
+	private MissingValues missingValues = MissingValues.COUNT;
+
+	/**
+	 * The counts and timings of every run of the query.
+	 */
+	private final ReportMetrics metrics = new ReportMetrics();
+
+	/**
+	 * The state of one run of a query.
+	 */
+	private class Scan
+	{
+		/**
+		 * The groups found so far, indexed by key.
+		 */
+		private QueryResult.Group[] groups = new QueryResult.Group[64];
+
+		/**
+		 * The number of rows read.
+		 */
+		private long scanned = 0;
+
+		/**
+		 * The number of rows matched.
+		 */
+		private long matched = 0;
+
+		/**
+		 * The name of each company id seen so far.
+		 */
+		private String[] names = new String[256];
+
+		/**
+		 * Whether the name of each company id seen so far matches the company pattern.
+		 */
+		private boolean[] accepted = new boolean[256];
+
+		/**
+		 * The number of company ids seen so far.
+		 */
+		private int companyCount = 0;
+
+		/**
+		 * Adds the next company id, matching its name against the company pattern once.
+		 * @param name The company's name.
+		 */
+		void addCompany(String name)
+		{
+			if (this.companyCount == this.names.length)
+			{
+				this.names = Arrays.copyOf(this.names, this.companyCount * 2);
+				this.accepted = Arrays.copyOf(this.accepted, this.companyCount * 2);
+			}
+			Pattern pattern = ReportQuery.this.companyPattern;
+			this.names[this.companyCount] = name;
+			this.accepted[this.companyCount] = pattern == null
+					|| pattern.matcher(CompanyIndex.normalize(name)).matches();
+			this.companyCount++;
+		}
+
+		/**
+		 * Adds the values of a matching row to its group.
+		 * @param year The row's year.
+		 * @param rank The row's rank.
+		 * @param company The id of the row's company, or -1 if the query does not need companies.
+		 * @param revenue The row's revenue.
+		 * @param profit The row's profit.
+		 */
+		void add(int year, int rank, int company, double revenue, double profit)
+		{
+			int key;
+			switch (ReportQuery.this.grouping)
+			{
+				case YEAR:
+					key = Math.max(year, 0);
+					break;
+				case COMPANY:
+					key = company;
+					break;
+				case RANK:
+					key = Math.max(rank - 1, 0) / ReportQuery.this.rankBucket;
+					break;
+				default:
+					key = 0;
+					break;
+			}
+			if (key >= this.groups.length)
+			{
+				this.groups = Arrays.copyOf(this.groups, Math.max(key + 1, this.groups.length * 2));
+			}
+			QueryResult.Group group = this.groups[key];
+			if (group == null)
+			{
+				group = new QueryResult.Group(this.label(key));
+				this.groups[key] = group;
+			}
+			group.addRow(rank, revenue, profit, ReportQuery.this.missingValues);
+			this.matched++;
+		}
+
+		/**
+		 * Returns the label of a group.
+		 * @param key The group's key.
+		 * @return The year, company, or range of ranks of the group, or All.
+		 */
+		private String label(int key)
+		{
+			switch (ReportQuery.this.grouping)
+			{
+				case YEAR:
+					return String.valueOf(key);
+				case COMPANY:
+					return this.names[key];
+				case RANK:
+					int bucket = ReportQuery.this.rankBucket;
+					return (key * bucket + 1) + "-" + ((key + 1) * bucket);
+				default:
+					return "All";
+			}
+		}
+
+		/**
+		 * Collects the groups found, in order of key, as the result of the run.
+		 * @return The result.
+		 */
+		QueryResult finish()
+		{
+			List<QueryResult.Group> found = new ArrayList<QueryResult.Group>();
+			for (QueryResult.Group group : this.groups)
+			{
+				if (group != null)
+				{
+					found.add(group);
+				}
+			}
+			return new QueryResult(found, this.scanned, this.matched);
+		}
+	}
+
+	/**
+	 * Creates new ReportQuery of every row of a file.
+	 * @param inputFileIn - File containing Fortune 500 data for the query.
+	 */
+	public ReportQuery(File inputFileIn)
+	{
+		this.theFile = inputFileIn;
+	}
+
+	/**
+	 * Creates new ReportQuery of every row of a path, see DataSource.
+	 * @param inputPathIn - Path of a Fortune 500 csv file for the query, plain or gzip compressed.
+	 */
+	public ReportQuery(Path inputPathIn)
+	{
+		this(DataSource.of(inputPathIn));
+	}
+
+	/**
+	 * Creates new ReportQuery of every row of a source.
+	 * A source that is not a plain file is read as a stream each time the query is run, without the file's
+	 *  dataset or columnar cache; a stream, Reader, or channel can only be run once.
+	 * @param sourceIn - Source of Fortune 500 data for the query.
+	 */
+	public ReportQuery(DataSource sourceIn)
+	{
+		if (sourceIn != null)
+		{
+			this.theFile = sourceIn.getFile();
+			if (this.theFile == null)
+			{
+				this.source = sourceIn;
+			}
+		}
+	}
+
+	/**
+	 * Matches only rows of a range of years.
+	 * @param fromIn - The first year, inclusive.
+	 * @param toIn - The last year, inclusive.
+	 * @return This query.
+	 */
+	public ReportQuery years(int fromIn, int toIn)
+	{
+		this.fromYear = fromIn;
+		this.toYear = toIn;
+		return this;
+	}
+
+	/**
+	 * Matches only rows of a range of ranks.
+	 * @param fromIn - The best rank, inclusive, such as 1.
+	 * @param toIn - The worst rank, inclusive.
+	 * @return This query.
+	 */
+	public ReportQuery ranks(int fromIn, int toIn)
+	{
+		this.fromRank = fromIn;
+		this.toRank = toIn;
+		return this;
+	}
+
+	/**
+	 * Matches only rows with at least a revenue.
+	 * @param revenueIn - The smallest revenue, inclusive.
+	 * @return This query.
+	 */
+	public ReportQuery minRevenue(double revenueIn)
+	{
+		this.minRevenue = revenueIn;
+		return this;
+	}
+
+	/**
+	 * Matches only rows with at most a revenue.
+	 * @param revenueIn - The largest revenue, inclusive.
+	 * @return This query.
+	 */
+	public ReportQuery maxRevenue(double revenueIn)
+	{
+		this.maxRevenue = revenueIn;
+		return this;
+	}
+
+	/**
+	 * Matches only rows with at least a profit.
+	 * @param profitIn - The smallest profit, inclusive.
+	 * @return This query.
+	 */
+	public ReportQuery minProfit(double profitIn)
+	{
+		this.minProfit = profitIn;
+		return this;
+	}
+
+	/**
+	 * Matches only rows with at most a profit.
+	 * @param profitIn - The largest profit, inclusive.
+	 * @return This query.
+	 */
+	public ReportQuery maxProfit(double profitIn)
+	{
+		this.maxProfit = profitIn;
+		return this;
+	}
+
+	/**
+	 * Matches only rows of one company, ignoring case and extra spaces.
+	 * @param companyIn - The company's name.
+	 * @return This query.
+	 */
+	public ReportQuery company(String companyIn)
+	{
+		this.companyPattern = Pattern.compile(Pattern.quote(CompanyIndex.normalize(companyIn)));
+		return this;
+	}
+
+	/**
+	 * Matches only rows of companies whose names match a pattern, ignoring case and extra spaces.
+	 * In the pattern * stands for any number of characters and ? for any one character; every other
+	 *  character stands for itself. For example, General* matches every company whose name starts with General.
+	 * @param patternIn - The pattern.
+	 * @return This query.
+	 */
+	public ReportQuery companyLike(String patternIn)
+	{
+		String normalized = CompanyIndex.normalize(patternIn);
+		StringBuilder regex = new StringBuilder();
+		int literal = 0;
+		for (int index = 0; index < normalized.length(); index++)
+		{
+			char next = normalized.charAt(index);
+			if (next == '*' || next == '?')
+			{
+				if (index > literal)
+				{
+					regex.append(Pattern.quote(normalized.substring(literal, index)));
+				}
+				regex.append(next == '*' ? ".*" : ".");
+				literal = index + 1;
+			}
+		}
+		if (normalized.length() > literal)
+		{
+			regex.append(Pattern.quote(normalized.substring(literal)));
+		}
+		this.companyPattern = Pattern.compile(regex.toString(), Pattern.DOTALL);
+		return this;
+	}
+
+	/**
+	 * Groups the matching rows by year.
+	 * @return This query.
+	 */
+	public ReportQuery groupByYear()
+	{
+		this.grouping = Grouping.YEAR;
+		return this;
+	}
+
+	/**
+	 * Groups the matching rows by company.
+	 * @return This query.
+	 */
+	public ReportQuery groupByCompany()
+	{
+		this.grouping = Grouping.COMPANY;
+		return this;
+	}
+
+	/**
+	 * Groups the matching rows by ranges of ranks, such as 1-100, 101-200, and so on.
+	 * @param bucketIn - The number of ranks in each range.
+	 * @return This query.
+	 * @throws IllegalArgumentException Thrown if the number of ranks is less than 1.
+	 */
+	public ReportQuery groupByRank(int bucketIn)
+	{
+		if (bucketIn < 1)
+		{
+			throw new IllegalArgumentException("A range of ranks must hold at least one rank");
+		}
+		this.grouping = Grouping.RANK;
+		this.rankBucket = bucketIn;
+		return this;
+	}
+
+	/**
+	 * Keeps every matching row in one group, labeled All, which is the default.
+	 * @return This query.
+	 */
+	public ReportQuery ungrouped()
+	{
+		this.grouping = Grouping.NONE;
+		return this;
+	}
+
+	/**
+	 * Sets how rows with a missing revenue or profit are treated. With MissingValues.SKIP or MissingValues.COUNT,
+	 *  which is the default, a row is matched as long as the query does not filter on the missing value, and
+	 *  only the missing value is left out of its group's statistics, as MissingValues.add leaves it out; with
+	 *  MissingValues.ZERO the value is filtered and reported as zero. Missing values of matched rows are
+	 *  counted, see QueryResult.getMissingCount.
+	 * @param missingValuesIn - The policy.
+	 * @return This query.
+	 */
+	public ReportQuery missingValues(MissingValues missingValuesIn)
+	{
+		this.missingValues = missingValuesIn;
+		return this;
+	}
+
+	/**
+	 * Runs the query, reading every row of the data once.
+	 * The file is a csv file and can be assumed is formatted correctly.
+	 * Each run is recorded in the query's metrics, see getMetrics.
+	 * @return The groups of matching rows and their statistics.
+	 * @throws IOException Thrown if the data cannot be read, or is a stream that has already been read.
+	 */
+	public QueryResult run() throws IOException
+	{
+		if (this.theFile == null && this.source == null)
+		{
+			throw new IOException("The query has no data to read");
+		}
+		ReportMetrics.ProcessEvent event = ReportMetrics.beginProcess();
+		long started = System.nanoTime();
+		Scan scan = new Scan();
+		long bytes = 0;
+		FortuneDataset dataset = null;
+		ColumnarCache cache = null;
+		if (this.source == null)
+		{
+			dataset = FortuneDataset.getIfLoaded(this.theFile);
+		}
+		if (this.source == null && dataset == null)
+		{
+			cache = ColumnarCache.openIfCurrent(this.theFile);
+		}
+		if (dataset != null)
+		{
+			this.scanDataset(dataset, scan);
+		}
+		else if (cache != null)
+		{
+			this.scanColumns(cache, scan);
+		}
+		else
+		{
+			bytes = this.scanRows(scan);
+		}
+		QueryResult result = scan.finish();
+		// The groups are added to as each row is read, so their time is part of the parse time.
+		this.metrics.recordProcess(event, "ReportQuery", this.theFile != null ? this.theFile.getPath() : "stream",
+				scan.scanned, scan.matched, bytes, System.nanoTime() - started, 0);
+		return result;
+	}
+
+	/**
+	 * Checks whether the query needs the company of each row, to filter or group by it.
+	 * @return true if companies are needed.
+	 */
+	private boolean needsCompanies()
+	{
+		return this.companyPattern != null || this.grouping == Grouping.COMPANY;
+	}
+
+	/**
+	 * Reads the rows of the data, skipping each row as soon as one of its fields fails a filter.
+	 * @param scan The run to add the matching rows to.
+	 * @return The number of bytes read.
+	 * @throws IOException Thrown if the data cannot be read.
+	 */
+	private long scanRows(Scan scan) throws IOException
+	{
+		Charset charset = Charset.defaultCharset();
+		CsvRowReader opened;
+		if (this.source != null)
+		{
+			charset = this.source.getCharset();
+			opened = new CsvRowReader(this.source.open(), charset);
+		}
+		else
+		{
+			opened = new CsvRowReader(new FileInputStream(this.theFile));
+		}
+		boolean companies = this.needsCompanies();
+		try (CsvRowReader rowReader = opened)
+		{
+			CompanyDictionary dictionary = new CompanyDictionary(charset);
+			rowReader.nextRow(); // Skip the first line since it is column names.
+			while (rowReader.nextRow())
+			{
+				scan.scanned++;
+				int year = rowReader.getYear();
+				if (year < this.fromYear || year > this.toYear)
+				{
+					continue;
+				}
+				int rank = rowReader.getRank();
+				if (rank < this.fromRank || rank > this.toRank)
+				{
+					continue;
+				}
+				int company = -1;
+				if (companies)
+				{
+					company = rowReader.getCompanyId(dictionary);
+					if (company == scan.companyCount)
+					{
+						scan.addCompany(dictionary.getName(company));
+					}
+					if (!scan.accepted[company])
+					{
+						continue;
+					}
+				}
+				double revenue = rowReader.getRevenue();
+				if (!this.accepts(revenue, this.minRevenue, this.maxRevenue))
+				{
+					continue;
+				}
+				double profit = rowReader.getProfit();
+				if (!this.accepts(profit, this.minProfit, this.maxProfit))
+				{
+					continue;
+				}
+				scan.add(year, rank, company, revenue, profit);
+			}
+			return rowReader.getBytesRead();
+		}
+	}
+
+	/**
+	 * Reads the rows of the file's loaded dataset.
+	 * @param dataset The file's dataset.
+	 * @param scan The run to add the matching rows to.
+	 */
+	private void scanDataset(FortuneDataset dataset, Scan scan)
+	{
+		boolean companies = this.needsCompanies();
+		if (companies)
+		{
+			CompanyDictionary dictionary = dataset.getDictionary();
+			for (int id = 0; id < dictionary.getSize(); id++)
+			{
+				scan.addCompany(dictionary.getName(id));
+			}
+		}
+		for (int row = 0; row < dataset.getRowCount(); row++)
+		{
+			int year = dataset.getYear(row);
+			int rank = dataset.getRank(row);
+			int company = companies ? dataset.getCompanyId(row) : -1;
+			double revenue = dataset.getRevenue(row);
+			double profit = dataset.getProfit(row);
+			if (this.matches(year, rank, company, revenue, profit, scan))
+			{
+				scan.add(year, rank, company, revenue, profit);
+			}
+		}
+		scan.scanned += dataset.getRowCount();
+	}
+
+	/**
+	 * Reads the rows of the file's columnar cache.
+	 * @param cache The file's columnar cache.
+	 * @param scan The run to add the matching rows to.
+	 */
+	private void scanColumns(ColumnarCache cache, Scan scan)
+	{
+		boolean companies = this.needsCompanies();
+		if (companies)
+		{
+			for (int id = 0; id < cache.getCompanyCount(); id++)
+			{
+				scan.addCompany(cache.getCompany(id));
+			}
+		}
+		for (int row = 0; row < cache.getRowCount(); row++)
+		{
+			int year = cache.getYear(row);
+			int rank = cache.getRank(row);
+			int company = companies ? cache.getCompanyId(row) : -1;
+			double revenue = cache.getRevenue(row);
+			double profit = cache.getProfit(row);
+			if (this.matches(year, rank, company, revenue, profit, scan))
+			{
+				scan.add(year, rank, company, revenue, profit);
+			}
+		}
+		scan.scanned += cache.getRowCount();
+	}
+
+	/**
+	 * Checks whether a row already read into columns passes every filter.
+	 * @param year The row's year.
+	 * @param rank The row's rank.
+	 * @param company The id of the row's company, or -1 if the query does not need companies.
+	 * @param revenue The row's revenue.
+	 * @param profit The row's profit.
+	 * @param scan The run, which knows whether each company matches.
+	 * @return true if the row matches.
+	 */
+	private boolean matches(int year, int rank, int company, double revenue, double profit, Scan scan)
+	{
+		return year >= this.fromYear && year <= this.toYear
+				&& rank >= this.fromRank && rank <= this.toRank
+				&& (company < 0 || scan.accepted[company])
+				&& this.accepts(revenue, this.minRevenue, this.maxRevenue)
+				&& this.accepts(profit, this.minProfit, this.maxProfit);
+	}
+
+	/**
+	 * Checks whether a revenue or profit passes a filter. A missing value passes as zero under
+	 *  MissingValues.ZERO, and otherwise only if the filter is not set, so a row is never left out for a
+	 *  missing value the query does not filter on.
+	 * @param value The value, or Double.NaN if it is missing.
+	 * @param min The smallest value that passes.
+	 * @param max The largest value that passes.
+	 * @return true if the value passes.
+	 */
+	private boolean accepts(double value, double min, double max)
+	{
+		if (value >= min && value <= max)
+		{
+			return true;
+		}
+		if (!Double.isNaN(value))
+		{
+			return false;
+		}
+		if (this.missingValues == MissingValues.ZERO)
+		{
+			return 0 >= min && 0 <= max;
+		}
+		return min == Double.NEGATIVE_INFINITY && max == Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Returns the counts and timings of every run of this query. The metrics can be registered with JMX,
+	 *  see ReportMetrics.register.
+	 * @return The query's metrics.
+	 */
+	public ReportMetrics getMetrics()
+	{
+		return this.metrics;
+	}
+}
@@ -0,0 +1,508 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import reports.io.DatasetWatcher;
+import reports.io.FortuneDataset;
+
+/**
+ * A local HTTP service of the YearReports and CompanyReports of one Fortune 500 data file, so callers ask
+ *  a running JVM for a report instead of starting one and reading the file for every report.
+ * GET /year/YEAR answers with the year's report and GET /company/COMPANY with the company's report, where
+ *  COMPANY is the company's name with characters such as spaces percent-encoded. A report is sent as the
+ *  text of its toString, or as JSON, see YearReport.appendJson and CompanyReport.appendJson, when the
+ *  request asks for format=json or accepts application/json. A year that is not reported, or a company
+ *  the file has no rows for, is answered with 404.
+ * When started, the service loads the file's FortuneDataset once and formats the report of every year
+ *  ahead of time, so a year is answered without any work. Company reports are processed from the dataset
+ *  when first asked for and kept in a ReportCache; identical requests that arrive while a company is being
+ *  processed wait for that one processing instead of each processing the company again.
+ * The file is watched by a DatasetWatcher while the service runs. When the file is replaced, the service
+ *  keeps answering from the previous dataset until the new one is loaded, then formats the years again and
+ *  drops the cached companies, so it never needs restarting and never answers from a partly written file.
+ * Requests are handled on a virtual thread each when the JVM has them, found through reflection so the
+ *  service also runs on JVMs without them, where a fixed pool of threads is used instead.
+ * @author Logan Noonan
+ *
+ */
+public class ReportServer
+{
+	/**
+	 * The port the service listens on when none is given to main.
+	 */
+	public static final int DEFAULT_PORT = 8500;
+
+	/**
+	 * The content type of a report sent as text.
+	 */
+	private static final String TEXT = "text/plain; charset=UTF-8";
+
+	/**
+	 * The content type of a report sent as JSON.
+	 */
+	private static final String JSON = "application/json; charset=UTF-8";
+
+	/**
+	 * This is the cvs file to read data from.
+	 */
+	private File theFile;
+
+	/**
+	 * The address to listen on.
+	 */
+	private InetSocketAddress address;
+
+	/**
+	 * The running server, or null if the service is not running.
+	 */
+	private HttpServer server;
+
+	/**
+	 * The executor requests are handled on, or null if the service is not running.
+	 */
+	private ExecutorService executor;
+
+	/**
+	 * The watcher reloading the file's dataset, or null if the service is not running.
+	 */
+	private DatasetWatcher watcher;
+
+	/**
+	 * The text and JSON of the report of every year, keyed by year, encoded as UTF-8.
+	 */
+	private volatile Map<Integer, byte[][]> years;
+
+	/**
+	 * The processed company reports.
+	 */
+	private final ReportCache cache;
+
+	/**
+	 * The company reports being processed, keyed by company, which later requests for the company wait on.
+	 */
+	private final ConcurrentHashMap<String, CompletableFuture<CompanyReport>> pending;
+
+	/**
+	 * The number of requests that waited on a processing started by another request.
+	 */
+	private final AtomicLong coalesced;
+
+	/**
+	 * Creates new ReportServer listening on a port of the loopback address, so only local callers reach it.
+	 * @param inputFileIn - File containing Fortune 500 data for the reports.
+	 * @param portIn - Port to listen on, or 0 for any free port, see getAddress.
+	 */
+	public ReportServer(File inputFileIn, int portIn)
+	{
+		this(inputFileIn, new InetSocketAddress(InetAddress.getLoopbackAddress(), portIn));
+	}
+
+	/**
+	 * Creates new ReportServer.
+	 * @param inputFileIn - File containing Fortune 500 data for the reports.
+	 * @param addressIn - Address to listen on.
+	 */
+	public ReportServer(File inputFileIn, InetSocketAddress addressIn)
+	{
+		this.theFile = inputFileIn;
+		this.address = addressIn;
+		this.years = new HashMap<Integer, byte[][]>();
+		this.cache = new ReportCache(4096, 16L * 1024 * 1024);
+		this.pending = new ConcurrentHashMap<String, CompletableFuture<CompanyReport>>();
+		this.coalesced = new AtomicLong();
+	}
+
+	/**
+	 * Serves the reports of a file until the JVM is stopped.
+	 * @param args - The data file, and optionally the port to listen on, DEFAULT_PORT if not given.
+	 * @throws IOException Thrown if the file cannot be read or the port cannot be listened on.
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 1)
+		{
+			System.err.println("Usage: java reports.ReportServer DATAFILE [PORT]");
+			System.exit(2);
+		}
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+		ReportServer service = new ReportServer(new File(args[0]), port);
+		service.start();
+		InetSocketAddress bound = service.getAddress();
+		System.out.println("Serving " + args[0] + " at http://" + bound.getHostString() + ":" + bound.getPort()
+				+ "/");
+	}
+
+	/**
+	 * Loads the file, formats the report of every year, starts watching the file, and starts listening.
+	 * @throws IOException Thrown if the file cannot be read or the address cannot be listened on.
+	 * @throws IllegalStateException Thrown if the service is already running.
+	 */
+	public synchronized void start() throws IOException
+	{
+		if (this.server != null)
+		{
+			throw new IllegalStateException("The service is already running");
+		}
+		final DatasetWatcher started = new DatasetWatcher(this.theFile);
+		started.addListener(new Runnable()
+		{
+			/**
+			 * Formats the years again from the new dataset and drops the companies of the old one, including
+			 *  those still being processed, so later requests do not wait for them.
+			 */
+			@Override
+			public void run()
+			{
+				ReportServer.this.cache.invalidate(ReportServer.this.theFile);
+				ReportServer.this.pending.clear();
+				try
+				{
+					ReportServer.this.precomputeYears(started.getDataset());
+				}
+				catch (IOException e)
+				{
+					// The previous years are kept.
+				}
+			}
+		});
+		started.start();
+		HttpServer created;
+		try
+		{
+			this.precomputeYears(started.getDataset());
+			created = HttpServer.create(this.address, 0);
+		}
+		catch (IOException e)
+		{
+			started.close();
+			throw e;
+		}
+		HttpHandler handler = new HttpHandler()
+		{
+			/**
+			 * Answers one request.
+			 * @param exchange The request and its response.
+			 * @throws IOException Thrown if the response cannot be sent.
+			 */
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				try
+				{
+					ReportServer.this.handle(exchange);
+				}
+				finally
+				{
+					exchange.close();
+				}
+			}
+		};
+		created.createContext("/year/", handler);
+		created.createContext("/company/", handler);
+		this.executor = newExecutor();
+		created.setExecutor(this.executor);
+		created.start();
+		this.server = created;
+		this.watcher = started;
+	}
+
+	/**
+	 * Stops listening, letting requests being answered finish for up to a second, and stops watching the
+	 *  file. The file's dataset stays loaded for other users of the file.
+	 */
+	public synchronized void stop()
+	{
+		if (this.server != null)
+		{
+			this.server.stop(1);
+			this.executor.shutdown();
+			try
+			{
+				this.watcher.close();
+			}
+			catch (IOException e)
+			{
+				// The watcher's thread has stopped either way.
+			}
+			this.server = null;
+			this.executor = null;
+			this.watcher = null;
+		}
+	}
+
+	/**
+	 * Returns the address the service listens on, with the port chosen when it was started on port 0.
+	 * @return The address.
+	 */
+	public synchronized InetSocketAddress getAddress()
+	{
+		return this.server != null ? this.server.getAddress() : this.address;
+	}
+
+	/**
+	 * Returns the number of requests that were answered by a company's processing started for another
+	 *  request rather than processing the company themselves.
+	 * @return The number of coalesced requests.
+	 */
+	public long getCoalescedRequests()
+	{
+		return this.coalesced.get();
+	}
+
+	/**
+	 * Returns the cache of the processed company reports.
+	 * @return The cache.
+	 */
+	ReportCache getCache()
+	{
+		return this.cache;
+	}
+
+	/**
+	 * Creates the executor requests are handled on: a virtual thread per request if the JVM has virtual
+	 *  threads, otherwise a fixed pool of threads.
+	 * @return The executor.
+	 */
+	private static ExecutorService newExecutor()
+	{
+		try
+		{
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		}
+		catch (ReflectiveOperationException | UnsupportedOperationException e)
+		{
+			// Virtual threads are missing, or a preview that is not enabled.
+			return Executors.newFixedThreadPool(4 * Runtime.getRuntime().availableProcessors());
+		}
+	}
+
+	/**
+	 * Processes and formats the report of every year from Report.MINYEAR to Report.MAXYEAR and every later
+	 *  year of the dataset.
+	 * @param dataset The file's dataset.
+	 * @throws IOException Thrown if a report cannot be processed.
+	 */
+	private void precomputeYears(FortuneDataset dataset) throws IOException
+	{
+		int last = Report.MAXYEAR;
+		for (int row = 0; row < dataset.getRowCount(); row++)
+		{
+			last = Math.max(last, dataset.getYear(row));
+		}
+		Map<Integer, byte[][]> formatted = new HashMap<Integer, byte[][]>();
+		for (int year = Report.MINYEAR; year <= last; year++)
+		{
+			if (year > Report.MAXYEAR && dataset.getYearRows(year) == 0)
+			{
+				continue;
+			}
+			YearReport report = new YearReport(this.theFile, year);
+			if (!report.processReport())
+			{
+				throw new IOException("Cannot read " + this.theFile);
+			}
+			try
+			{
+				byte[] text = report.toString().getBytes(StandardCharsets.UTF_8);
+				byte[] json = report.appendJson(new StringBuilder()).toString().getBytes(StandardCharsets.UTF_8);
+				formatted.put(year, new byte[][] {text, json});
+			}
+			catch (DataNotProcessedException e)
+			{
+				throw new IllegalStateException(e); // The report has just been processed.
+			}
+		}
+		this.years = formatted;
+	}
+
+	/**
+	 * Answers one request for a year or company report.
+	 * @param exchange The request and its response.
+	 * @throws IOException Thrown if the response cannot be sent.
+	 */
+	private void handle(HttpExchange exchange) throws IOException
+	{
+		if (!"GET".equals(exchange.getRequestMethod()))
+		{
+			exchange.getResponseHeaders().set("Allow", "GET");
+			respond(exchange, 405, TEXT, "Only GET is supported");
+			return;
+		}
+		String path = exchange.getRequestURI().getPath();
+		boolean json = wantsJson(exchange);
+		if (path.startsWith("/year/"))
+		{
+			int year;
+			try
+			{
+				year = Integer.parseInt(path.substring("/year/".length()));
+			}
+			catch (NumberFormatException e)
+			{
+				respond(exchange, 400, TEXT, "Not a year: " + path.substring("/year/".length()));
+				return;
+			}
+			byte[][] formatted = this.years.get(year);
+			if (formatted == null)
+			{
+				respond(exchange, 404, TEXT, "No report for " + year);
+				return;
+			}
+			respond(exchange, 200, json ? JSON : TEXT, json ? formatted[1] : formatted[0]);
+		}
+		else
+		{
+			String company = path.substring("/company/".length());
+			if (company.isEmpty())
+			{
+				respond(exchange, 400, TEXT, "No company given");
+				return;
+			}
+			try
+			{
+				CompanyReport report = this.companyReport(company);
+				if (report.getRankedCount() == 0)
+				{
+					respond(exchange, 404, TEXT, "No report for " + company);
+					return;
+				}
+				String body = json ? report.appendJson(new StringBuilder()).toString() : report.toString();
+				respond(exchange, 200, json ? JSON : TEXT, body);
+			}
+			catch (DataNotProcessedException e)
+			{
+				throw new IllegalStateException(e); // Cached reports are processed.
+			}
+			catch (IOException e)
+			{
+				respond(exchange, 500, TEXT, "Cannot read " + this.theFile);
+			}
+		}
+	}
+
+	/**
+	 * Returns the processed report of a company, waiting for a processing of the company already under way
+	 *  for another request rather than starting a second one.
+	 * @param company The company.
+	 * @return The processed report.
+	 * @throws IOException Thrown if the report cannot be processed, or the wait is interrupted.
+	 */
+	private CompanyReport companyReport(String company) throws IOException
+	{
+		CompletableFuture<CompanyReport> created = new CompletableFuture<CompanyReport>();
+		CompletableFuture<CompanyReport> running = this.pending.putIfAbsent(company, created);
+		if (running == null)
+		{
+			try
+			{
+				created.complete(this.cache.getCompanyReport(this.theFile, company));
+			}
+			catch (IOException | RuntimeException e)
+			{
+				created.completeExceptionally(e);
+			}
+			finally
+			{
+				this.pending.remove(company, created);
+			}
+			running = created;
+		}
+		else
+		{
+			this.coalesced.incrementAndGet();
+		}
+		try
+		{
+			return running.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof IOException)
+			{
+				throw (IOException) e.getCause();
+			}
+			throw (RuntimeException) e.getCause();
+		}
+	}
+
+	/**
+	 * Checks whether a request asks for JSON, with format=json in its query or application/json in its
+	 *  Accept header.
+	 * @param exchange The request.
+	 * @return true if JSON is wanted.
+	 */
+	private static boolean wantsJson(HttpExchange exchange)
+	{
+		String query = exchange.getRequestURI().getRawQuery();
+		if (query != null)
+		{
+			for (String parameter : query.split("&"))
+			{
+				if (parameter.equals("format=json"))
+				{
+					return true;
+				}
+			}
+		}
+		String accept = exchange.getRequestHeaders().getFirst("Accept");
+		return accept != null && accept.contains("application/json");
+	}
+
+	/**
+	 * Sends a response with a body of text.
+	 * @param exchange The request and its response.
+	 * @param status The HTTP status code.
+	 * @param type The content type.
+	 * @param body The body.
+	 * @throws IOException Thrown if the response cannot be sent.
+	 */
+	private static void respond(HttpExchange exchange, int status, String type, String body) throws IOException
+	{
+		respond(exchange, status, type, body.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Sends a response with a body of encoded bytes.
+	 * @param exchange The request and its response.
+	 * @param status The HTTP status code.
+	 * @param type The content type.
+	 * @param body The body.
+	 * @throws IOException Thrown if the response cannot be sent.
+	 */
+	private static void respond(HttpExchange exchange, int status, String type, byte[] body) throws IOException
+	{
+		exchange.getResponseHeaders().set("Content-Type", type);
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream output = exchange.getResponseBody())
+		{
+			output.write(body);
+		}
+	}
+}
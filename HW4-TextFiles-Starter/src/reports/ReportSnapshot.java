@@ -0,0 +1,441 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import reports.io.ColumnarCache;
+import reports.io.CompanyDictionary;
+import reports.io.CompanyIndex;
+import reports.io.FortuneDataset;
+
+/**
+ * A compact binary file holding the processed statistics of every year and every company of a Fortune 500
+ *  csv file, so a single report can be restored in a few milliseconds instead of reading the csv file.
+ * YearReport and CompanyReport use the snapshot of their file whenever the file's FortuneDataset is not
+ *  loaded and the snapshot is up to date, so programs such as ReportLauncher that produce one report per
+ *  run need no changes to benefit from it. Writing a snapshot also converts the file's ColumnarCache, so
+ *  reports the snapshot does not hold, such as companies looked up by an alias, read the binary columns.
+ * A snapshot records the length, last modified time, and checksum of the csv file and the last modified time
+ *  of its aliases file, and is only used while they still match, as a ColumnarCache is: when only the csv
+ *  file's time differs, its checksum is compared instead and the snapshot's recorded time refreshed if the
+ *  checksums match. A snapshot is written again with write.
+ * The snapshot file is of the form:
+ *
+ * MAGIC VERSION SOURCELENGTH SOURCEMODIFIED ALIASESMODIFIED SOURCECHECKSUM YEARS COMPANIES
+ * YEAR REVENUES PROFITS MISSING
+ * NAME RANKS REVENUES PROFITS MISSING
+ *
+ * Where the header values are ints and longs, SOURCECHECKSUM is the CRC-32 of the csv file, the second line
+ *  is repeated for each of the YEARS years, the third for each of the COMPANIES companies, each NAME is an
+ *  int length followed by that many bytes of UTF-8, each statistics is stored as by Statistics' writeState,
+ *  and each MISSING is the int count of missing values. The reports are processed with MissingValues.COUNT.
+ * @author Logan Noonan
+ *
+ */
+public class ReportSnapshot
+{
+	/**
+	 * The suffix added to the name of a csv file to name its snapshot.
+	 */
+	public static final String SUFFIX = ".f500r";
+
+	/**
+	 * The first int of every snapshot file.
+	 */
+	private static final int MAGIC = 0x46353052;
+
+	/**
+	 * The version of the snapshot file layout.
+	 */
+	private static final int VERSION = 4;
+
+	/**
+	 * The number of bytes in the header.
+	 */
+	private static final int HEADER_SIZE = 48;
+
+	/**
+	 * The position of the csv file's last modified time in the header.
+	 */
+	private static final int MODIFIED_POSITION = 16;
+
+	/**
+	 * The number of bytes of one statistics, as written by Statistics' writeState.
+	 */
+	private static final int STATISTICS_SIZE = Integer.BYTES + 5 * Double.BYTES;
+
+	/**
+	 * The number of bytes of one year.
+	 */
+	private static final int YEAR_SIZE = Integer.BYTES + 2 * STATISTICS_SIZE + Integer.BYTES;
+
+	/**
+	 * The number of bytes of one company after its name.
+	 */
+	private static final int COMPANY_SIZE = 3 * STATISTICS_SIZE + Integer.BYTES;
+
+	/**
+	 * The snapshots read so far, keyed by the absolute path of their csv file, so a program that processes
+	 *  several reports reads each snapshot once.
+	 */
+	private static final Map<String, ReportSnapshot> LOADED = new ConcurrentHashMap<String, ReportSnapshot>();
+
+	/**
+	 * The bytes of the snapshot file.
+	 */
+	private final byte[] bytes;
+
+	/**
+	 * The length of the snapshot file when it was read.
+	 */
+	private final long fileLength;
+
+	/**
+	 * The last modified time of the snapshot file when it was read.
+	 */
+	private final long fileModified;
+
+	/**
+	 * The number of years in the snapshot.
+	 */
+	private final int yearCount;
+
+	/**
+	 * The number of companies in the snapshot.
+	 */
+	private final int companyCount;
+
+	/**
+	 * The positions of the companies' statistics, keyed by company name normalized by CompanyIndex.normalize,
+	 *  or null until a company is first looked up, so restoring a year does not decode the names.
+	 */
+	private Map<String, Integer> companyPositions;
+
+	/**
+	 * Creates new ReportSnapshot over the bytes of a snapshot file.
+	 * @param bytesIn The bytes of the snapshot file.
+	 * @param fileLengthIn The length of the snapshot file.
+	 * @param fileModifiedIn The last modified time of the snapshot file.
+	 */
+	private ReportSnapshot(byte[] bytesIn, long fileLengthIn, long fileModifiedIn)
+	{
+		this.bytes = bytesIn;
+		this.fileLength = fileLengthIn;
+		this.fileModified = fileModifiedIn;
+		ByteBuffer header = ByteBuffer.wrap(bytesIn);
+		this.yearCount = header.getInt(40);
+		this.companyCount = header.getInt(44);
+	}
+
+	/**
+	 * Returns the snapshot file of the given csv file.
+	 * @param sourceIn - A Fortune 500 csv file.
+	 * @return The file the csv file's snapshot is stored in.
+	 */
+	public static File snapshotFileFor(File sourceIn)
+	{
+		return new File(sourceIn.getPath() + SUFFIX);
+	}
+
+	/**
+	 * Opens the snapshot of the given csv file if the snapshot exists and is up to date.
+	 * A snapshot is up to date if it records the length and last modified time of the csv file and the
+	 *  last modified time of the csv file's aliases file; if only the csv file's time differs, the csv file's
+	 *  checksum is compared instead, and the snapshot's recorded time is refreshed when the checksums match.
+	 * @param sourceIn - A Fortune 500 csv file.
+	 * @return The snapshot, or null if there is no up to date snapshot.
+	 * @throws IOException Thrown if the snapshot or the csv file cannot be read.
+	 */
+	public static ReportSnapshot openIfCurrent(File sourceIn) throws IOException
+	{
+		File snapshotFile = snapshotFileFor(sourceIn);
+		String path = sourceIn.getAbsolutePath();
+		if (!sourceIn.isFile() || !snapshotFile.isFile() || snapshotFile.length() < HEADER_SIZE)
+		{
+			LOADED.remove(path);
+			return null;
+		}
+		ReportSnapshot result = LOADED.get(path);
+		if (result == null || result.fileLength != snapshotFile.length()
+				|| result.fileModified != snapshotFile.lastModified())
+		{
+			long modified = snapshotFile.lastModified();
+			byte[] read = Files.readAllBytes(snapshotFile.toPath());
+			ByteBuffer header = ByteBuffer.wrap(read);
+			if (read.length < HEADER_SIZE || header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+			{
+				return null;
+			}
+			result = new ReportSnapshot(read, read.length, modified);
+			LOADED.put(path, result);
+		}
+		return result.isCurrent(sourceIn, snapshotFile) ? result : null;
+	}
+
+	/**
+	 * Processes every year and every company of a csv file and writes them to the file's snapshot,
+	 *  replacing any snapshot already there, and converts the file's ColumnarCache if it is not up to date.
+	 * The years written are those from Report.MINYEAR to Report.MAXYEAR and any later year the file has
+	 *  rows for; the companies are written under each name as it appears in the file.
+	 * @param sourceIn - A Fortune 500 csv file.
+	 * @return The new snapshot.
+	 * @throws IOException Thrown if the csv file cannot be read, changes while the snapshot is written,
+	 *  or the snapshot cannot be written.
+	 */
+	public static ReportSnapshot write(File sourceIn) throws IOException
+	{
+		long length = sourceIn.length();
+		long modified = sourceIn.lastModified();
+		long aliasesModified = CompanyIndex.aliasesFileFor(sourceIn).lastModified();
+		long checksum = ColumnarCache.checksum(sourceIn);
+		if (ColumnarCache.openIfCurrent(sourceIn) == null)
+		{
+			ColumnarCache.convert(sourceIn);
+		}
+		boolean unloadAfter = FortuneDataset.getIfLoaded(sourceIn) == null;
+		FortuneDataset dataset = FortuneDataset.load(sourceIn);
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+		try (DataOutputStream output = new DataOutputStream(buffer))
+		{
+			int last = Report.MAXYEAR;
+			for (int row = 0; row < dataset.getRowCount(); row++)
+			{
+				last = Math.max(last, dataset.getYear(row));
+			}
+			int years = 0;
+			for (int year = Report.MINYEAR; year <= last; year++)
+			{
+				if (year <= Report.MAXYEAR || dataset.getYearRows(year) > 0)
+				{
+					years++;
+				}
+			}
+			CompanyDictionary dictionary = dataset.getDictionary();
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(length);
+			output.writeLong(modified);
+			output.writeLong(aliasesModified);
+			output.writeLong(checksum);
+			output.writeInt(years);
+			output.writeInt(dictionary.getSize());
+			for (int year = Report.MINYEAR; year <= last; year++)
+			{
+				if (year <= Report.MAXYEAR || dataset.getYearRows(year) > 0)
+				{
+					YearReport report = new YearReport(sourceIn, year);
+					if (!report.processReport())
+					{
+						throw new IOException("Cannot process " + year + " of " + sourceIn);
+					}
+					output.writeInt(year);
+					report.writeState(output);
+				}
+			}
+			for (int id = 0; id < dictionary.getSize(); id++)
+			{
+				String company = dictionary.getName(id);
+				CompanyReport report = new CompanyReport(sourceIn, company);
+				if (!report.processReport())
+				{
+					throw new IOException("Cannot process " + company + " of " + sourceIn);
+				}
+				byte[] name = company.getBytes(StandardCharsets.UTF_8);
+				output.writeInt(name.length);
+				output.write(name);
+				report.writeState(output);
+			}
+		}
+		catch (DataNotProcessedException e)
+		{
+			throw new IOException("A report of " + sourceIn + " was not processed", e);
+		}
+		finally
+		{
+			if (unloadAfter)
+			{
+				FortuneDataset.unload(sourceIn);
+			}
+		}
+		if (sourceIn.length() != length || sourceIn.lastModified() != modified)
+		{
+			throw new IOException(sourceIn + " changed while its snapshot was written");
+		}
+
+		File snapshotFile = snapshotFileFor(sourceIn).getAbsoluteFile();
+		Path temporary = Files.createTempFile(snapshotFile.getParentFile().toPath(), snapshotFile.getName(), ".tmp");
+		try
+		{
+			Files.write(temporary, buffer.toByteArray());
+			Files.move(temporary, snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally
+		{
+			Files.deleteIfExists(temporary);
+		}
+		return openIfCurrent(sourceIn);
+	}
+
+	/**
+	 * Checks whether the snapshot still matches a csv file and its aliases file, comparing the csv file's
+	 *  checksum if only its last modified time differs, and then refreshing the time recorded in the
+	 *  snapshot file if the checksums match.
+	 * @param sourceIn The csv file.
+	 * @param snapshotFile The snapshot file.
+	 * @return true if the snapshot is up to date.
+	 * @throws IOException Thrown if the csv file cannot be read.
+	 */
+	private boolean isCurrent(File sourceIn, File snapshotFile) throws IOException
+	{
+		ByteBuffer header = ByteBuffer.wrap(this.bytes);
+		if (header.getLong(8) != sourceIn.length()
+				|| header.getLong(24) != CompanyIndex.aliasesFileFor(sourceIn).lastModified())
+		{
+			return false;
+		}
+		long modified = sourceIn.lastModified();
+		if (header.getLong(MODIFIED_POSITION) == modified)
+		{
+			return true;
+		}
+		if (header.getLong(32) != ColumnarCache.checksum(sourceIn))
+		{
+			return false;
+		}
+		refreshModified(snapshotFile, modified);
+		return true;
+	}
+
+	/**
+	 * Records a new last modified time for the csv file in a snapshot whose checksum still matches.
+	 * The snapshot is still usable if the time cannot be written, and the checksum is compared again next time.
+	 * @param snapshotFile The snapshot file.
+	 * @param modified The csv file's last modified time.
+	 */
+	private static void refreshModified(File snapshotFile, long modified)
+	{
+		try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.WRITE))
+		{
+			ByteBuffer time = ByteBuffer.allocate(Long.BYTES);
+			time.putLong(0, modified);
+			channel.write(time, MODIFIED_POSITION);
+		}
+		catch (IOException e)
+		{
+			// The checksum is compared again next time.
+		}
+	}
+
+	/**
+	 * Returns the number of years in the snapshot.
+	 * @return The number of years.
+	 */
+	public int getYearCount()
+	{
+		return this.yearCount;
+	}
+
+	/**
+	 * Returns the number of companies in the snapshot.
+	 * @return The number of companies.
+	 */
+	public int getCompanyCount()
+	{
+		return this.companyCount;
+	}
+
+	/**
+	 * Finds the state of a year's report, as written by YearReport's writeState.
+	 * @param yearIn The year.
+	 * @return An input reading the year's state, or null if the snapshot does not hold the year.
+	 */
+	DataInput findYear(int yearIn)
+	{
+		ByteBuffer view = ByteBuffer.wrap(this.bytes);
+		int years = Math.min(this.yearCount, (this.bytes.length - HEADER_SIZE) / YEAR_SIZE);
+		for (int index = 0; index < years; index++)
+		{
+			int position = HEADER_SIZE + index * YEAR_SIZE;
+			if (view.getInt(position) == yearIn)
+			{
+				return this.inputAt(position + Integer.BYTES);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Finds the state of a company's report, as written by CompanyReport's writeState.
+	 * Companies are matched as CompanyIndex.normalize matches them. Names the same once normalized hold the
+	 *  same state, since each was processed as a CompanyReport, which reads the rows of every such name.
+	 * @param companyIn The company's name.
+	 * @return An input reading the company's state, or null if the snapshot does not hold the company or
+	 *  the company is null.
+	 */
+	DataInput findCompany(String companyIn)
+	{
+		if (companyIn == null)
+		{
+			return null;
+		}
+		Integer position = this.companyPositions().get(CompanyIndex.normalize(companyIn));
+		return position != null ? this.inputAt(position) : null;
+	}
+
+	/**
+	 * Returns the positions of the companies' statistics, decoding the names the first time.
+	 * Companies cut off by a truncated snapshot file are left out.
+	 * @return The positions, keyed by normalized company name.
+	 */
+	private synchronized Map<String, Integer> companyPositions()
+	{
+		if (this.companyPositions == null)
+		{
+			Map<String, Integer> positions = new HashMap<String, Integer>(this.companyCount * 2);
+			ByteBuffer view = ByteBuffer.wrap(this.bytes);
+			int position = HEADER_SIZE + this.yearCount * YEAR_SIZE;
+			for (int index = 0; index < this.companyCount && position + Integer.BYTES <= this.bytes.length; index++)
+			{
+				int length = view.getInt(position);
+				position += Integer.BYTES;
+				if (length < 0 || length + COMPANY_SIZE > this.bytes.length - position)
+				{
+					break;
+				}
+				String name = new String(this.bytes, position, length, StandardCharsets.UTF_8);
+				positions.put(CompanyIndex.normalize(name), position + length);
+				position += length + COMPANY_SIZE;
+			}
+			this.companyPositions = positions;
+		}
+		return this.companyPositions;
+	}
+
+	/**
+	 * Returns an input reading the snapshot's bytes from a position.
+	 * @param position The position to read from.
+	 * @return The input.
+	 */
+	private DataInputStream inputAt(int position)
+	{
+		return new DataInputStream(new ByteArrayInputStream(this.bytes, position, this.bytes.length - position));
+	}
+}
@@ -0,0 +1,396 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.nio.DoubleBuffer;
+
+import reports.io.ReportWriter;
+
+/**
+ * A streaming accumulator of the minimum, maximum, average, and standard deviation of a series of values.
+ * Values are added one at a time and nothing but the running totals is kept, so the memory used does not
+ *  depend on the number of values.
+ * The average is the running sum divided by the number of values, with the values summed in the order they
+ *  are added as the Data class sums them, so it is rounded exactly as Data's average is. The standard
+ *  deviation is updated with Welford's method, which stays accurate without a second pass over the values.
+ * The running totals can be saved and restored exactly, so values added after a restore give the same
+ *  results as adding every value in one pass, and two Statistics can be merged into one.
+ * The results match the Data class: the standard deviation is the population standard deviation,
+ *  and every statistic is null when no values have been added.
+ * A whole column of values can be added at once with addAll, which finds every statistic of a block of
+ *  values in one fused pass, see StatisticsKernel, and merges the blocks with Chan's method. The sum, and so
+ *  the average, is the same as adding the values one at a time; the standard deviation agrees with it to
+ *  about fifteen significant digits, so it only differs at three decimals when it lies on a rounding boundary.
+ * @author Logan Noonan
+ *
+ */
+public class Statistics
+{
+	/**
+	 * The number of values summed in one pass before the block is merged, which bounds the rounding error
+	 *  of each block's sums.
+	 */
+	private static final int BLOCK_SIZE = 1024;
+
+	/**
+	 * The kernel used by addAll: the vector kernel if it can be loaded, and the scalar kernel otherwise.
+	 */
+	private static final StatisticsKernel KERNEL = loadKernel();
+
+	/**
+	 * The number of values added.
+	 */
+	private int count;
+
+	/**
+	 * The smallest value added.
+	 */
+	private double minimum;
+
+	/**
+	 * The largest value added.
+	 */
+	private double maximum;
+
+	/**
+	 * The sum of the values added, in the order they were added.
+	 */
+	private double sum;
+
+	/**
+	 * The running average of the values added, used only to update sumSquares.
+	 */
+	private double mean;
+
+	/**
+	 * The running sum of squared differences from the average.
+	 */
+	private double sumSquares;
+
+	/**
+	 * Creates new Statistics with no values.
+	 */
+	public Statistics()
+	{
+		this.count = 0;
+		this.minimum = 0.0;
+		this.maximum = 0.0;
+		this.sum = 0.0;
+		this.mean = 0.0;
+		this.sumSquares = 0.0;
+	}
+
+	/**
+	 * Adds a value to the statistics.
+	 * @param valueIn The value to add.
+	 */
+	public void add(double valueIn)
+	{
+		if (this.count == 0)
+		{
+			this.minimum = valueIn;
+			this.maximum = valueIn;
+		}
+		else if (valueIn < this.minimum)
+		{
+			this.minimum = valueIn;
+		}
+		else if (valueIn > this.maximum)
+		{
+			this.maximum = valueIn;
+		}
+		this.count++;
+		this.sum += valueIn;
+		double delta = valueIn - this.mean;
+		this.mean += delta / this.count;
+		this.sumSquares += delta * (valueIn - this.mean);
+	}
+
+	/**
+	 * Loads the vector kernel if its class is on the class path and the jdk.incubator.vector module is
+	 *  present, unless the system property reports.vector is false.
+	 * @return The vector kernel, or the scalar kernel if the vector kernel cannot be loaded.
+	 */
+	private static StatisticsKernel loadKernel()
+	{
+		if (!Boolean.parseBoolean(System.getProperty("reports.vector", "true"))
+				|| !ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+		{
+			return StatisticsKernel.SCALAR;
+		}
+		try
+		{
+			Class<?> type = Class.forName("reports.VectorStatisticsKernel");
+			Constructor<?> constructor = type.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			return (StatisticsKernel) constructor.newInstance();
+		}
+		catch (ReflectiveOperationException | LinkageError e)
+		{
+			return StatisticsKernel.SCALAR;
+		}
+	}
+
+	/**
+	 * Returns the statistics of an array of values.
+	 * @param valuesIn - The values.
+	 * @return The statistics.
+	 */
+	public static Statistics of(double[] valuesIn)
+	{
+		Statistics result = new Statistics();
+		result.addAll(valuesIn, 0, valuesIn.length);
+		return result;
+	}
+
+	/**
+	 * Adds a slice of an array of values, a block at a time.
+	 * @param valuesIn - The values.
+	 * @param fromIn - The index of the first value to add.
+	 * @param toIn - The index after the last value to add.
+	 */
+	public void addAll(double[] valuesIn, int fromIn, int toIn)
+	{
+		if (fromIn < 0 || toIn > valuesIn.length || fromIn > toIn)
+		{
+			throw new IndexOutOfBoundsException("Cannot add values " + fromIn + " to " + toIn + " of "
+					+ valuesIn.length);
+		}
+		double[] totals = new double[StatisticsKernel.TOTALS];
+		for (int start = fromIn; start < toIn; start += BLOCK_SIZE)
+		{
+			this.addBlock(valuesIn, start, Math.min(toIn, start + BLOCK_SIZE), totals);
+		}
+	}
+
+	/**
+	 * Adds a slice of a column of values, such as a column of a FortuneDataset, a block at a time.
+	 * The column's position and limit are not changed.
+	 * @param columnIn - The column.
+	 * @param fromIn - The index of the first value to add.
+	 * @param toIn - The index after the last value to add.
+	 */
+	public void addAll(DoubleBuffer columnIn, int fromIn, int toIn)
+	{
+		if (fromIn < 0 || toIn > columnIn.limit() || fromIn > toIn)
+		{
+			throw new IndexOutOfBoundsException("Cannot add values " + fromIn + " to " + toIn + " of "
+					+ columnIn.limit());
+		}
+		if (columnIn.hasArray())
+		{
+			int offset = columnIn.arrayOffset();
+			this.addAll(columnIn.array(), offset + fromIn, offset + toIn);
+			return;
+		}
+		double[] block = new double[BLOCK_SIZE];
+		double[] totals = new double[StatisticsKernel.TOTALS];
+		for (int start = fromIn; start < toIn; start += BLOCK_SIZE)
+		{
+			int length = Math.min(toIn - start, BLOCK_SIZE);
+			columnIn.get(start, block, 0, length);
+			this.addBlock(block, 0, length, totals);
+		}
+	}
+
+	/**
+	 * Finds the statistics of one block of values in a single pass and merges them into these statistics.
+	 * @param values The values.
+	 * @param from The index of the first value of the block.
+	 * @param to The index after the last value of the block, after from.
+	 * @param totals Working space for the kernel.
+	 */
+	private void addBlock(double[] values, int from, int to, double[] totals)
+	{
+		double shift = values[from];
+		totals[StatisticsKernel.MINIMUM] = shift;
+		totals[StatisticsKernel.MAXIMUM] = shift;
+		totals[StatisticsKernel.SUM] = 0.0;
+		totals[StatisticsKernel.SUM_SQUARES] = 0.0;
+		totals[StatisticsKernel.TOTAL] = this.sum;
+		KERNEL.accumulate(values, from, to, shift, totals);
+		int count = to - from;
+		double sum = totals[StatisticsKernel.SUM];
+		double blockSquares = Math.max(0.0, totals[StatisticsKernel.SUM_SQUARES] - sum * sum / count);
+		this.merge(count, totals[StatisticsKernel.MINIMUM], totals[StatisticsKernel.MAXIMUM], 0.0,
+				shift + sum / count, blockSquares);
+		// The kernel carried on the running sum, so it is the sum of adding the values one at a time.
+		this.sum = totals[StatisticsKernel.TOTAL];
+	}
+
+	/**
+	 * Adds every value of another Statistics to these statistics, using Chan's method to combine the
+	 *  running totals. The results may differ from adding the same values one at a time in the last bits.
+	 * @param otherIn The statistics to add.
+	 */
+	public void merge(Statistics otherIn)
+	{
+		this.merge(otherIn.count, otherIn.minimum, otherIn.maximum, otherIn.sum, otherIn.mean, otherIn.sumSquares);
+	}
+
+	/**
+	 * Adds the running totals of a group of values to these statistics with Chan's method.
+	 * @param otherCount The number of values in the group.
+	 * @param otherMinimum The smallest value of the group.
+	 * @param otherMaximum The largest value of the group.
+	 * @param otherSum The sum of the group.
+	 * @param otherMean The average of the group.
+	 * @param otherSquares The sum of squared differences from the group's average.
+	 */
+	private void merge(int otherCount, double otherMinimum, double otherMaximum, double otherSum,
+			double otherMean, double otherSquares)
+	{
+		if (otherCount == 0)
+		{
+			return;
+		}
+		if (this.count == 0)
+		{
+			this.minimum = otherMinimum;
+			this.maximum = otherMaximum;
+		}
+		else
+		{
+			this.minimum = Math.min(this.minimum, otherMinimum);
+			this.maximum = Math.max(this.maximum, otherMaximum);
+		}
+		int total = this.count + otherCount;
+		double delta = otherMean - this.mean;
+		this.sum += otherSum;
+		this.mean += delta * otherCount / total;
+		this.sumSquares += otherSquares + delta * delta * ((double) this.count * otherCount / total);
+		this.count = total;
+	}
+
+	/**
+	 * Writes the running totals so they can be restored with readState.
+	 * @param outputIn The output to write to.
+	 * @throws IOException Thrown if the output cannot be written.
+	 */
+	void writeState(DataOutput outputIn) throws IOException
+	{
+		outputIn.writeInt(this.count);
+		outputIn.writeDouble(this.minimum);
+		outputIn.writeDouble(this.maximum);
+		outputIn.writeDouble(this.sum);
+		outputIn.writeDouble(this.mean);
+		outputIn.writeDouble(this.sumSquares);
+	}
+
+	/**
+	 * Replaces the running totals with ones written by writeState.
+	 * @param inputIn The input to read from.
+	 * @throws IOException Thrown if the input cannot be read.
+	 */
+	void readState(DataInput inputIn) throws IOException
+	{
+		this.count = inputIn.readInt();
+		this.minimum = inputIn.readDouble();
+		this.maximum = inputIn.readDouble();
+		this.sum = inputIn.readDouble();
+		this.mean = inputIn.readDouble();
+		this.sumSquares = inputIn.readDouble();
+	}
+
+	/**
+	 * Returns the number of values added.
+	 * @return The number of values.
+	 */
+	public int getCount()
+	{
+		return this.count;
+	}
+
+	/**
+	 * Returns the smallest value added.
+	 * @return The minimum, or null if no values have been added.
+	 */
+	public Double getMinimum()
+	{
+		if (this.count == 0)
+		{
+			return null;
+		}
+		return this.minimum;
+	}
+
+	/**
+	 * Returns the largest value added.
+	 * @return The maximum, or null if no values have been added.
+	 */
+	public Double getMaximum()
+	{
+		if (this.count == 0)
+		{
+			return null;
+		}
+		return this.maximum;
+	}
+
+	/**
+	 * Returns the average of the values added.
+	 * @return The average, or null if no values have been added.
+	 */
+	public Double getAverage()
+	{
+		if (this.count == 0)
+		{
+			return null;
+		}
+		return this.sum / this.count;
+	}
+
+	/**
+	 * Returns the population standard deviation of the values added.
+	 * @return The standard deviation, or null if no values have been added.
+	 */
+	public Double getStandardDeviation()
+	{
+		if (this.count == 0)
+		{
+			return null;
+		}
+		return Math.sqrt(this.sumSquares / this.count);
+	}
+
+	/**
+	 * Appends the statistics to a builder in the form used by the reports:
+	 *
+	 * Min: MIN Max: MAX Avg: AVG StD: STD
+	 *
+	 * Where each value is formatted to exactly three decimals, see ReportWriter.appendDecimal.
+	 * @param builderIn The builder to append to.
+	 * @return The builder.
+	 */
+	StringBuilder appendTo(StringBuilder builderIn)
+	{
+		ReportWriter.appendDecimal(builderIn.append("Min: "), this.getMinimum());
+		ReportWriter.appendDecimal(builderIn.append(" Max: "), this.getMaximum());
+		ReportWriter.appendDecimal(builderIn.append(" Avg: "), this.getAverage());
+		return ReportWriter.appendDecimal(builderIn.append(" StD: "), this.getStandardDeviation());
+	}
+
+	/**
+	 * Appends the statistics to a builder as a JSON object of the form:
+	 *
+	 * {"count":COUNT,"min":MIN,"max":MAX,"average":AVG,"standardDeviation":STD}
+	 *
+	 * Where each value is written in full, see ReportWriter.appendJsonNumber, or as null if no values
+	 *  have been added.
+	 * @param builderIn The builder to append to.
+	 * @return The builder.
+	 */
+	StringBuilder appendJsonTo(StringBuilder builderIn)
+	{
+		builderIn.append("{\"count\":").append(this.count);
+		ReportWriter.appendJsonNumber(builderIn.append(",\"min\":"), this.getMinimum());
+		ReportWriter.appendJsonNumber(builderIn.append(",\"max\":"), this.getMaximum());
+		ReportWriter.appendJsonNumber(builderIn.append(",\"average\":"), this.getAverage());
+		ReportWriter.appendJsonNumber(builderIn.append(",\"standardDeviation\":"), this.getStandardDeviation());
+		return builderIn.append('}');
+	}
+}
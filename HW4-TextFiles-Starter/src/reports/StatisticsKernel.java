@@ -0,0 +1,97 @@
+// NAME: Logan Noonan
+
+package reports;
+
+/**
+ * A fused pass over a slice of a column of values that finds their minimum, maximum, sum, and sum of
+ *  squares in one loop, used by Statistics.addAll.
+ * The sums are of each value's difference from a shift, which keeps the sum of squares accurate when the
+ *  values are large compared to their spread. The values themselves are also added to a running total one
+ *  at a time, in order, so the average is rounded exactly as when the values are added one at a time.
+ * The scalar kernel below is always available. A kernel using the jdk.incubator.vector API is used instead
+ *  when its class, reports.VectorStatisticsKernel from the vector source tree, is on the class path and the
+ *  module is added with --add-modules jdk.incubator.vector.
+ * @author Logan Noonan
+ *
+ */
+interface StatisticsKernel
+{
+	/**
+	 * The index in a totals array of the minimum.
+	 */
+	int MINIMUM = 0;
+
+	/**
+	 * The index in a totals array of the maximum.
+	 */
+	int MAXIMUM = 1;
+
+	/**
+	 * The index in a totals array of the sum of differences from the shift.
+	 */
+	int SUM = 2;
+
+	/**
+	 * The index in a totals array of the sum of squared differences from the shift.
+	 */
+	int SUM_SQUARES = 3;
+
+	/**
+	 * The index in a totals array of the running total of the values themselves.
+	 */
+	int TOTAL = 4;
+
+	/**
+	 * The length of a totals array.
+	 */
+	int TOTALS = 5;
+
+	/**
+	 * Adds a slice of values to running totals.
+	 * @param values The values.
+	 * @param from The index of the first value.
+	 * @param to The index after the last value.
+	 * @param shift The value subtracted from each value before it is summed.
+	 * @param totals The minimum, maximum, sum, sum of squares, and total so far, updated in place.
+	 */
+	void accumulate(double[] values, int from, int to, double shift, double[] totals);
+
+	/**
+	 * The kernel that adds one value at a time.
+	 */
+	StatisticsKernel SCALAR = new StatisticsKernel()
+	{
+		/**
+		 * Adds a slice of values to running totals one value at a time.
+		 * @param values The values.
+		 * @param from The index of the first value.
+		 * @param to The index after the last value.
+		 * @param shift The value subtracted from each value before it is summed.
+		 * @param totals The minimum, maximum, sum, sum of squares, and total so far, updated in place.
+		 */
+		@Override
+		public void accumulate(double[] values, int from, int to, double shift, double[] totals)
+		{
+			double minimum = totals[MINIMUM];
+			double maximum = totals[MAXIMUM];
+			double sum = totals[SUM];
+			double sumSquares = totals[SUM_SQUARES];
+			double total = totals[TOTAL];
+			for (int index = from; index < to; index++)
+			{
+				double value = values[index];
+				minimum = Math.min(minimum, value);
+				maximum = Math.max(maximum, value);
+				double difference = value - shift;
+				sum += difference;
+				sumSquares += difference * difference;
+				total += value;
+			}
+			totals[MINIMUM] = minimum;
+			totals[MAXIMUM] = maximum;
+			totals[SUM] = sum;
+			totals[SUM_SQUARES] = sumSquares;
+			totals[TOTAL] = total;
+		}
+	};
+}
@@ -0,0 +1,239 @@
+// NAME: Logan Noonan
+
+package reports;
+
+/**
+ * The largest values of a series and their labels, kept in a bounded heap of primitive arrays.
+ * Only the given number of values is ever held, so the memory used does not depend on the number
+ *  of values added, and each value is added in time logarithmic in that number.
+ * Of equal values, the one added first ranks higher. Values that are not numbers are ignored.
+ * @author Logan Noonan
+ *
+ */
+public class TopK
+{
+	/**
+	 * The values held, as a heap whose root is the lowest ranked value.
+	 */
+	private double[] values;
+
+	/**
+	 * The label of each value held.
+	 */
+	private String[] labels;
+
+	/**
+	 * The order in which each value held was added.
+	 */
+	private long[] orders;
+
+	/**
+	 * The number of values held.
+	 */
+	private int size;
+
+	/**
+	 * The number of values added.
+	 */
+	private long added;
+
+	/**
+	 * Creates new TopK.
+	 * @param kIn - The number of largest values to keep.
+	 */
+	public TopK(int kIn)
+	{
+		if (kIn < 1)
+		{
+			throw new IllegalArgumentException("At least one value must be kept.");
+		}
+		this.values = new double[kIn];
+		this.labels = new String[kIn];
+		this.orders = new long[kIn];
+		this.size = 0;
+		this.added = 0;
+	}
+
+	/**
+	 * Adds a value, keeping it if it is among the largest values added.
+	 * @param valueIn - The value.
+	 * @param labelIn - The value's label.
+	 */
+	public void add(double valueIn, String labelIn)
+	{
+		if (Double.isNaN(valueIn))
+		{
+			return;
+		}
+		long order = this.added++;
+		if (this.size < this.values.length)
+		{
+			int slot = this.size++;
+			this.place(slot, valueIn, labelIn, order);
+			this.siftUp(slot);
+		}
+		else if (valueIn > this.values[0])
+		{
+			this.place(0, valueIn, labelIn, order);
+			this.siftDown(0);
+		}
+	}
+
+	/**
+	 * Checks whether a value would be kept if it were added now, so a caller can avoid building the
+	 *  label of a value that would be dropped.
+	 * @param valueIn - The value.
+	 * @return true if adding the value would keep it.
+	 */
+	public boolean accepts(double valueIn)
+	{
+		return !Double.isNaN(valueIn) && (this.size < this.values.length || valueIn > this.values[0]);
+	}
+
+	/**
+	 * Puts a value into a slot of the heap.
+	 * @param slot The slot.
+	 * @param value The value.
+	 * @param label The value's label.
+	 * @param order The order in which the value was added.
+	 */
+	private void place(int slot, double value, String label, long order)
+	{
+		this.values[slot] = value;
+		this.labels[slot] = label;
+		this.orders[slot] = order;
+	}
+
+	/**
+	 * Checks whether the value in one slot ranks below the value in another.
+	 * @param first The first slot.
+	 * @param second The second slot.
+	 * @return true if the first slot's value is smaller, or equal and added later.
+	 */
+	private boolean ranksBelow(int first, int second)
+	{
+		return this.values[first] < this.values[second]
+				|| (this.values[first] == this.values[second] && this.orders[first] > this.orders[second]);
+	}
+
+	/**
+	 * Moves the value in a slot up the heap until its parent ranks below it.
+	 * @param slot The slot.
+	 */
+	private void siftUp(int slot)
+	{
+		int child = slot;
+		while (child > 0)
+		{
+			int parent = (child - 1) / 2;
+			if (!this.ranksBelow(child, parent))
+			{
+				return;
+			}
+			this.swap(child, parent);
+			child = parent;
+		}
+	}
+
+	/**
+	 * Moves the value in a slot down the heap until it ranks below both its children.
+	 * @param slot The slot.
+	 */
+	private void siftDown(int slot)
+	{
+		int parent = slot;
+		while (true)
+		{
+			int lowest = parent;
+			int left = 2 * parent + 1;
+			int right = left + 1;
+			if (left < this.size && this.ranksBelow(left, lowest))
+			{
+				lowest = left;
+			}
+			if (right < this.size && this.ranksBelow(right, lowest))
+			{
+				lowest = right;
+			}
+			if (lowest == parent)
+			{
+				return;
+			}
+			this.swap(parent, lowest);
+			parent = lowest;
+		}
+	}
+
+	/**
+	 * Swaps the values in two slots.
+	 * @param first The first slot.
+	 * @param second The second slot.
+	 */
+	private void swap(int first, int second)
+	{
+		double value = this.values[first];
+		String label = this.labels[first];
+		long order = this.orders[first];
+		this.place(first, this.values[second], this.labels[second], this.orders[second]);
+		this.place(second, value, label, order);
+	}
+
+	/**
+	 * Returns the number of values held, which is the smaller of k and the number of values added.
+	 * @return The number of values held.
+	 */
+	public int getSize()
+	{
+		return this.size;
+	}
+
+	/**
+	 * Returns the slots of the values held, from the highest ranked value to the lowest.
+	 * @return The slots in rank order.
+	 */
+	private int[] ranked()
+	{
+		int[] result = new int[this.size];
+		for (int slot = 0; slot < this.size; slot++)
+		{
+			int index = slot;
+			while (index > 0 && this.ranksBelow(result[index - 1], slot))
+			{
+				result[index] = result[index - 1];
+				index--;
+			}
+			result[index] = slot;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the values held, from the largest to the smallest.
+	 * @return The values.
+	 */
+	public double[] getValues()
+	{
+		int[] slots = this.ranked();
+		double[] result = new double[slots.length];
+		for (int index = 0; index < slots.length; index++)
+		{
+			result[index] = this.values[slots[index]];
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the labels of the values held, in the order of getValues.
+	 * @return The labels.
+	 */
+	public String[] getLabels()
+	{
+		int[] slots = this.ranked();
+		String[] result = new String[slots.length];
+		for (int index = 0; index < slots.length; index++)
+		{
+			result[index] = this.labels[slots[index]];
+		}
+		return result;
+	}
+}
@@ -0,0 +1,482 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+import reports.io.CsvRowReader;
+import reports.io.DataSource;
+import reports.io.ReportWriter;
+import reports.io.YearIndex;
+
+/**
+ * A report of the largest companies and the percentiles of a single year of Fortune 500 data.
+ * Report includes the top K companies by revenue, by profit, and by margin, and the median, 90th, and
+ *  99th percentiles of each, for all ranked companies of the report's year. The margin of a company is
+ *  its profit as a percentage of its revenue; companies with no revenue have no margin.
+ * The top companies are kept in bounded heaps and the percentiles are estimated with quantile sketches,
+ *  see TopK and QuantileSketch, so a year is never sorted and memory use does not depend on the number
+ *  of rows. Percentiles are exact for years of up to QuantileSketch.DEFAULT_SIZE rows.
+ * The reports of every year of a file can be processed in one pass with processYears.
+ * Like YearReport, the results of each processing are published whole, so a report can be shared between
+ *  threads and read while it is being processed again without locking.
+ * @author Logan Noonan
+ *
+ */
+public class YearRankingReport implements Report
+{
+	/**
+	 * The number of companies listed by the constructors without a number.
+	 */
+	public static final int DEFAULT_K = 10;
+
+	/**
+	 * The percentiles reported, as fractions.
+	 */
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+	/**
+	 * The names of the percentiles reported, in the order of QUANTILES.
+	 */
+	private static final String[] QUANTILE_NAMES = {"Median: ", " P90: ", " P99: "};
+
+	/**
+	 * Where the data is read from.
+	 */
+	private DataSource source;
+
+	/**
+	 * The results of the last completed processing, or null if the report has not been processed.
+	 */
+	private volatile Snapshot snapshot;
+
+	/**
+	 * The year to run a report for.
+	 */
+	private int theYear;
+
+	/**
+	 * The number of companies listed in each section.
+	 */
+	private int theK;
+
+	/**
+	 * The top companies and percentiles of one processing of a YearRankingReport.
+	 * A snapshot is only added to while it is being built and is never changed once published.
+	 */
+	private static class Snapshot
+	{
+		/**
+		 * The companies with the largest revenues.
+		 */
+		private final TopK revenues;
+
+		/**
+		 * The companies with the largest profits.
+		 */
+		private final TopK profits;
+
+		/**
+		 * The companies with the largest margins.
+		 */
+		private final TopK margins;
+
+		/**
+		 * The distribution of the revenues.
+		 */
+		private final QuantileSketch revenueQuantiles = new QuantileSketch();
+
+		/**
+		 * The distribution of the profits.
+		 */
+		private final QuantileSketch profitQuantiles = new QuantileSketch();
+
+		/**
+		 * The distribution of the margins.
+		 */
+		private final QuantileSketch marginQuantiles = new QuantileSketch();
+
+		/**
+		 * Creates new Snapshot.
+		 * @param k The number of companies to keep in each section.
+		 */
+		Snapshot(int k)
+		{
+			this.revenues = new TopK(k);
+			this.profits = new TopK(k);
+			this.margins = new TopK(k);
+		}
+
+		/**
+		 * Adds the values of the current row of a reader; the company's name is only read if the row
+		 *  is among the top companies so far.
+		 * @param rowReader A reader positioned at a row of the year.
+		 */
+		void addRow(CsvRowReader rowReader)
+		{
+			double revenue = rowReader.getRevenue();
+			double profit = rowReader.getProfit();
+			double margin = Double.NaN;
+			if (revenue != 0.0)
+			{
+				margin = profit / revenue * 100.0;
+			}
+			String company = null;
+			if (this.revenues.accepts(revenue) || this.profits.accepts(profit) || this.margins.accepts(margin))
+			{
+				company = rowReader.getCompany();
+			}
+			if (company != null)
+			{
+				this.revenues.add(revenue, company);
+				this.profits.add(profit, company);
+				this.margins.add(margin, company);
+			}
+			this.revenueQuantiles.add(revenue);
+			this.profitQuantiles.add(profit);
+			this.marginQuantiles.add(margin);
+		}
+	}
+
+	/**
+	 * Creates new YearRankingReport for given year listing the top DEFAULT_K companies; data to be read
+	 *  from given file.
+	 * @param inputFileIn - File containing Fortune 500 data for this report.
+	 * @param yearIn - Year to report Fortune 500 data.
+	 */
+	public YearRankingReport(File inputFileIn, int yearIn)
+	{
+		this(inputFileIn, yearIn, DEFAULT_K);
+	}
+
+	/**
+	 * Creates new YearRankingReport for given year; data to be read from given file.
+	 * @param inputFileIn - File containing Fortune 500 data for this report.
+	 * @param yearIn - Year to report Fortune 500 data.
+	 * @param kIn - Number of companies to list by revenue, profit, and margin.
+	 */
+	public YearRankingReport(File inputFileIn, int yearIn, int kIn)
+	{
+		this(inputFileIn == null ? null : DataSource.of(inputFileIn), yearIn, kIn);
+	}
+
+	/**
+	 * Creates new YearRankingReport for given year; data to be read from given source.
+	 * A source that is not a plain file is read from its start to the year's rows each time the report
+	 *  is processed.
+	 * @param sourceIn - Source of Fortune 500 data for this report.
+	 * @param yearIn - Year to report Fortune 500 data.
+	 * @param kIn - Number of companies to list by revenue, profit, and margin.
+	 */
+	public YearRankingReport(DataSource sourceIn, int yearIn, int kIn)
+	{
+		if (kIn < 1)
+		{
+			throw new IllegalArgumentException("At least one company must be listed.");
+		}
+		this.source = sourceIn;
+		this.theYear = yearIn;
+		this.theK = kIn;
+		this.snapshot = null;
+	}
+
+	/**
+	 * Processes the reports of every year of a source in one pass, reading each row once.
+	 * Each report is processed as if processReport had been called, and includes every year found
+	 *  in the data, including years after Report.MAXYEAR.
+	 * @param sourceIn - Source of Fortune 500 data for the reports.
+	 * @param kIn - Number of companies to list by revenue, profit, and margin.
+	 * @return The processed reports by year, in order of year.
+	 * @throws IOException Thrown if the source cannot be read.
+	 */
+	public static Map<Integer, YearRankingReport> processYears(DataSource sourceIn, int kIn) throws IOException
+	{
+		TreeMap<Integer, YearRankingReport> result = new TreeMap<Integer, YearRankingReport>();
+		TreeMap<Integer, Snapshot> building = new TreeMap<Integer, Snapshot>();
+		try (CsvRowReader rowReader = new CsvRowReader(sourceIn.open(), sourceIn.getCharset()))
+		{
+			rowReader.nextRow(); // Skip the first line since it is column names.
+			int year = Integer.MIN_VALUE;
+			Snapshot current = null;
+			while (rowReader.nextRow())
+			{
+				int rowYear = rowReader.getYear();
+				if (current == null || rowYear != year)
+				{
+					year = rowYear;
+					current = building.get(year);
+					if (current == null)
+					{
+						current = new Snapshot(kIn);
+						building.put(year, current);
+						result.put(year, new YearRankingReport(sourceIn, year, kIn));
+					}
+				}
+				current.addRow(rowReader);
+			}
+		}
+		for (Map.Entry<Integer, YearRankingReport> entry : result.entrySet())
+		{
+			entry.getValue().snapshot = building.get(entry.getKey());
+		}
+		return result;
+	}
+
+	/**
+	 * Processes the reports of every year of a file in one pass, see processYears(DataSource, int).
+	 * @param inputFileIn - File containing Fortune 500 data for the reports.
+	 * @param kIn - Number of companies to list by revenue, profit, and margin.
+	 * @return The processed reports by year, in order of year.
+	 * @throws IOException Thrown if the file cannot be read.
+	 */
+	public static Map<Integer, YearRankingReport> processYears(File inputFileIn, int kIn) throws IOException
+	{
+		return processYears(DataSource.of(inputFileIn), kIn);
+	}
+
+	/**
+	 * Reads data from Fortune 500 data file; processes the data.
+	 * The year's rows are read through the file's year index when the data is a plain file, and the
+	 *  data is scanned from its start otherwise.
+	 * Every call reads the data afresh, and the results replace the previous results only once processing
+	 *  completes.
+	 * @throws YearNotFoundException - Thrown if the report's year is before Report.MINYEAR, or is after
+	 *  Report.MAXYEAR and not present in the data file; a year after Report.MAXYEAR is not checked when
+	 *  the data is not a plain file.
+	 * @return true if processing successful, false if the input file does not exist or cannot be read,
+	 *  or the data is a stream that has already been read.
+	 */
+	public boolean processReport()
+	{
+		if (!this.isReportedYear())
+		{
+			throw new YearNotFoundException();
+		}
+		if (this.source == null)
+		{
+			return false;
+		}
+		boolean result;
+		try
+		{
+			Snapshot building = new Snapshot(this.theK);
+			if (this.source.getFile() != null)
+			{
+				this.extractNumbers(building);
+			}
+			else
+			{
+				try (CsvRowReader rowReader = new CsvRowReader(this.source.open(), this.source.getCharset()))
+				{
+					this.extractAll(rowReader, building);
+				}
+			}
+			this.snapshot = building;
+			result = true;
+		}
+		catch (IOException e)
+		{
+			result = false;
+		}
+		return result;
+	}
+
+	/**
+	 * Checks whether the report's year can be reported, as YearReport does.
+	 * @return true if the year can be reported.
+	 */
+	private boolean isReportedYear()
+	{
+		if (this.theYear < Report.MINYEAR)
+		{
+			return false;
+		}
+		if (this.theYear <= Report.MAXYEAR || this.source == null || this.source.getFile() == null)
+		{
+			return true;
+		}
+		YearIndex index = this.openIndex();
+		return index != null && index.getBlock(this.theYear) != null;
+	}
+
+	/**
+	 * Opens the file's year index, see YearIndex.
+	 * @return The index, or null if it cannot be built.
+	 */
+	private YearIndex openIndex()
+	{
+		try
+		{
+			return YearIndex.forFile(this.source.getFile());
+		}
+		catch (IOException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * A method used to extract all the data for the given year from a plain file, reading only the year's
+	 *  rows through the file's year index, see YearIndex.openYear.
+	 * @param building The snapshot to add the year's values to.
+	 * @throws IOException Thrown if the file cannot be read.
+	 */
+	private void extractNumbers(Snapshot building) throws IOException
+	{
+		File file = this.source.getFile();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+				CsvRowReader rowReader = YearIndex.openYear(file, channel, this.theYear))
+		{
+			while (rowReader.nextRow())
+			{
+				building.addRow(rowReader);
+			}
+		}
+	}
+
+	/**
+	 * A method used to extract all the data for the given year by scanning the data from the top.
+	 * @param rowReader A reader of the rows of the data, positioned at its start.
+	 * @param building The snapshot to add the year's values to.
+	 * @throws IOException Thrown if the data cannot be read.
+	 */
+	private void extractAll(CsvRowReader rowReader, Snapshot building) throws IOException
+	{
+		rowReader.nextRow(); // Skip the first line since it is column names.
+		boolean inYear = false;
+		while (rowReader.nextRow())
+		{
+			if (rowReader.getYear() == this.theYear)
+			{
+				building.addRow(rowReader);
+				inYear = true;
+			}
+			else if (inYear)
+			{
+				break; // The rows of a year are grouped together, so the year has ended.
+			}
+		}
+	}
+
+	/**
+	 * Writes the processed report to the given file.
+	 * The given file's contents will look like the result of calling YearRankingReport's toString.
+	 * @param outputFile - File to write report to.
+	 * @return true if write successful, false if file cannot be created.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	public boolean writeReport(File outputFile) throws DataNotProcessedException
+	{
+		Snapshot current = this.snapshot;
+		if (current == null)
+		{
+			throw new DataNotProcessedException();
+		}
+		boolean result;
+		try
+		{
+			ReportWriter.write(outputFile, this.format(ReportWriter.builder(), current));
+			result = true;
+		}
+		catch (IOException e)
+		{
+			result = false;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a formatted String of this report suitable for writing to an output file. String is of the form:
+	 *
+	 * Fortune 500 Top K Report for YEAR
+	 * Revenue
+	 * Median: MEDREV P90: P90REV P99: P99REV
+	 * 1 COMPANY REVENUE
+	 * ...
+	 * Profit
+	 * Median: MEDPRO P90: P90PRO P99: P99PRO
+	 * 1 COMPANY PROFIT
+	 * ...
+	 * Margin
+	 * Median: MEDMAR P90: P90MAR P99: P99MAR
+	 * 1 COMPANY MARGIN
+	 * ...
+	 *
+	 * Where K is the number of companies listed, YEAR is the year of the report, and each section lists
+	 *  up to K companies from the largest value down, numbered from 1. Values are formatted to exactly three
+	 *  decimals like YearReport, with percentiles of a year without values shown as "nul".
+	 * There are no blank lines, and the String does not end in a new line.
+	 */
+	@Override
+	public String toString()
+	{
+		Snapshot current = this.snapshot;
+		if (current == null)
+		{
+			current = new Snapshot(this.theK);
+		}
+		return this.format(ReportWriter.builder(), current).toString();
+	}
+
+	/**
+	 * Appends one snapshot to a builder as described by toString.
+	 * @param builder The builder to append to.
+	 * @param current The snapshot to format.
+	 * @return The builder.
+	 */
+	private StringBuilder format(StringBuilder builder, Snapshot current)
+	{
+		ReportWriter.appendWhole(builder.append("Fortune 500 Top "), this.theK);
+		ReportWriter.appendWhole(builder.append(" Report for "), this.theYear);
+		appendSection(builder.append("\nRevenue"), current.revenues, current.revenueQuantiles);
+		appendSection(builder.append("\nProfit"), current.profits, current.profitQuantiles);
+		return appendSection(builder.append("\nMargin"), current.margins, current.marginQuantiles);
+	}
+
+	/**
+	 * Appends the percentiles and top companies of one section, each on a new line.
+	 * @param builder The builder to append to.
+	 * @param top The top companies of the section.
+	 * @param quantiles The distribution of the section's values.
+	 * @return The builder.
+	 */
+	private static StringBuilder appendSection(StringBuilder builder, TopK top, QuantileSketch quantiles)
+	{
+		builder.append('\n');
+		for (int index = 0; index < QUANTILES.length; index++)
+		{
+			ReportWriter.appendDecimal(builder.append(QUANTILE_NAMES[index]), quantiles.getQuantile(QUANTILES[index]));
+		}
+		double[] values = top.getValues();
+		String[] labels = top.getLabels();
+		for (int index = 0; index < values.length; index++)
+		{
+			ReportWriter.appendWhole(builder.append('\n'), index + 1);
+			ReportWriter.appendDecimal(builder.append(' ').append(labels[index]).append(' '), values[index]);
+		}
+		return builder;
+	}
+
+	/**
+	 * Returns the year of this report.
+	 * @return Year of this report.
+	 */
+	public int getYear()
+	{
+		return this.theYear;
+	}
+
+	/**
+	 * Returns the number of companies listed in each section of this report.
+	 * @return The number of companies.
+	 */
+	public int getK()
+	{
+		return this.theK;
+	}
+}
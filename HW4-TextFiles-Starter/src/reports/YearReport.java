@@ -2,18 +2,33 @@
 
 package reports;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.Scanner;
-import analytics.Data;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import reports.io.ColumnarCache;
+import reports.io.CsvRowReader;
+import reports.io.DataSource;
+import reports.io.FortuneDataset;
+import reports.io.ReportWriter;
+import reports.io.YearIndex;
 
 /**
  * A report for a single year of Fortune 500 data.
  * Report includes the minimum, maximum, average, and standard deviation of revenues and profits
  *  for all ranked companies of the report's year.
+ * A report may be processed again at any time to pick up changes to the data file. The results of each
+ *  processing are published whole, so a report can be shared between threads and read while it is being
+ *  processed again without locking.
  * @author YOUR NAME
  *
  */
@@ -24,120 +39,287 @@ public class YearReport implements Report
 	 */
 	private File theFile;
 	
-	/**
-	 * A boolean value to test if the file was processed or not.
-	 */
-	private boolean isProcessed;
-
 	/**
 	 * A boolean to check if the file was created properly or not.
 	 */
 	private boolean fileExists;
 	
 	/**
-	 * A scanner to read the file.
-	 */
-	private Scanner inputScanner;
-	
-	/**
-	 * A string of the files next line.
-	 */
-	private String nextLine;
-	
-	/**
-	 * A scanner to parse the next line in the file.
-	 */
-	private Scanner lineParser;
-	
-	/**
-	 * The company minimum revenue.
-	 */
-	private Double minRevenue;
-	
-	/**
-	 * The company maximum revenue.
+	 * Where the data is read from when it is not a plain file, or null if it is a plain file.
 	 */
-	private Double maxRevenue;
+	private DataSource source;
 	
 	/**
-	 * The company average revenue.
+	 * The statistics of the rows supplied through addRow by a ReportEngine, published by markProcessed.
 	 */
-	private Double avgRevenue;
+	private Snapshot pending;
 	
 	/**
-	 * The company's standard deviation of revenue.
+	 * The statistics of the last completed processing, or null if the report has not been processed.
+	 * A new snapshot replaces the old one in a single write, so readers never see a partly processed report.
 	 */
-	private Double sDRevenue;
+	private volatile Snapshot snapshot;
 	
 	/**
-	 * The company minimum profit.
+	 * The year to run a report for, only to be set after processing.
 	 */
-	private Double minProfit;
+	private int theYear; 
 	
 	/**
-	 * The company maximum profit.
+	 * How rows with a missing revenue or profit are treated.
 	 */
-	private Double maxProfit;
+	private MissingValues missingValues = MissingValues.COUNT;
 	
 	/**
-	 * The company average profit.
+	 * The counts and timings of this report's processing and writing, or null until the report is first
+	 *  processed or written, so the reports a ReportEngine routes rows to carry no counters.
 	 */
-	private Double avgProfit;
+	private ReportMetrics metrics;
 	
 	/**
-	 * The company's standard deviation of revenue.
+	 * The statistics of one processing of a YearReport.
+	 * A snapshot is only added to while it is being built and is never changed once published.
 	 */
-	private Double sDProfit;
+	private static class Snapshot
+	{
+		/**
+		 * The statistics of the revenues of every company ranked in the year.
+		 */
+		private final Statistics revenues = new Statistics();
+		
+		/**
+		 * The statistics of the profits of every company ranked in the year.
+		 */
+		private final Statistics profits = new Statistics();
+		
+		/**
+		 * The number of missing revenues and profits in the year's rows.
+		 */
+		private int missing;
+		
+		/**
+		 * The revenue and profit of each row read but not yet added to the statistics, in pairs, or null
+		 *  if there are none.
+		 */
+		private double[] readRows;
+		
+		/**
+		 * The number of rows in readRows.
+		 */
+		private int readCount;
+		
+		/**
+		 * The number of rows read to find the year's rows.
+		 */
+		private long rowsScanned;
+		
+		/**
+		 * The number of bytes of data read to find the year's rows.
+		 */
+		private long bytesRead;
+		
+		/**
+		 * Counts the rows and bytes a reader has read.
+		 * @param rowReader The reader.
+		 */
+		void countInput(CsvRowReader rowReader)
+		{
+			this.rowsScanned = rowReader.getRowsRead();
+			this.bytesRead = rowReader.getBytesRead();
+		}
+		
+		/**
+		 * Adds the values of one row of the year.
+		 * @param revenueIn The revenue of the row's company, or Double.NaN if it is missing.
+		 * @param profitIn The profit of the row's company, or Double.NaN if it is missing.
+		 * @param missingIn How to treat a missing value.
+		 */
+		void addRow(double revenueIn, double profitIn, MissingValues missingIn)
+		{
+			if (Double.isNaN(revenueIn) || Double.isNaN(profitIn))
+			{
+				this.addIncompleteRow(revenueIn, profitIn, missingIn);
+			}
+			else
+			{
+				this.revenues.add(revenueIn);
+				this.profits.add(profitIn);
+			}
+		}
+		
+		/**
+		 * Keeps the values of one row of the year to be added by addReadRows, so the time spent reading rows
+		 *  and the time spent computing their statistics can be measured apart.
+		 * @param revenueIn The revenue of the row's company, or Double.NaN if it is missing.
+		 * @param profitIn The profit of the row's company, or Double.NaN if it is missing.
+		 */
+		void readRow(double revenueIn, double profitIn)
+		{
+			if (this.readRows == null)
+			{
+				this.readRows = new double[2 * Report.NUMCOMPANIES];
+			}
+			else if (2 * this.readCount == this.readRows.length)
+			{
+				this.readRows = Arrays.copyOf(this.readRows, 2 * this.readRows.length);
+			}
+			this.readRows[2 * this.readCount] = revenueIn;
+			this.readRows[2 * this.readCount + 1] = profitIn;
+			this.readCount++;
+		}
+		
+		/**
+		 * Adds the values of the rows kept by readRow, in the order they were read.
+		 * @param missingIn How to treat a missing value.
+		 */
+		void addReadRows(MissingValues missingIn)
+		{
+			for (int row = 0; row < this.readCount; row++)
+			{
+				this.addRow(this.readRows[2 * row], this.readRows[2 * row + 1], missingIn);
+			}
+			this.readRows = null;
+			this.readCount = 0;
+		}
+		
+		/**
+		 * Counts the missing values of a row and adds the row as the policy says.
+		 * @param revenueIn The revenue of the row's company, or Double.NaN if it is missing.
+		 * @param profitIn The profit of the row's company, or Double.NaN if it is missing.
+		 * @param missingIn How to treat a missing value.
+		 */
+		private void addIncompleteRow(double revenueIn, double profitIn, MissingValues missingIn)
+		{
+			if (missingIn == MissingValues.SKIP)
+			{
+				this.missing += (Double.isNaN(revenueIn) ? 1 : 0) + (Double.isNaN(profitIn) ? 1 : 0);
+			}
+			else
+			{
+				this.missing += missingIn.add(this.revenues, revenueIn) + missingIn.add(this.profits, profitIn);
+			}
+		}
+		
+		/**
+		 * Writes the statistics and the count of missing values so they can be restored with readState.
+		 * @param outputIn The output to write to.
+		 * @throws IOException Thrown if the output cannot be written.
+		 */
+		void writeState(DataOutput outputIn) throws IOException
+		{
+			this.revenues.writeState(outputIn);
+			this.profits.writeState(outputIn);
+			outputIn.writeInt(this.missing);
+		}
+		
+		/**
+		 * Replaces the statistics and the count of missing values with ones written by writeState.
+		 * @param inputIn The input to read from.
+		 * @throws IOException Thrown if the input cannot be read.
+		 */
+		void readState(DataInput inputIn) throws IOException
+		{
+			this.revenues.readState(inputIn);
+			this.profits.readState(inputIn);
+			this.missing = inputIn.readInt();
+		}
+	}
 	
 	/**
-	 * An array to hold the companies revenue values for each year it was listed.
+	 * Creates new YearReport for given year; data to be read from given file.
+	 * @param inputFileIn - File containing Fortune 500 data for this report.
+	 * @param yearIn - Year to report Fortune 500 data.
 	 */
-	private Double[] totalRevenue;
+	public YearReport(File inputFileIn, int yearIn)
+	{
+		this.fileExists = false;
+		try 
+		{
+			this.setFile(inputFileIn);
+			this.fileExists = true;
+		} 
+		catch (FileNotFoundException e) 
+		{
+			e.toString();
+		}
+		this.theYear = yearIn;
+		this.snapshot = null;
+	}
 	
 	/**
-	 * An array to hold the companies profit values for each year it was listed.
+	 * Creates new YearReport for given year; data to be read from given path, see DataSource.
+	 * @param inputPathIn - Path of a Fortune 500 csv file for this report, plain or gzip compressed.
+	 * @param yearIn - Year to report Fortune 500 data.
 	 */
-	private Double[] totalProfit;
+	public YearReport(Path inputPathIn, int yearIn)
+	{
+		this(DataSource.of(inputPathIn), yearIn);
+	}
 	
 	/**
-	 * Tracks the current index in the revenue array.
+	 * Creates new YearReport for given year; data to be read from given stream, see DataSource.
+	 * @param inputStreamIn - Stream of Fortune 500 csv data for this report, read once.
+	 * @param yearIn - Year to report Fortune 500 data.
 	 */
-	private int revenueIndex;
+	public YearReport(InputStream inputStreamIn, int yearIn)
+	{
+		this(DataSource.of(inputStreamIn), yearIn);
+	}
 	
 	/**
-	 * Tracks the current index in the profit array.
+	 * Creates new YearReport for given year; data to be read from given Reader, see DataSource.
+	 * @param inputReaderIn - Reader of Fortune 500 csv data for this report, read once.
+	 * @param yearIn - Year to report Fortune 500 data.
 	 */
-	private int profitIndex;
+	public YearReport(Reader inputReaderIn, int yearIn)
+	{
+		this(DataSource.of(inputReaderIn), yearIn);
+	}
 	
 	/**
-	 * The year to run a report for, only to be set after processing.
+	 * Creates new YearReport for given year; data to be read from given channel, see DataSource.
+	 * @param inputChannelIn - Channel of Fortune 500 csv data for this report, read once.
+	 * @param yearIn - Year to report Fortune 500 data.
 	 */
-	private int theYear; 
+	public YearReport(ReadableByteChannel inputChannelIn, int yearIn)
+	{
+		this(DataSource.of(inputChannelIn), yearIn);
+	}
 	
 	/**
-	 * Creates new YearReport for given year; data to be read from given file.
-	 * @param inputFileIn - File containing Fortune 500 data for this report.
+	 * Creates new YearReport for given year; data to be read from given source.
+	 * A source that is not a plain file is read from its start to the year's rows each time the report
+	 *  is processed, without the file's year index or columnar cache.
+	 * @param sourceIn - Source of Fortune 500 data for this report.
 	 * @param yearIn - Year to report Fortune 500 data.
 	 */
-	public YearReport(File inputFileIn, int yearIn)
+	public YearReport(DataSource sourceIn, int yearIn)
 	{
 		this.fileExists = false;
-		try 
+		if (sourceIn != null)
 		{
-			this.setFile(inputFileIn);
-			this.inputScanner = new Scanner(this.theFile);
+			this.theFile = sourceIn.getFile();
+			if (this.theFile == null)
+			{
+				this.source = sourceIn;
+			}
 			this.fileExists = true;
-		} 
-		catch (FileNotFoundException e) 
-		{
-			e.toString();
 		}
 		this.theYear = yearIn;
-		this.totalRevenue = new Double[Report.NUMCOMPANIES];
-		this.totalProfit = new Double[Report.NUMCOMPANIES];
-		this.revenueIndex = 0;
-		this.profitIndex = 0;
-		this.isProcessed = false;
+		this.snapshot = null;
+	}
+	
+	/**
+	 * Creates new YearReport for given year whose rows are supplied by a ReportEngine
+	 *  through addRow instead of being read from a file.
+	 * @param yearIn - Year to report Fortune 500 data.
+	 */
+	YearReport(int yearIn)
+	{
+		this.fileExists = false;
+		this.theYear = yearIn;
+		this.pending = new Snapshot();
+		this.snapshot = null;
 	}
 	
 	/**
@@ -157,19 +339,75 @@ public class YearReport implements Report
 		}
 	}
 
+	/**
+	 * Restores the year's statistics from the file's snapshot, see ReportSnapshot. Snapshots are written
+	 *  with MissingValues.COUNT, so they are only used by reports treating missing values that way.
+	 * @param building The statistics being built.
+	 * @return true if the statistics were restored, false if the file has no up to date snapshot holding
+	 *  the year or it cannot be read.
+	 */
+	private boolean restoreSnapshot(Snapshot building)
+	{
+		if (this.missingValues != MissingValues.COUNT)
+		{
+			return false;
+		}
+		try
+		{
+			ReportSnapshot saved = ReportSnapshot.openIfCurrent(this.theFile);
+			DataInput input = saved != null ? saved.findYear(this.theYear) : null;
+			if (input != null)
+			{
+				building.readState(input);
+			}
+			return input != null;
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+	}
+	
+	/**
+	 * Opens the file's columnar cache, see ColumnarCache.
+	 * @return The cache, or null if the file has no up to date cache or it cannot be read.
+	 */
+	private ColumnarCache openCache()
+	{
+		try
+		{
+			return ColumnarCache.openIfCurrent(this.theFile);
+		}
+		catch (IOException e)
+		{
+			return null;
+		}
+	}
+	
 	/**
 	 * Reads data from Fortune 500 data file; processes the data.
 	 * The file is a csv file and can be assumed is formatted correctly.
 	 * See supplemental document for details on reading from csv files.
 	 * Calculates the minimum, maximum, average, and standard deviation of revenues and profits
-	 *  for all ranked companies of the report's year using tools in the Data class.
-	 * @throws YearNotFoundException - Thrown if the report's year is not present in the data file.
-	 * @return true if processing successful, false if the input file does not exist.
+	 *  for all ranked companies of the report's year. The year's rows are read first and their values then
+	 *  added to the report's Statistics, so parsing and computing statistics are timed apart in the metrics.
+	 * When the file's FortuneDataset is loaded, the year's rows are read from the shared dataset instead,
+	 *  and otherwise the year's statistics are restored from the file's ReportSnapshot if it is up to date, or
+	 *  read from the columns of the file's ColumnarCache if it is up to date, see ColumnarCache.convert.
+	 * Every call reads the file afresh into new Statistics, which replace the previous results only once
+	 *  processing completes, so a report can be processed again to pick up changes to the file while other
+	 *  threads keep reading the previous results.
+	 * Each processing is recorded in the report's metrics, see getMetrics.
+	 * @throws YearNotFoundException - Thrown if the report's year is before Report.MINYEAR, or is after
+	 *  Report.MAXYEAR and not present in the data file; a year after Report.MAXYEAR is not checked when
+	 *  the data is not a plain file.
+	 * @return true if processing successful, false if the input file does not exist or cannot be read,
+	 *  or the data is a stream that has already been read.
 	 */
 	public boolean processReport()
 	{
 		boolean result = false;
-		if (!(Report.MINYEAR <= this.getYear() && this.getYear() <= Report.MAXYEAR))
+		if (!this.isReportedYear())
 		{
 			throw new YearNotFoundException();
 		}
@@ -177,120 +415,320 @@ public class YearReport implements Report
 		{
 			if (this.fileExists)
 			{
-				this.extractNumbers();
-				this.minRevenue = Data.minimum(this.getRevenuesList());
-				this.maxRevenue = Data.maximum(this.getRevenuesList());
-				this.avgRevenue = Data.average(this.getRevenuesList());
-				this.sDRevenue = Data.standardDeviation(this.getRevenuesList());
-				this.minProfit = Data.minimum(this.getProfitsList());
-				this.maxProfit = Data.maximum(this.getProfitsList());
-				this.avgProfit = Data.average(this.getProfitsList());
-				this.sDProfit = Data.standardDeviation(this.getProfitsList());
-				result = true;
-				this.isProcessed = true;
+				try
+				{
+					ReportMetrics.ProcessEvent event = ReportMetrics.beginProcess();
+					long started = System.nanoTime();
+					Snapshot building = new Snapshot();
+					FortuneDataset dataset = null;
+					if (this.source == null)
+					{
+						dataset = FortuneDataset.getIfLoaded(this.theFile);
+					}
+					if (this.source != null)
+					{
+						this.extractStream(building);
+					}
+					else if (dataset != null)
+					{
+						this.extractDataset(dataset, building);
+					}
+					else if (!this.restoreSnapshot(building))
+					{
+						ColumnarCache cache = this.openCache();
+						if (cache != null)
+						{
+							this.extractColumns(cache, building);
+						}
+						else
+						{
+							this.extractNumbers(building);
+						}
+					}
+					long parsed = System.nanoTime();
+					building.addReadRows(this.missingValues);
+					this.snapshot = building;
+					this.getMetrics().recordProcess(event, "YearReport", this.theYear, building.rowsScanned,
+							building.revenues.getCount(), building.bytesRead, parsed - started, System.nanoTime() - parsed);
+					result = true;
+				}
+				catch (IOException e)
+				{
+					result = false;
+				}
 			}
 		}
 		return result;
 	}
 	
 	/**
-	 * A method used to extract all the data for the given year.
+	 * Checks whether the report's year can be reported: any year from Report.MINYEAR to Report.MAXYEAR,
+	 *  and any later year the data file has rows for, so new years appended to the file are reported.
+	 * @return true if the year can be reported.
 	 */
-	private void extractNumbers()
+	private boolean isReportedYear()
 	{
-		if (this.inputScanner.hasNextLine())
+		if (this.theYear < Report.MINYEAR)
+		{
+			return false;
+		}
+		if (this.theYear <= Report.MAXYEAR)
 		{
-			this.nextLine = this.inputScanner.nextLine(); // Skip the first line since it is column names.
+			return true;
 		}
-		while (this.inputScanner.hasNextLine())
+		if (this.source != null)
+		{
+			return true; // A stream cannot be searched ahead of time, so a missing year gives an empty report.
+		}
+		YearIndex index = null;
+		if (this.fileExists)
+		{
+			index = this.openIndex();
+		}
+		return index != null && index.getBlock(this.theYear) != null;
+	}
+	
+	/**
+	 * Returns a new report of the same year, data and MissingValues policy that shares this report's
+	 *  published statistics, used by a ReportCache so a caller processing the report it is given replaces
+	 *  only that report's statistics and never the cached report's.
+	 * @return The new report.
+	 */
+	YearReport copy()
+	{
+		YearReport result = new YearReport(this.theYear);
+		result.theFile = this.theFile;
+		result.fileExists = this.fileExists;
+		result.source = this.source;
+		result.pending = null;
+		result.missingValues = this.missingValues;
+		result.snapshot = this.snapshot;
+		return result;
+	}
+	
+	/**
+	 * Marks the report as processed once every row has been added, publishing the added rows' statistics.
+	 */
+	void markProcessed()
+	{
+		this.snapshot = this.pending;
+	}
+	
+	/**
+	 * Adds the values of one row of this year, used when rows are routed by a ReportEngine.
+	 * @param revenueIn The revenue of the row's company, or Double.NaN if it is missing.
+	 * @param profitIn The profit of the row's company, or Double.NaN if it is missing.
+	 */
+	void addRow(double revenueIn, double profitIn)
+	{
+		this.pending.addRow(revenueIn, profitIn, this.missingValues);
+	}
+	
+	/**
+	 * A method used to extract all the data for the given year.
+	 * The file's year index is used to read only the year's rows, see YearIndex.openYear.
+	 * @param building The snapshot to add the year's values to.
+	 * @throws IOException Thrown if the file cannot be read.
+	 */
+	private void extractNumbers(Snapshot building) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(this.theFile.toPath(), StandardOpenOption.READ);
+				CsvRowReader rowReader = YearIndex.openYear(this.theFile, channel, this.theYear))
 		{
-			this.nextLine = this.inputScanner.nextLine();
-			this.lineParser = new Scanner(this.nextLine); 
-			this.lineParser.useDelimiter(","); 
-			if (this.lineParser.nextInt() == this.theYear)
+			while (rowReader.nextRow())
 			{
-				do
-				{
-					this.sumRevenues();
-					this.sumProfits();
-					if (this.inputScanner.hasNextLine())
-					{
-						this.nextLine = this.inputScanner.nextLine();
-						this.lineParser = new Scanner(this.nextLine);
-						this.lineParser.useDelimiter(",");
-					}
-					else
-					{
-						break;
-					}
-				} while (this.lineParser.nextInt() == this.getYear());
-				
-				this.inputScanner.close();
-				this.lineParser.close();
-				break;
+				building.readRow(rowReader.getRevenue(), rowReader.getProfit());
 			}
+			building.countInput(rowReader);
 		}
 	}
 	
 	/**
-	 * A method to extract all revenue values for a given year.
+	 * Opens the file's year index, see YearIndex.
+	 * @return The index, or null if it cannot be built.
 	 */
-	private void sumRevenues()
+	private YearIndex openIndex()
 	{
-		this.lineParser.next(); // Skip this line to get to the revenue.
-		this.lineParser.next(); // Skip this line as well.
-		this.totalRevenue[this.revenueIndex] = this.lineParser.nextDouble();
-		this.revenueIndex++;
+		try
+		{
+			return YearIndex.forFile(this.theFile);
+		}
+		catch (IOException e)
+		{
+			return null;
+		}
 	}
 	
 	/**
-	 * A method to extract all profit values for a given year.
+	 * A method used to extract all the data for the given year by scanning the file from the top.
+	 * @param rowReader A reader of the rows of the file, positioned at its start.
+	 * @param building The snapshot to add the year's values to.
+	 * @throws IOException Thrown if the file cannot be read.
 	 */
-	private void sumProfits()
+	private void extractAll(CsvRowReader rowReader, Snapshot building) throws IOException
 	{
-		this.totalProfit[this.profitIndex] = this.lineParser.nextDouble();
-		this.profitIndex++;
+		rowReader.nextRow(); // Skip the first line since it is column names.
+		boolean inYear = false;
+		while (rowReader.nextRow())
+		{
+			if (rowReader.getYear() == this.theYear)
+			{
+				building.readRow(rowReader.getRevenue(), rowReader.getProfit());
+				inYear = true;
+			}
+			else if (inYear)
+			{
+				break; // The rows of a year are grouped together, so the year has ended.
+			}
+		}
 	}
 	
 	/**
-	 * A method to return the array of the years revenues.
-	 * @return The revenue array.
+	 * A method used to extract all the data for the given year from a source that is not a plain file,
+	 *  reading it as a stream until the year's rows end.
+	 * @param building The snapshot to add the year's values to.
+	 * @throws IOException Thrown if the source cannot be read.
 	 */
-	private Double[] getRevenuesList()
+	private void extractStream(Snapshot building) throws IOException
 	{
-		return this.totalRevenue;
+		try (CsvRowReader rowReader = new CsvRowReader(this.source.open(), this.source.getCharset()))
+		{
+			this.extractAll(rowReader, building);
+			building.countInput(rowReader);
+		}
 	}
 	
 	/**
-	 * A method to return the array of the years profits.
-	 * @return The profit array.
+	 * A method used to extract all the data for the given year from the file's loaded dataset.
+	 * @param dataset The file's dataset.
+	 * @param building The snapshot to add the year's values to.
 	 */
-	private Double[] getProfitsList()
+	private void extractDataset(FortuneDataset dataset, Snapshot building)
 	{
-		return this.totalProfit;
+		int start = dataset.getYearStart(this.theYear);
+		int end = start + dataset.getYearRows(this.theYear);
+		for (int row = Math.max(start, 0); row < end; row++)
+		{
+			building.readRow(dataset.getRevenue(row), dataset.getProfit(row));
+		}
+		building.rowsScanned = Math.max(end - start, 0);
+	}
+
+	/**
+	 * A method used to extract all the data for the given year from the file's columnar cache.
+	 * @param cache The file's columnar cache.
+	 * @param building The snapshot to add the year's values to.
+	 */
+	private void extractColumns(ColumnarCache cache, Snapshot building)
+	{
+		boolean inYear = false;
+		int row = 0;
+		for (; row < cache.getRowCount(); row++)
+		{
+			if (cache.getYear(row) == this.theYear)
+			{
+				building.readRow(cache.getRevenue(row), cache.getProfit(row));
+				inYear = true;
+			}
+			else if (inYear)
+			{
+				break; // The rows of a year are grouped together, so the year has ended.
+			}
+		}
+		building.rowsScanned = row;
+	}
+
+	/**
+	 * Writes the statistics of the processed report so they can be restored with readState.
+	 * @param outputIn The output to write to.
+	 * @throws IOException Thrown if the output cannot be written.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	void writeState(DataOutput outputIn) throws IOException, DataNotProcessedException
+	{
+		Snapshot current = this.snapshot;
+		if (current == null)
+		{
+			throw new DataNotProcessedException();
+		}
+		current.writeState(outputIn);
+	}
+
+	/**
+	 * Restores statistics written by writeState as the rows already added, before more rows are added
+	 *  through addRow, used when a ReportEngine updates its reports.
+	 * @param inputIn The input to read from.
+	 * @throws IOException Thrown if the input cannot be read.
+	 */
+	void readState(DataInput inputIn) throws IOException
+	{
+		this.pending.readState(inputIn);
+	}
+
+	/**
+	 * Appends the processed report to a builder, as it would be returned by YearReport's toString.
+	 * @param builder The builder to append to.
+	 * @return The builder.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	StringBuilder appendReport(StringBuilder builder) throws DataNotProcessedException
+	{
+		Snapshot current = this.snapshot;
+		if (current == null)
+		{
+			throw new DataNotProcessedException();
+		}
+		return this.format(builder, current);
+	}
+
+	/**
+	 * Appends the processed report to a builder as a JSON object of the form:
+	 *
+	 * {"year":YEAR,"revenue":STATISTICS,"profit":STATISTICS}
+	 *
+	 * Where each STATISTICS is an object as described by Statistics.appendJsonTo.
+	 * @param builder The builder to append to.
+	 * @return The builder.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	StringBuilder appendJson(StringBuilder builder) throws DataNotProcessedException
+	{
+		Snapshot current = this.snapshot;
+		if (current == null)
+		{
+			throw new DataNotProcessedException();
+		}
+		builder.append("{\"year\":").append(this.theYear);
+		current.revenues.appendJsonTo(builder.append(",\"revenue\":"));
+		current.profits.appendJsonTo(builder.append(",\"profit\":"));
+		return builder.append('}');
 	}
 
 	/**
 	 * Writes the processed report to the given file.
 	 * The given file's contents will look like the result of calling YearReport's toString.
+	 * Each write is recorded in the report's metrics, see getMetrics.
 	 * @param outputFile - File to write report to.
 	 * @return true if write successful, false if file cannot be created. 
 	 * @throws DataNotProcessedException \\
 	 */
 	public boolean writeReport(File outputFile) throws DataNotProcessedException
 	{
-		if (!this.isProcessed)
+		Snapshot current = this.snapshot;
+		if (current == null)
 		{
 			throw new DataNotProcessedException();
 		}
 		boolean result;
 		try
 		{
-			FileOutputStream fos = new FileOutputStream(outputFile);
-			PrintWriter writer =  new PrintWriter(fos);
-			writer.print(this.toString());
-			writer.close();
-			fos.close();
+			ReportMetrics.WriteEvent event = ReportMetrics.beginWrite();
+			long started = System.nanoTime();
+			StringBuilder text = this.format(ReportWriter.builder(), current);
+			long formatted = System.nanoTime();
+			long bytes = ReportWriter.write(outputFile, text);
+			this.getMetrics().recordWrite(event, "YearReport", this.theYear, outputFile.getPath(), bytes,
+					formatted - started, System.nanoTime() - formatted);
 			result = true;
 		} 
 		catch (IOException e) 
@@ -324,15 +762,25 @@ public class YearReport implements Report
 	@Override
 	public String toString()
 	{
-		String result;
-		result = String.format("Fortune 500 Report for %d\n"
-				+ "Revenue\n"
-				+ "Min: %.3f Max: %.3f Avg: %.3f StD: %.3f\n"
-				+ "Profit\n"
-				+ "Min: %.3f Max: %.3f Avg: %.3f StD: %.3f", this.getYear(), this.minRevenue, 
-				this.maxRevenue, this.avgRevenue, this.sDRevenue, this.minProfit,
-				this.maxProfit, this.avgProfit, this.sDProfit);
-		return result;
+		Snapshot current = this.snapshot;
+		if (current == null)
+		{
+			current = new Snapshot();
+		}
+		return this.format(ReportWriter.builder(), current).toString();
+	}
+
+	/**
+	 * Appends the statistics of one snapshot to a builder as described by toString.
+	 * @param builder The builder to append to.
+	 * @param current The snapshot to format.
+	 * @return The builder.
+	 */
+	private StringBuilder format(StringBuilder builder, Snapshot current)
+	{
+		ReportWriter.appendWhole(builder.append("Fortune 500 Report for "), this.getYear());
+		current.revenues.appendTo(builder.append("\nRevenue\n"));
+		return current.profits.appendTo(builder.append("\nProfit\n"));
 	}
 
 	/**
@@ -343,4 +791,52 @@ public class YearReport implements Report
 	{
 		return this.theYear;
 	}
+
+	/**
+	 * Returns how rows with a missing revenue or profit are treated.
+	 * @return The policy, MissingValues.COUNT unless set with setMissingValues.
+	 */
+	public MissingValues getMissingValues()
+	{
+		return this.missingValues;
+	}
+
+	/**
+	 * Sets how rows with a missing revenue or profit are treated the next time the report is processed.
+	 * @param missingValuesIn - The policy.
+	 */
+	public void setMissingValues(MissingValues missingValuesIn)
+	{
+		this.missingValues = missingValuesIn;
+	}
+
+	/**
+	 * Returns the number of missing revenues and profits found in the year's rows by the last processing,
+	 *  counted whatever the report's MissingValues policy.
+	 * @return The number of missing values.
+	 * @throws DataNotProcessedException Thrown if the report has not yet been processed.
+	 */
+	public int getMissingCount() throws DataNotProcessedException
+	{
+		Snapshot current = this.snapshot;
+		if (current == null)
+		{
+			throw new DataNotProcessedException();
+		}
+		return current.missing;
+	}
+
+	/**
+	 * Returns the counts and timings of every processing and writing of this report. The metrics can be
+	 *  registered with JMX, see ReportMetrics.register.
+	 * @return The report's metrics.
+	 */
+	public synchronized ReportMetrics getMetrics()
+	{
+		if (this.metrics == null)
+		{
+			this.metrics = new ReportMetrics();
+		}
+		return this.metrics;
+	}
 }
@@ -0,0 +1,582 @@
+// NAME: Logan Noonan
+
+package reports.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * A compact columnar binary copy of a Fortune 500 csv file, read through a memory mapping.
+ * The cache holds one column each of years, ranks, company ids, revenues, and profits, followed by the
+ *  dictionary of company names the ids refer to, so a scan of one column only touches that column's bytes.
+ * The cache records the length, last modified time, and CRC-32 checksum of the csv file it was converted
+ *  from and is only used while it still matches that file. A cache is written to a temporary file that then
+ *  replaces the cache file, and a cache file whose length does not match its header is not used, so a
+ *  cache is never read while it is partly written.
+ * Processing a report does not convert its file, since a report that reads one year or one company
+ *  would pay for reading every row; a cache is written by convert, which the launcher's cache and snapshot
+ *  commands call, see ReportLauncher, and from then on YearReport, CompanyReport, CompanyTimeSeriesReport,
+ *  ReportEngine, and ReportQuery read it whenever it matches its csv file.
+ * An opened cache is kept until its file or its csv file changes, so reports processed one after another
+ *  map the file once, and the company names are only decoded when a company is first looked up.
+ * The cache file is of the form:
+ *
+ * MAGIC VERSION SOURCELENGTH SOURCEMODIFIED SOURCECHECKSUM ROWS COMPANIES
+ * YEARS RANKS COMPANYIDS (padding) REVENUES PROFITS
+ * NAMES
+ *
+ * Where the header values are ints and longs, the columns are ROWS ints or doubles each, padded so the
+ *  doubles are aligned to eight bytes, and NAMES is COMPANIES names each stored as an int length
+ *  followed by that many bytes of UTF-8.
+ * @author Logan Noonan
+ *
+ */
+public class ColumnarCache
+{
+	/**
+	 * The suffix added to the name of a csv file to name its cache.
+	 */
+	public static final String SUFFIX = ".f500c";
+
+	/**
+	 * The first int of every cache file.
+	 */
+	private static final int MAGIC = 0x46353030;
+
+	/**
+	 * The version of the cache file layout.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * The number of bytes in the header.
+	 */
+	private static final int HEADER_SIZE = 40;
+
+	/**
+	 * The position of the source's last modified time in the header.
+	 */
+	private static final int MODIFIED_POSITION = 16;
+
+	/**
+	 * The caches opened so far, keyed by the absolute path of their csv file.
+	 */
+	private static final Map<String, ColumnarCache> OPENED = new ConcurrentHashMap<String, ColumnarCache>();
+
+	/**
+	 * The mapped bytes of the cache file.
+	 */
+	private MappedByteBuffer mapping;
+
+	/**
+	 * The length of the cache file when it was opened.
+	 */
+	private final long fileLength;
+
+	/**
+	 * The last modified time of the cache file when it was opened.
+	 */
+	private final long fileModified;
+
+	/**
+	 * The number of rows in the cache.
+	 */
+	private int rowCount;
+
+	/**
+	 * The number of companies in the dictionary.
+	 */
+	private int companyCount;
+
+	/**
+	 * The position of the first company name in the mapped file.
+	 */
+	private int namesPosition;
+
+	/**
+	 * The column of years.
+	 */
+	private IntBuffer years;
+
+	/**
+	 * The column of ranks.
+	 */
+	private IntBuffer ranks;
+
+	/**
+	 * The column of company ids.
+	 */
+	private IntBuffer companyIds;
+
+	/**
+	 * The column of revenues.
+	 */
+	private DoubleBuffer revenues;
+
+	/**
+	 * The column of profits.
+	 */
+	private DoubleBuffer profits;
+
+	/**
+	 * The company names, indexed by company id, or null until a company is first looked up.
+	 */
+	private String[] companies;
+
+	/**
+	 * The ids of the companies of each normalized name, see CompanyIndex.normalize, or null until a company
+	 *  is first looked up.
+	 */
+	private Map<String, int[]> companyIdsByKey;
+
+	/**
+	 * Creates new ColumnarCache over the mapped bytes of a cache file whose length has been checked
+	 *  against its header, see isComplete.
+	 * @param mappingIn The mapped cache file.
+	 * @param fileLengthIn The length of the cache file.
+	 * @param fileModifiedIn The last modified time of the cache file.
+	 */
+	private ColumnarCache(MappedByteBuffer mappingIn, long fileLengthIn, long fileModifiedIn)
+	{
+		this.mapping = mappingIn;
+		this.fileLength = fileLengthIn;
+		this.fileModified = fileModifiedIn;
+		int rowCountIn = mappingIn.getInt(32);
+		this.rowCount = rowCountIn;
+		this.companyCount = mappingIn.getInt(36);
+		int position = HEADER_SIZE;
+		this.years = this.slice(position, rowCountIn * Integer.BYTES).asIntBuffer();
+		position += rowCountIn * Integer.BYTES;
+		this.ranks = this.slice(position, rowCountIn * Integer.BYTES).asIntBuffer();
+		position += rowCountIn * Integer.BYTES;
+		this.companyIds = this.slice(position, rowCountIn * Integer.BYTES).asIntBuffer();
+		position = align(position + rowCountIn * Integer.BYTES);
+		this.revenues = this.slice(position, rowCountIn * Double.BYTES).asDoubleBuffer();
+		position += rowCountIn * Double.BYTES;
+		this.profits = this.slice(position, rowCountIn * Double.BYTES).asDoubleBuffer();
+		position += rowCountIn * Double.BYTES;
+		this.namesPosition = position;
+	}
+
+	/**
+	 * Checks that a mapped cache file is exactly as long as the rows and names its header counts.
+	 * @param mapping The mapped cache file, at least HEADER_SIZE bytes long.
+	 * @return true if the file holds every row and name, false if it is cut short or too long.
+	 */
+	private static boolean isComplete(MappedByteBuffer mapping)
+	{
+		long rows = mapping.getInt(32);
+		long companies = mapping.getInt(36);
+		long size = mapping.limit();
+		if (rows < 0 || companies < 0)
+		{
+			return false;
+		}
+		long position = align(HEADER_SIZE + 3 * rows * Integer.BYTES) + 2 * rows * Double.BYTES;
+		for (long id = 0; id < companies; id++)
+		{
+			if (position + Integer.BYTES > size)
+			{
+				return false;
+			}
+			int length = mapping.getInt((int) position);
+			if (length < 0)
+			{
+				return false;
+			}
+			position += Integer.BYTES + length;
+		}
+		return position == size;
+	}
+
+	/**
+	 * Decodes the company names the first time a company is looked up.
+	 */
+	private synchronized void decodeNames()
+	{
+		if (this.companies != null)
+		{
+			return;
+		}
+		ByteBuffer names = this.slice(this.namesPosition, this.mapping.limit() - this.namesPosition);
+		String[] decoded = new String[this.companyCount];
+		Map<String, int[]> ids = new HashMap<String, int[]>(this.companyCount * 2);
+		for (int id = 0; id < this.companyCount; id++)
+		{
+			byte[] name = new byte[names.getInt()];
+			names.get(name);
+			decoded[id] = new String(name, StandardCharsets.UTF_8);
+			String key = CompanyIndex.normalize(decoded[id]);
+			int[] found = ids.get(key);
+			found = found == null ? new int[1] : Arrays.copyOf(found, found.length + 1);
+			found[found.length - 1] = id;
+			ids.put(key, found);
+		}
+		this.companyIdsByKey = ids;
+		this.companies = decoded;
+	}
+
+	/**
+	 * Returns a view of part of the mapped file.
+	 * @param position The position of the first byte of the view.
+	 * @param length The number of bytes in the view.
+	 * @return The view.
+	 */
+	private ByteBuffer slice(int position, int length)
+	{
+		ByteBuffer view = this.mapping.duplicate();
+		view.position(position);
+		view.limit(position + length);
+		return view.slice();
+	}
+
+	/**
+	 * Rounds a position up to the next multiple of eight.
+	 * @param position The position.
+	 * @return The aligned position.
+	 */
+	private static int align(int position)
+	{
+		return (position + Double.BYTES - 1) & -Double.BYTES;
+	}
+
+	/**
+	 * Rounds a position up to the next multiple of eight.
+	 * @param position The position.
+	 * @return The aligned position.
+	 */
+	private static long align(long position)
+	{
+		return (position + Double.BYTES - 1) & -Double.BYTES;
+	}
+
+	/**
+	 * Returns the cache file of the given csv file.
+	 * @param sourceIn - A Fortune 500 csv file.
+	 * @return The file the csv file's cache is stored in.
+	 */
+	public static File cacheFileFor(File sourceIn)
+	{
+		return new File(sourceIn.getPath() + SUFFIX);
+	}
+
+	/**
+	 * Opens the cache of the given csv file if the cache exists and is up to date.
+	 * A cache is up to date if it records the csv file's length and last modified time; if only
+	 *  the time differs, the csv file's checksum is compared instead, and the cache's recorded
+	 *  time is refreshed when the checksums match.
+	 * The cache opened last for the csv file is returned again while neither file has changed.
+	 * @param sourceIn - A Fortune 500 csv file.
+	 * @return The cache, or null if there is no up to date, complete cache.
+	 * @throws IOException Thrown if the cache or the csv file cannot be read.
+	 */
+	public static ColumnarCache openIfCurrent(File sourceIn) throws IOException
+	{
+		File cacheFile = cacheFileFor(sourceIn);
+		String path = sourceIn.getAbsolutePath();
+		if (!sourceIn.isFile() || !cacheFile.isFile() || cacheFile.length() < HEADER_SIZE)
+		{
+			OPENED.remove(path);
+			return null;
+		}
+		ColumnarCache opened = OPENED.get(path);
+		if (opened != null && opened.fileLength == cacheFile.length() && opened.fileModified == cacheFile.lastModified()
+				&& opened.mapping.getLong(8) == sourceIn.length()
+				&& opened.mapping.getLong(MODIFIED_POSITION) == sourceIn.lastModified())
+		{
+			return opened;
+		}
+		OPENED.remove(path);
+		long modified = cacheFile.lastModified();
+		try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ))
+		{
+			long size = channel.size();
+			if (size < HEADER_SIZE || size > Integer.MAX_VALUE)
+			{
+				return null;
+			}
+			MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if (mapping.getInt(0) != MAGIC || mapping.getInt(4) != VERSION
+					|| mapping.getLong(8) != sourceIn.length() || !isComplete(mapping))
+			{
+				return null;
+			}
+			if (mapping.getLong(MODIFIED_POSITION) != sourceIn.lastModified())
+			{
+				if (mapping.getLong(24) != checksum(sourceIn))
+				{
+					return null;
+				}
+				if (!refreshModified(cacheFile, sourceIn.lastModified()))
+				{
+					// The cache is still usable, but is not kept, so the checksum is compared again next time.
+					return new ColumnarCache(mapping, size, modified);
+				}
+				modified = cacheFile.lastModified();
+			}
+			ColumnarCache result = new ColumnarCache(mapping, size, modified);
+			OPENED.put(path, result);
+			return result;
+		}
+	}
+
+	/**
+	 * Records a new last modified time for the csv file in a cache whose checksum still matches.
+	 * The cache is still usable if the time cannot be written.
+	 * @param cacheFile The cache file.
+	 * @param modified The csv file's last modified time.
+	 * @return true if the time was written, false if the checksum will be compared again next time.
+	 */
+	private static boolean refreshModified(File cacheFile, long modified)
+	{
+		try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.WRITE))
+		{
+			ByteBuffer time = ByteBuffer.allocate(Long.BYTES);
+			time.putLong(0, modified);
+			channel.write(time, MODIFIED_POSITION);
+			return true;
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Computes the CRC-32 checksum of a file, as a cache records it for its csv file.
+	 * @param fileIn - The file.
+	 * @return The checksum.
+	 * @throws IOException Thrown if the file cannot be read.
+	 */
+	public static long checksum(File fileIn) throws IOException
+	{
+		CRC32 crc = new CRC32();
+		try (InputStream input = new FileInputStream(fileIn))
+		{
+			byte[] chunk = new byte[64 * 1024];
+			int read = input.read(chunk);
+			while (read >= 0)
+			{
+				crc.update(chunk, 0, read);
+				read = input.read(chunk);
+			}
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * Converts a csv file to its cache, replacing any cache already there, and opens the new cache.
+	 * The cache is written to a temporary file in the same directory that then replaces the cache file,
+	 *  so a cache being opened at the same time is either the old cache or the new one.
+	 * The csv file can be assumed is formatted correctly.
+	 * @param sourceIn - A Fortune 500 csv file.
+	 * @return The new cache.
+	 * @throws IOException Thrown if the csv file cannot be read or the cache cannot be written.
+	 */
+	public static ColumnarCache convert(File sourceIn) throws IOException
+	{
+		long length = sourceIn.length();
+		long modified = sourceIn.lastModified();
+		int rows = 0;
+		int[] years = new int[1024];
+		int[] ranks = new int[1024];
+		int[] ids = new int[1024];
+		double[] revenues = new double[1024];
+		double[] profits = new double[1024];
+		List<String> companies = new ArrayList<String>();
+		Map<String, Integer> companyIds = new HashMap<String, Integer>();
+
+		CheckedInputStream checked = new CheckedInputStream(new FileInputStream(sourceIn), new CRC32());
+		try (CsvRowReader rowReader = new CsvRowReader(checked))
+		{
+			rowReader.nextRow(); // Skip the first line since it is column names.
+			while (rowReader.nextRow())
+			{
+				if (rows == years.length)
+				{
+					years = Arrays.copyOf(years, rows * 2);
+					ranks = Arrays.copyOf(ranks, rows * 2);
+					ids = Arrays.copyOf(ids, rows * 2);
+					revenues = Arrays.copyOf(revenues, rows * 2);
+					profits = Arrays.copyOf(profits, rows * 2);
+				}
+				String company = rowReader.getCompany();
+				Integer id = companyIds.get(company);
+				if (id == null)
+				{
+					id = companies.size();
+					companies.add(company);
+					companyIds.put(company, id);
+				}
+				years[rows] = rowReader.getYear();
+				ranks[rows] = rowReader.getRank();
+				ids[rows] = id;
+				revenues[rows] = rowReader.getRevenue();
+				profits[rows] = rowReader.getProfit();
+				rows++;
+			}
+		}
+
+		List<byte[]> names = new ArrayList<byte[]>(companies.size());
+		int namesLength = 0;
+		for (String company : companies)
+		{
+			byte[] name = company.getBytes(StandardCharsets.UTF_8);
+			names.add(name);
+			namesLength += Integer.BYTES + name.length;
+		}
+		int doublesStart = align(HEADER_SIZE + 3 * rows * Integer.BYTES);
+		ByteBuffer out = ByteBuffer.allocate(doublesStart + 2 * rows * Double.BYTES + namesLength);
+		out.putInt(MAGIC).putInt(VERSION).putLong(length).putLong(modified);
+		out.putLong(checked.getChecksum().getValue()).putInt(rows).putInt(companies.size());
+		out.asIntBuffer().put(years, 0, rows).put(ranks, 0, rows).put(ids, 0, rows);
+		out.position(doublesStart);
+		out.asDoubleBuffer().put(revenues, 0, rows).put(profits, 0, rows);
+		out.position(doublesStart + 2 * rows * Double.BYTES);
+		for (byte[] name : names)
+		{
+			out.putInt(name.length).put(name);
+		}
+		out.flip();
+
+		File cacheFile = cacheFileFor(sourceIn).getAbsoluteFile();
+		Path temporary = Files.createTempFile(cacheFile.getParentFile().toPath(), cacheFile.getName(), ".tmp");
+		try
+		{
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE))
+			{
+				while (out.hasRemaining())
+				{
+					channel.write(out);
+				}
+			}
+			Files.move(temporary, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally
+		{
+			Files.deleteIfExists(temporary);
+		}
+		return openIfCurrent(sourceIn);
+	}
+
+	/**
+	 * Returns the number of rows in the cache.
+	 * @return The number of rows.
+	 */
+	public int getRowCount()
+	{
+		return this.rowCount;
+	}
+
+	/**
+	 * Returns the year of a row.
+	 * @param row The index of the row.
+	 * @return The year.
+	 */
+	public int getYear(int row)
+	{
+		return this.years.get(row);
+	}
+
+	/**
+	 * Returns the rank of a row.
+	 * @param row The index of the row.
+	 * @return The rank.
+	 */
+	public int getRank(int row)
+	{
+		return this.ranks.get(row);
+	}
+
+	/**
+	 * Returns the company id of a row.
+	 * @param row The index of the row.
+	 * @return The company id.
+	 */
+	public int getCompanyId(int row)
+	{
+		return this.companyIds.get(row);
+	}
+
+	/**
+	 * Returns the revenue of a row.
+	 * @param row The index of the row.
+	 * @return The revenue.
+	 */
+	public double getRevenue(int row)
+	{
+		return this.revenues.get(row);
+	}
+
+	/**
+	 * Returns the profit of a row.
+	 * @param row The index of the row.
+	 * @return The profit.
+	 */
+	public double getProfit(int row)
+	{
+		return this.profits.get(row);
+	}
+
+	/**
+	 * Returns the number of distinct companies in the cache.
+	 * @return The number of companies.
+	 */
+	public int getCompanyCount()
+	{
+		return this.companyCount;
+	}
+
+	/**
+	 * Returns the name of a company.
+	 * @param id The company id.
+	 * @return The company's name.
+	 */
+	public String getCompany(int id)
+	{
+		this.decodeNames();
+		return this.companies[id];
+	}
+
+	/**
+	 * Finds the ids of the companies whose names are the same as a name once normalized by
+	 *  CompanyIndex.normalize, which are the companies whose rows a CompanyIndex finds for it.
+	 * @param companyIn The company's name.
+	 * @return The company ids in increasing order, empty if the company is not in the cache or is null.
+	 */
+	public int[] findMatching(String companyIn)
+	{
+		if (companyIn == null)
+		{
+			return new int[0];
+		}
+		this.decodeNames();
+		int[] ids = this.companyIdsByKey.get(CompanyIndex.normalize(companyIn));
+		if (ids == null)
+		{
+			return new int[0];
+		}
+		return ids.clone();
+	}
+}
@@ -0,0 +1,627 @@
+// NAME: Logan Noonan
+
+package reports.io;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A dictionary of the distinct company names of a Fortune 500 data file, each given a dense int id in
+ *  the order it is first added, so rows can carry ids and be compared as ints.
+ * Names are added straight from the bytes of a CsvRowReader's company field, see CsvRowReader.getCompanyId:
+ *  the bytes are hashed and compared in place, and a String is only created the first time a name is seen,
+ *  so each distinct name is held once however many rows it has.
+ * Besides exact lookups, the dictionary finds names by prefix and by edit distance, ignoring case and extra
+ *  spaces as CompanyIndex.normalize does.
+ * Names that are the same once normalized share a key id, given as a name is added, so reports can group
+ *  the rows of such names by int; the normalized hash of a name of ASCII characters is worked out without
+ *  creating its normalized String.
+ * Names are added by one thread at a time; once every name has been added, the dictionary may be read and
+ *  searched by any number of threads. A dictionary shared with other code can be frozen first, so no more
+ *  names can be added to it.
+ * @author Logan Noonan
+ *
+ */
+public class CompanyDictionary
+{
+	/**
+	 * The charset the names' bytes are encoded with.
+	 */
+	private Charset charset;
+
+	/**
+	 * The name of each id.
+	 */
+	private String[] names;
+
+	/**
+	 * The encoded bytes of each id's name.
+	 */
+	private byte[][] bytes;
+
+	/**
+	 * The hash of each id's bytes.
+	 */
+	private int[] hashes;
+
+	/**
+	 * The number of ids.
+	 */
+	private int size;
+
+	/**
+	 * An open addressing hash table of ids plus one, where 0 is an empty slot; its length is a power of two.
+	 */
+	private int[] table;
+
+	/**
+	 * The key id of each id.
+	 */
+	private int[] keys;
+
+	/**
+	 * The first id of each key id.
+	 */
+	private int[] keyNames;
+
+	/**
+	 * The hash of each key id's normalized name.
+	 */
+	private int[] keyHashes;
+
+	/**
+	 * The number of key ids.
+	 */
+	private int keyCount;
+
+	/**
+	 * An open addressing hash table of key ids plus one, where 0 is an empty slot; its length is a power of two.
+	 */
+	private int[] keyTable;
+
+	/**
+	 * The ids in order of normalized name, for prefix searches, or null if names were added since it was built.
+	 */
+	private int[] sorted;
+
+	/**
+	 * The normalized name of each id in sorted, in the same order.
+	 */
+	private String[] sortedKeys;
+
+	/**
+	 * Whether names can no longer be added, see freeze.
+	 */
+	private boolean frozen;
+
+	/**
+	 * Creates new CompanyDictionary for names encoded with the platform's default charset.
+	 */
+	public CompanyDictionary()
+	{
+		this(Charset.defaultCharset());
+	}
+
+	/**
+	 * Creates new CompanyDictionary.
+	 * @param charsetIn - Charset the company names of the rows are encoded with.
+	 */
+	public CompanyDictionary(Charset charsetIn)
+	{
+		this.charset = charsetIn;
+		this.names = new String[256];
+		this.bytes = new byte[256][];
+		this.hashes = new int[256];
+		this.size = 0;
+		this.table = new int[512];
+		this.keys = new int[256];
+		this.keyNames = new int[256];
+		this.keyHashes = new int[256];
+		this.keyCount = 0;
+		this.keyTable = new int[512];
+		this.sorted = null;
+		this.frozen = false;
+	}
+
+	/**
+	 * Returns the charset the names' bytes are encoded with.
+	 * @return The charset.
+	 */
+	public Charset getCharset()
+	{
+		return this.charset;
+	}
+
+	/**
+	 * Returns the id of a name, adding the name if it is new.
+	 * @param nameIn - A company name.
+	 * @return The name's id.
+	 * @throws IllegalStateException Thrown if the name is new and the dictionary is frozen.
+	 */
+	public int intern(String nameIn)
+	{
+		byte[] encoded = nameIn.getBytes(this.charset);
+		return this.intern(encoded, 0, encoded.length, nameIn);
+	}
+
+	/**
+	 * Returns the id of the name held in part of an array of bytes, adding the name if it is new.
+	 * @param array The array.
+	 * @param start The index of the name's first byte.
+	 * @param end The index after the name's last byte.
+	 * @param nameIn The decoded name, or null to decode it only if the name is new.
+	 * @return The name's id.
+	 * @throws IllegalStateException Thrown if the name is new and the dictionary is frozen.
+	 */
+	int intern(byte[] array, int start, int end, String nameIn)
+	{
+		int hash = hash(array, start, end);
+		int mask = this.table.length - 1;
+		int slot = hash & mask;
+		while (this.table[slot] != 0)
+		{
+			int id = this.table[slot] - 1;
+			if (this.hashes[id] == hash && Arrays.equals(this.bytes[id], 0, this.bytes[id].length, array, start, end))
+			{
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+		if (this.frozen)
+		{
+			throw new IllegalStateException("The company dictionary is read only.");
+		}
+		int id = this.size++;
+		if (id == this.names.length)
+		{
+			this.names = Arrays.copyOf(this.names, id * 2);
+			this.bytes = Arrays.copyOf(this.bytes, id * 2);
+			this.hashes = Arrays.copyOf(this.hashes, id * 2);
+			this.keys = Arrays.copyOf(this.keys, id * 2);
+		}
+		this.bytes[id] = Arrays.copyOfRange(array, start, end);
+		this.names[id] = nameIn != null ? nameIn : new String(array, start, end - start, this.charset);
+		this.hashes[id] = hash;
+		this.table[slot] = id + 1;
+		this.keys[id] = this.addKey(id);
+		this.sorted = null;
+		if (this.size * 2 > this.table.length)
+		{
+			this.table = rehash(this.table, this.hashes, this.size);
+		}
+		return id;
+	}
+
+	/**
+	 * Finds the key id of a newly added name, giving it a new key id if no name before it is the same once
+	 *  normalized.
+	 * @param id The name's id.
+	 * @return The key id.
+	 */
+	private int addKey(int id)
+	{
+		String name = this.names[id];
+		int hash = keyHash(name);
+		int mask = this.keyTable.length - 1;
+		int slot = hash & mask;
+		String key = null;
+		while (this.keyTable[slot] != 0)
+		{
+			int keyId = this.keyTable[slot] - 1;
+			if (this.keyHashes[keyId] == hash)
+			{
+				if (key == null)
+				{
+					key = CompanyIndex.normalize(name);
+				}
+				if (key.equals(CompanyIndex.normalize(this.names[this.keyNames[keyId]])))
+				{
+					return keyId;
+				}
+			}
+			slot = (slot + 1) & mask;
+		}
+		int keyId = this.keyCount++;
+		if (keyId == this.keyNames.length)
+		{
+			this.keyNames = Arrays.copyOf(this.keyNames, keyId * 2);
+			this.keyHashes = Arrays.copyOf(this.keyHashes, keyId * 2);
+		}
+		this.keyNames[keyId] = id;
+		this.keyHashes[keyId] = hash;
+		this.keyTable[slot] = keyId + 1;
+		if (this.keyCount * 2 > this.keyTable.length)
+		{
+			this.keyTable = rehash(this.keyTable, this.keyHashes, this.keyCount);
+		}
+		return keyId;
+	}
+
+	/**
+	 * Hashes the normalized name of a name, see CompanyIndex.normalize. A name of ASCII characters is
+	 *  normalized as it is hashed, so only other names are normalized first.
+	 * @param name The name.
+	 * @return The hash of the normalized name, with its bits spread, see spread.
+	 */
+	private static int keyHash(String name)
+	{
+		int result = 0;
+		boolean started = false;
+		boolean space = false;
+		for (int index = 0; index < name.length(); index++)
+		{
+			char next = name.charAt(index);
+			if (next >= 0x80)
+			{
+				result = CompanyIndex.normalize(name).hashCode();
+				break;
+			}
+			if (Character.isWhitespace(next))
+			{
+				space = started;
+			}
+			else
+			{
+				if (space)
+				{
+					result = 31 * result + ' ';
+					space = false;
+				}
+				result = 31 * result + (next >= 'A' && next <= 'Z' ? next + ('a' - 'A') : next);
+				started = true;
+			}
+		}
+		return spread(result);
+	}
+
+	/**
+	 * Makes the dictionary read only: names already added keep their ids and can still be looked up and
+	 *  searched, but adding a new name throws IllegalStateException.
+	 */
+	public void freeze()
+	{
+		this.frozen = true;
+	}
+
+	/**
+	 * Checks whether the dictionary is read only, see freeze.
+	 * @return true if no more names can be added.
+	 */
+	public boolean isFrozen()
+	{
+		return this.frozen;
+	}
+
+	/**
+	 * Doubles an open addressing hash table, keeping it at most half full.
+	 * @param table The table of ids plus one.
+	 * @param hashes The hash of each id.
+	 * @param count The number of ids.
+	 * @return The larger table.
+	 */
+	private static int[] rehash(int[] table, int[] hashes, int count)
+	{
+		int[] larger = new int[table.length * 2];
+		int mask = larger.length - 1;
+		for (int id = 0; id < count; id++)
+		{
+			int slot = hashes[id] & mask;
+			while (larger[slot] != 0)
+			{
+				slot = (slot + 1) & mask;
+			}
+			larger[slot] = id + 1;
+		}
+		return larger;
+	}
+
+	/**
+	 * Spreads the bits of a hash so nearby names use distant slots. Names that differ only in a number, as
+	 *  "Company 1" to "Company 9999" do, have hashes close together, which would otherwise fill a run of
+	 *  slots that every probe landing in it must walk to its end.
+	 * @param hash The hash.
+	 * @return The spread hash.
+	 */
+	private static int spread(int hash)
+	{
+		int mixed = hash * 0x9E3779B9;
+		return mixed ^ (mixed >>> 16);
+	}
+
+	/**
+	 * Hashes part of an array of bytes.
+	 * @param array The array.
+	 * @param start The index of the first byte.
+	 * @param end The index after the last byte.
+	 * @return The hash, with its bits spread, see spread.
+	 */
+	private static int hash(byte[] array, int start, int end)
+	{
+		int result = 1;
+		for (int index = start; index < end; index++)
+		{
+			result = 31 * result + array[index];
+		}
+		return spread(result);
+	}
+
+	/**
+	 * Finds the id of a name without adding it. Reports match companies by normalized name, see findMatching.
+	 * @param nameIn - The exact company name.
+	 * @return The name's id, or -1 if the name is not in the dictionary.
+	 */
+	public int find(String nameIn)
+	{
+		byte[] encoded = nameIn.getBytes(this.charset);
+		int hash = hash(encoded, 0, encoded.length);
+		int mask = this.table.length - 1;
+		for (int slot = hash & mask; this.table[slot] != 0; slot = (slot + 1) & mask)
+		{
+			int id = this.table[slot] - 1;
+			if (this.hashes[id] == hash && Arrays.equals(this.bytes[id], encoded))
+			{
+				return id;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the key id of a name without adding it: the key id of the names that are the same as it once
+	 *  normalized by CompanyIndex.normalize.
+	 * @param nameIn - A company name.
+	 * @return The key id, or -1 if no name in the dictionary is the same once normalized.
+	 */
+	public int findKey(String nameIn)
+	{
+		int hash = keyHash(nameIn);
+		int mask = this.keyTable.length - 1;
+		String key = null;
+		for (int slot = hash & mask; this.keyTable[slot] != 0; slot = (slot + 1) & mask)
+		{
+			int keyId = this.keyTable[slot] - 1;
+			if (this.keyHashes[keyId] == hash)
+			{
+				if (key == null)
+				{
+					key = CompanyIndex.normalize(nameIn);
+				}
+				if (key.equals(CompanyIndex.normalize(this.names[this.keyNames[keyId]])))
+				{
+					return keyId;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the key id of an id. Key ids are given in the order their first names are added, so a name
+	 *  whose key id is the number of key ids before it is the first name of its key.
+	 * @param idIn - The id.
+	 * @return The key id.
+	 */
+	public int getKeyId(int idIn)
+	{
+		if (idIn < 0 || idIn >= this.size)
+		{
+			throw new IndexOutOfBoundsException("No company has id " + idIn);
+		}
+		return this.keys[idIn];
+	}
+
+	/**
+	 * Returns the name of an id.
+	 * @param idIn - The id.
+	 * @return The name.
+	 */
+	public String getName(int idIn)
+	{
+		if (idIn < 0 || idIn >= this.size)
+		{
+			throw new IndexOutOfBoundsException("No company has id " + idIn);
+		}
+		return this.names[idIn];
+	}
+
+	/**
+	 * Returns the number of distinct names, which is one more than the largest id.
+	 * @return The number of names.
+	 */
+	public int getSize()
+	{
+		return this.size;
+	}
+
+	/**
+	 * Finds the names that start with a prefix, ignoring case and extra spaces.
+	 * @param prefixIn - The start of the names to find.
+	 * @return The ids of the names found, in order of normalized name.
+	 */
+	public synchronized int[] findPrefix(String prefixIn)
+	{
+		this.sort();
+		String prefix = CompanyIndex.normalize(prefixIn);
+		int low = this.firstAtLeast(prefix);
+		int end = low;
+		while (end < this.sortedKeys.length && this.sortedKeys[end].startsWith(prefix))
+		{
+			end++;
+		}
+		return Arrays.copyOfRange(this.sorted, low, end);
+	}
+
+	/**
+	 * Finds the names that are the same as a name once normalized by CompanyIndex.normalize, which are
+	 *  the names whose rows a CompanyIndex finds for it.
+	 * @param nameIn - The name to look for.
+	 * @return The ids of the names found, in order of id, empty if the name is null.
+	 */
+	public synchronized int[] findMatching(String nameIn)
+	{
+		if (nameIn == null)
+		{
+			return new int[0];
+		}
+		this.sort();
+		String key = CompanyIndex.normalize(nameIn);
+		int low = this.firstAtLeast(key);
+		int end = low;
+		while (end < this.sortedKeys.length && this.sortedKeys[end].equals(key))
+		{
+			end++;
+		}
+		// The sort is stable, so ids of equal names are already in order of id.
+		return Arrays.copyOfRange(this.sorted, low, end);
+	}
+
+	/**
+	 * Finds the first sorted name that is not before a normalized name.
+	 * @param key The normalized name.
+	 * @return The index in sortedKeys of the first name not before the key.
+	 */
+	private int firstAtLeast(String key)
+	{
+		int low = 0;
+		int high = this.sortedKeys.length;
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+			if (this.sortedKeys[middle].compareTo(key) < 0)
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Finds the names within an edit distance of a query, ignoring case and extra spaces, so misspelled
+	 *  names can be found. The distance counts the characters inserted, removed, or replaced.
+	 * @param queryIn - The name to look for.
+	 * @param maxDistanceIn - The largest edit distance of a name found.
+	 * @return The ids of the names found, closest first, and in order of normalized name at equal distance.
+	 */
+	public synchronized int[] findSimilar(String queryIn, int maxDistanceIn)
+	{
+		this.sort();
+		String query = CompanyIndex.normalize(queryIn);
+		int[] found = new int[this.sorted.length];
+		int[] distances = new int[this.sorted.length];
+		int count = 0;
+		int[] previous = new int[query.length() + 1];
+		int[] current = new int[query.length() + 1];
+		for (int index = 0; index < this.sorted.length; index++)
+		{
+			String key = this.sortedKeys[index];
+			if (Math.abs(key.length() - query.length()) > maxDistanceIn)
+			{
+				continue;
+			}
+			int distance = distance(key, query, maxDistanceIn, previous, current);
+			if (distance <= maxDistanceIn)
+			{
+				found[count] = this.sorted[index];
+				distances[count] = distance;
+				count++;
+			}
+		}
+		// A stable sort by distance keeps names of equal distance in name order.
+		int[] result = new int[count];
+		int next = 0;
+		for (int distance = 0; distance <= maxDistanceIn && next < count; distance++)
+		{
+			for (int index = 0; index < count; index++)
+			{
+				if (distances[index] == distance)
+				{
+					result[next++] = found[index];
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the edit distance between two names, stopping early once it must exceed a limit.
+	 * @param key The first name.
+	 * @param query The second name.
+	 * @param limit The largest distance of interest.
+	 * @param previous A row of working space, one longer than the query.
+	 * @param current A second row of working space, one longer than the query.
+	 * @return The distance, or a value above the limit if the distance is above the limit.
+	 */
+	private static int distance(String key, String query, int limit, int[] previous, int[] current)
+	{
+		for (int column = 0; column <= query.length(); column++)
+		{
+			previous[column] = column;
+		}
+		for (int row = 1; row <= key.length(); row++)
+		{
+			current[0] = row;
+			int lowest = row;
+			for (int column = 1; column <= query.length(); column++)
+			{
+				int cost = key.charAt(row - 1) == query.charAt(column - 1) ? 0 : 1;
+				current[column] = Math.min(Math.min(current[column - 1], previous[column]) + 1,
+						previous[column - 1] + cost);
+				lowest = Math.min(lowest, current[column]);
+			}
+			if (lowest > limit)
+			{
+				return limit + 1;
+			}
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return previous[query.length()];
+	}
+
+	/**
+	 * Sorts the ids by normalized name for searching, unless they are already sorted.
+	 */
+	private void sort()
+	{
+		if (this.sorted != null)
+		{
+			return;
+		}
+		final String[] keys = new String[this.size];
+		Integer[] order = new Integer[this.size];
+		for (int id = 0; id < this.size; id++)
+		{
+			keys[id] = CompanyIndex.normalize(this.names[id]);
+			order[id] = id;
+		}
+		Arrays.sort(order, new Comparator<Integer>()
+		{
+			/**
+			 * Compares the normalized names of two ids.
+			 * @param first The first id.
+			 * @param second The second id.
+			 * @return The comparison of the names.
+			 */
+			@Override
+			public int compare(Integer first, Integer second)
+			{
+				return keys[first].compareTo(keys[second]);
+			}
+		});
+		int[] ids = new int[this.size];
+		String[] sortedKeys = new String[this.size];
+		for (int index = 0; index < this.size; index++)
+		{
+			ids[index] = order[index];
+			sortedKeys[index] = keys[order[index]];
+		}
+		this.sortedKeys = sortedKeys;
+		this.sorted = ids;
+	}
+}
@@ -0,0 +1,533 @@
+// NAME: Logan Noonan
+
+package reports.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An index of the rows of every company in a Fortune 500 csv file.
+ * Companies are looked up by a normalized key, the name trimmed, with runs of spaces collapsed,
+ *  and in lower case, so "General Motors" and " general  MOTORS" find the same rows.
+ * Aliases map other names to a company, and are read from an optional aliases file next to the csv
+ *  file holding one ALIAS=COMPANY line per alias; they can also be added with addAlias, and those
+ *  take precedence over the file's.
+ * For each key the index keeps the number of each row among the file's rows, for use with a
+ *  ColumnarCache, and the byte offset and length of each row, so the rows can be read on their own.
+ * The index is kept in a sidecar file next to the csv file and is rebuilt automatically
+ *  whenever the csv file's length or last modified time no longer match the ones it records.
+ * @author Logan Noonan
+ *
+ */
+public class CompanyIndex
+{
+	/**
+	 * The suffix added to the name of a csv file to name its index.
+	 */
+	public static final String SUFFIX = ".cidx";
+
+	/**
+	 * The suffix added to the name of a csv file to name its aliases file.
+	 */
+	public static final String ALIASES_SUFFIX = ".aliases";
+
+	/**
+	 * The first int of every index file.
+	 */
+	private static final int MAGIC = 0x43494458;
+
+	/**
+	 * The version of the index file layout.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * The indexes already loaded, keyed by the absolute path of their csv file.
+	 */
+	private static final Map<String, CompanyIndex> LOADED = new ConcurrentHashMap<String, CompanyIndex>();
+
+	/**
+	 * The length of the csv file when the index was built.
+	 */
+	private long sourceLength;
+
+	/**
+	 * The last modified time of the csv file when the index was built.
+	 */
+	private long sourceModified;
+
+	/**
+	 * The rows of each company, keyed by normalized company name.
+	 */
+	private Map<String, Rows> companies;
+
+	/**
+	 * The normalized company name of each alias added with addAlias, keyed by normalized alias.
+	 */
+	private Map<String, String> aliases;
+
+	/**
+	 * The normalized company name of each alias read from the aliases file, keyed by normalized alias.
+	 */
+	private volatile Map<String, String> fileAliases;
+
+	/**
+	 * The last modified time of the aliases file when it was read, or 0 if it has not been read.
+	 */
+	private long aliasesModified;
+
+	/**
+	 * The rows of one company.
+	 */
+	private static class Rows
+	{
+		/**
+		 * The number of rows.
+		 */
+		private int count;
+
+		/**
+		 * The number of each row among the file's rows, not counting the column names.
+		 */
+		private int[] numbers;
+
+		/**
+		 * The offset of each row from the start of the file.
+		 */
+		private long[] offsets;
+
+		/**
+		 * The number of bytes in each row, including its line ending.
+		 */
+		private int[] lengths;
+
+		/**
+		 * Creates new Rows with room for the given number of rows.
+		 * @param capacity The number of rows to make room for.
+		 */
+		Rows(int capacity)
+		{
+			this.count = 0;
+			this.numbers = new int[capacity];
+			this.offsets = new long[capacity];
+			this.lengths = new int[capacity];
+		}
+
+		/**
+		 * Adds a row.
+		 * @param number The number of the row.
+		 * @param offset The offset of the row.
+		 * @param length The number of bytes in the row.
+		 */
+		void add(int number, long offset, int length)
+		{
+			if (this.count == this.numbers.length)
+			{
+				int capacity = Math.max(4, this.count * 2);
+				this.numbers = Arrays.copyOf(this.numbers, capacity);
+				this.offsets = Arrays.copyOf(this.offsets, capacity);
+				this.lengths = Arrays.copyOf(this.lengths, capacity);
+			}
+			this.numbers[this.count] = number;
+			this.offsets[this.count] = offset;
+			this.lengths[this.count] = length;
+			this.count++;
+		}
+	}
+
+	/**
+	 * Creates new empty CompanyIndex for a csv file.
+	 * @param sourceLengthIn The length of the csv file.
+	 * @param sourceModifiedIn The last modified time of the csv file.
+	 */
+	private CompanyIndex(long sourceLengthIn, long sourceModifiedIn)
+	{
+		this.sourceLength = sourceLengthIn;
+		this.sourceModified = sourceModifiedIn;
+		this.companies = new HashMap<String, Rows>();
+		this.aliases = new ConcurrentHashMap<String, String>();
+		this.fileAliases = new HashMap<String, String>();
+		this.aliasesModified = 0;
+	}
+
+	/**
+	 * Returns the index file of the given csv file.
+	 * @param sourceIn - A Fortune 500 csv file.
+	 * @return The file the csv file's index is stored in.
+	 */
+	public static File indexFileFor(File sourceIn)
+	{
+		return new File(sourceIn.getPath() + SUFFIX);
+	}
+
+	/**
+	 * Returns the aliases file of the given csv file.
+	 * @param sourceIn - A Fortune 500 csv file.
+	 * @return The file the csv file's aliases are read from.
+	 */
+	public static File aliasesFileFor(File sourceIn)
+	{
+		return new File(sourceIn.getPath() + ALIASES_SUFFIX);
+	}
+
+	/**
+	 * Returns the normalized key of a company name: trimmed, with runs of whitespace replaced by
+	 *  one space, and in lower case.
+	 * Names of ASCII characters, the usual case, are lower cased as they are copied, and a name that is
+	 *  already normalized is returned as it is, since ReportEngine normalizes every name of a file.
+	 * @param companyIn The company name.
+	 * @return The normalized key.
+	 */
+	public static String normalize(String companyIn)
+	{
+		int length = companyIn.length();
+		boolean normal = true;
+		for (int index = 0; index < length; index++)
+		{
+			char next = companyIn.charAt(index);
+			if (next >= 0x80)
+			{
+				return normalizeText(companyIn);
+			}
+			if (next >= 'A' && next <= 'Z')
+			{
+				normal = false;
+			}
+			else if (Character.isWhitespace(next) && (next != ' ' || index == 0 || index == length - 1
+					|| companyIn.charAt(index - 1) == ' '))
+			{
+				normal = false;
+			}
+		}
+		if (normal)
+		{
+			return companyIn;
+		}
+		char[] key = new char[length];
+		int used = 0;
+		boolean space = false;
+		for (int index = 0; index < length; index++)
+		{
+			char next = companyIn.charAt(index);
+			if (Character.isWhitespace(next))
+			{
+				space = used > 0;
+			}
+			else
+			{
+				if (space)
+				{
+					key[used++] = ' ';
+					space = false;
+				}
+				key[used++] = next >= 'A' && next <= 'Z' ? (char) (next + ('a' - 'A')) : next;
+			}
+		}
+		return new String(key, 0, used);
+	}
+
+	/**
+	 * Returns the normalized key of a company name that may hold characters other than ASCII, see normalize.
+	 * @param companyIn The company name.
+	 * @return The normalized key.
+	 */
+	private static String normalizeText(String companyIn)
+	{
+		StringBuilder key = new StringBuilder(companyIn.length());
+		boolean space = false;
+		for (int index = 0; index < companyIn.length(); index++)
+		{
+			char next = companyIn.charAt(index);
+			if (Character.isWhitespace(next))
+			{
+				space = key.length() > 0;
+			}
+			else
+			{
+				if (space)
+				{
+					key.append(' ');
+					space = false;
+				}
+				key.append(next);
+			}
+		}
+		return key.toString().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Returns the up to date index of the given csv file, building and saving a new index if the saved
+	 *  one is missing or out of date. The new index is still returned if it cannot be saved.
+	 * A loaded index is kept in memory and returned again while it is up to date, so repeated lookups
+	 *  do not read the index file. The aliases file is read again whenever it changes.
+	 * @param sourceIn - A Fortune 500 csv file.
+	 * @return The csv file's index.
+	 * @throws IOException Thrown if the csv file cannot be read.
+	 */
+	public static CompanyIndex forFile(File sourceIn) throws IOException
+	{
+		String path = sourceIn.getAbsolutePath();
+		CompanyIndex result = LOADED.get(path);
+		if (result == null || result.sourceLength != sourceIn.length()
+				|| result.sourceModified != sourceIn.lastModified())
+		{
+			result = load(sourceIn);
+			if (result == null)
+			{
+				result = build(sourceIn);
+				try
+				{
+					result.save(indexFileFor(sourceIn));
+				}
+				catch (IOException e)
+				{
+					// The index is rebuilt next time.
+				}
+			}
+			LOADED.put(path, result);
+		}
+		result.refreshAliases(aliasesFileFor(sourceIn));
+		return result;
+	}
+
+	/**
+	 * Loads the saved index of the given csv file if it is up to date.
+	 * @param sourceIn - A Fortune 500 csv file.
+	 * @return The index, or null if there is no up to date saved index.
+	 */
+	private static CompanyIndex load(File sourceIn)
+	{
+		File indexFile = indexFileFor(sourceIn);
+		if (!indexFile.isFile())
+		{
+			return null;
+		}
+		try (DataInputStream input = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(indexFile))))
+		{
+			if (input.readInt() != MAGIC || input.readInt() != VERSION)
+			{
+				return null;
+			}
+			CompanyIndex result = new CompanyIndex(input.readLong(), input.readLong());
+			if (result.sourceLength != sourceIn.length() || result.sourceModified != sourceIn.lastModified())
+			{
+				return null;
+			}
+			int keys = input.readInt();
+			for (int key = 0; key < keys; key++)
+			{
+				String company = input.readUTF();
+				int count = input.readInt();
+				Rows rows = new Rows(count);
+				for (int row = 0; row < count; row++)
+				{
+					rows.add(input.readInt(), input.readLong(), input.readInt());
+				}
+				result.companies.put(company, rows);
+			}
+			return result;
+		}
+		catch (IOException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Builds the index of a csv file by reading it once.
+	 * @param sourceIn - A Fortune 500 csv file.
+	 * @return The new index, without aliases.
+	 * @throws IOException Thrown if the csv file cannot be read.
+	 */
+	public static CompanyIndex build(File sourceIn) throws IOException
+	{
+		CompanyIndex result = new CompanyIndex(sourceIn.length(), sourceIn.lastModified());
+		Map<String, Rows> byName = new HashMap<String, Rows>();
+		try (CsvRowReader rowReader = new CsvRowReader(new FileInputStream(sourceIn)))
+		{
+			rowReader.nextRow(); // Skip the first line since it is column names.
+			int number = 0;
+			while (rowReader.nextRow())
+			{
+				String company = rowReader.getCompany();
+				Rows rows = byName.get(company);
+				if (rows == null)
+				{
+					String key = normalize(company);
+					rows = result.companies.get(key);
+					if (rows == null)
+					{
+						rows = new Rows(4);
+						result.companies.put(key, rows);
+					}
+					byName.put(company, rows);
+				}
+				long offset = rowReader.getRowOffset();
+				rows.add(number, offset, (int) (rowReader.getNextRowOffset() - offset));
+				number++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Saves the index, without its aliases, to a file. The index is written to a new temporary file in
+	 *  the same directory that then replaces the index file, so readers never see a partly written index,
+	 *  and programs saving the index at the same time do not write over each other's temporary files.
+	 * @param indexFile The file to save the index to.
+	 * @throws IOException Thrown if the file cannot be written.
+	 */
+	private void save(File indexFile) throws IOException
+	{
+		File target = indexFile.getAbsoluteFile();
+		Path temporary = Files.createTempFile(target.getParentFile().toPath(), target.getName(), ".tmp");
+		try
+		{
+			try (DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(temporary))))
+			{
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeLong(this.sourceLength);
+				output.writeLong(this.sourceModified);
+				output.writeInt(this.companies.size());
+				for (Map.Entry<String, Rows> entry : this.companies.entrySet())
+				{
+					Rows rows = entry.getValue();
+					output.writeUTF(entry.getKey());
+					output.writeInt(rows.count);
+					for (int row = 0; row < rows.count; row++)
+					{
+						output.writeInt(rows.numbers[row]);
+						output.writeLong(rows.offsets[row]);
+						output.writeInt(rows.lengths[row]);
+					}
+				}
+			}
+			Files.move(temporary, target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally
+		{
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * Reads the aliases of an aliases file if it has changed since it was last read.
+	 * Each line is of the form ALIAS=COMPANY; blank lines and lines without an equals sign are ignored.
+	 * @param aliasesFile The aliases file.
+	 * @throws IOException Thrown if the aliases file exists but cannot be read.
+	 */
+	private synchronized void refreshAliases(File aliasesFile) throws IOException
+	{
+		long modified = aliasesFile.lastModified();
+		if (modified != this.aliasesModified)
+		{
+			Map<String, String> read = new HashMap<String, String>();
+			if (aliasesFile.isFile())
+			{
+				List<String> lines = Files.readAllLines(aliasesFile.toPath(), Charset.defaultCharset());
+				for (String line : lines)
+				{
+					int equals = line.indexOf('=');
+					if (equals > 0)
+					{
+						read.put(normalize(line.substring(0, equals)), normalize(line.substring(equals + 1)));
+					}
+				}
+			}
+			this.fileAliases = read;
+			this.aliasesModified = modified;
+		}
+	}
+
+	/**
+	 * Adds an alias, so that looking up the alias finds the rows of the company.
+	 * @param aliasIn The other name of the company.
+	 * @param companyIn The company's name as it appears in the csv file, or any name with the same key.
+	 */
+	public void addAlias(String aliasIn, String companyIn)
+	{
+		this.aliases.put(normalize(aliasIn), normalize(companyIn));
+	}
+
+	/**
+	 * Finds the rows of a company, resolving aliases.
+	 * @param companyIn The company's name or alias, or null.
+	 * @return The company's rows, or null if the company is not in the file or is null.
+	 */
+	private Rows find(String companyIn)
+	{
+		if (companyIn == null)
+		{
+			return null;
+		}
+		String key = normalize(companyIn);
+		Rows result = this.companies.get(key);
+		if (result == null)
+		{
+			String company = this.aliases.get(key);
+			if (company == null)
+			{
+				company = this.fileAliases.get(key);
+			}
+			if (company != null)
+			{
+				result = this.companies.get(company);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of each row of a company among the file's rows, not counting the column names,
+	 *  in file order. These are the row numbers of the file's ColumnarCache.
+	 * @param companyIn The company's name or alias.
+	 * @return The company's row numbers, empty if the company is not in the file.
+	 */
+	public int[] getRowNumbers(String companyIn)
+	{
+		Rows rows = this.find(companyIn);
+		if (rows == null)
+		{
+			return new int[0];
+		}
+		return Arrays.copyOf(rows.numbers, rows.count);
+	}
+
+	/**
+	 * Opens a reader of only the rows of a company. The reader's first row is the company's first row;
+	 *  there are no column names to skip.
+	 * @param channelIn The channel of the csv file; its position is not changed.
+	 * @param companyIn The company's name or alias.
+	 * @return A reader of the company's rows.
+	 */
+	public CsvRowReader openRows(FileChannel channelIn, String companyIn)
+	{
+		Rows rows = this.find(companyIn);
+		if (rows == null)
+		{
+			rows = new Rows(0);
+		}
+		return new CsvRowReader(new RangeInputStream(channelIn, Arrays.copyOf(rows.offsets, rows.count),
+				Arrays.copyOf(rows.lengths, rows.count)));
+	}
+}
@@ -0,0 +1,74 @@
+// NAME: Logan Noonan
+
+package reports.io;
+
+import java.nio.charset.Charset;
+import java.util.BitSet;
+
+/**
+ * Matches the rows of one company while a csv file is scanned row by row, matching names as
+ *  CompanyIndex.normalize does, so a scan finds the same rows as a lookup through the company index.
+ * The names of the rows are added to a CompanyDictionary, and each distinct name is normalized and compared
+ *  only the first time it is seen, so the scan does not create a String for every row.
+ * A null company matches no rows, as the original CompanyReport compared each row's name to it with equals.
+ * @author Logan Noonan
+ *
+ */
+public class CompanyMatcher
+{
+	/**
+	 * The normalized name of the company to match, or null if the company is null.
+	 */
+	private String key;
+
+	/**
+	 * The distinct names of the rows scanned so far.
+	 */
+	private CompanyDictionary names;
+
+	/**
+	 * The ids of the names already compared to the key.
+	 */
+	private BitSet compared;
+
+	/**
+	 * The ids of the names that match the key.
+	 */
+	private BitSet matching;
+
+	/**
+	 * Creates new CompanyMatcher.
+	 * @param companyIn - The name of the company to match, or null to match no rows.
+	 * @param charsetIn - The charset of the rows that will be scanned.
+	 */
+	public CompanyMatcher(String companyIn, Charset charsetIn)
+	{
+		this.key = companyIn != null ? CompanyIndex.normalize(companyIn) : null;
+		this.names = new CompanyDictionary(charsetIn);
+		this.compared = new BitSet();
+		this.matching = new BitSet();
+	}
+
+	/**
+	 * Checks whether the current row of a reader is a row of the company.
+	 * @param rowReader - A reader positioned at a row.
+	 * @return true if the row's company matches the company.
+	 */
+	public boolean matches(CsvRowReader rowReader)
+	{
+		if (this.key == null)
+		{
+			return false;
+		}
+		int id = rowReader.getCompanyId(this.names);
+		if (!this.compared.get(id))
+		{
+			this.compared.set(id);
+			if (this.key.equals(CompanyIndex.normalize(this.names.getName(id))))
+			{
+				this.matching.set(id);
+			}
+		}
+		return this.matching.get(id);
+	}
+}
@@ -0,0 +1,761 @@
+// NAME: Logan Noonan
+
+package reports.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * A reusable reader of the rows of a Fortune 500 csv file.
+ * Bytes are read into one buffer that is reused for every row, and a row is only split into
+ *  the positions of its fields; nothing is parsed until a field is asked for.
+ * Whole numbers and decimals are parsed straight from the buffer without creating a String,
+ *  so reading a row allocates nothing unless the company name is requested as a String.
+ * Each row is of the form YEAR,RANK,COMPANY,REVENUE,PROFIT.
+ * Fields may be quoted as RFC 4180 describes: a field in double quotes may hold commas and line breaks,
+ *  and holds a double quote as two double quotes. A line is only checked for double quotes while it is
+ *  split into fields, so a line without one is read exactly as before; a line with one is read again by
+ *  a slower pass that finds the end of the row past any quoted line breaks and removes the quotes in place,
+ *  after which its fields are read like any other.
+ * A revenue or profit that is missing, because the field is empty, absent, or holds a placeholder such as
+ *  N.A., is read as Double.NaN; see isMissing.
+ * @author Logan Noonan
+ *
+ */
+public class CsvRowReader implements Closeable
+{
+	/**
+	 * The index of the year field.
+	 */
+	public static final int YEAR = 0;
+
+	/**
+	 * The index of the rank field.
+	 */
+	public static final int RANK = 1;
+
+	/**
+	 * The index of the company field.
+	 */
+	public static final int COMPANY = 2;
+
+	/**
+	 * The index of the revenue field.
+	 */
+	public static final int REVENUE = 3;
+
+	/**
+	 * The index of the profit field.
+	 */
+	public static final int PROFIT = 4;
+
+	/**
+	 * The number of fields in a row.
+	 */
+	public static final int FIELDS = 5;
+
+	/**
+	 * The number of bytes read from the input at a time.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Powers of ten that are exactly representable as a double.
+	 */
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	/**
+	 * The largest mantissa that a double holds exactly.
+	 */
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	/**
+	 * The placeholders that mark a value as missing, compared ignoring case.
+	 */
+	private static final String[] MISSING_VALUES = {"N.A.", "NA", "N/A", "-", "NULL", "NAN"};
+
+	/**
+	 * The stream the rows are read from.
+	 */
+	private InputStream input;
+
+	/**
+	 * The charset company names are decoded with.
+	 */
+	private Charset charset;
+
+	/**
+	 * The buffer holding the bytes read from the input.
+	 */
+	private byte[] buffer;
+
+	/**
+	 * The index of the first byte in the buffer that has not been read as part of a row.
+	 */
+	private int position;
+
+	/**
+	 * The index after the last byte read into the buffer.
+	 */
+	private int limit;
+
+	/**
+	 * A boolean to check if every byte of the input has been read into the buffer.
+	 */
+	private boolean endOfInput;
+
+	/**
+	 * The index in the buffer of the first byte of each field of the current row.
+	 */
+	private int[] fieldStarts;
+
+	/**
+	 * The index in the buffer after the last byte of each field of the current row.
+	 */
+	private int[] fieldEnds;
+
+	/**
+	 * The number of fields found in the current row.
+	 */
+	private int fieldCount;
+
+	/**
+	 * The number of bytes of the input that have been moved out of the buffer.
+	 */
+	private long discarded;
+
+	/**
+	 * The index in the buffer of the first byte of the current row.
+	 */
+	private int rowStart;
+
+	/**
+	 * The number of rows read, including the column names.
+	 */
+	private long rowsRead;
+
+
+	/**
+	 * Creates new CsvRowReader reading rows from the given stream, decoding company names with the
+	 *  platform's default charset just as a Scanner would.
+	 * @param inputIn - Stream of Fortune 500 csv data.
+	 */
+	public CsvRowReader(InputStream inputIn)
+	{
+		this(inputIn, Charset.defaultCharset());
+	}
+
+	/**
+	 * Creates new CsvRowReader reading rows from the given stream.
+	 * @param inputIn - Stream of Fortune 500 csv data.
+	 * @param charsetIn - Charset the company names are encoded with.
+	 */
+	public CsvRowReader(InputStream inputIn, Charset charsetIn)
+	{
+		this.input = inputIn;
+		this.charset = charsetIn;
+		this.buffer = new byte[BUFFER_SIZE];
+		this.position = 0;
+		this.limit = 0;
+		this.endOfInput = false;
+		this.fieldStarts = new int[FIELDS];
+		this.fieldEnds = new int[FIELDS];
+		this.fieldCount = 0;
+		this.discarded = 0;
+		this.rowStart = 0;
+		this.rowsRead = 0;
+	}
+
+	/**
+	 * Advances to the next row of the input, skipping blank lines.
+	 * @return true if a row was read, false if there are no more rows.
+	 * @throws IOException Thrown if the input cannot be read.
+	 */
+	public boolean nextRow() throws IOException
+	{
+		while (true)
+		{
+			int lineEnd = this.findLineEnd();
+			if (lineEnd == this.position && lineEnd >= this.limit)
+			{
+				this.fieldCount = 0;
+				return false;
+			}
+			int start = this.position;
+			int end = this.contentEnd(start, lineEnd);
+			if (end > start && !this.splitFields(start, end))
+			{
+				// The line holds a double quote, so a quoted field may run on past its newline.
+				lineEnd = this.findQuotedLineEnd();
+				start = this.position;
+				end = this.contentEnd(start, lineEnd);
+				this.splitQuoted(start, end);
+			}
+			this.position = Math.min(lineEnd + 1, this.limit);
+			if (end > start)
+			{
+				this.rowStart = start;
+				this.rowsRead++;
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Returns the end of a line's content, before the carriage return of a CRLF line ending.
+	 * @param start The index of the first byte of the line.
+	 * @param lineEnd The index of the line's newline.
+	 * @return The index after the last byte of the line's content.
+	 */
+	private int contentEnd(int start, int lineEnd)
+	{
+		return lineEnd > start && this.buffer[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+	}
+
+	/**
+	 * Finds the end of the line starting at the current position, reading more input when needed.
+	 * @return The index of the line's newline, or the limit if the input ends without one.
+	 * @throws IOException Thrown if the input cannot be read.
+	 */
+	private int findLineEnd() throws IOException
+	{
+		int index = this.position;
+		while (true)
+		{
+			while (index < this.limit)
+			{
+				if (this.buffer[index] == '\n')
+				{
+					return index;
+				}
+				index++;
+			}
+			if (this.endOfInput)
+			{
+				return this.limit;
+			}
+			int scanned = index - this.position;
+			this.fill();
+			index = this.position + scanned;
+		}
+	}
+
+	/**
+	 * Finds the end of the row starting at the current position, where newlines within a quoted field are
+	 *  part of the field and do not end the row, reading more input when needed.
+	 * Fields are found as splitQuoted finds them: only a double quote starting a field opens a quoted field,
+	 *  so a quote within an unquoted field, as in Macy"s, is kept as it is, and within a quoted field two
+	 *  double quotes stand for one and any other quote closes the field.
+	 * @return The index of the row's newline, or the limit if the input ends without one.
+	 * @throws IOException Thrown if the input cannot be read.
+	 */
+	private int findQuotedLineEnd() throws IOException
+	{
+		int index = this.position;
+		int fields = 1;
+		boolean fieldStart = true;
+		boolean inQuotes = false;
+		boolean quoteSeen = false;
+		while (true)
+		{
+			while (index < this.limit)
+			{
+				byte next = this.buffer[index];
+				index++;
+				if (quoteSeen)
+				{
+					// The quote before closed the field unless this one doubles it.
+					quoteSeen = false;
+					if (next == '"')
+					{
+						continue;
+					}
+					inQuotes = false;
+				}
+				if (inQuotes)
+				{
+					quoteSeen = next == '"';
+				}
+				else if (next == '\n')
+				{
+					return index - 1;
+				}
+				else if (next == '"' && fieldStart)
+				{
+					inQuotes = true;
+					fieldStart = false;
+				}
+				else if (next == ',' && fields < FIELDS)
+				{
+					// The last field runs to the end of the row, commas and all.
+					fields++;
+					fieldStart = true;
+				}
+				else
+				{
+					fieldStart = false;
+				}
+			}
+			if (this.endOfInput)
+			{
+				return this.limit;
+			}
+			int scanned = index - this.position;
+			this.fill();
+			index = this.position + scanned;
+		}
+	}
+
+	/**
+	 * Moves the unread bytes to the start of the buffer, growing it if it is full, and reads more input.
+	 * @throws IOException Thrown if the input cannot be read.
+	 */
+	private void fill() throws IOException
+	{
+		if (this.position > 0)
+		{
+			System.arraycopy(this.buffer, this.position, this.buffer, 0, this.limit - this.position);
+			this.discarded += this.position;
+			this.rowStart -= this.position;
+			this.limit -= this.position;
+			this.position = 0;
+		}
+		if (this.limit == this.buffer.length)
+		{
+			byte[] larger = new byte[this.buffer.length * 2];
+			System.arraycopy(this.buffer, 0, larger, 0, this.limit);
+			this.buffer = larger;
+		}
+		int read = this.input.read(this.buffer, this.limit, this.buffer.length - this.limit);
+		if (read < 0)
+		{
+			this.endOfInput = true;
+		}
+		else
+		{
+			this.limit += read;
+		}
+	}
+
+	/**
+	 * Records where each comma separated field of a line starts and ends, unless the line holds a double
+	 *  quote and must be split by splitQuoted instead.
+	 * @param start The index of the first byte of the line.
+	 * @param end The index after the last byte of the line.
+	 * @return true if the line was split, false if it holds a double quote.
+	 */
+	private boolean splitFields(int start, int end)
+	{
+		this.fieldCount = 0;
+		int fieldStart = start;
+		int index = start;
+		while (index < end && this.fieldCount < FIELDS - 1)
+		{
+			byte next = this.buffer[index];
+			if (next == ',')
+			{
+				this.fieldStarts[this.fieldCount] = fieldStart;
+				this.fieldEnds[this.fieldCount] = index;
+				this.fieldCount++;
+				fieldStart = index + 1;
+			}
+			else if (next == '"')
+			{
+				return false;
+			}
+			index++;
+		}
+		while (index < end)
+		{
+			if (this.buffer[index] == '"')
+			{
+				return false;
+			}
+			index++;
+		}
+		this.fieldStarts[this.fieldCount] = fieldStart;
+		this.fieldEnds[this.fieldCount] = end;
+		this.fieldCount++;
+		return true;
+	}
+
+	/**
+	 * Records where each field of a line holding double quotes starts and ends, removing the quotes.
+	 * A field starting with a double quote runs to its closing quote, taking in any commas and line breaks,
+	 *  and two double quotes within it stand for one; anything after the closing quote is kept as it is.
+	 * The unquoted bytes of each field are moved down over the quotes, which only ever shortens the line,
+	 *  so the fields stay in the buffer and are parsed like those of an unquoted line.
+	 * @param start The index of the first byte of the line.
+	 * @param end The index after the last byte of the line.
+	 */
+	private void splitQuoted(int start, int end)
+	{
+		this.fieldCount = 0;
+		int read = start;
+		int write = start;
+		while (true)
+		{
+			boolean last = this.fieldCount == FIELDS - 1;
+			boolean inQuotes = read < end && this.buffer[read] == '"';
+			if (inQuotes)
+			{
+				read++;
+			}
+			this.fieldStarts[this.fieldCount] = write;
+			while (read < end && (inQuotes || last || this.buffer[read] != ','))
+			{
+				byte next = this.buffer[read];
+				read++;
+				if (inQuotes && next == '"')
+				{
+					if (read < end && this.buffer[read] == '"')
+					{
+						read++; // Two quotes stand for one.
+					}
+					else
+					{
+						inQuotes = false;
+						continue;
+					}
+				}
+				this.buffer[write] = next;
+				write++;
+			}
+			this.fieldEnds[this.fieldCount] = write;
+			this.fieldCount++;
+			if (read >= end)
+			{
+				return;
+			}
+			read++; // Skip the comma.
+		}
+	}
+
+	/**
+	 * Returns the number of fields in the current row.
+	 * @return The number of fields.
+	 */
+	public int getFieldCount()
+	{
+		return this.fieldCount;
+	}
+
+	/**
+	 * Returns the offset of the current row from the point where this reader started reading its input.
+	 * @return The number of input bytes before the current row.
+	 */
+	public long getRowOffset()
+	{
+		return this.discarded + this.rowStart;
+	}
+
+	/**
+	 * Returns the offset of the end of the current row, including its line ending,
+	 *  from the point where this reader started reading its input.
+	 * @return The number of input bytes up to and including the current row.
+	 */
+	public long getNextRowOffset()
+	{
+		return this.discarded + this.position;
+	}
+
+	/**
+	 * Returns the number of rows read so far, including the column names if they were read.
+	 * @return The number of rows.
+	 */
+	public long getRowsRead()
+	{
+		return this.rowsRead;
+	}
+
+	/**
+	 * Returns the number of bytes read from the input so far, which may run ahead of the rows read.
+	 * @return The number of bytes.
+	 */
+	public long getBytesRead()
+	{
+		return this.discarded + this.limit;
+	}
+
+	/**
+	 * Returns the year of the current row.
+	 * @return The year.
+	 */
+	public int getYear()
+	{
+		return this.getInt(YEAR);
+	}
+
+	/**
+	 * Returns the rank of the current row.
+	 * @return The rank.
+	 */
+	public int getRank()
+	{
+		return this.getInt(RANK);
+	}
+
+	/**
+	 * Returns the company of the current row.
+	 * @return The company.
+	 */
+	public String getCompany()
+	{
+		return this.getString(COMPANY);
+	}
+
+	/**
+	 * Returns the id of the company of the current row in a dictionary, adding the company if it is new.
+	 * The company is looked up from the row's bytes, so no String is created for a company already in
+	 *  the dictionary.
+	 * @param dictionaryIn - The dictionary of company names.
+	 * @return The company's id.
+	 */
+	public int getCompanyId(CompanyDictionary dictionaryIn)
+	{
+		int start = this.start(COMPANY);
+		if (!this.charset.equals(dictionaryIn.getCharset()))
+		{
+			return dictionaryIn.intern(this.getCompany());
+		}
+		return dictionaryIn.intern(this.buffer, start, this.fieldEnds[COMPANY], null);
+	}
+
+	/**
+	 * Returns the revenue of the current row.
+	 * @return The revenue, or Double.NaN if it is missing.
+	 */
+	public double getRevenue()
+	{
+		return this.getDouble(REVENUE);
+	}
+
+	/**
+	 * Returns the profit of the current row.
+	 * @return The profit, or Double.NaN if it is missing.
+	 */
+	public double getProfit()
+	{
+		return this.getDouble(PROFIT);
+	}
+
+	/**
+	 * Tests if the company of the current row is the given company.
+	 * @param companyIn The company encoded with this reader's charset, see encode.
+	 * @return true if the row's company is the given company.
+	 */
+	public boolean companyEquals(byte[] companyIn)
+	{
+		return this.fieldEquals(COMPANY, companyIn);
+	}
+
+	/**
+	 * Encodes a value with this reader's charset so it can be compared to fields without decoding them.
+	 * @param valueIn The value to encode.
+	 * @return The encoded bytes.
+	 */
+	public byte[] encode(String valueIn)
+	{
+		return valueIn.getBytes(this.charset);
+	}
+
+	/**
+	 * Tests if a field of the current row holds exactly the given bytes.
+	 * @param field The index of the field.
+	 * @param valueIn The bytes to compare to.
+	 * @return true if the field holds the given bytes.
+	 */
+	public boolean fieldEquals(int field, byte[] valueIn)
+	{
+		int start = this.start(field);
+		int length = this.fieldEnds[field] - start;
+		if (length != valueIn.length)
+		{
+			return false;
+		}
+		for (int index = 0; index < length; index++)
+		{
+			if (this.buffer[start + index] != valueIn[index])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a field of the current row as a String.
+	 * @param field The index of the field.
+	 * @return The field's text.
+	 */
+	public String getString(int field)
+	{
+		int start = this.start(field);
+		return new String(this.buffer, start, this.fieldEnds[field] - start, this.charset);
+	}
+
+	/**
+	 * Parses a field of the current row as a whole number.
+	 * @param field The index of the field.
+	 * @return The field's value.
+	 * @throws NumberFormatException Thrown if the field is not a whole number.
+	 */
+	public int getInt(int field)
+	{
+		int index = this.start(field);
+		int end = this.fieldEnds[field];
+		while (index < end && this.buffer[index] == ' ')
+		{
+			index++;
+		}
+		while (end > index && this.buffer[end - 1] == ' ')
+		{
+			end--;
+		}
+		boolean negative = false;
+		if (index < end && (this.buffer[index] == '-' || this.buffer[index] == '+'))
+		{
+			negative = this.buffer[index] == '-';
+			index++;
+		}
+		if (index == end || end - index > 9)
+		{
+			return Integer.parseInt(this.getString(field).trim());
+		}
+		int value = 0;
+		while (index < end)
+		{
+			int digit = this.buffer[index] - '0';
+			if (digit < 0 || digit > 9)
+			{
+				throw new NumberFormatException("For input string: \"" + this.getString(field) + "\"");
+			}
+			value = value * 10 + digit;
+			index++;
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parses a field of the current row as a decimal number.
+	 * Plain decimals whose digits fit in a double are parsed directly from the buffer; anything else,
+	 *  such as a value with an exponent, is handed to Double.parseDouble unless the value is missing.
+	 * @param field The index of the field.
+	 * @return The field's value, or Double.NaN if it is missing, see isMissing.
+	 * @throws NumberFormatException Thrown if the field is neither a number nor missing.
+	 */
+	public double getDouble(int field)
+	{
+		if (field >= this.fieldCount && field < FIELDS)
+		{
+			return Double.NaN;
+		}
+		int index = this.start(field);
+		int end = this.fieldEnds[field];
+		while (index < end && this.buffer[index] == ' ')
+		{
+			index++;
+		}
+		while (end > index && this.buffer[end - 1] == ' ')
+		{
+			end--;
+		}
+		boolean negative = false;
+		if (index < end && (this.buffer[index] == '-' || this.buffer[index] == '+'))
+		{
+			negative = this.buffer[index] == '-';
+			index++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int fractionDigits = 0;
+		boolean seenPoint = false;
+		boolean plain = index < end;
+		while (index < end && plain)
+		{
+			byte next = this.buffer[index];
+			if (next >= '0' && next <= '9')
+			{
+				mantissa = mantissa * 10 + (next - '0');
+				digits++;
+				if (seenPoint)
+				{
+					fractionDigits++;
+				}
+				plain = mantissa < MAX_EXACT_MANTISSA && digits <= 18;
+			}
+			else if (next == '.' && !seenPoint)
+			{
+				seenPoint = true;
+			}
+			else
+			{
+				plain = false;
+			}
+			index++;
+		}
+		if (!plain || digits == 0 || fractionDigits >= POWERS_OF_TEN.length)
+		{
+			return this.isMissing(field) ? Double.NaN : Double.parseDouble(this.getString(field).trim());
+		}
+		double value = mantissa / POWERS_OF_TEN[fractionDigits];
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Tests if a field of the current row is missing: the row has too few fields to hold it, or the field
+	 *  is empty, blank, or one of the placeholders N.A., NA, N/A, -, NULL, and NaN in any case.
+	 * @param field The index of the field.
+	 * @return true if the field is missing.
+	 */
+	public boolean isMissing(int field)
+	{
+		if (field >= this.fieldCount)
+		{
+			return true;
+		}
+		String text = this.getString(field).trim();
+		if (text.length() > 4)
+		{
+			return false;
+		}
+		for (String placeholder : MISSING_VALUES)
+		{
+			if (text.equalsIgnoreCase(placeholder))
+			{
+				return true;
+			}
+		}
+		return text.isEmpty();
+	}
+
+	/**
+	 * Returns the start of a field of the current row.
+	 * @param field The index of the field.
+	 * @return The index in the buffer of the field's first byte.
+	 * @throws IndexOutOfBoundsException Thrown if the current row does not have the field.
+	 */
+	private int start(int field)
+	{
+		if (field < 0 || field >= this.fieldCount)
+		{
+			throw new IndexOutOfBoundsException("Row has no field " + field);
+		}
+		return this.fieldStarts[field];
+	}
+
+	/**
+	 * Closes the stream the rows are read from.
+	 * @throws IOException Thrown if the stream cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		this.input.close();
+	}
+}
@@ -0,0 +1,244 @@
+// NAME: Logan Noonan
+
+package reports.io;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Where the rows of a Fortune 500 csv file are read from: a file, a Path to plain or gzip compressed
+ *  data, or an InputStream, Reader, or ReadableByteChannel that is read as it arrives.
+ * Data is always read as a stream through a CsvRowReader, so memory use does not depend on the size
+ *  of the data, and compressed data is decompressed as it is read without a temporary file.
+ * Only a plain file can be read more than once, and only a plain file has the sidecar indexes and cache
+ *  that let reports skip rows; a stream, Reader, or channel can be read once, and a compressed Path is
+ *  decompressed again each time it is read.
+ * Zstandard compressed data is recognized but not decompressed, since the JDK has no decoder for it;
+ *  it can be read by passing a decompressing InputStream from a zstd library instead.
+ * @author Logan Noonan
+ *
+ */
+public class DataSource
+{
+	/**
+	 * The size of the buffer of a decompressing stream.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The plain file of the data, or null if the data is not a plain file.
+	 */
+	private File file;
+
+	/**
+	 * The path of compressed data, or null if the data is not a compressed Path.
+	 */
+	private Path compressed;
+
+	/**
+	 * The stream of the data until it is opened, or null if the data is not a stream or has been read.
+	 */
+	private InputStream stream;
+
+	/**
+	 * Whether the data is a stream that can only be read once.
+	 */
+	private boolean once;
+
+	/**
+	 * The charset the data is encoded with.
+	 */
+	private Charset charset;
+
+	/**
+	 * Creates new DataSource.
+	 * @param fileIn The plain file of the data, or null.
+	 * @param compressedIn The path of compressed data, or null.
+	 * @param streamIn The stream of the data, or null.
+	 * @param charsetIn The charset the data is encoded with.
+	 */
+	private DataSource(File fileIn, Path compressedIn, InputStream streamIn, Charset charsetIn)
+	{
+		this.file = fileIn;
+		this.compressed = compressedIn;
+		this.stream = streamIn;
+		this.once = streamIn != null;
+		this.charset = charsetIn;
+	}
+
+	/**
+	 * Returns the source of a plain csv file.
+	 * @param fileIn - A Fortune 500 csv file.
+	 * @return The file's source.
+	 */
+	public static DataSource of(File fileIn)
+	{
+		return new DataSource(fileIn, null, null, Charset.defaultCharset());
+	}
+
+	/**
+	 * Returns the source of a csv file that may be gzip compressed, which is recognized from its first bytes.
+	 * @param pathIn - A Fortune 500 csv file, plain or compressed.
+	 * @return The file's source.
+	 */
+	public static DataSource of(Path pathIn)
+	{
+		if (isCompressed(pathIn))
+		{
+			return new DataSource(null, pathIn, null, Charset.defaultCharset());
+		}
+		return of(pathIn.toFile());
+	}
+
+	/**
+	 * Returns the source of a stream of csv data in the default charset; the stream can be read once
+	 *  and is closed once it has been read.
+	 * @param streamIn - A stream of Fortune 500 csv data.
+	 * @return The stream's source.
+	 */
+	public static DataSource of(InputStream streamIn)
+	{
+		return new DataSource(null, null, streamIn, Charset.defaultCharset());
+	}
+
+	/**
+	 * Returns the source of a Reader of csv data; the Reader can be read once and is closed once it
+	 *  has been read.
+	 * @param readerIn - A Reader of Fortune 500 csv data.
+	 * @return The Reader's source.
+	 */
+	public static DataSource of(Reader readerIn)
+	{
+		return new DataSource(null, null, new ReaderInputStream(readerIn, StandardCharsets.UTF_8),
+				StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the source of a channel of csv data in the default charset; the channel can be read once
+	 *  and is closed once it has been read.
+	 * @param channelIn - A channel of Fortune 500 csv data.
+	 * @return The channel's source.
+	 */
+	public static DataSource of(ReadableByteChannel channelIn)
+	{
+		return of(Channels.newInputStream(channelIn));
+	}
+
+	/**
+	 * Checks the first bytes of a file for the gzip or zstd magic number.
+	 * @param pathIn The file.
+	 * @return true if the file is compressed, false if it is not or cannot be read.
+	 */
+	private static boolean isCompressed(Path pathIn)
+	{
+		try (InputStream input = Files.newInputStream(pathIn))
+		{
+			byte[] magic = new byte[4];
+			int read = input.readNBytes(magic, 0, magic.length);
+			return isGzip(magic, read) || isZstd(magic, read);
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Checks for the gzip magic number.
+	 * @param magic The first bytes of the data.
+	 * @param read The number of bytes read.
+	 * @return true if the data is gzip compressed.
+	 */
+	private static boolean isGzip(byte[] magic, int read)
+	{
+		return read >= 2 && (magic[0] & 0xFF) == 0x1F && (magic[1] & 0xFF) == 0x8B;
+	}
+
+	/**
+	 * Checks for the zstd magic number.
+	 * @param magic The first bytes of the data.
+	 * @param read The number of bytes read.
+	 * @return true if the data is zstd compressed.
+	 */
+	private static boolean isZstd(byte[] magic, int read)
+	{
+		return read >= 4 && (magic[0] & 0xFF) == 0x28 && (magic[1] & 0xFF) == 0xB5 && (magic[2] & 0xFF) == 0x2F
+				&& (magic[3] & 0xFF) == 0xFD;
+	}
+
+	/**
+	 * Opens the data for reading from its start, decompressing it if it is compressed.
+	 * @return A stream of the data, which the caller closes.
+	 * @throws IOException Thrown if the data cannot be read, is zstd compressed, or is a stream that has
+	 *  already been read.
+	 */
+	public InputStream open() throws IOException
+	{
+		if (this.file != null)
+		{
+			return new FileInputStream(this.file);
+		}
+		if (this.compressed != null)
+		{
+			BufferedInputStream input = new BufferedInputStream(Files.newInputStream(this.compressed), BUFFER_SIZE);
+			byte[] magic = new byte[4];
+			input.mark(magic.length);
+			int read = input.readNBytes(magic, 0, magic.length);
+			input.reset();
+			if (isGzip(magic, read))
+			{
+				return new GZIPInputStream(input, BUFFER_SIZE);
+			}
+			input.close();
+			throw new IOException(this.compressed + " is zstd compressed, which needs a zstd library to read.");
+		}
+		synchronized (this)
+		{
+			InputStream result = this.stream;
+			this.stream = null;
+			if (result == null)
+			{
+				throw new IOException("The stream has already been read.");
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Returns the plain file of the data, whose sidecar indexes and cache can be used.
+	 * @return The file, or null if the data is compressed or a stream.
+	 */
+	public File getFile()
+	{
+		return this.file;
+	}
+
+	/**
+	 * Returns whether the data can only be read once.
+	 * @return true if the data is a stream, Reader, or channel.
+	 */
+	public boolean isOnce()
+	{
+		return this.once;
+	}
+
+	/**
+	 * Returns the charset the data is encoded with.
+	 * @return The charset.
+	 */
+	public Charset getCharset()
+	{
+		return this.charset;
+	}
+}
@@ -0,0 +1,379 @@
+// NAME: Logan Noonan
+
+package reports.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the FortuneDataset of a csv file up to date while the file is replaced or rewritten, without
+ *  reports ever reading a partly written file.
+ * The watcher loads the file's dataset when started and then watches the file's directory with a
+ *  WatchService. When the file or its aliases file changes, the watcher waits until the file has stopped
+ *  changing, reads it into a new dataset along with its indexes on the watcher's own thread, and only then
+ *  swaps the new dataset in with a single write. Until then YearReport, CompanyReport, and the other
+ *  reports keep reading the previous dataset, see FortuneDataset.getIfLoaded, and a report already reading
+ *  a dataset finishes with the dataset it started with.
+ * Listeners added with addListener are told after each swap, so holders of results derived from the
+ *  dataset, such as ReportServer, can refresh them.
+ * A file that cannot be read, or that changes again while it is read, is read again the next time it
+ *  changes; the previous dataset is kept meanwhile.
+ * The file's ColumnarCache, if it has one, is converted again after each swap, since a cache is trusted
+ *  whenever it records the file's length and last modified time, while the change seen by the watcher is
+ *  certain. The file's ReportSnapshot is not written again: it is only read while the file's dataset is not
+ *  loaded, which is never the case while the file is watched, and is checked against the file before it is
+ *  used once watching stops.
+ * Once close returns, the watcher reloads nothing and tells no listeners, even of a change seen before.
+ * @author Logan Noonan
+ *
+ */
+public class DatasetWatcher implements Closeable
+{
+	/**
+	 * How long the file must stay the same length and last modified time before it is read, in milliseconds.
+	 */
+	private static final long SETTLE_MILLIS = 250;
+
+	/**
+	 * This is the cvs file to watch.
+	 */
+	private File theFile;
+
+	/**
+	 * The dataset of the last complete version of the file, or null before the watcher is started.
+	 */
+	private final AtomicReference<FortuneDataset> current;
+
+	/**
+	 * The listeners told after each swap.
+	 */
+	private final List<Runnable> listeners;
+
+	/**
+	 * The watch service of the file's directory, or null if the watcher is not running.
+	 */
+	private WatchService watchService;
+
+	/**
+	 * The thread waiting for changes to the file, or null if the watcher is not running.
+	 */
+	private Thread thread;
+
+	/**
+	 * Whether the watcher has been closed since it was last started, so no reload is done after close.
+	 */
+	private boolean closed;
+
+	/**
+	 * The number of times a new dataset was swapped in.
+	 */
+	private volatile long reloads;
+
+	/**
+	 * The error of the last reload that failed, or null if the last reload succeeded.
+	 */
+	private volatile IOException lastFailure;
+
+	/**
+	 * Creates new DatasetWatcher, not yet watching.
+	 * @param inputFileIn - Fortune 500 csv file to watch.
+	 */
+	public DatasetWatcher(File inputFileIn)
+	{
+		this.theFile = inputFileIn.getAbsoluteFile();
+		this.current = new AtomicReference<FortuneDataset>();
+		this.listeners = new CopyOnWriteArrayList<Runnable>();
+	}
+
+	/**
+	 * Loads the file's dataset and starts watching the file on a daemon thread.
+	 * @throws IOException Thrown if the file cannot be read or its directory cannot be watched.
+	 * @throws IllegalStateException Thrown if the watcher is already running.
+	 */
+	public synchronized void start() throws IOException
+	{
+		if (this.thread != null)
+		{
+			throw new IllegalStateException("The watcher is already running");
+		}
+		Path directory = this.theFile.getParentFile().toPath();
+		WatchService service = directory.getFileSystem().newWatchService();
+		try
+		{
+			directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+			this.current.set(FortuneDataset.load(this.theFile));
+		}
+		catch (IOException e)
+		{
+			service.close();
+			throw e;
+		}
+		FortuneDataset.setWatched(this.theFile, true);
+		this.closed = false;
+		this.watchService = service;
+		this.thread = new Thread(new Runnable()
+		{
+			/**
+			 * Reloads the file each time it changes until the watcher is closed.
+			 */
+			@Override
+			public void run()
+			{
+				DatasetWatcher.this.watch(service);
+			}
+		}, "DatasetWatcher " + this.theFile.getName());
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Stops watching the file and waits for the watcher's thread to end. A reload under way is finished first,
+	 *  and none is done afterwards. The file's dataset stays loaded, but is unloaded as usual once the file
+	 *  changes.
+	 * @throws IOException Thrown if the watch service cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		Thread stopped;
+		synchronized (this)
+		{
+			if (this.thread == null)
+			{
+				return;
+			}
+			FortuneDataset.setWatched(this.theFile, false);
+			this.closed = true;
+			stopped = this.thread;
+			stopped.interrupt();
+			this.thread = null;
+			WatchService service = this.watchService;
+			this.watchService = null;
+			service.close();
+		}
+		if (stopped != Thread.currentThread())
+		{
+			try
+			{
+				stopped.join();
+			}
+			catch (InterruptedException e)
+			{
+				// The thread still ends, as it reloads nothing more.
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Returns the dataset of the last complete version of the file.
+	 * @return The dataset, or null if the watcher has not been started.
+	 */
+	public FortuneDataset getDataset()
+	{
+		return this.current.get();
+	}
+
+	/**
+	 * Adds a listener that is run on the watcher's thread each time a new dataset is swapped in.
+	 * @param listenerIn - The listener.
+	 */
+	public void addListener(Runnable listenerIn)
+	{
+		this.listeners.add(listenerIn);
+	}
+
+	/**
+	 * Returns the number of times a new dataset was swapped in.
+	 * @return The number of reloads.
+	 */
+	public long getReloadCount()
+	{
+		return this.reloads;
+	}
+
+	/**
+	 * Returns the error of the last reload if it failed.
+	 * @return The error, or null if the last reload succeeded or there has been none.
+	 */
+	public IOException getLastFailure()
+	{
+		return this.lastFailure;
+	}
+
+	/**
+	 * Reads the file into a new dataset and swaps it in, unless the dataset already matches the file or the
+	 *  watcher has been closed, then tells the listeners and converts the file's ColumnarCache again if it has
+	 *  one.
+	 * Called by the watcher's thread when the file changes; it may also be called directly, and reloads
+	 *  are done one at a time.
+	 * @return true if a new dataset was swapped in.
+	 * @throws IOException Thrown if the file cannot be read or changes while it is read; the previous
+	 *  dataset is kept.
+	 */
+	public synchronized boolean reload() throws IOException
+	{
+		if (this.closed)
+		{
+			return false;
+		}
+		FortuneDataset previous = this.current.get();
+		if (previous != null && previous.isCurrent(this.theFile) && !this.aliasesChanged(previous))
+		{
+			return false;
+		}
+		FortuneDataset fresh;
+		try
+		{
+			fresh = FortuneDataset.read(this.theFile);
+			YearIndex.forFile(this.theFile);
+		}
+		catch (IOException e)
+		{
+			this.lastFailure = e;
+			throw e;
+		}
+		FortuneDataset.replace(this.theFile, fresh);
+		this.current.set(fresh);
+		this.reloads++;
+		this.lastFailure = null;
+		for (Runnable listener : this.listeners)
+		{
+			try
+			{
+				listener.run();
+			}
+			catch (RuntimeException e)
+			{
+				// A failing listener does not keep the others from being told.
+			}
+		}
+		this.convertCache();
+		return true;
+	}
+
+	/**
+	 * Converts the file's ColumnarCache again if it has one, or deletes it if it cannot be converted, so
+	 *  reports reading it once the file is no longer watched never read the previous version of the file.
+	 */
+	private void convertCache()
+	{
+		File cacheFile = ColumnarCache.cacheFileFor(this.theFile);
+		if (cacheFile.isFile())
+		{
+			try
+			{
+				ColumnarCache.convert(this.theFile);
+			}
+			catch (IOException e)
+			{
+				try
+				{
+					Files.deleteIfExists(cacheFile.toPath());
+				}
+				catch (IOException other)
+				{
+					// The cache is still checked against the file's length, last modified time, and checksum.
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks whether the aliases file has changed since a dataset's company index read it.
+	 * @param dataset The dataset.
+	 * @return true if the aliases file is newer than the dataset's version of it.
+	 */
+	private boolean aliasesChanged(FortuneDataset dataset)
+	{
+		return CompanyIndex.aliasesFileFor(this.theFile).lastModified() != dataset.getAliasesModified();
+	}
+
+	/**
+	 * Waits for changes to the file and its aliases file and reloads the file after each, until the
+	 *  watch service is closed.
+	 * @param service The watch service of the file's directory.
+	 */
+	private void watch(WatchService service)
+	{
+		try
+		{
+			while (true)
+			{
+				if (this.concerns(service.take()) && this.settle(service))
+				{
+					try
+					{
+						this.reload();
+					}
+					catch (IOException e)
+					{
+						// The previous dataset is kept until the file changes again.
+					}
+				}
+			}
+		}
+		catch (InterruptedException | ClosedWatchServiceException e)
+		{
+			// The watcher was closed.
+		}
+	}
+
+	/**
+	 * Waits until the file has kept the same length and last modified time for SETTLE_MILLIS, so a file
+	 *  being written is not read until the writer is done. Further events of the directory are discarded.
+	 * @param service The watch service of the file's directory.
+	 * @return true if the file exists and has settled.
+	 * @throws InterruptedException Thrown if the watcher is closed while waiting.
+	 */
+	private boolean settle(WatchService service) throws InterruptedException
+	{
+		long length = -1;
+		long modified = -1;
+		while (this.theFile.length() != length || this.theFile.lastModified() != modified)
+		{
+			length = this.theFile.length();
+			modified = this.theFile.lastModified();
+			WatchKey key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+			if (key != null && this.concerns(key))
+			{
+				length = -1; // The file changed again, so wait a while longer.
+			}
+		}
+		return this.theFile.isFile();
+	}
+
+	/**
+	 * Takes the events of a watch key and checks whether any is a change to the file or its aliases file,
+	 *  ignoring changes to other files of the directory such as the file's indexes.
+	 * @param key The key, which is reset so it reports further events.
+	 * @return true if the file or its aliases file changed, or events may have been lost.
+	 */
+	private boolean concerns(WatchKey key)
+	{
+		String name = this.theFile.getName();
+		String aliases = CompanyIndex.aliasesFileFor(this.theFile).getName();
+		boolean result = false;
+		for (WatchEvent<?> event : key.pollEvents())
+		{
+			Object context = event.context();
+			result |= event.kind() == StandardWatchEventKinds.OVERFLOW
+					|| (context instanceof Path && (context.toString().equals(name) || context.toString().equals(aliases)));
+		}
+		key.reset();
+		return result;
+	}
+}
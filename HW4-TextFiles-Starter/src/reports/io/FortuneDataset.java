@@ -0,0 +1,521 @@
+// NAME: Logan Noonan
+
+package reports.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * The rows of a Fortune 500 csv file held off the heap as primitive columns, loaded once per file and
+ *  shared read-only by every report of the file.
+ * The columns of years, ranks, company ids, revenues, and profits are held in one direct ByteBuffer, so
+ *  a loaded file adds almost nothing for the garbage collector to trace however many rows it has; only the
+ *  distinct company names, see CompanyDictionary, and the first row of each year are held on the heap.
+ * A dataset is loaded with load and then found by YearReport, CompanyReport, and CompanyTimeSeriesReport,
+ *  which use it in place of reading the file while it matches the file's length and last modified time.
+ * Rows are numbered in file order from 0, not counting the column names, as in ColumnarCache and
+ *  CompanyIndex.getRowNumbers.
+ * A dataset carries the CompanyIndex of the same version of the file, so company rows are always looked
+ *  up in an index that matches the dataset's rows even once the file has changed.
+ * A dataset is never changed once loaded, so it may be read by any number of threads. The memory of a
+ *  dataset is released once it is unloaded or replaced and no report is still reading it.
+ * A file watched by a DatasetWatcher keeps its dataset while the file is being replaced, so reports read
+ *  the last complete version of the file until the watcher swaps in the new one.
+ * @author Logan Noonan
+ *
+ */
+public class FortuneDataset
+{
+	/**
+	 * The datasets loaded, keyed by the absolute path of their file.
+	 */
+	private static final ConcurrentHashMap<String, FortuneDataset> LOADED = new ConcurrentHashMap<String, FortuneDataset>();
+
+	/**
+	 * The absolute paths of the files watched by a DatasetWatcher, mapped to the number of watchers.
+	 */
+	private static final ConcurrentHashMap<String, Integer> WATCHED = new ConcurrentHashMap<String, Integer>();
+
+	/**
+	 * The length of the file when it was loaded.
+	 */
+	private final long length;
+
+	/**
+	 * The last modified time of the file when it was loaded.
+	 */
+	private final long modified;
+
+	/**
+	 * The number of rows.
+	 */
+	private final int rowCount;
+
+	/**
+	 * The column of years.
+	 */
+	private final IntBuffer years;
+
+	/**
+	 * The column of ranks.
+	 */
+	private final IntBuffer ranks;
+
+	/**
+	 * The column of company ids.
+	 */
+	private final IntBuffer companyIds;
+
+	/**
+	 * The column of revenues.
+	 */
+	private final DoubleBuffer revenues;
+
+	/**
+	 * The column of profits.
+	 */
+	private final DoubleBuffer profits;
+
+	/**
+	 * The company names the ids refer to.
+	 */
+	private final CompanyDictionary dictionary;
+
+	/**
+	 * The distinct years of the file, in increasing order.
+	 */
+	private final int[] blockYears;
+
+	/**
+	 * The first row of the first run of rows of each year of blockYears.
+	 */
+	private final int[] blockStarts;
+
+	/**
+	 * The number of rows in the first run of rows of each year of blockYears.
+	 */
+	private final int[] blockRows;
+
+	/**
+	 * The company index of the file when it was loaded, or null if it could not be built.
+	 */
+	private final CompanyIndex companyIndex;
+
+	/**
+	 * The last modified time of the file's aliases file when the dataset was loaded, 0 if it had none.
+	 */
+	private final long aliasesModified;
+
+	/**
+	 * Creates new FortuneDataset by reading every row of a csv file.
+	 * @param sourceIn The csv file.
+	 * @throws IOException Thrown if the file cannot be read or changes while it is read.
+	 */
+	private FortuneDataset(File sourceIn) throws IOException
+	{
+		this.length = sourceIn.length();
+		this.modified = sourceIn.lastModified();
+		this.dictionary = new CompanyDictionary();
+		int rows = 0;
+		int[] yearColumn = new int[1024];
+		int[] rankColumn = new int[1024];
+		int[] idColumn = new int[1024];
+		double[] revenueColumn = new double[1024];
+		double[] profitColumn = new double[1024];
+		try (CsvRowReader rowReader = new CsvRowReader(new FileInputStream(sourceIn)))
+		{
+			rowReader.nextRow(); // Skip the first line since it is column names.
+			while (rowReader.nextRow())
+			{
+				if (rows == yearColumn.length)
+				{
+					yearColumn = Arrays.copyOf(yearColumn, rows * 2);
+					rankColumn = Arrays.copyOf(rankColumn, rows * 2);
+					idColumn = Arrays.copyOf(idColumn, rows * 2);
+					revenueColumn = Arrays.copyOf(revenueColumn, rows * 2);
+					profitColumn = Arrays.copyOf(profitColumn, rows * 2);
+				}
+				yearColumn[rows] = rowReader.getYear();
+				rankColumn[rows] = rowReader.getRank();
+				idColumn[rows] = rowReader.getCompanyId(this.dictionary);
+				revenueColumn[rows] = rowReader.getRevenue();
+				profitColumn[rows] = rowReader.getProfit();
+				rows++;
+			}
+		}
+		if ((long) rows * (2 * Double.BYTES + 3 * Integer.BYTES) > Integer.MAX_VALUE)
+		{
+			throw new IOException(sourceIn + " is too large to load.");
+		}
+		this.aliasesModified = CompanyIndex.aliasesFileFor(sourceIn).lastModified();
+		CompanyIndex index;
+		try
+		{
+			index = CompanyIndex.forFile(sourceIn);
+		}
+		catch (IOException e)
+		{
+			index = null;
+		}
+		if (sourceIn.length() != this.length || sourceIn.lastModified() != this.modified)
+		{
+			throw new IOException(sourceIn + " changed while it was loaded.");
+		}
+		this.companyIndex = index;
+		this.rowCount = rows;
+
+		// The doubles come first so they are aligned to eight bytes.
+		int doubleBytes = rows * Double.BYTES;
+		int intBytes = rows * Integer.BYTES;
+		ByteBuffer columns = ByteBuffer.allocateDirect(2 * doubleBytes + 3 * intBytes).order(ByteOrder.nativeOrder());
+		this.revenues = slice(columns, 0, doubleBytes).asDoubleBuffer().put(revenueColumn, 0, rows);
+		this.profits = slice(columns, doubleBytes, doubleBytes).asDoubleBuffer().put(profitColumn, 0, rows);
+		this.years = slice(columns, 2 * doubleBytes, intBytes).asIntBuffer().put(yearColumn, 0, rows);
+		this.ranks = slice(columns, 2 * doubleBytes + intBytes, intBytes).asIntBuffer().put(rankColumn, 0, rows);
+		this.companyIds = slice(columns, 2 * doubleBytes + 2 * intBytes, intBytes).asIntBuffer().put(idColumn, 0, rows);
+
+		int blocks = 0;
+		int[] foundYears = new int[16];
+		int[] foundStarts = new int[16];
+		int[] foundRows = new int[16];
+		for (int row = 0; row < rows; row++)
+		{
+			if (row > 0 && yearColumn[row] == yearColumn[row - 1])
+			{
+				continue;
+			}
+			int end = row + 1;
+			while (end < rows && yearColumn[end] == yearColumn[row])
+			{
+				end++;
+			}
+			boolean seen = false;
+			for (int block = 0; block < blocks && !seen; block++)
+			{
+				seen = foundYears[block] == yearColumn[row];
+			}
+			if (!seen) // Only the first run of a year is kept, as in YearIndex.
+			{
+				if (blocks == foundYears.length)
+				{
+					foundYears = Arrays.copyOf(foundYears, blocks * 2);
+					foundStarts = Arrays.copyOf(foundStarts, blocks * 2);
+					foundRows = Arrays.copyOf(foundRows, blocks * 2);
+				}
+				foundYears[blocks] = yearColumn[row];
+				foundStarts[blocks] = row;
+				foundRows[blocks] = end - row;
+				blocks++;
+			}
+		}
+		Integer[] order = new Integer[blocks];
+		for (int block = 0; block < blocks; block++)
+		{
+			order[block] = block;
+		}
+		final int[] unsorted = foundYears;
+		Arrays.sort(order, new Comparator<Integer>()
+		{
+			/**
+			 * Compares the years of two blocks.
+			 * @param first The first block.
+			 * @param second The second block.
+			 * @return The comparison of the years.
+			 */
+			@Override
+			public int compare(Integer first, Integer second)
+			{
+				return Integer.compare(unsorted[first], unsorted[second]);
+			}
+		});
+		this.blockYears = new int[blocks];
+		this.blockStarts = new int[blocks];
+		this.blockRows = new int[blocks];
+		for (int block = 0; block < blocks; block++)
+		{
+			this.blockYears[block] = foundYears[order[block]];
+			this.blockStarts[block] = foundStarts[order[block]];
+			this.blockRows[block] = foundRows[order[block]];
+		}
+	}
+
+	/**
+	 * Returns part of a buffer as a buffer of its own in the buffer's byte order.
+	 * @param buffer The buffer.
+	 * @param start The index of the part's first byte.
+	 * @param length The number of bytes in the part.
+	 * @return The part.
+	 */
+	private static ByteBuffer slice(ByteBuffer buffer, int start, int length)
+	{
+		return buffer.slice(start, length).order(buffer.order());
+	}
+
+	/**
+	 * Loads a csv file, or returns its dataset if it is already loaded and matches the file.
+	 * The file can be assumed is formatted correctly. Files are loaded one at a time, so a file is never
+	 *  loaded twice at once.
+	 * @param sourceIn - A Fortune 500 csv file.
+	 * @return The file's dataset.
+	 * @throws IOException Thrown if the file cannot be read or is too large to hold in one buffer.
+	 */
+	public static synchronized FortuneDataset load(File sourceIn) throws IOException
+	{
+		FortuneDataset result = getIfLoaded(sourceIn);
+		if (result == null || !result.matches(sourceIn))
+		{
+			result = new FortuneDataset(sourceIn);
+			LOADED.put(sourceIn.getAbsolutePath(), result);
+		}
+		return result;
+	}
+
+	/**
+	 * Reads a csv file into a new dataset without making it the file's loaded dataset, so it can be
+	 *  swapped in with replace once it is complete.
+	 * @param sourceIn A Fortune 500 csv file.
+	 * @return The new dataset.
+	 * @throws IOException Thrown if the file cannot be read, is too large, or changes while it is read.
+	 */
+	static FortuneDataset read(File sourceIn) throws IOException
+	{
+		return new FortuneDataset(sourceIn);
+	}
+
+	/**
+	 * Makes a dataset the loaded dataset of its file in a single write; reports already reading the
+	 *  previous dataset finish with it.
+	 * @param sourceIn The csv file.
+	 * @param datasetIn The file's new dataset.
+	 */
+	static void replace(File sourceIn, FortuneDataset datasetIn)
+	{
+		LOADED.put(sourceIn.getAbsolutePath(), datasetIn);
+	}
+
+	/**
+	 * Marks a file as watched or no longer watched by a DatasetWatcher. The dataset of a watched file is
+	 *  kept when the file changes, until it is replaced.
+	 * @param sourceIn The csv file.
+	 * @param watchedIn true when a watcher starts, false when it stops.
+	 */
+	static void setWatched(File sourceIn, boolean watchedIn)
+	{
+		WATCHED.compute(sourceIn.getAbsolutePath(), new BiFunction<String, Integer, Integer>()
+		{
+			/**
+			 * Counts the watchers of the file.
+			 * @param path The path of the file.
+			 * @param watchers The number of watchers so far, or null if there are none.
+			 * @return The new number of watchers, or null if there are none.
+			 */
+			@Override
+			public Integer apply(String path, Integer watchers)
+			{
+				int count = (watchers == null ? 0 : watchers) + (watchedIn ? 1 : -1);
+				return count > 0 ? count : null;
+			}
+		});
+	}
+
+	/**
+	 * Checks whether the dataset was loaded from the current version of its file.
+	 * @param sourceIn The csv file.
+	 * @return true if the file's length and last modified time are the ones it was loaded with.
+	 */
+	private boolean matches(File sourceIn)
+	{
+		return this.length == sourceIn.length() && this.modified == sourceIn.lastModified();
+	}
+
+	/**
+	 * Returns the dataset of a csv file if it has been loaded and still matches the file's length and last
+	 *  modified time. A dataset that no longer matches is unloaded, unless the file is watched by a
+	 *  DatasetWatcher, in which case it is returned until the watcher replaces it.
+	 * @param sourceIn - A Fortune 500 csv file.
+	 * @return The file's dataset, or null if it is not loaded.
+	 */
+	public static FortuneDataset getIfLoaded(File sourceIn)
+	{
+		if (LOADED.isEmpty())
+		{
+			return null;
+		}
+		String path = sourceIn.getAbsolutePath();
+		FortuneDataset result = LOADED.get(path);
+		if (result != null && !result.matches(sourceIn) && !WATCHED.containsKey(path))
+		{
+			LOADED.remove(path, result);
+			result = null;
+		}
+		return result;
+	}
+
+	/**
+	 * Unloads the dataset of a csv file, so reports read the file again.
+	 * @param sourceIn - A Fortune 500 csv file.
+	 */
+	public static void unload(File sourceIn)
+	{
+		LOADED.remove(sourceIn.getAbsolutePath());
+	}
+
+	/**
+	 * Returns the number of rows.
+	 * @return The number of rows.
+	 */
+	public int getRowCount()
+	{
+		return this.rowCount;
+	}
+
+	/**
+	 * Returns the year of a row.
+	 * @param row The index of the row.
+	 * @return The year.
+	 */
+	public int getYear(int row)
+	{
+		return this.years.get(row);
+	}
+
+	/**
+	 * Returns the rank of a row.
+	 * @param row The index of the row.
+	 * @return The rank.
+	 */
+	public int getRank(int row)
+	{
+		return this.ranks.get(row);
+	}
+
+	/**
+	 * Returns the company id of a row.
+	 * @param row The index of the row.
+	 * @return The company id.
+	 */
+	public int getCompanyId(int row)
+	{
+		return this.companyIds.get(row);
+	}
+
+	/**
+	 * Returns the revenue of a row.
+	 * @param row The index of the row.
+	 * @return The revenue.
+	 */
+	public double getRevenue(int row)
+	{
+		return this.revenues.get(row);
+	}
+
+	/**
+	 * Returns the profit of a row.
+	 * @param row The index of the row.
+	 * @return The profit.
+	 */
+	public double getProfit(int row)
+	{
+		return this.profits.get(row);
+	}
+
+	/**
+	 * Returns the column of revenues, indexed by row, for aggregating many rows at once, see
+	 *  Statistics.addAll. The column is read-only and its position may be changed freely.
+	 * @return The revenues.
+	 */
+	public DoubleBuffer getRevenueColumn()
+	{
+		return this.revenues.asReadOnlyBuffer().clear();
+	}
+
+	/**
+	 * Returns the column of profits, indexed by row, for aggregating many rows at once, see
+	 *  Statistics.addAll. The column is read-only and its position may be changed freely.
+	 * @return The profits.
+	 */
+	public DoubleBuffer getProfitColumn()
+	{
+		return this.profits.asReadOnlyBuffer().clear();
+	}
+
+	/**
+	 * Returns the company names the ids refer to.
+	 * @return The dictionary of company names.
+	 */
+	public CompanyDictionary getDictionary()
+	{
+		return this.dictionary;
+	}
+
+	/**
+	 * Returns the company index of the file as it was when the dataset was loaded, whose row numbers are
+	 *  rows of this dataset.
+	 * @return The index, or null if it could not be built.
+	 */
+	public CompanyIndex getCompanyIndex()
+	{
+		return this.companyIndex;
+	}
+
+	/**
+	 * Returns the last modified time of the file's aliases file when the dataset was loaded, see
+	 *  CompanyIndex.aliasesFileFor.
+	 * @return The time, or 0 if the file had no aliases file.
+	 */
+	public long getAliasesModified()
+	{
+		return this.aliasesModified;
+	}
+
+	/**
+	 * Returns whether the dataset was loaded from the current version of its file.
+	 * @param sourceIn - The dataset's csv file.
+	 * @return true if the file has not changed since the dataset was loaded.
+	 */
+	public boolean isCurrent(File sourceIn)
+	{
+		return this.matches(sourceIn);
+	}
+
+	/**
+	 * Finds the first row of a year.
+	 * @param yearIn - The year.
+	 * @return The index of the first row of the year's first run of rows, or -1 if the file has no rows
+	 *  of the year.
+	 */
+	public int getYearStart(int yearIn)
+	{
+		int block = Arrays.binarySearch(this.blockYears, yearIn);
+		return block < 0 ? -1 : this.blockStarts[block];
+	}
+
+	/**
+	 * Returns the number of rows of a year.
+	 * @param yearIn - The year.
+	 * @return The number of rows in the year's first run of rows, 0 if the file has no rows of the year.
+	 */
+	public int getYearRows(int yearIn)
+	{
+		int block = Arrays.binarySearch(this.blockYears, yearIn);
+		return block < 0 ? 0 : this.blockRows[block];
+	}
+
+	/**
+	 * Returns the number of bytes held off the heap.
+	 * @return The size of the columns in bytes.
+	 */
+	public long getOffHeapBytes()
+	{
+		return (long) this.rowCount * (2 * Double.BYTES + 3 * Integer.BYTES);
+	}
+}
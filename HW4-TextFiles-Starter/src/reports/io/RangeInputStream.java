@@ -0,0 +1,115 @@
+// NAME: Logan Noonan
+
+package reports.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A stream of a list of byte ranges of a file, read one after another as if they were one file.
+ * Only the bytes inside the ranges are read, using positional reads that leave the channel's position alone.
+ * @author Logan Noonan
+ *
+ */
+class RangeInputStream extends InputStream
+{
+	/**
+	 * The channel of the file the ranges are read from.
+	 */
+	private FileChannel channel;
+
+	/**
+	 * The offset of the start of each range.
+	 */
+	private long[] offsets;
+
+	/**
+	 * The number of bytes in each range.
+	 */
+	private int[] lengths;
+
+	/**
+	 * The index of the range being read.
+	 */
+	private int range;
+
+	/**
+	 * The number of bytes of the current range already read.
+	 */
+	private int read;
+
+	/**
+	 * Creates new RangeInputStream.
+	 * @param channelIn The channel of the file to read the ranges from.
+	 * @param offsetsIn The offset of the start of each range.
+	 * @param lengthsIn The number of bytes in each range.
+	 */
+	RangeInputStream(FileChannel channelIn, long[] offsetsIn, int[] lengthsIn)
+	{
+		this.channel = channelIn;
+		this.offsets = offsetsIn;
+		this.lengths = lengthsIn;
+		this.range = 0;
+		this.read = 0;
+	}
+
+	/**
+	 * Reads the next byte of the ranges.
+	 * @return The byte, or -1 if every range has been read.
+	 * @throws IOException Thrown if the file cannot be read.
+	 */
+	@Override
+	public int read() throws IOException
+	{
+		byte[] single = new byte[1];
+		int count = this.read(single, 0, 1);
+		if (count < 0)
+		{
+			return -1;
+		}
+		return single[0] & 0xFF;
+	}
+
+	/**
+	 * Reads bytes of the ranges into an array, never reading past the end of the current range.
+	 * @param bytes The array to read into.
+	 * @param offset The index in the array of the first byte to read.
+	 * @param length The largest number of bytes to read.
+	 * @return The number of bytes read, or -1 if every range has been read.
+	 * @throws IOException Thrown if the file cannot be read.
+	 */
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException
+	{
+		while (true)
+		{
+			while (this.range < this.offsets.length && this.read == this.lengths[this.range])
+			{
+				this.range++;
+				this.read = 0;
+			}
+			if (this.range == this.offsets.length)
+			{
+				return -1;
+			}
+			if (length == 0)
+			{
+				return 0;
+			}
+			int wanted = Math.min(length, this.lengths[this.range] - this.read);
+			int count = this.channel.read(ByteBuffer.wrap(bytes, offset, wanted),
+					this.offsets[this.range] + this.read);
+			if (count < 0)
+			{
+				this.read = this.lengths[this.range]; // The file is shorter than the range.
+			}
+			else if (count > 0)
+			{
+				this.read += count;
+				return count;
+			}
+		}
+	}
+}
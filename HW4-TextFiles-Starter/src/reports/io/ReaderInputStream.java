@@ -0,0 +1,147 @@
+// NAME: Logan Noonan
+
+package reports.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * A stream of the characters of a Reader, encoded with a charset as they are read.
+ * Only a block of characters and a block of bytes are held at a time.
+ * @author Logan Noonan
+ *
+ */
+class ReaderInputStream extends InputStream
+{
+	/**
+	 * The Reader the characters are read from.
+	 */
+	private Reader reader;
+
+	/**
+	 * The encoder of the characters.
+	 */
+	private CharsetEncoder encoder;
+
+	/**
+	 * The characters read but not yet encoded.
+	 */
+	private CharBuffer chars;
+
+	/**
+	 * The bytes encoded but not yet read.
+	 */
+	private ByteBuffer bytes;
+
+	/**
+	 * Whether the Reader has no more characters.
+	 */
+	private boolean endOfInput;
+
+	/**
+	 * Whether every byte has been encoded, including the encoder's final bytes.
+	 */
+	private boolean flushed;
+
+	/**
+	 * Creates new ReaderInputStream.
+	 * @param readerIn The Reader to read characters from.
+	 * @param charsetIn The charset to encode the characters with.
+	 */
+	ReaderInputStream(Reader readerIn, Charset charsetIn)
+	{
+		this.reader = readerIn;
+		this.encoder = charsetIn.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.chars = CharBuffer.allocate(8192);
+		this.chars.flip();
+		this.bytes = ByteBuffer.allocate(16384);
+		this.bytes.flip();
+		this.endOfInput = false;
+		this.flushed = false;
+	}
+
+	/**
+	 * Reads the next byte.
+	 * @return The byte, or -1 if every character has been read.
+	 * @throws IOException Thrown if the Reader cannot be read.
+	 */
+	@Override
+	public int read() throws IOException
+	{
+		byte[] single = new byte[1];
+		int count = this.read(single, 0, 1);
+		if (count < 0)
+		{
+			return -1;
+		}
+		return single[0] & 0xFF;
+	}
+
+	/**
+	 * Reads encoded bytes into an array.
+	 * @param array The array to read into.
+	 * @param offset The index in the array of the first byte to read.
+	 * @param length The largest number of bytes to read.
+	 * @return The number of bytes read, or -1 if every character has been read.
+	 * @throws IOException Thrown if the Reader cannot be read.
+	 */
+	@Override
+	public int read(byte[] array, int offset, int length) throws IOException
+	{
+		if (length == 0)
+		{
+			return 0;
+		}
+		while (!this.bytes.hasRemaining())
+		{
+			if (this.flushed)
+			{
+				return -1;
+			}
+			this.encode();
+		}
+		int count = Math.min(length, this.bytes.remaining());
+		this.bytes.get(array, offset, count);
+		return count;
+	}
+
+	/**
+	 * Encodes the next block of characters, reading more from the Reader when needed.
+	 * @throws IOException Thrown if the Reader cannot be read.
+	 */
+	private void encode() throws IOException
+	{
+		if (!this.endOfInput)
+		{
+			this.chars.compact();
+			int read = this.reader.read(this.chars);
+			this.chars.flip();
+			this.endOfInput = read < 0;
+		}
+		this.bytes.clear();
+		CoderResult result = this.encoder.encode(this.chars, this.bytes, this.endOfInput);
+		if (this.endOfInput && result.isUnderflow())
+		{
+			this.flushed = this.encoder.flush(this.bytes).isUnderflow();
+		}
+		this.bytes.flip();
+	}
+
+	/**
+	 * Closes the Reader.
+	 * @throws IOException Thrown if the Reader cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		this.reader.close();
+	}
+}
@@ -0,0 +1,345 @@
+// NAME: Logan Noonan
+
+package reports.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.text.DecimalFormatSymbols;
+import java.util.Formatter;
+import java.util.Locale;
+
+/**
+ * Formats report values into a reusable StringBuilder and writes reports to files through a FileChannel.
+ * The text produced is exactly the text String.format produces for the same values in the default
+ *  locale: decimals as with %.3f, whole numbers as with %d, and Strings as with %s.
+ * Decimals are formatted directly, except for values that lie too close to halfway between two
+ *  results, values too large for a long, and locales that do not use the digits 0 to 9; those are
+ *  formatted with a Formatter, so the result is always the same as String.format's.
+ * The builder and the buffers used for writing belong to the calling thread, so no thread waits on another
+ *  and formatting and writing a report allocate no new buffers once a thread has written its first report.
+ * @author Logan Noonan
+ *
+ */
+public class ReportWriter
+{
+	/**
+	 * The largest magnitude formatted directly; larger values are formatted with a Formatter.
+	 */
+	private static final double MAX_DIRECT = 1e15;
+
+	/**
+	 * The builders of the threads, see builder.
+	 */
+	private static final ThreadLocal<StringBuilder> BUILDERS = new ThreadLocal<StringBuilder>()
+	{
+		@Override
+		protected StringBuilder initialValue()
+		{
+			return new StringBuilder(512);
+		}
+	};
+
+	/**
+	 * The encoders and buffers of the threads, see write.
+	 */
+	private static final ThreadLocal<Encoding> ENCODINGS = new ThreadLocal<Encoding>();
+
+	/**
+	 * The formatting symbols of the default locale the last time they were looked up.
+	 */
+	private static volatile Symbols symbols = new Symbols(Locale.getDefault(Locale.Category.FORMAT));
+
+	/**
+	 * The formatting symbols of a locale.
+	 */
+	private static class Symbols
+	{
+		/**
+		 * The locale of the symbols.
+		 */
+		private final Locale locale;
+
+		/**
+		 * Whether the locale writes numbers with the digits 0 to 9, so they can be formatted directly.
+		 */
+		private final boolean direct;
+
+		/**
+		 * The locale's decimal separator.
+		 */
+		private final char decimalSeparator;
+
+		/**
+		 * Looks up the symbols of a locale.
+		 * @param localeIn The locale.
+		 */
+		Symbols(Locale localeIn)
+		{
+			this.locale = localeIn;
+			if (localeIn.equals(Locale.US) || localeIn.equals(Locale.ENGLISH) || localeIn.equals(Locale.ROOT))
+			{
+				// Looking up symbols loads the locale data, which takes tens of milliseconds of a short run.
+				this.direct = true;
+				this.decimalSeparator = '.';
+			}
+			else
+			{
+				DecimalFormatSymbols found = DecimalFormatSymbols.getInstance(localeIn);
+				this.direct = found.getZeroDigit() == '0';
+				this.decimalSeparator = found.getDecimalSeparator();
+			}
+		}
+	}
+
+	/**
+	 * The encoder of the default charset and the buffers one thread writes reports with.
+	 */
+	private static class Encoding
+	{
+		/**
+		 * The encoder.
+		 */
+		private final CharsetEncoder encoder;
+
+		/**
+		 * The buffer the encoded report is written from, a block at a time.
+		 */
+		private final ByteBuffer bytes;
+
+		/**
+		 * Creates new Encoding for a charset.
+		 * @param charsetIn The charset.
+		 */
+		Encoding(Charset charsetIn)
+		{
+			this.encoder = charsetIn.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			this.bytes = ByteBuffer.allocateDirect(4096);
+		}
+	}
+
+	/**
+	 * Creates new ReportWriter; not used, since every method is static.
+	 */
+	private ReportWriter()
+	{
+	}
+
+	/**
+	 * Returns the calling thread's builder, emptied. The builder is reused by the thread's next call,
+	 *  so it must not be kept.
+	 * @return The builder.
+	 */
+	public static StringBuilder builder()
+	{
+		StringBuilder result = BUILDERS.get();
+		result.setLength(0);
+		return result;
+	}
+
+	/**
+	 * Returns the formatting symbols of the current default locale.
+	 * @return The symbols.
+	 */
+	private static Symbols currentSymbols()
+	{
+		Symbols result = symbols;
+		Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+		if (!result.locale.equals(locale))
+		{
+			result = new Symbols(locale);
+			symbols = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Appends a value the way String.format's %.3f does: rounded half up to exactly three decimals,
+	 *  with a minus sign for negative values including negative zero, and "nul" for null.
+	 * @param builderIn - Builder to append to.
+	 * @param valueIn - Value to append, or null.
+	 * @return The builder.
+	 */
+	public static StringBuilder appendDecimal(StringBuilder builderIn, Double valueIn)
+	{
+		if (valueIn == null)
+		{
+			return builderIn.append("nul");
+		}
+		double value = valueIn;
+		Symbols current = currentSymbols();
+		double magnitude = Math.abs(value);
+		if (!current.direct || !(magnitude < MAX_DIRECT))
+		{
+			return format(builderIn, current, "%.3f", valueIn);
+		}
+		double scaled = magnitude * 1000.0;
+		double whole = Math.floor(scaled);
+		double fraction = scaled - whole;
+		// Formatter rounds the shortest decimal form of the value, which can lie on the other side of
+		//  a half than the binary value does; such values are left to it.
+		if (Math.abs(fraction - 0.5) <= 4 * Math.ulp(scaled))
+		{
+			return format(builderIn, current, "%.3f", valueIn);
+		}
+		long thousandths = (long) whole;
+		if (fraction > 0.5)
+		{
+			thousandths++;
+		}
+		if (Double.compare(value, 0.0) < 0)
+		{
+			builderIn.append('-');
+		}
+		builderIn.append(thousandths / 1000).append(current.decimalSeparator);
+		int decimals = (int) (thousandths % 1000);
+		if (decimals < 100)
+		{
+			builderIn.append('0');
+		}
+		if (decimals < 10)
+		{
+			builderIn.append('0');
+		}
+		return builderIn.append(decimals);
+	}
+
+	/**
+	 * Appends a whole number the way String.format's %d does.
+	 * @param builderIn - Builder to append to.
+	 * @param valueIn - Value to append.
+	 * @return The builder.
+	 */
+	public static StringBuilder appendWhole(StringBuilder builderIn, long valueIn)
+	{
+		Symbols current = currentSymbols();
+		if (!current.direct)
+		{
+			return format(builderIn, current, "%d", valueIn);
+		}
+		return builderIn.append(valueIn);
+	}
+
+	/**
+	 * Appends a value as a JSON number, in the shortest form that reads back as the same double and
+	 *  whatever the default locale, or null if the value is null, infinite, or not a number.
+	 * @param builderIn - Builder to append to.
+	 * @param valueIn - Value to append, or null.
+	 * @return The builder.
+	 */
+	public static StringBuilder appendJsonNumber(StringBuilder builderIn, Double valueIn)
+	{
+		if (valueIn == null || valueIn.isNaN() || valueIn.isInfinite())
+		{
+			return builderIn.append("null");
+		}
+		return builderIn.append(valueIn.doubleValue());
+	}
+
+	/**
+	 * Appends text as a JSON string, quoted, with quotes, backslashes, and control characters escaped.
+	 * @param builderIn - Builder to append to.
+	 * @param textIn - Text to append.
+	 * @return The builder.
+	 */
+	public static StringBuilder appendJsonString(StringBuilder builderIn, String textIn)
+	{
+		builderIn.append('"');
+		for (int index = 0; index < textIn.length(); index++)
+		{
+			char next = textIn.charAt(index);
+			if (next == '"' || next == '\\')
+			{
+				builderIn.append('\\').append(next);
+			}
+			else if (next < ' ')
+			{
+				builderIn.append("\\u00").append(Character.forDigit(next >> 4, 16))
+						.append(Character.forDigit(next & 15, 16));
+			}
+			else
+			{
+				builderIn.append(next);
+			}
+		}
+		return builderIn.append('"');
+	}
+
+	/**
+	 * Appends a value with a Formatter in the given locale.
+	 * @param builderIn The builder to append to.
+	 * @param current The symbols of the locale.
+	 * @param pattern The format pattern.
+	 * @param valueIn The value.
+	 * @return The builder.
+	 */
+	private static StringBuilder format(StringBuilder builderIn, Symbols current, String pattern, Object valueIn)
+	{
+		new Formatter(builderIn, current.locale).format(pattern, valueIn);
+		return builderIn;
+	}
+
+	/**
+	 * Writes text to a file in the default charset, replacing the file's contents, as a PrintWriter
+	 *  of a FileOutputStream would.
+	 * @param outputFile - File to write to.
+	 * @param textIn - Text to write.
+	 * @return The number of bytes written.
+	 * @throws IOException Thrown if the file cannot be created or written.
+	 */
+	public static long write(File outputFile, CharSequence textIn) throws IOException
+	{
+		Charset charset = Charset.defaultCharset();
+		Encoding encoding = ENCODINGS.get();
+		if (encoding == null || !encoding.encoder.charset().equals(charset))
+		{
+			encoding = new Encoding(charset);
+			ENCODINGS.set(encoding);
+		}
+		CharBuffer chars = CharBuffer.wrap(textIn);
+		encoding.encoder.reset();
+		encoding.bytes.clear();
+		long written = 0;
+		try (FileChannel channel = FileChannel.open(outputFile.toPath(), StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			boolean flushed = false;
+			while (!flushed)
+			{
+				CoderResult result;
+				if (chars.hasRemaining())
+				{
+					result = encoding.encoder.encode(chars, encoding.bytes, true);
+				}
+				else
+				{
+					result = encoding.encoder.flush(encoding.bytes);
+					flushed = result.isUnderflow();
+				}
+				if (result.isError())
+				{
+					throw new CharacterCodingException();
+				}
+				if (result.isOverflow() || flushed)
+				{
+					encoding.bytes.flip();
+					while (encoding.bytes.hasRemaining())
+					{
+						written += channel.write(encoding.bytes);
+					}
+					encoding.bytes.clear();
+				}
+			}
+		}
+		return written;
+	}
+}
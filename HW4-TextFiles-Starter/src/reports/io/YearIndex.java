@@ -0,0 +1,464 @@
+// NAME: Logan Noonan
+
+package reports.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * An index of where the block of rows of each year starts in a Fortune 500 csv file.
+ * Rows are grouped by year, so a year report can seek straight to its block and read only
+ *  that block's rows instead of parsing every earlier year.
+ * The index is kept in a sidecar file next to the csv file and is rebuilt automatically
+ *  whenever the csv file's length or last modified time no longer match the ones it records.
+ * The index found last for a csv file is also kept in memory while the csv file is unchanged, so it is
+ *  built once even when the sidecar file cannot be written, such as in a read-only directory.
+ * A file rewritten with the same length within the resolution of its last modified time looks unchanged,
+ *  so the index also records the CRC-32 checksum of each block, and openYear checks a block's bytes
+ *  against it before they are read, rebuilding the index if they no longer match.
+ * The index file is of the form:
+ *
+ * MAGIC VERSION SOURCELENGTH SOURCEMODIFIED BLOCKS
+ * YEAR OFFSET LENGTH ROWS CHECKSUM
+ * ...
+ *
+ * Where there is one YEAR OFFSET LENGTH ROWS CHECKSUM line for each of the BLOCKS years in the csv file.
+ * @author Logan Noonan
+ *
+ */
+public class YearIndex
+{
+	/**
+	 * The suffix added to the name of a csv file to name its index.
+	 */
+	public static final String SUFFIX = ".yidx";
+
+	/**
+	 * The first int of every index file.
+	 */
+	private static final int MAGIC = 0x59494458;
+
+	/**
+	 * The version of the index file layout.
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * The indexes found so far, keyed by the absolute path of their csv file.
+	 */
+	private static final Map<String, YearIndex> FOUND = new ConcurrentHashMap<String, YearIndex>();
+
+	/**
+	 * The length of the csv file when the index was built.
+	 */
+	private long sourceLength;
+
+	/**
+	 * The last modified time of the csv file when the index was built.
+	 */
+	private long sourceModified;
+
+	/**
+	 * The block of each year, keyed by year.
+	 */
+	private Map<Integer, Block> blocks;
+
+	/**
+	 * The position and size of the block of rows of one year.
+	 */
+	public static class Block
+	{
+		/**
+		 * The year of the block's rows.
+		 */
+		private int year;
+
+		/**
+		 * The offset of the block's first row from the start of the file.
+		 */
+		private long offset;
+
+		/**
+		 * The number of bytes in the block.
+		 */
+		private long length;
+
+		/**
+		 * The number of rows in the block.
+		 */
+		private int rows;
+
+		/**
+		 * The CRC-32 checksum of the block's bytes.
+		 */
+		private long checksum;
+
+		/**
+		 * Creates new Block.
+		 * @param yearIn The year of the block's rows.
+		 * @param offsetIn The offset of the block's first row from the start of the file.
+		 * @param lengthIn The number of bytes in the block.
+		 * @param rowsIn The number of rows in the block.
+		 * @param checksumIn The CRC-32 checksum of the block's bytes.
+		 */
+		Block(int yearIn, long offsetIn, long lengthIn, int rowsIn, long checksumIn)
+		{
+			this.year = yearIn;
+			this.offset = offsetIn;
+			this.length = lengthIn;
+			this.rows = rowsIn;
+			this.checksum = checksumIn;
+		}
+
+		/**
+		 * Reads the block's bytes from the csv file.
+		 * @param channelIn A channel of the csv file.
+		 * @return The bytes, or null if the file ends before the block does.
+		 * @throws IOException Thrown if the file cannot be read.
+		 */
+		byte[] read(FileChannel channelIn) throws IOException
+		{
+			ByteBuffer bytes = ByteBuffer.allocate((int) this.length);
+			while (bytes.hasRemaining())
+			{
+				if (channelIn.read(bytes, this.offset + bytes.position()) < 0)
+				{
+					return null;
+				}
+			}
+			return bytes.array();
+		}
+
+		/**
+		 * Returns the year of the block's rows.
+		 * @return The year.
+		 */
+		public int getYear()
+		{
+			return this.year;
+		}
+
+		/**
+		 * Returns the offset of the block's first row from the start of the file.
+		 * @return The offset in bytes.
+		 */
+		public long getOffset()
+		{
+			return this.offset;
+		}
+
+		/**
+		 * Returns the number of bytes in the block.
+		 * @return The length in bytes.
+		 */
+		public long getLength()
+		{
+			return this.length;
+		}
+
+		/**
+		 * Returns the number of rows in the block.
+		 * @return The number of rows.
+		 */
+		public int getRows()
+		{
+			return this.rows;
+		}
+	}
+
+	/**
+	 * Creates new empty YearIndex for a csv file.
+	 * @param sourceLengthIn The length of the csv file.
+	 * @param sourceModifiedIn The last modified time of the csv file.
+	 */
+	private YearIndex(long sourceLengthIn, long sourceModifiedIn)
+	{
+		this.sourceLength = sourceLengthIn;
+		this.sourceModified = sourceModifiedIn;
+		this.blocks = new TreeMap<Integer, Block>();
+	}
+
+	/**
+	 * Returns the index file of the given csv file.
+	 * @param sourceIn - A Fortune 500 csv file.
+	 * @return The file the csv file's index is stored in.
+	 */
+	public static File indexFileFor(File sourceIn)
+	{
+		return new File(sourceIn.getPath() + SUFFIX);
+	}
+
+	/**
+	 * Returns the up to date index of the given csv file: the index kept in memory, the saved index, or
+	 *  a new index, which is saved and kept in memory. The new index is still kept if it cannot be saved.
+	 * @param sourceIn - A Fortune 500 csv file.
+	 * @return The csv file's index.
+	 * @throws IOException Thrown if the csv file cannot be read.
+	 */
+	public static YearIndex forFile(File sourceIn) throws IOException
+	{
+		String path = sourceIn.getAbsolutePath();
+		YearIndex result = FOUND.get(path);
+		if (result != null && result.sourceLength == sourceIn.length()
+				&& result.sourceModified == sourceIn.lastModified())
+		{
+			return result;
+		}
+		result = load(sourceIn);
+		if (result == null)
+		{
+			result = build(sourceIn);
+			result.keep(sourceIn);
+		}
+		else
+		{
+			FOUND.put(path, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Opens a reader of the rows of a year, read from the year's block through the csv file's up to date
+	 *  index, see forFile. The block's bytes are checked against the checksum the index records, and if
+	 *  they do not match, the csv file was rewritten without changing its length or last modified time,
+	 *  so the index is built again and the block of the new index is read instead.
+	 * @param sourceIn - A Fortune 500 csv file.
+	 * @param channelIn - A channel of the csv file.
+	 * @param yearIn - The year.
+	 * @return A reader of the year's rows, which has no rows if the csv file has no rows for the year.
+	 * @throws IOException Thrown if the csv file cannot be read, or changes while it is read.
+	 */
+	public static CsvRowReader openYear(File sourceIn, FileChannel channelIn, int yearIn) throws IOException
+	{
+		YearIndex index = forFile(sourceIn);
+		byte[] rows = index.readBlock(channelIn, yearIn);
+		if (rows == null)
+		{
+			index = build(sourceIn);
+			index.keep(sourceIn);
+			rows = index.readBlock(channelIn, yearIn);
+			if (rows == null)
+			{
+				throw new IOException("The file " + sourceIn + " changed while it was read.");
+			}
+		}
+		return new CsvRowReader(new ByteArrayInputStream(rows));
+	}
+
+	/**
+	 * Reads the bytes of a year's block and checks them against the block's checksum.
+	 * @param channel A channel of the csv file.
+	 * @param year The year.
+	 * @return The block's bytes, no bytes if the year has no block, or null if the bytes do not match.
+	 * @throws IOException Thrown if the csv file cannot be read.
+	 */
+	private byte[] readBlock(FileChannel channel, int year) throws IOException
+	{
+		Block block = this.blocks.get(year);
+		if (block == null)
+		{
+			return new byte[0];
+		}
+		byte[] bytes = block.read(channel);
+		if (bytes == null)
+		{
+			return null;
+		}
+		return checksum(bytes) == block.checksum ? bytes : null;
+	}
+
+	/**
+	 * Computes the CRC-32 checksum of the bytes of a block.
+	 * @param bytes The bytes.
+	 * @return The checksum.
+	 */
+	private static long checksum(byte[] bytes)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		return crc.getValue();
+	}
+
+	/**
+	 * Saves a new index of a csv file and keeps it in memory. The index is still kept if it cannot be saved.
+	 * @param sourceIn The csv file.
+	 */
+	private void keep(File sourceIn)
+	{
+		try
+		{
+			this.save(indexFileFor(sourceIn));
+		}
+		catch (IOException e)
+		{
+			// The index is kept in memory, and saving it is tried again once the csv file changes.
+		}
+		FOUND.put(sourceIn.getAbsolutePath(), this);
+	}
+
+	/**
+	 * Loads the saved index of the given csv file if it is up to date.
+	 * @param sourceIn - A Fortune 500 csv file.
+	 * @return The index, or null if there is no up to date saved index.
+	 */
+	private static YearIndex load(File sourceIn)
+	{
+		File indexFile = indexFileFor(sourceIn);
+		if (!indexFile.isFile())
+		{
+			return null;
+		}
+		try (DataInputStream input = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(indexFile))))
+		{
+			if (input.readInt() != MAGIC || input.readInt() != VERSION)
+			{
+				return null;
+			}
+			YearIndex result = new YearIndex(input.readLong(), input.readLong());
+			if (result.sourceLength != sourceIn.length() || result.sourceModified != sourceIn.lastModified())
+			{
+				return null;
+			}
+			int count = input.readInt();
+			for (int block = 0; block < count; block++)
+			{
+				int year = input.readInt();
+				result.blocks.put(year, new Block(year, input.readLong(), input.readLong(), input.readInt(),
+						input.readLong()));
+			}
+			return result;
+		}
+		catch (IOException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Builds the index of a csv file by reading it once, then reads each block again for its checksum.
+	 * Only the first block of rows of each year is indexed, matching the rows a YearReport reads.
+	 * @param sourceIn - A Fortune 500 csv file.
+	 * @return The new index.
+	 * @throws IOException Thrown if the csv file cannot be read.
+	 */
+	public static YearIndex build(File sourceIn) throws IOException
+	{
+		YearIndex result = new YearIndex(sourceIn.length(), sourceIn.lastModified());
+		try (CsvRowReader rowReader = new CsvRowReader(new FileInputStream(sourceIn)))
+		{
+			rowReader.nextRow(); // Skip the first line since it is column names.
+			int year = 0;
+			long offset = 0;
+			long end = 0;
+			int rows = 0;
+			while (rowReader.nextRow())
+			{
+				int rowYear = rowReader.getYear();
+				if (rows == 0 || rowYear != year)
+				{
+					result.addBlock(year, offset, end, rows);
+					year = rowYear;
+					offset = rowReader.getRowOffset();
+					rows = 0;
+				}
+				rows++;
+				end = rowReader.getNextRowOffset();
+			}
+			result.addBlock(year, offset, end, rows);
+		}
+		try (FileChannel channel = FileChannel.open(sourceIn.toPath(), StandardOpenOption.READ))
+		{
+			for (Block block : result.blocks.values())
+			{
+				byte[] bytes = block.read(channel);
+				if (bytes == null)
+				{
+					throw new IOException("The file " + sourceIn + " changed while it was read.");
+				}
+				block.checksum = checksum(bytes);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Adds a block to the index unless it is empty or its year already has a block.
+	 * @param year The year of the block's rows.
+	 * @param offset The offset of the block's first row.
+	 * @param end The offset after the block's last row.
+	 * @param rows The number of rows in the block.
+	 */
+	private void addBlock(int year, long offset, long end, int rows)
+	{
+		if (rows > 0 && !this.blocks.containsKey(year))
+		{
+			this.blocks.put(year, new Block(year, offset, end - offset, rows, 0));
+		}
+	}
+
+	/**
+	 * Saves the index to a file. The index is written to a new temporary file in the same directory that
+	 *  then replaces the index file, so readers never see a partly written index, and programs saving
+	 *  the index at the same time do not write over each other's temporary files.
+	 * @param indexFile The file to save the index to.
+	 * @throws IOException Thrown if the file cannot be written.
+	 */
+	private void save(File indexFile) throws IOException
+	{
+		File target = indexFile.getAbsoluteFile();
+		Path temporary = Files.createTempFile(target.getParentFile().toPath(), target.getName(), ".tmp");
+		try
+		{
+			try (DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(temporary))))
+			{
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeLong(this.sourceLength);
+				output.writeLong(this.sourceModified);
+				output.writeInt(this.blocks.size());
+				for (Block block : this.blocks.values())
+				{
+					output.writeInt(block.year);
+					output.writeLong(block.offset);
+					output.writeLong(block.length);
+					output.writeInt(block.rows);
+					output.writeLong(block.checksum);
+				}
+			}
+			Files.move(temporary, target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally
+		{
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * Returns the block of rows of a year.
+	 * @param yearIn The year.
+	 * @return The year's block, or null if the csv file has no rows for the year.
+	 */
+	public Block getBlock(int yearIn)
+	{
+		return this.blocks.get(yearIn);
+	}
+}
@@ -0,0 +1,188 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import reports.io.ColumnarCache;
+import reports.io.FortuneDataset;
+
+/**
+ * Tests that a CompanyReport gives the same text as the original CompanyReport whichever way its rows are
+ *  read: by scanning the csv file, through the company index, from the columnar cache, from a loaded
+ *  dataset, and from a stream; and that companies are matched ignoring case and extra spaces.
+ * @author Logan Noonan
+ *
+ */
+public class CompanyReportTest
+{
+	/**
+	 * The number of years of the test file.
+	 */
+	private static final int YEARS = 8;
+
+	/**
+	 * The number of companies ranked each year in the test file.
+	 */
+	private static final int COMPANIES = 60;
+
+	/**
+	 * A directory for the test files.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Processes a report and returns its text.
+	 * @param report The report.
+	 * @return The report's toString.
+	 */
+	private static String process(CompanyReport report)
+	{
+		assertTrue(report.processReport());
+		return report.toString();
+	}
+
+	/**
+	 * Checks the report of every company of the pool, including companies the file never ranks.
+	 * @param rows The rows of the file.
+	 * @param file The file.
+	 */
+	private static void checkAll(List<String> rows, File file)
+	{
+		for (int company = 0; company < COMPANIES * 2 + 2; company++)
+		{
+			String name = TestData.companyName(company);
+			assertEquals(TestData.companyReport(rows, name), process(new CompanyReport(file, name)));
+		}
+	}
+
+	/**
+	 * Tests the reports of a file scanned for the first time, and again once its company index is saved.
+	 * @throws IOException Thrown if the test file cannot be written.
+	 */
+	@Test
+	public void matchesOriginalWhenScanned() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, YEARS, COMPANIES, 11);
+		File file = TestData.write(this.directory, "scan.csv", rows);
+		checkAll(rows, file);
+		checkAll(rows, file);
+	}
+
+	/**
+	 * Tests the reports read from the columnar cache.
+	 * @throws IOException Thrown if the test file or its cache cannot be written.
+	 */
+	@Test
+	public void matchesOriginalFromCache() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, YEARS, COMPANIES, 12);
+		File file = TestData.write(this.directory, "cached.csv", rows);
+		assertNotNull(ColumnarCache.convert(file));
+		checkAll(rows, file);
+	}
+
+	/**
+	 * Tests the reports read from a loaded dataset.
+	 * @throws IOException Thrown if the test file cannot be written or loaded.
+	 */
+	@Test
+	public void matchesOriginalFromDataset() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, YEARS, COMPANIES, 13);
+		File file = TestData.write(this.directory, "dataset.csv", rows);
+		FortuneDataset.load(file);
+		try
+		{
+			checkAll(rows, file);
+		}
+		finally
+		{
+			FortuneDataset.unload(file);
+		}
+	}
+
+	/**
+	 * Tests the reports read from a stream.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void matchesOriginalFromStream() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, YEARS, COMPANIES, 14);
+		File file = TestData.write(this.directory, "stream.csv", rows);
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		for (int company = 0; company < COMPANIES * 2; company++)
+		{
+			String name = TestData.companyName(company);
+			assertEquals(TestData.companyReport(rows, name),
+					process(new CompanyReport(new ByteArrayInputStream(bytes), name)));
+		}
+	}
+
+	/**
+	 * Tests that a company spelled with other case and spacing finds the same rows on every read path.
+	 * @throws IOException Thrown if the test file or its sidecar files cannot be written.
+	 */
+	@Test
+	public void matchesNamesIgnoringCaseAndSpaces() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, YEARS, COMPANIES, 15);
+		File file = TestData.write(this.directory, "names.csv", rows);
+		String name = TestData.companyName(7);
+		String spelled = "  COMPANY   7 ";
+		String expected = TestData.companyReport(rows, name).replace(name, spelled);
+		assertEquals(expected, process(new CompanyReport(file, spelled)));
+		assertEquals(expected, process(new CompanyReport(file, spelled)));
+		assertNotNull(ColumnarCache.convert(file));
+		assertEquals(expected, process(new CompanyReport(file, spelled)));
+		assertEquals(expected, process(new CompanyReport(new ByteArrayInputStream(
+				Files.readAllBytes(file.toPath())), spelled)));
+	}
+
+	/**
+	 * Tests that a null company is reported with no rows on every read path, as the original report was.
+	 * @throws Exception Thrown if the test file or its sidecar files cannot be written.
+	 */
+	@Test
+	public void reportsNullCompanyWithNoRows() throws Exception
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, YEARS, COMPANIES, 16);
+		File file = TestData.write(this.directory, "null.csv", rows);
+		String expected = TestData.companyReport(rows, null);
+		assertEquals(expected, process(new CompanyReport(file, null)));
+		assertEquals(expected, process(new CompanyReport(file, null)));
+		assertEquals(expected, process(new CompanyReport(new ByteArrayInputStream(
+				Files.readAllBytes(file.toPath())), null)));
+		FortuneDataset.load(file);
+		try
+		{
+			assertEquals(expected, process(new CompanyReport(file, null)));
+		}
+		finally
+		{
+			FortuneDataset.unload(file);
+		}
+		assertNotNull(ColumnarCache.convert(file));
+		assertEquals(expected, process(new CompanyReport(file, null)));
+		ReportSnapshot.write(file);
+		assertEquals(expected, process(new CompanyReport(file, null)));
+		ReportEngine engine = new ReportEngine(file);
+		assertTrue(engine.processReports());
+		assertEquals(expected, engine.getCompanyReport(null).toString());
+		assertEquals(expected, new ReportCache(10, 1 << 20).getCompanyReport(file, null).toString());
+	}
+}
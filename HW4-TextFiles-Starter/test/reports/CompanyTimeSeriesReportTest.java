@@ -0,0 +1,220 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
+
+import reports.io.ColumnarCache;
+import reports.io.DataSource;
+
+/**
+ * Tests the series of a CompanyTimeSeriesReport against values worked out by hand for a short history with a
+ *  missing year: growth, rank changes, rolling averages, compound annual growth rates, the text, and the csv.
+ * @author Logan Noonan
+ *
+ */
+public class CompanyTimeSeriesReportTest
+{
+	/**
+	 * The rows of the test file. Acme is ranked in 1990 to 1992 and 1994 to 1995, with a loss in 1991 and no
+	 *  profit in 1992; Loss Co makes a loss in its first year; Fading Co ends with no revenue; and Once Co is
+	 *  ranked in one year only.
+	 */
+	private static final List<String> ROWS = Arrays.asList(
+			"1990,3,Loss Co,50,-2",
+			"1990,10,Acme,100,10",
+			"1990,11,Fading Co,40,4",
+			"1991,2,Loss Co,60,3",
+			"1991,8,Acme,110,-5",
+			"1991,12,Fading Co,0,1",
+			"1992,9,Acme,121,0",
+			"1992,1,Once Co,500,50",
+			"1993,4,Other Co,70,7",
+			"1994,5,Acme,200,20",
+			"1995,6,Acme,150,10");
+
+	/**
+	 * A directory for the test files.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Returns the text of the test file.
+	 * @return The column names and rows.
+	 */
+	private static String text()
+	{
+		StringBuilder result = new StringBuilder(TestData.HEADER);
+		for (String row : ROWS)
+		{
+			result.append('\n').append(row);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Checks every series of a processed report of Acme with windows of 2 and 3 years.
+	 * @param report The report.
+	 * @throws Exception Thrown if the report has not been processed.
+	 */
+	private static void checkAcme(CompanyTimeSeriesReport report) throws Exception
+	{
+		double nan = Double.NaN;
+		assertArrayEquals(new int[] {1990, 1991, 1992, 1994, 1995}, report.getYears());
+		assertArrayEquals(new int[] {10, 8, 9, 5, 6}, report.getRanks());
+		assertArrayEquals(new double[] {100, 110, 121, 200, 150}, report.getRevenues());
+		assertArrayEquals(new double[] {10, -5, 0, 20, 10}, report.getProfits());
+		// 1994 follows a year the company was not ranked, so it has no change or growth.
+		assertArrayEquals(new double[] {nan, 2, -1, nan, -1}, report.getRankChanges());
+		assertArrayEquals(new double[] {nan, (110.0 - 100.0) / 100.0 * 100.0, (121.0 - 110.0) / 110.0 * 100.0, nan,
+				-25}, report.getRevenueGrowth());
+		// Growth is relative to the size of the previous value, so a loss shrinking to zero is growth.
+		assertArrayEquals(new double[] {nan, -150, 100, nan, -50}, report.getProfitGrowth());
+		// The 2 year window of 1994 starts after 1992, and the 3 year window of 1995 after 1993.
+		assertArrayEquals(new double[] {100, 105, 115.5, 200, 175}, report.getRevenueAverages(2));
+		assertArrayEquals(new double[] {10, 2.5, -2.5, 20, 15}, report.getProfitAverages(2));
+		assertArrayEquals(new double[] {100, 105, (100.0 + 110.0 + 121.0) / 3, 160.5, 175},
+				report.getRevenueAverages(3));
+		assertArrayEquals(new double[] {10, 2.5, (10.0 - 5.0 + 0.0) / 3, 10, 15}, report.getProfitAverages(3));
+		assertEquals((Math.pow(150.0 / 100.0, 1.0 / 5) - 1.0) * 100.0, report.getRevenueGrowthRate().doubleValue());
+		assertEquals(0.0, report.getProfitGrowthRate().doubleValue());
+	}
+
+	/**
+	 * Tests the series of Acme read from a file through its company index, from its columnar cache, and from
+	 *  a stream, with its name in another case.
+	 * @throws Exception Thrown if the test file cannot be written or a report has not been processed.
+	 */
+	@Test
+	public void computesSeries() throws Exception
+	{
+		File file = TestData.write(this.directory, "series.csv", ROWS);
+		CompanyTimeSeriesReport indexed = new CompanyTimeSeriesReport(DataSource.of(file), "Acme", 2, 3);
+		assertTrue(indexed.processReport());
+		checkAcme(indexed);
+		assertNotNull(ColumnarCache.convert(file));
+		CompanyTimeSeriesReport cached = new CompanyTimeSeriesReport(DataSource.of(file), "Acme", 2, 3);
+		assertTrue(cached.processReport());
+		checkAcme(cached);
+		CompanyTimeSeriesReport streamed = new CompanyTimeSeriesReport(DataSource.of(new StringReader(text())),
+				"ACME", 2, 3);
+		assertTrue(streamed.processReport());
+		checkAcme(streamed);
+	}
+
+	/**
+	 * Tests that there is no compound annual growth rate when a first or last value is not positive, or the
+	 *  company was ranked in one year only.
+	 * @throws Exception Thrown if the test file cannot be written or a report has not been processed.
+	 */
+	@Test
+	public void hasNoRateOfValuesNotPositive() throws Exception
+	{
+		File file = TestData.write(this.directory, "rates.csv", ROWS);
+		CompanyTimeSeriesReport loss = new CompanyTimeSeriesReport(file, "Loss Co");
+		assertTrue(loss.processReport());
+		assertEquals((60.0 / 50.0 - 1.0) * 100.0, loss.getRevenueGrowthRate().doubleValue());
+		assertNull(loss.getProfitGrowthRate());
+		assertArrayEquals(new double[] {Double.NaN, 250}, loss.getProfitGrowth());
+		CompanyTimeSeriesReport fading = new CompanyTimeSeriesReport(file, "Fading Co");
+		assertTrue(fading.processReport());
+		assertNull(fading.getRevenueGrowthRate());
+		assertEquals((Math.pow(1.0 / 4.0, 1.0) - 1.0) * 100.0, fading.getProfitGrowthRate().doubleValue());
+		CompanyTimeSeriesReport once = new CompanyTimeSeriesReport(file, "Once Co");
+		assertTrue(once.processReport());
+		assertNull(once.getRevenueGrowthRate());
+		assertNull(once.getProfitGrowthRate());
+		assertArrayEquals(new double[] {Double.NaN}, once.getRevenueGrowth());
+	}
+
+	/**
+	 * Tests the text of a report, and of a company that was never ranked.
+	 * @throws Exception Thrown if the test file cannot be written.
+	 */
+	@Test
+	public void formatsText() throws Exception
+	{
+		File file = TestData.write(this.directory, "text.csv", ROWS);
+		CompanyTimeSeriesReport report = new CompanyTimeSeriesReport(file, "Loss Co");
+		assertTrue(report.processReport());
+		assertEquals("Fortune 500 Time Series Report for Loss Co ranked 2 times\n"
+				+ "Revenue CAGR: 20.000 Profit CAGR: nul\n"
+				+ "1990 Rank: 3 Change: null Revenue: 50.000 Growth: nul Profit: -2.000 Growth: nul"
+				+ " Avg 3: 50.000 -2.000 Avg 5: 50.000 -2.000\n"
+				+ "1991 Rank: 2 Change: 1 Revenue: 60.000 Growth: 20.000 Profit: 3.000 Growth: 250.000"
+				+ " Avg 3: 55.000 0.500 Avg 5: 55.000 0.500", report.toString());
+		CompanyTimeSeriesReport unknown = new CompanyTimeSeriesReport(file, "Unknown");
+		assertTrue(unknown.processReport());
+		assertEquals("Fortune 500 Time Series Report for Unknown ranked 0 times\n"
+				+ "Revenue CAGR: nul Profit CAGR: nul", unknown.toString());
+	}
+
+	/**
+	 * Tests the csv written for Acme, with empty values where there is no change or growth.
+	 * @throws Exception Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void writesCsv() throws Exception
+	{
+		File file = TestData.write(this.directory, "csv.csv", ROWS);
+		CompanyTimeSeriesReport report = new CompanyTimeSeriesReport(DataSource.of(file), "Acme", 2, 3);
+		assertTrue(report.processReport());
+		File output = this.directory.resolve("acme.csv").toFile();
+		assertTrue(report.writeCsv(output));
+		assertEquals("year,rank,rank_change,revenue,revenue_growth,profit,profit_growth,"
+				+ "revenue_avg_2,profit_avg_2,revenue_avg_3,profit_avg_3\n"
+				+ "1990,10,,100.0,,10.0,,100.0,10.0,100.0,10.0\n"
+				+ "1991,8,2,110.0," + (110.0 - 100.0) / 100.0 * 100.0 + ",-5.0,-150.0,105.0,2.5,105.0,2.5\n"
+				+ "1992,9,-1,121.0," + (121.0 - 110.0) / 110.0 * 100.0 + ",0.0,100.0,115.5,-2.5,"
+				+ (100.0 + 110.0 + 121.0) / 3 + "," + (10.0 - 5.0 + 0.0) / 3 + "\n"
+				+ "1994,5,,200.0,,20.0,,200.0,20.0,160.5,10.0\n"
+				+ "1995,6,-1,150.0,-25.0,10.0,-50.0,175.0,15.0,175.0,15.0\n",
+				new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Tests that windows must be at least one year, and that only the report's windows can be asked for.
+	 * @throws Exception Thrown if the test file cannot be written.
+	 */
+	@Test
+	public void rejectsBadWindows() throws Exception
+	{
+		File file = TestData.write(this.directory, "windows.csv", ROWS);
+		final CompanyTimeSeriesReport report = new CompanyTimeSeriesReport(file, "Acme");
+		assertTrue(report.processReport());
+		assertThrows(IllegalArgumentException.class, new Executable()
+		{
+			@Override
+			public void execute() throws Throwable
+			{
+				report.getRevenueAverages(4);
+			}
+		});
+		assertThrows(IllegalArgumentException.class, new Executable()
+		{
+			@Override
+			public void execute() throws Throwable
+			{
+				new CompanyTimeSeriesReport(DataSource.of(new StringReader(text())), "Acme", 3, 0);
+			}
+		});
+	}
+}
@@ -0,0 +1,131 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * Tests that a QuantileSketch gives exact quantiles until it is full and quantiles within its rank error
+ *  after that, and that it gives the same quantiles for the same values.
+ * @author Logan Noonan
+ *
+ */
+public class QuantileSketchTest
+{
+	/**
+	 * Returns the exact value at a quantile of sorted values, as QuantileSketch.getQuantile defines it.
+	 * @param sorted The values in increasing order.
+	 * @param quantile The fraction, from 0 to 1.
+	 * @return The smallest value such that the values up to it are at least the fraction of the values.
+	 */
+	private static double exact(double[] sorted, double quantile)
+	{
+		int rank = (int) Math.ceil(quantile * sorted.length);
+		return sorted[Math.max(0, rank - 1)];
+	}
+
+	/**
+	 * Tests that the quantiles of fewer values than the sketch size are exact.
+	 */
+	@Test
+	public void exactUntilFull()
+	{
+		Random random = new Random(41);
+		QuantileSketch sketch = new QuantileSketch();
+		double[] values = new double[QuantileSketch.DEFAULT_SIZE - 1];
+		for (int index = 0; index < values.length; index++)
+		{
+			values[index] = random.nextGaussian() * 1000;
+			sketch.add(values[index]);
+		}
+		Arrays.sort(values);
+		for (double quantile = 0.0; quantile <= 1.0; quantile += 0.05)
+		{
+			assertEquals(exact(values, quantile), sketch.getQuantile(quantile).doubleValue());
+		}
+		assertEquals(values.length, sketch.getCount());
+	}
+
+	/**
+	 * Tests that the rank of each quantile of many values is close to the rank asked for.
+	 */
+	@Test
+	public void withinRankError()
+	{
+		Random random = new Random(42);
+		QuantileSketch sketch = new QuantileSketch();
+		double[] values = new double[200000];
+		for (int index = 0; index < values.length; index++)
+		{
+			values[index] = random.nextDouble() * 1.0e6 - 2.0e5;
+			sketch.add(values[index]);
+		}
+		Arrays.sort(values);
+		for (double quantile = 0.01; quantile < 1.0; quantile += 0.01)
+		{
+			double found = sketch.getQuantile(quantile);
+			int rank = Arrays.binarySearch(values, found);
+			assertTrue(rank >= 0, "The sketch returned a value that was never added");
+			double error = Math.abs((rank + 1) / (double) values.length - quantile);
+			assertTrue(error < 3.0 / Math.sqrt(QuantileSketch.DEFAULT_SIZE), "Rank error " + error + " at " + quantile);
+		}
+	}
+
+	/**
+	 * Tests that the same values give the same quantiles, and that values that are not numbers are ignored.
+	 */
+	@Test
+	public void repeatable()
+	{
+		QuantileSketch first = new QuantileSketch(64);
+		QuantileSketch second = new QuantileSketch(64);
+		Random random = new Random(43);
+		for (int index = 0; index < 50000; index++)
+		{
+			double value = random.nextDouble();
+			first.add(value);
+			second.add(value);
+			second.add(Double.NaN);
+		}
+		assertEquals(first.getCount(), second.getCount());
+		for (double quantile = 0.0; quantile <= 1.0; quantile += 0.1)
+		{
+			assertEquals(first.getQuantile(quantile), second.getQuantile(quantile));
+		}
+	}
+
+	/**
+	 * Tests a sketch without values and arguments out of range.
+	 */
+	@Test
+	public void rejectsBadArguments()
+	{
+		final QuantileSketch sketch = new QuantileSketch();
+		assertNull(sketch.getQuantile(0.5));
+		assertThrows(IllegalArgumentException.class, new Executable()
+		{
+			@Override
+			public void execute()
+			{
+				sketch.getQuantile(1.5);
+			}
+		});
+		assertThrows(IllegalArgumentException.class, new Executable()
+		{
+			@Override
+			public void execute()
+			{
+				new QuantileSketch(1);
+			}
+		});
+	}
+}
@@ -0,0 +1,173 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a ReportArchive reads back each report a ReportArchiveWriter added, by name and in any order,
+ *  as the report's toString, and that an archive that is not complete is not opened.
+ * @author Logan Noonan
+ *
+ */
+public class ReportArchiveTest
+{
+	/**
+	 * A directory for the test files.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Writes an archive of the year and company reports of a file, added alternately.
+	 * @param file The data file.
+	 * @param archiveFile The archive file.
+	 * @param companies The companies to add.
+	 * @return The text of each report added, keyed by its name in the order added.
+	 * @throws Exception Thrown if a report cannot be processed or the archive cannot be written.
+	 */
+	private static Map<String, String> writeArchive(File file, File archiveFile, List<String> companies)
+			throws Exception
+	{
+		Map<String, String> result = new LinkedHashMap<String, String>();
+		try (ReportArchiveWriter writer = new ReportArchiveWriter(archiveFile))
+		{
+			for (int index = 0; index < companies.size(); index++)
+			{
+				if (index < 8)
+				{
+					YearReport year = new YearReport(file, Report.MINYEAR + index);
+					assertTrue(year.processReport());
+					writer.add(year);
+					result.put(ReportArchive.yearName(Report.MINYEAR + index), year.toString());
+				}
+				CompanyReport company = new CompanyReport(file, companies.get(index));
+				assertTrue(company.processReport());
+				writer.add(company);
+				result.put(ReportArchive.companyName(companies.get(index)), company.toString());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Tests that year and company reports, including names that are not ASCII, read back as written.
+	 * @throws Exception Thrown if a report cannot be processed or the archive cannot be written or read.
+	 */
+	@Test
+	public void readsBackEveryReport() throws Exception
+	{
+		List<String> rows = new ArrayList<String>(TestData.rows(Report.MINYEAR, 8, 100, 51));
+		rows.add(Report.MINYEAR + 8 + ",1,Soci\u00e9t\u00e9 G\u00e9n\u00e9rale,120.5,7.5");
+		File file = TestData.write(this.directory, "archive.csv", rows);
+		List<String> companies = new ArrayList<String>();
+		for (int company = 0; company < 200; company++)
+		{
+			companies.add(TestData.companyName(company));
+		}
+		companies.add("Soci\u00e9t\u00e9 G\u00e9n\u00e9rale");
+		File archiveFile = this.directory.resolve("reports.f500a").toFile();
+		Map<String, String> written = writeArchive(file, archiveFile, companies);
+		try (ReportArchive archive = new ReportArchive(archiveFile))
+		{
+			assertEquals(new ArrayList<String>(written.keySet()), archive.getNames());
+			List<String> names = new ArrayList<String>(written.keySet());
+			Collections.shuffle(names, new Random(52));
+			for (String name : names)
+			{
+				assertTrue(archive.contains(name));
+				assertEquals(written.get(name), archive.read(name));
+			}
+			assertEquals(written.get(ReportArchive.yearName(Report.MINYEAR + 3)),
+					archive.readYearReport(Report.MINYEAR + 3));
+			assertEquals(TestData.companyReport(rows, TestData.companyName(17)),
+					archive.readCompanyReport(TestData.companyName(17)));
+			assertFalse(archive.contains(ReportArchive.companyName("Unknown")));
+			assertNull(archive.readCompanyReport("Unknown"));
+			assertNull(archive.readYearReport(Report.MINYEAR + 50));
+		}
+	}
+
+	/**
+	 * Tests that a report cannot be added twice, and that reports cannot be added once the writer is closed.
+	 * @throws Exception Thrown if a report cannot be processed or the archive cannot be written.
+	 */
+	@Test
+	public void rejectsRepeatedAndLateReports() throws Exception
+	{
+		File file = TestData.write(this.directory, "repeated.csv", TestData.rows(Report.MINYEAR, 2, 10, 53));
+		final YearReport report = new YearReport(file, Report.MINYEAR);
+		assertTrue(report.processReport());
+		final ReportArchiveWriter writer = new ReportArchiveWriter(this.directory.resolve("a.f500a").toFile());
+		writer.add(report);
+		assertThrows(IllegalArgumentException.class, new Executable()
+		{
+			@Override
+			public void execute() throws Throwable
+			{
+				writer.add(report);
+			}
+		});
+		writer.close();
+		assertThrows(IOException.class, new Executable()
+		{
+			@Override
+			public void execute() throws Throwable
+			{
+				writer.add(report);
+			}
+		});
+	}
+
+	/**
+	 * Tests that an archive cut short at any length is not opened.
+	 * @throws Exception Thrown if a report cannot be processed or the archive cannot be written or read.
+	 */
+	@Test
+	public void doesNotOpenIncompleteArchive() throws Exception
+	{
+		File file = TestData.write(this.directory, "cut.csv", TestData.rows(Report.MINYEAR, 8, 20, 54));
+		List<String> companies = new ArrayList<String>();
+		for (int company = 0; company < 10; company++)
+		{
+			companies.add(TestData.companyName(company));
+		}
+		final File archiveFile = this.directory.resolve("cut.f500a").toFile();
+		writeArchive(file, archiveFile, companies);
+		long length = archiveFile.length();
+		for (long cut = length - 1; cut >= 0; cut -= 13)
+		{
+			try (RandomAccessFile archive = new RandomAccessFile(archiveFile, "rw"))
+			{
+				archive.setLength(cut);
+			}
+			assertThrows(IOException.class, new Executable()
+			{
+				@Override
+				public void execute() throws Throwable
+				{
+					new ReportArchive(archiveFile).close();
+				}
+			}, "Opened an archive cut to " + cut + " bytes");
+		}
+	}
+}
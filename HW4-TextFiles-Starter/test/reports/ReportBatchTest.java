@@ -0,0 +1,182 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a ReportBatch writes the same reports as the original YearReport and CompanyReport, one file
+ *  per report, and gives companies file names that differ ignoring case and are not too long.
+ * @author Logan Noonan
+ *
+ */
+public class ReportBatchTest
+{
+	/**
+	 * A directory for the test files.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Returns the text of a written report.
+	 * @param file The report's file.
+	 * @return The file's text.
+	 * @throws IOException Thrown if the file cannot be read.
+	 */
+	private static String read(File file) throws IOException
+	{
+		return new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset());
+	}
+
+	/**
+	 * Tests the year and company reports written on an executor of several threads.
+	 * @throws IOException Thrown if the test file or the reports cannot be written.
+	 */
+	@Test
+	public void writesYearAndCompanyReports() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 6, 40, 41);
+		File file = TestData.write(this.directory, "batch.csv", rows);
+		File output = this.directory.resolve("reports").toFile();
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try
+		{
+			ReportBatch batch = new ReportBatch(file, output, executor);
+			List<Integer> years = new ArrayList<Integer>();
+			for (int year = Report.MINYEAR; year < Report.MINYEAR + 6; year++)
+			{
+				years.add(year);
+			}
+			assertEquals(6, batch.writeYearReports(years));
+			List<String> companies = new ArrayList<String>();
+			for (int company = 0; company < 82; company++)
+			{
+				companies.add(TestData.companyName(company));
+			}
+			assertEquals(82, batch.writeCompanyReports(companies));
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+		for (int year = Report.MINYEAR; year < Report.MINYEAR + 6; year++)
+		{
+			assertEquals(TestData.yearReport(rows, year), read(new File(output, "year_" + year + ".txt")));
+		}
+		for (int company = 0; company < 82; company++)
+		{
+			String name = TestData.companyName(company);
+			assertEquals(TestData.companyReport(rows, name),
+					read(new File(output, "company_" + name.replace(' ', '_') + ".txt")));
+		}
+	}
+
+	/**
+	 * Tests that every report of a file is written once by writeAllReports, which reads the file in
+	 *  parallel parts.
+	 * @throws Exception Thrown if the test file or the reports cannot be written.
+	 */
+	@Test
+	public void writesAllReports() throws Exception
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 30, 500, 42);
+		File file = TestData.write(this.directory, "all.csv", rows);
+		File output = this.directory.resolve("all").toFile();
+		ForkJoinPool executor = new ForkJoinPool(4);
+		int written;
+		try
+		{
+			written = new ReportBatch(file, output, executor).writeAllReports();
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+		ReportEngine engine = new ReportEngine(file);
+		assertTrue(engine.processReports());
+		assertEquals(engine.getYearReports().size() + engine.getCompanyReports().size(), written);
+		assertEquals(written, output.list().length);
+		for (int year = Report.MINYEAR; year < Report.MINYEAR + 30; year++)
+		{
+			assertEquals(TestData.yearReport(rows, year), read(new File(output, "year_" + year + ".txt")));
+		}
+		for (int company = 0; company < 1000; company += 37)
+		{
+			String name = TestData.companyName(company);
+			assertEquals(TestData.companyReport(rows, name),
+					read(new File(output, "company_" + name.replace(' ', '_') + ".txt")));
+		}
+	}
+
+	/**
+	 * Tests that companies whose names differ only in case, or only after the kept length, are written to
+	 *  different files, and that no file name is longer than the kept length allows.
+	 * @throws IOException Thrown if the test file or the reports cannot be written.
+	 */
+	@Test
+	public void keepsCompanyFilesApart() throws IOException
+	{
+		char[] letters = new char[300];
+		Arrays.fill(letters, 'x');
+		String longName = new String(letters);
+		List<String> companies = Arrays.asList("ACME", "Acme", "acme_2", longName + "A", longName + "B");
+		List<String> rows = new ArrayList<String>();
+		for (int rank = 1; rank <= companies.size(); rank++)
+		{
+			rows.add(Report.MINYEAR + "," + rank + "," + companies.get(rank - 1) + "," + rank + "0.5," + rank
+					+ ".5");
+		}
+		File file = TestData.write(this.directory, "names.csv", rows);
+		File output = this.directory.resolve("names").toFile();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try
+		{
+			assertEquals(companies.size(), new ReportBatch(file, output, executor).writeCompanyReports(companies));
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+		Set<String> names = new HashSet<String>();
+		for (String name : output.list())
+		{
+			assertTrue(names.add(name.toLowerCase(Locale.ROOT)), name);
+			assertTrue(name.length() <= "company_".length() + ReportBatch.MAX_NAME_LENGTH + "_9.txt".length(),
+					name);
+		}
+		assertEquals(companies.size(), names.size());
+		List<String> expected = new ArrayList<String>();
+		List<String> found = new ArrayList<String>();
+		for (String company : companies)
+		{
+			CompanyReport report = new CompanyReport(file, company);
+			assertTrue(report.processReport());
+			expected.add(report.toString());
+		}
+		for (String name : output.list())
+		{
+			found.add(read(new File(output, name)));
+		}
+		assertEquals(new HashSet<String>(expected), new HashSet<String>(found));
+	}
+}
@@ -0,0 +1,79 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a ReportCache gives the original reports, processes each report once per file version and
+ *  policy, and is not changed by callers processing the reports it gives them.
+ * @author Logan Noonan
+ *
+ */
+public class ReportCacheTest
+{
+	/**
+	 * A directory for the test files.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Tests that a report asked for again is found in the cache and matches the original report.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void cachesReports() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 4, 50, 61);
+		File file = TestData.write(this.directory, "cache.csv", rows);
+		ReportCache cache = new ReportCache(16, 1L << 20);
+		String name = TestData.companyName(3);
+		for (int pass = 0; pass < 2; pass++)
+		{
+			assertEquals(TestData.yearReport(rows, Report.MINYEAR), cache.getYearReport(file, Report.MINYEAR)
+					.toString());
+			assertEquals(TestData.companyReport(rows, name), cache.getCompanyReport(file, name).toString());
+		}
+		assertEquals(2, cache.getMisses());
+		assertEquals(2, cache.getHits());
+		assertEquals(TestData.companyReport(rows, name).replace(name, "company 3"),
+				cache.getCompanyReport(file, "company 3").toString());
+		assertEquals(3, cache.getHits());
+	}
+
+	/**
+	 * Tests that processing a report given by the cache with another policy does not change the report
+	 *  given to later callers, and that each policy is cached on its own.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void givenReportsDoNotChangeCache() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 4, 50, 62);
+		rows.set(0, rows.get(0).substring(0, rows.get(0).lastIndexOf(',') + 1) + "N.A.");
+		File file = TestData.write(this.directory, "shared.csv", rows);
+		ReportCache cache = new ReportCache(16, 1L << 20);
+		YearReport first = cache.getYearReport(file, Report.MINYEAR);
+		String counted = first.toString();
+		first.setMissingValues(MissingValues.ZERO);
+		assertTrue(first.processReport());
+		YearReport second = cache.getYearReport(file, Report.MINYEAR);
+		assertNotSame(first, second);
+		assertEquals(counted, second.toString());
+		assertEquals(MissingValues.COUNT, second.getMissingValues());
+		YearReport zero = cache.getYearReport(file, Report.MINYEAR, MissingValues.ZERO);
+		assertEquals(first.toString(), zero.toString());
+		assertEquals(2, cache.getSize());
+	}
+}
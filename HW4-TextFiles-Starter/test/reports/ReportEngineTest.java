@@ -0,0 +1,304 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
+
+import reports.io.CompanyDictionary;
+
+/**
+ * Tests that a ReportEngine gives the same reports as the original YearReport and CompanyReport, whether
+ *  the file is read in one piece, in parallel parts, or updated from a saved state after rows are appended,
+ *  that names of one company are reported together, and that the company dictionary it shares cannot be
+ *  added to.
+ * @author Logan Noonan
+ *
+ */
+public class ReportEngineTest
+{
+	/**
+	 * A directory for the test files.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Returns the text of every report of an engine, years first and then companies.
+	 * @param engine The processed engine.
+	 * @return The reports' toString, one per element.
+	 * @throws DataNotProcessedException Thrown if the engine has not been processed.
+	 */
+	private static List<String> texts(ReportEngine engine) throws DataNotProcessedException
+	{
+		List<String> result = new ArrayList<String>();
+		for (YearReport report : engine.getYearReports())
+		{
+			result.add(report.toString());
+		}
+		for (CompanyReport report : engine.getCompanyReports())
+		{
+			result.add(report.toString());
+		}
+		return result;
+	}
+
+	/**
+	 * Tests every year and company report of a file read in one piece.
+	 * @throws Exception Thrown if the test file cannot be written or the reports are not processed.
+	 */
+	@Test
+	public void matchesOriginalReports() throws Exception
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 10, 80, 21);
+		File file = TestData.write(this.directory, "engine.csv", rows);
+		ReportEngine engine = new ReportEngine(file);
+		assertTrue(engine.processReports());
+		for (int year = Report.MINYEAR; year < Report.MINYEAR + 10; year++)
+		{
+			assertEquals(TestData.yearReport(rows, year), engine.getYearReport(year).toString());
+		}
+		for (int company = 0; company < 162; company++)
+		{
+			String name = TestData.companyName(company);
+			assertEquals(TestData.companyReport(rows, name), engine.getCompanyReport(name).toString());
+		}
+	}
+
+	/**
+	 * Tests that a file large enough to be read in parallel parts gives the same reports as reading it in
+	 *  one piece, for several numbers of threads.
+	 * @throws Exception Thrown if the test file cannot be written or the reports are not processed.
+	 */
+	@Test
+	public void parallelMatchesSequential() throws Exception
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 60, 500, 22);
+		File file = TestData.write(this.directory, "parallel.csv", rows);
+		ReportEngine sequential = new ReportEngine(file);
+		assertTrue(sequential.processReports());
+		List<String> expected = texts(sequential);
+		assertEquals(TestData.yearReport(rows, Report.MINYEAR + 30), sequential.getYearReport(Report.MINYEAR + 30)
+				.toString());
+		for (int threads = 2; threads <= 5; threads++)
+		{
+			ForkJoinPool executor = new ForkJoinPool(threads);
+			try
+			{
+				ReportEngine parallel = new ReportEngine(file);
+				assertTrue(parallel.processReports(executor));
+				assertEquals(expected, texts(parallel));
+			}
+			finally
+			{
+				executor.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Tests that quoted company names holding commas and line breaks, which can start a parallel part inside
+	 *  a row, give the same reports in parallel as in one piece and as the reports processed on their own.
+	 * @throws Exception Thrown if the test file cannot be written or the reports are not processed.
+	 */
+	@Test
+	public void parallelMatchesSequentialWithQuotedLineBreaks() throws Exception
+	{
+		List<String> rows = new ArrayList<String>();
+		for (String row : TestData.rows(Report.MINYEAR, 40, 500, 23))
+		{
+			String[] fields = row.split(",");
+			if (Integer.parseInt(fields[1]) % 3 == 0)
+			{
+				fields[2] = "\"" + fields[2] + ", Inc.\n(\"\"Holdings\"\")\"";
+			}
+			rows.add(String.join(",", fields));
+		}
+		File file = TestData.write(this.directory, "quoted.csv", rows);
+		ReportEngine sequential = new ReportEngine(file);
+		assertTrue(sequential.processReports());
+		List<String> expected = texts(sequential);
+		String quoted = TestData.companyName(3) + ", Inc.\n(\"Holdings\")";
+		CompanyReport alone = new CompanyReport(file, quoted);
+		assertTrue(alone.processReport());
+		assertEquals(alone.toString(), sequential.getCompanyReport(quoted).toString());
+		for (int threads = 2; threads <= 5; threads++)
+		{
+			ForkJoinPool executor = new ForkJoinPool(threads);
+			try
+			{
+				ReportEngine parallel = new ReportEngine(file);
+				assertTrue(parallel.processReports(executor));
+				assertEquals(expected, texts(parallel));
+			}
+			finally
+			{
+				executor.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Tests that a quoted company name long enough for part boundaries to fall inside it makes the parallel
+	 *  reading fall back to one scan: once with lines in the name that parse as rows, so the part before
+	 *  reads past its end, and once with lines that cannot be parsed, so the part cannot parse its first row.
+	 * @throws Exception Thrown if the test file cannot be written or the reports are not processed.
+	 */
+	@Test
+	public void parallelFallsBackForRowAcrossParts() throws Exception
+	{
+		String[] lines = {Report.MINYEAR + ",1,Inside,1.5,2.5", "not a row"};
+		for (int variant = 0; variant < lines.length; variant++)
+		{
+			List<String> rows = new ArrayList<String>(TestData.rows(Report.MINYEAR, 30, 500, 26 + variant));
+			StringBuilder name = new StringBuilder("\"Long");
+			while (name.length() < 700 * 1024)
+			{
+				name.append('\n').append(lines[variant]);
+			}
+			String[] fields = rows.get(rows.size() / 3).split(",");
+			fields[2] = name.append('"').toString();
+			rows.set(rows.size() / 3, String.join(",", fields));
+			File file = TestData.write(this.directory, "across" + variant + ".csv", rows);
+			ReportEngine sequential = new ReportEngine(file);
+			assertTrue(sequential.processReports());
+			List<String> expected = texts(sequential);
+			String company = fields[2].substring(1, fields[2].length() - 1);
+			CompanyReport alone = new CompanyReport(file, company);
+			assertTrue(alone.processReport());
+			assertEquals(alone.toString(), sequential.getCompanyReport(company).toString());
+			assertEquals(1, alone.getRankedCount());
+			for (int threads = 2; threads <= 4; threads++)
+			{
+				ForkJoinPool executor = new ForkJoinPool(threads);
+				try
+				{
+					ReportEngine parallel = new ReportEngine(file);
+					assertTrue(parallel.processReports(executor));
+					assertEquals(expected, texts(parallel));
+				}
+				finally
+				{
+					executor.shutdown();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests that updating from a saved state after rows are appended gives the reports of the whole file,
+	 *  and that the state is not used once a row already read is changed without changing the file's length.
+	 * @throws Exception Thrown if the test file cannot be written or the reports are not processed.
+	 */
+	@Test
+	public void updateMatchesFullProcessing() throws Exception
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 12, 100, 24);
+		File file = TestData.write(this.directory, "update.csv", rows.subList(0, 700));
+		assertTrue(new ReportEngine(file).updateReports());
+		StringBuilder appended = new StringBuilder();
+		for (String row : rows.subList(700, rows.size()))
+		{
+			appended.append(row).append('\n');
+		}
+		Files.write(file.toPath(), appended.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+		ReportEngine updated = new ReportEngine(file);
+		assertTrue(updated.updateReports());
+		ReportEngine full = new ReportEngine(file);
+		assertTrue(full.processReports());
+		assertEquals(texts(full), texts(updated));
+		List<String> changed = new ArrayList<String>(rows);
+		String[] first = changed.get(0).split(",");
+		first[3] = first[3].replace('.', '0').replaceAll("[0-9]", "8").substring(1) + ".";
+		changed.set(0, String.join(",", first));
+		long modified = file.lastModified();
+		TestData.write(this.directory, "update.csv", changed);
+		assertTrue(file.setLastModified(modified + 2000));
+		ReportEngine again = new ReportEngine(file);
+		assertTrue(again.updateReports());
+		full = new ReportEngine(file);
+		assertTrue(full.processReports());
+		assertEquals(texts(full), texts(again));
+	}
+
+	/**
+	 * Tests that names that are the same once normalized share a key id in the company dictionary, and so one
+	 *  report, named by the name that appears first, including names of characters other than ASCII.
+	 * @throws Exception Thrown if the test file cannot be written or the reports are not processed.
+	 */
+	@Test
+	public void groupsNamesOfOneCompany() throws Exception
+	{
+		List<String> rows = new ArrayList<String>();
+		rows.add(Report.MINYEAR + ",1,Acme Corp,100,10");
+		rows.add(Report.MINYEAR + ",2,Beta Inc,50,5");
+		rows.add((Report.MINYEAR + 1) + ",3,ACME  corp,120,12");
+		rows.add((Report.MINYEAR + 1) + ",4,Beta Inc,60,6");
+		rows.add((Report.MINYEAR + 2) + ",5,acme\tcorp,130,13");
+		File file = TestData.write(this.directory, "grouped.csv", rows);
+		ReportEngine engine = new ReportEngine(file);
+		assertTrue(engine.processReports());
+		List<String> together = new ArrayList<String>();
+		for (String row : rows)
+		{
+			String[] fields = row.split(",");
+			fields[2] = fields[2].equals("Beta Inc") ? fields[2] : "Acme Corp";
+			together.add(String.join(",", fields));
+		}
+		assertEquals(2, engine.getCompanyReports().size());
+		assertEquals(TestData.companyReport(together, "Acme Corp"), engine.getCompanyReport("ACME CORP").toString());
+		assertEquals(TestData.companyReport(together, "Beta Inc"), engine.getCompanyReport("beta inc").toString());
+		CompanyDictionary dictionary = engine.getCompanyDictionary();
+		assertEquals(4, dictionary.getSize());
+		assertArrayEquals(new int[] {0, 1, 0, 0}, new int[] {dictionary.getKeyId(0), dictionary.getKeyId(1),
+			dictionary.getKeyId(2), dictionary.getKeyId(3)});
+		assertEquals(0, dictionary.findKey(" acme\tCORP "));
+		assertEquals(-1, dictionary.findKey("Acme"));
+		CompanyDictionary accented = new CompanyDictionary(StandardCharsets.UTF_8);
+		accented.intern("Soci\u00e9t\u00e9 G\u00e9n\u00e9rale");
+		accented.intern("Nestl\u00e9");
+		accented.intern("SOCI\u00c9T\u00c9  G\u00c9N\u00c9RALE");
+		assertEquals(0, accented.getKeyId(2));
+		assertEquals(1, accented.findKey("NESTL\u00c9"));
+	}
+
+	/**
+	 * Tests that the company dictionary of a processed engine cannot be added to.
+	 * @throws Exception Thrown if the test file cannot be written or the reports are not processed.
+	 */
+	@Test
+	public void companyDictionaryIsReadOnly() throws Exception
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 2, 20, 25);
+		File file = TestData.write(this.directory, "dictionary.csv", rows);
+		ReportEngine engine = new ReportEngine(file);
+		assertTrue(engine.processReports());
+		final CompanyDictionary dictionary = engine.getCompanyDictionary();
+		int size = dictionary.getSize();
+		assertEquals(dictionary.find(rows.get(0).split(",")[2]), dictionary.intern(rows.get(0).split(",")[2]));
+		assertThrows(IllegalStateException.class, new Executable()
+		{
+			@Override
+			public void execute()
+			{
+				dictionary.intern("Not A Company");
+			}
+		});
+		assertEquals(size, dictionary.getSize());
+	}
+}
@@ -0,0 +1,50 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import reports.io.ColumnarCache;
+
+/**
+ * Tests that the launcher's cache command converts a file to its ColumnarCache, which reports then read.
+ * @author Logan Noonan
+ *
+ */
+public class ReportLauncherTest
+{
+	/**
+	 * A directory for the test files.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Tests that a report processed from the converted cache matches the original report.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void convertsCache() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 4, 40, 31);
+		File file = TestData.write(this.directory, "launcher.csv", rows);
+		assertNull(ColumnarCache.openIfCurrent(file));
+		assertEquals(0, ReportLauncher.run(new String[] {"cache", file.getPath()}));
+		assertNotNull(ColumnarCache.openIfCurrent(file));
+		YearReport report = new YearReport(file, Report.MINYEAR + 2);
+		assertTrue(report.processReport());
+		assertEquals(TestData.yearReport(rows, Report.MINYEAR + 2), report.toString());
+		assertEquals(2, ReportLauncher.run(new String[] {"cache"}));
+	}
+}
@@ -0,0 +1,176 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import reports.io.ColumnarCache;
+
+/**
+ * Tests that a ReportQuery finds the same statistics as the original reports for the same rows, and that its
+ *  filters keep exactly the rows they describe, whether the rows are parsed or read from the columnar cache.
+ * @author Logan Noonan
+ *
+ */
+public class ReportQueryTest
+{
+	/**
+	 * The number of years of the test file.
+	 */
+	private static final int YEARS = 5;
+
+	/**
+	 * A directory for the test files.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Returns the lines of a report after its first line, which names the report.
+	 * @param text The report's text.
+	 * @return The text after the first line break.
+	 */
+	private static String body(String text)
+	{
+		return text.substring(text.indexOf('\n') + 1);
+	}
+
+	/**
+	 * Returns the revenue and profit lines of a group in the form of a YearReport.
+	 * @param group The group.
+	 * @return The group's revenue and profit statistics.
+	 */
+	private static String yearBody(QueryResult.Group group)
+	{
+		return "Revenue\n" + group.getRevenues().appendTo(new StringBuilder()) + "\nProfit\n"
+				+ group.getProfits().appendTo(new StringBuilder());
+	}
+
+	/**
+	 * Tests that grouping by year gives the statistics of each year's report, before and after the file is
+	 *  converted to a columnar cache.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void groupsByYear() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, YEARS, 200, 51);
+		File file = TestData.write(this.directory, "years.csv", rows);
+		for (int pass = 0; pass < 2; pass++)
+		{
+			QueryResult result = new ReportQuery(file).groupByYear().run();
+			assertEquals(YEARS, result.getGroups().size());
+			assertEquals(rows.size(), result.getRowsMatched());
+			for (QueryResult.Group group : result.getGroups())
+			{
+				int year = Integer.parseInt(group.getLabel());
+				assertEquals(body(TestData.yearReport(rows, year)), yearBody(group));
+			}
+			assertNotNull(ColumnarCache.convert(file));
+		}
+	}
+
+	/**
+	 * Tests that a company filter gives the statistics of the company's report.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void filtersByCompany() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, YEARS, 100, 52);
+		File file = TestData.write(this.directory, "companies.csv", rows);
+		for (int company = 0; company < 20; company++)
+		{
+			String name = TestData.companyName(company);
+			QueryResult result = new ReportQuery(file).company(name.toUpperCase()).run();
+			String expected = TestData.companyReport(rows, name);
+			if (result.getGroups().isEmpty())
+			{
+				assertTrue(expected.contains(" ranked 0 times\n"));
+				continue;
+			}
+			QueryResult.Group group = result.getGroups().get(0);
+			assertEquals(body(expected).substring(0, body(expected).indexOf("\nRank\n")), yearBody(group));
+			assertEquals(expected.substring(0, expected.indexOf('\n')), "Fortune 500 Report for " + name
+					+ " ranked " + group.getCount() + " times");
+		}
+	}
+
+	/**
+	 * Tests that the year, rank, and profit filters and a company pattern keep exactly the rows they describe.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void filtersRows() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, YEARS, 300, 53);
+		File file = TestData.write(this.directory, "filters.csv", rows);
+		List<String> kept = new ArrayList<String>();
+		for (String row : rows)
+		{
+			String[] fields = row.split(",");
+			int year = Integer.parseInt(fields[0]);
+			int rank = Integer.parseInt(fields[1]);
+			if (year >= Report.MINYEAR + 1 && year <= Report.MINYEAR + 3 && rank <= 150
+					&& Double.parseDouble(fields[4]) >= 0 && fields[2].matches("Company 1.*"))
+			{
+				kept.add(row);
+			}
+		}
+		QueryResult result = new ReportQuery(file).years(Report.MINYEAR + 1, Report.MINYEAR + 3).ranks(1, 150)
+				.minProfit(0).companyLike("company 1*").run();
+		assertEquals(kept.size(), result.getRowsMatched());
+		Statistics profits = new Statistics();
+		for (String row : kept)
+		{
+			profits.add(Double.parseDouble(row.split(",")[4]));
+		}
+		assertEquals(profits.appendTo(new StringBuilder()).toString(),
+				result.getGroups().get(0).getProfits().appendTo(new StringBuilder()).toString());
+	}
+
+	/**
+	 * Tests that under MissingValues.SKIP a row with a missing value is still matched when the query does not
+	 *  filter on that value, with only the missing value left out of its group, and is left out when it does.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void skipsOnlyMissingValues() throws IOException
+	{
+		List<String> rows = new ArrayList<String>();
+		rows.add(Report.MINYEAR + ",1,Alpha,100.5,10.5");
+		rows.add(Report.MINYEAR + ",2,Beta,90.5,N.A.");
+		rows.add(Report.MINYEAR + ",3,Gamma,,8.5");
+		rows.add(Report.MINYEAR + ",4,Delta,70.5,-2.5");
+		File file = TestData.write(this.directory, "missing.csv", rows);
+		for (int pass = 0; pass < 2; pass++)
+		{
+			QueryResult result = new ReportQuery(file).missingValues(MissingValues.SKIP).run();
+			QueryResult.Group group = result.getGroups().get(0);
+			assertEquals(4, result.getRowsMatched());
+			assertEquals(2, result.getMissingCount());
+			assertEquals(4, group.getRanks().getCount());
+			assertEquals(Statistics.of(new double[] {100.5, 90.5, 70.5}).appendTo(new StringBuilder()).toString(),
+					group.getRevenues().appendTo(new StringBuilder()).toString());
+			assertEquals(Statistics.of(new double[] {10.5, 8.5, -2.5}).appendTo(new StringBuilder()).toString(),
+					group.getProfits().appendTo(new StringBuilder()).toString());
+			QueryResult filtered = new ReportQuery(file).missingValues(MissingValues.SKIP).minProfit(0).run();
+			assertEquals(2, filtered.getRowsMatched());
+			assertEquals(1, filtered.getMissingCount());
+			assertEquals(Statistics.of(new double[] {100.5}).appendTo(new StringBuilder()).toString(),
+					filtered.getGroups().get(0).getRevenues().appendTo(new StringBuilder()).toString());
+			assertNotNull(ColumnarCache.convert(file));
+		}
+	}
+}
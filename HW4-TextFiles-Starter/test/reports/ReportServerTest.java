@@ -0,0 +1,300 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import reports.io.FortuneDataset;
+
+/**
+ * Tests a ReportServer listening on a free port of the loopback address: the routing of year and company
+ *  requests, the answers to requests it cannot answer, the coalescing of identical company requests, and the
+ *  reports it gives once its file is replaced.
+ * @author Logan Noonan
+ *
+ */
+public class ReportServerTest
+{
+	/**
+	 * A directory for the test files.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * An answer of the server.
+	 */
+	private static class Answer
+	{
+		/**
+		 * The HTTP status code.
+		 */
+		private final int status;
+
+		/**
+		 * The content type.
+		 */
+		private final String type;
+
+		/**
+		 * The body.
+		 */
+		private final String body;
+
+		/**
+		 * Creates new Answer.
+		 * @param statusIn The HTTP status code.
+		 * @param typeIn The content type.
+		 * @param bodyIn The body.
+		 */
+		Answer(int statusIn, String typeIn, String bodyIn)
+		{
+			this.status = statusIn;
+			this.type = typeIn;
+			this.body = bodyIn;
+		}
+	}
+
+	/**
+	 * Sends a request to a running server and reads its answer.
+	 * @param server The server.
+	 * @param method The request method.
+	 * @param path The path, without percent-encoding.
+	 * @param query The query, or null.
+	 * @return The answer.
+	 * @throws IOException Thrown if the server cannot be reached.
+	 */
+	private static Answer request(ReportServer server, String method, String path, String query) throws IOException
+	{
+		InetSocketAddress address = server.getAddress();
+		HttpURLConnection connection;
+		try
+		{
+			connection = (HttpURLConnection) new URI("http", null, address.getHostString(), address.getPort(), path,
+					query, null).toURL().openConnection();
+		}
+		catch (URISyntaxException e)
+		{
+			throw new IllegalArgumentException(e);
+		}
+		connection.setRequestMethod(method);
+		try
+		{
+			int status = connection.getResponseCode();
+			InputStream input = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+			ByteArrayOutputStream body = new ByteArrayOutputStream();
+			if (input != null)
+			{
+				try (InputStream opened = input)
+				{
+					byte[] buffer = new byte[8192];
+					int read;
+					while ((read = opened.read(buffer)) > 0)
+					{
+						body.write(buffer, 0, read);
+					}
+				}
+			}
+			return new Answer(status, connection.getContentType(), new String(body.toByteArray(),
+					StandardCharsets.UTF_8));
+		}
+		finally
+		{
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * Sends a GET request to a running server and reads its answer.
+	 * @param server The server.
+	 * @param path The path, without percent-encoding.
+	 * @return The answer.
+	 * @throws IOException Thrown if the server cannot be reached.
+	 */
+	private static Answer get(ReportServer server, String path) throws IOException
+	{
+		return request(server, "GET", path, null);
+	}
+
+	/**
+	 * Tests that years and companies, including a company whose name must be percent-encoded, are answered
+	 *  with their reports as text or JSON, and that requests that are not GET or name no year are refused.
+	 * @throws IOException Thrown if the test file cannot be written or the server cannot be reached.
+	 */
+	@Test
+	public void routesRequests() throws IOException
+	{
+		List<String> rows = new ArrayList<String>(TestData.rows(Report.MINYEAR, 3, 40, 101));
+		rows.add((Report.MINYEAR + 2) + ",41,Smith & Sons Co,12.5,1.5");
+		File file = TestData.write(this.directory, "routes.csv", rows);
+		ReportServer server = new ReportServer(file, 0);
+		server.start();
+		try
+		{
+			assertTrue(server.getAddress().getAddress().isLoopbackAddress());
+			assertTrue(server.getAddress().getPort() > 0);
+			for (int year = Report.MINYEAR; year < Report.MINYEAR + 3; year++)
+			{
+				Answer answer = get(server, "/year/" + year);
+				assertEquals(200, answer.status);
+				assertTrue(answer.type.startsWith("text/plain"));
+				assertEquals(TestData.yearReport(rows, year), answer.body);
+			}
+			String name = TestData.companyName(7);
+			Answer company = get(server, "/company/" + name);
+			assertEquals(200, company.status);
+			assertEquals(TestData.companyReport(rows, name), company.body);
+			Answer encoded = get(server, "/company/Smith & Sons Co");
+			assertEquals(200, encoded.status);
+			assertEquals(TestData.companyReport(rows, "Smith & Sons Co"), encoded.body);
+			Answer json = request(server, "GET", "/year/" + Report.MINYEAR, "format=json");
+			assertEquals(200, json.status);
+			assertTrue(json.type.startsWith("application/json"));
+			assertTrue(json.body.startsWith("{"));
+			assertEquals(400, get(server, "/year/next").status);
+			assertEquals(400, get(server, "/company/").status);
+			assertEquals(405, request(server, "DELETE", "/year/" + Report.MINYEAR, null).status);
+		}
+		finally
+		{
+			server.stop();
+			FortuneDataset.unload(file);
+		}
+	}
+
+	/**
+	 * Tests that a year that is not reported and a company the file has no rows for are answered with 404.
+	 * @throws IOException Thrown if the test file cannot be written or the server cannot be reached.
+	 */
+	@Test
+	public void answersNotFound() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 2, 30, 102);
+		File file = TestData.write(this.directory, "missing.csv", rows);
+		ReportServer server = new ReportServer(file, 0);
+		server.start();
+		try
+		{
+			assertEquals(404, get(server, "/year/" + (Report.MINYEAR - 1)).status);
+			assertEquals(404, get(server, "/year/" + (Report.MAXYEAR + 1)).status);
+			Answer company = get(server, "/company/Nobody Ranked Inc");
+			assertEquals(404, company.status);
+			assertEquals("No report for Nobody Ranked Inc", company.body);
+			// A company that is not found is still answered from the cache the next time.
+			assertEquals(404, get(server, "/company/Nobody Ranked Inc").status);
+			assertEquals(1, server.getCache().getMisses());
+		}
+		finally
+		{
+			server.stop();
+			FortuneDataset.unload(file);
+		}
+	}
+
+	/**
+	 * Tests that identical company requests sent at once process the company only once, each request either
+	 *  waiting for that processing or finding its report in the cache, and that all are given the same report.
+	 * @throws Exception Thrown if the test file cannot be written or the server cannot be reached.
+	 */
+	@Test
+	public void coalescesRequests() throws Exception
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 40, Report.NUMCOMPANIES, 103);
+		File file = TestData.write(this.directory, "coalesce.csv", rows);
+		final ReportServer server = new ReportServer(file, 0);
+		server.start();
+		int clients = 16;
+		ExecutorService executor = Executors.newFixedThreadPool(clients);
+		try
+		{
+			final String name = TestData.companyName(11);
+			final CountDownLatch ready = new CountDownLatch(clients);
+			List<Future<Answer>> answers = new ArrayList<Future<Answer>>();
+			for (int client = 0; client < clients; client++)
+			{
+				answers.add(executor.submit(new Callable<Answer>()
+				{
+					@Override
+					public Answer call() throws Exception
+					{
+						ready.countDown();
+						ready.await();
+						return get(server, "/company/" + name);
+					}
+				}));
+			}
+			String expected = TestData.companyReport(rows, name);
+			for (Future<Answer> answer : answers)
+			{
+				assertEquals(200, answer.get().status);
+				assertEquals(expected, answer.get().body);
+			}
+			ReportCache cache = server.getCache();
+			assertEquals(1, cache.getMisses());
+			assertEquals(clients - 1, cache.getHits() + server.getCoalescedRequests());
+		}
+		finally
+		{
+			executor.shutdownNow();
+			server.stop();
+			FortuneDataset.unload(file);
+		}
+	}
+
+	/**
+	 * Tests that once the file is replaced, the years and companies are answered from the new rows.
+	 * @throws Exception Thrown if the test file cannot be written or the server cannot be reached.
+	 */
+	@Test
+	public void answersFromReplacedFile() throws Exception
+	{
+		File file = TestData.write(this.directory, "replaced.csv", TestData.rows(Report.MINYEAR, 2, 30, 104));
+		ReportServer server = new ReportServer(file, 0);
+		server.start();
+		try
+		{
+			String name = TestData.companyName(5);
+			assertEquals(200, get(server, "/company/" + name).status);
+			long modified = file.lastModified();
+			List<String> rows = TestData.rows(Report.MINYEAR, 3, 35, 105);
+			TestData.write(this.directory, file.getName(), rows);
+			assertTrue(file.setLastModified(modified + 5000));
+			String year = TestData.yearReport(rows, Report.MINYEAR + 2);
+			long deadline = System.currentTimeMillis() + 20000;
+			// The years are formatted again once the new dataset is swapped in, and the companies dropped before.
+			while (!year.equals(get(server, "/year/" + (Report.MINYEAR + 2)).body))
+			{
+				assertTrue(System.currentTimeMillis() < deadline, "The replaced file was not reloaded.");
+				Thread.sleep(50);
+			}
+			assertEquals(TestData.companyReport(rows, name), get(server, "/company/" + name).body);
+		}
+		finally
+		{
+			server.stop();
+			FortuneDataset.unload(file);
+		}
+	}
+}
@@ -0,0 +1,85 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a ReportSnapshot is used while its csv file keeps the same contents, even once the file's last
+ *  modified time changes, and is not used once the contents change, even when the length stays the same.
+ * @author Logan Noonan
+ *
+ */
+public class ReportSnapshotTest
+{
+	/**
+	 * A directory for the test files.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Tests that a snapshot of a file whose time changes but whose contents do not is still opened, and that
+	 *  the time is refreshed in the snapshot file so the checksum is not compared again.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void opensSnapshotOfTouchedFile() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 3, 40, 121);
+		File file = TestData.write(this.directory, "touched.csv", rows);
+		assertNotNull(ReportSnapshot.write(file));
+		File snapshotFile = ReportSnapshot.snapshotFileFor(file);
+		long written = snapshotFile.lastModified();
+		assertTrue(snapshotFile.setLastModified(written - 10000));
+		assertTrue(file.setLastModified(file.lastModified() + 5000));
+		ReportSnapshot snapshot = ReportSnapshot.openIfCurrent(file);
+		assertNotNull(snapshot);
+		assertEquals(Report.MAXYEAR - Report.MINYEAR + 1, snapshot.getYearCount());
+		assertTrue(snapshotFile.lastModified() != written - 10000);
+		assertNotNull(ReportSnapshot.openIfCurrent(file));
+		YearReport report = new YearReport(file, Report.MINYEAR + 1);
+		assertTrue(report.processReport());
+		assertEquals(TestData.yearReport(rows, Report.MINYEAR + 1), report.toString());
+	}
+
+	/**
+	 * Tests that a snapshot is not opened once a value of its file changes to another of the same length, and
+	 *  that the reports then give the new value.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void refusesSnapshotOfChangedContents() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 3, 40, 122);
+		File file = TestData.write(this.directory, "changed.csv", rows);
+		assertNotNull(ReportSnapshot.write(file));
+		long length = file.length();
+		List<String> changed = new ArrayList<String>(rows);
+		String row = changed.get(45);
+		char last = row.charAt(row.length() - 1);
+		changed.set(45, row.substring(0, row.length() - 1) + (last == '9' ? '0' : (char) (last + 1)));
+		TestData.write(this.directory, file.getName(), changed);
+		assertEquals(length, file.length());
+		assertTrue(file.setLastModified(file.lastModified() + 5000));
+		assertNull(ReportSnapshot.openIfCurrent(file));
+		YearReport report = new YearReport(file, Report.MINYEAR + 1);
+		assertTrue(report.processReport());
+		assertEquals(TestData.yearReport(changed, Report.MINYEAR + 1), report.toString());
+		CompanyReport company = new CompanyReport(file, row.split(",")[2]);
+		assertTrue(company.processReport());
+		assertEquals(TestData.companyReport(changed, row.split(",")[2]), company.toString());
+	}
+}
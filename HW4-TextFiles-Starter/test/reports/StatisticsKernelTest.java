@@ -0,0 +1,112 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the vector kernel, compiled from the vector source tree and loaded by reflection as Statistics
+ *  loads it, gives the same statistics as the scalar kernel to within three decimals, for slices of every
+ *  length up to several vectors, so every length of tail shorter than a vector is covered, at every alignment.
+ * The test is skipped unless reports.VectorStatisticsKernel is on the class path and the jdk.incubator.vector
+ *  module is added.
+ * @author Logan Noonan
+ *
+ */
+public class StatisticsKernelTest
+{
+	/**
+	 * Loads the vector kernel.
+	 * @return The kernel, or null if it is not on the class path or the module is not added.
+	 */
+	private static StatisticsKernel loadVector()
+	{
+		if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+		{
+			return null;
+		}
+		try
+		{
+			return (StatisticsKernel) Class.forName("reports.VectorStatisticsKernel").getDeclaredConstructor()
+					.newInstance();
+		}
+		catch (ReflectiveOperationException | LinkageError e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Runs a kernel over a slice as Statistics runs it over a block, and returns the statistics found.
+	 * @param kernel The kernel.
+	 * @param values The values.
+	 * @param from The index of the first value.
+	 * @param to The index after the last value, after from.
+	 * @return The minimum, maximum, running total, average, and standard deviation.
+	 */
+	private static double[] run(StatisticsKernel kernel, double[] values, int from, int to)
+	{
+		double shift = values[from];
+		double[] totals = new double[StatisticsKernel.TOTALS];
+		totals[StatisticsKernel.MINIMUM] = shift;
+		totals[StatisticsKernel.MAXIMUM] = shift;
+		kernel.accumulate(values, from, to, shift, totals);
+		int count = to - from;
+		double sum = totals[StatisticsKernel.SUM];
+		double squares = Math.max(0.0, totals[StatisticsKernel.SUM_SQUARES] - sum * sum / count);
+		return new double[] {totals[StatisticsKernel.MINIMUM], totals[StatisticsKernel.MAXIMUM],
+			totals[StatisticsKernel.TOTAL], shift + sum / count, Math.sqrt(squares / count)};
+	}
+
+	/**
+	 * Tests every slice length from 1 to 70 values, and a few long slices, at offsets 0 to 3 of columns of
+	 *  revenue-like values, values far larger than their spread, and values of mixed sign.
+	 */
+	@Test
+	public void vectorMatchesScalar()
+	{
+		StatisticsKernel vector = loadVector();
+		assumeTrue(vector != null, "The vector kernel is not on the class path.");
+		Random random = new Random(91);
+		double[][] columns = new double[3][5000];
+		for (int index = 0; index < 5000; index++)
+		{
+			columns[0][index] = (100 + random.nextInt(1000000)) / 10.0;
+			columns[1][index] = 1.0e9 + random.nextInt(100) / 10.0;
+			columns[2][index] = (random.nextInt(200000) - 50000) / 10.0;
+		}
+		int[] lengths = new int[74];
+		for (int length = 1; length <= 70; length++)
+		{
+			lengths[length - 1] = length;
+		}
+		lengths[70] = 1000;
+		lengths[71] = 1001;
+		lengths[72] = 4093;
+		lengths[73] = 4096;
+		for (double[] column : columns)
+		{
+			for (int from = 0; from < 4; from++)
+			{
+				for (int length : lengths)
+				{
+					double[] scalar = run(StatisticsKernel.SCALAR, column, from, from + length);
+					double[] vectored = run(vector, column, from, from + length);
+					String slice = "from " + from + " length " + length;
+					// The minimum, maximum, and running total are found in the same order by both kernels.
+					assertArrayEquals(new double[] {scalar[0], scalar[1], scalar[2]},
+							new double[] {vectored[0], vectored[1], vectored[2]}, slice);
+					// The lanes are summed in another order, so the rest agree to within three decimals.
+					assertEquals(scalar[3], vectored[3], 0.0005, slice);
+					assertEquals(scalar[4], vectored[4], 0.0005, slice);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,139 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import analytics.Data;
+
+/**
+ * Tests that Statistics give the values the Data class gives, formatted to three decimals as the reports
+ *  print them, however the values are added.
+ * @author Logan Noonan
+ *
+ */
+public class StatisticsTest
+{
+	/**
+	 * Returns random values in the range of the Fortune 500 revenues, with one decimal.
+	 * @param random The generator of the values.
+	 * @param count The number of values.
+	 * @param offset A value added to every value, to test values far from zero.
+	 * @return The values.
+	 */
+	private static double[] values(Random random, int count, double offset)
+	{
+		double[] result = new double[count];
+		for (int index = 0; index < count; index++)
+		{
+			result[index] = offset + random.nextInt(2000000) / 10.0 - 50000;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the minimum, maximum, average, and standard deviation the Data class gives for values, in the
+	 *  form Statistics.appendTo gives.
+	 * @param values The values.
+	 * @return The formatted values.
+	 */
+	private static String expected(double[] values)
+	{
+		Double[] boxed = new Double[values.length];
+		for (int index = 0; index < values.length; index++)
+		{
+			boxed[index] = values[index];
+		}
+		return String.format("Min: %.3f Max: %.3f Avg: %.3f StD: %.3f", Data.minimum(boxed), Data.maximum(boxed),
+				Data.average(boxed), Data.standardDeviation(boxed));
+	}
+
+	/**
+	 * Tests values added one at a time, in blocks from an array, and in blocks from a direct column.
+	 */
+	@Test
+	public void matchesData()
+	{
+		Random random = new Random(31);
+		double[] offsets = {0.0, 1.0e6, -3.0e7};
+		for (double offset : offsets)
+		{
+			for (int count : new int[] {1, 2, 7, 500, 4099})
+			{
+				double[] values = values(random, count, offset);
+				Statistics single = new Statistics();
+				for (double value : values)
+				{
+					single.add(value);
+				}
+				assertEquals(expected(values), single.appendTo(new StringBuilder()).toString());
+				assertEquals(expected(values), Statistics.of(values).appendTo(new StringBuilder()).toString());
+				DoubleBuffer column = ByteBuffer.allocateDirect(count * Double.BYTES).asDoubleBuffer();
+				column.put(values);
+				Statistics columns = new Statistics();
+				columns.addAll(column, 0, count);
+				assertEquals(expected(values), columns.appendTo(new StringBuilder()).toString());
+			}
+		}
+	}
+
+	/**
+	 * Tests that the average is the sum of the values in the order they were added divided by their count,
+	 *  which is how the Data class finds it, however the values are added.
+	 */
+	@Test
+	public void averageIsSumOverCount()
+	{
+		double[] values = values(new Random(32), 10000, 2.5e6);
+		double sum = 0.0;
+		for (double value : values)
+		{
+			sum += value;
+		}
+		Statistics single = new Statistics();
+		for (double value : values)
+		{
+			single.add(value);
+		}
+		assertEquals(sum / values.length, single.getAverage().doubleValue());
+		assertEquals(sum / values.length, Statistics.of(values).getAverage().doubleValue());
+	}
+
+	/**
+	 * Tests that merged statistics hold every value of both.
+	 */
+	@Test
+	public void mergeCombinesValues()
+	{
+		double[] values = values(new Random(33), 3000, 0.0);
+		Statistics first = new Statistics();
+		first.addAll(values, 0, 1234);
+		Statistics second = new Statistics();
+		second.addAll(values, 1234, values.length);
+		first.merge(second);
+		assertEquals(expected(values), first.appendTo(new StringBuilder()).toString());
+		assertEquals(values.length, first.getCount());
+	}
+
+	/**
+	 * Tests statistics with no values.
+	 */
+	@Test
+	public void emptyHasNoValues()
+	{
+		Statistics empty = new Statistics();
+		assertEquals(0, empty.getCount());
+		assertNull(empty.getMinimum());
+		assertNull(empty.getMaximum());
+		assertNull(empty.getAverage());
+		assertNull(empty.getStandardDeviation());
+		assertEquals("Min: nul Max: nul Avg: nul StD: nul", empty.appendTo(new StringBuilder()).toString());
+	}
+}
@@ -0,0 +1,182 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import analytics.Data;
+
+/**
+ * Fortune 500 csv data for the tests, and the reports the original YearReport and CompanyReport gave for it.
+ * The original reports are computed the way those classes computed them: each row is split at its commas,
+ *  the values are kept in arrays of Report.NUMCOMPANIES values, and the statistics come from the Data class
+ *  and are formatted with String.format. Tests compare the toString of the new reports to these, so every
+ *  way of reading a report is checked against the output it has always had.
+ * @author Logan Noonan
+ *
+ */
+public final class TestData
+{
+	/**
+	 * The column names that start every csv file.
+	 */
+	public static final String HEADER = "Year,Rank,Company,Revenue (in millions),Profit (in millions)";
+
+	/**
+	 * Creates no TestData; the class only has static methods.
+	 */
+	private TestData()
+	{
+	}
+
+	/**
+	 * Generates the rows of a csv file, grouped by year in increasing order and ranked from 1 in each year.
+	 * Each year ranks a different selection of companies from a pool twice as large, so companies are ranked
+	 *  in some years and not others, and revenues and profits have one decimal, with some profits negative.
+	 * @param firstYearIn - The first year.
+	 * @param yearsIn - The number of years.
+	 * @param companiesIn - The number of companies ranked each year, at most Report.NUMCOMPANIES.
+	 * @param seedIn - The seed of the values, so the same arguments always give the same rows.
+	 * @return The rows, without the column names.
+	 */
+	public static List<String> rows(int firstYearIn, int yearsIn, int companiesIn, long seedIn)
+	{
+		Random random = new Random(seedIn);
+		List<Integer> pool = new ArrayList<Integer>();
+		for (int company = 0; company < companiesIn * 2; company++)
+		{
+			pool.add(company);
+		}
+		List<String> result = new ArrayList<String>();
+		for (int year = firstYearIn; year < firstYearIn + yearsIn; year++)
+		{
+			Collections.shuffle(pool, random);
+			for (int rank = 1; rank <= companiesIn; rank++)
+			{
+				long revenue = 100 + random.nextInt(1000000);
+				long profit = random.nextInt(200000) - 50000;
+				result.add(year + "," + rank + "," + companyName(pool.get(rank - 1)) + "," + (revenue / 10) + "."
+						+ (revenue % 10) + "," + (profit < 0 ? "-" : "") + (Math.abs(profit) / 10) + "."
+						+ (Math.abs(profit) % 10));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the name of a generated company.
+	 * @param companyIn - The number of the company.
+	 * @return The company's name.
+	 */
+	public static String companyName(int companyIn)
+	{
+		return "Company " + companyIn;
+	}
+
+	/**
+	 * Writes a csv file of the column names followed by rows.
+	 * @param directoryIn - The directory to write the file in.
+	 * @param nameIn - The name of the file.
+	 * @param rowsIn - The rows.
+	 * @return The file.
+	 * @throws IOException Thrown if the file cannot be written.
+	 */
+	public static File write(Path directoryIn, String nameIn, List<String> rowsIn) throws IOException
+	{
+		List<String> lines = new ArrayList<String>(rowsIn.size() + 1);
+		lines.add(HEADER);
+		lines.addAll(rowsIn);
+		return Files.write(directoryIn.resolve(nameIn), lines, StandardCharsets.UTF_8).toFile();
+	}
+
+	/**
+	 * Returns the toString of the original YearReport of a year: the revenues and profits of the first run
+	 *  of rows of the year.
+	 * @param rowsIn - The rows of the file, without the column names.
+	 * @param yearIn - The year.
+	 * @return The report's text.
+	 */
+	public static String yearReport(List<String> rowsIn, int yearIn)
+	{
+		Double[] revenues = new Double[Report.NUMCOMPANIES];
+		Double[] profits = new Double[Report.NUMCOMPANIES];
+		int count = 0;
+		for (String row : rowsIn)
+		{
+			String[] fields = row.split(",");
+			if (Integer.parseInt(fields[0]) == yearIn)
+			{
+				revenues[count] = Double.parseDouble(fields[3]);
+				profits[count] = Double.parseDouble(fields[4]);
+				count++;
+			}
+			else if (count > 0)
+			{
+				break;
+			}
+		}
+		return String.format("Fortune 500 Report for %d\n"
+				+ "Revenue\n"
+				+ "Min: %.3f Max: %.3f Avg: %.3f StD: %.3f\n"
+				+ "Profit\n"
+				+ "Min: %.3f Max: %.3f Avg: %.3f StD: %.3f", yearIn, Data.minimum(revenues),
+				Data.maximum(revenues), Data.average(revenues), Data.standardDeviation(revenues),
+				Data.minimum(profits), Data.maximum(profits), Data.average(profits),
+				Data.standardDeviation(profits));
+	}
+
+	/**
+	 * Returns the toString of the original CompanyReport of a company: the ranks, revenues, and profits of
+	 *  every row of the company.
+	 * @param rowsIn - The rows of the file, without the column names.
+	 * @param companyIn - The company's exact name.
+	 * @return The report's text.
+	 */
+	public static String companyReport(List<String> rowsIn, String companyIn)
+	{
+		Double[] ranks = new Double[Report.NUMCOMPANIES];
+		Double[] revenues = new Double[Report.NUMCOMPANIES];
+		Double[] profits = new Double[Report.NUMCOMPANIES];
+		int count = 0;
+		for (String row : rowsIn)
+		{
+			String[] fields = row.split(",");
+			if (fields[2].equals(companyIn))
+			{
+				ranks[count] = (double) Integer.parseInt(fields[1]);
+				revenues[count] = Double.parseDouble(fields[3]);
+				profits[count] = Double.parseDouble(fields[4]);
+				count++;
+			}
+		}
+		return String.format("Fortune 500 Report for %s ranked %d times\n"
+				+ "Revenue\n"
+				+ "Min: %.3f Max: %.3f Avg: %.3f StD: %.3f\n"
+				+ "Profit\n"
+				+ "Min: %.3f Max: %.3f Avg: %.3f StD: %.3f\n"
+				+ "Rank\n"
+				+ "Min: %s Max: %s Avg: %.3f StD: %.3f", companyIn, count, Data.minimum(revenues),
+				Data.maximum(revenues), Data.average(revenues), Data.standardDeviation(revenues),
+				Data.minimum(profits), Data.maximum(profits), Data.average(profits),
+				Data.standardDeviation(profits), rank(Data.minimum(ranks)), rank(Data.maximum(ranks)),
+				Data.average(ranks), Data.standardDeviation(ranks));
+	}
+
+	/**
+	 * Returns a rank the way the original CompanyReport printed its minimum and maximum rank.
+	 * @param rankIn The rank, or null if the company was never ranked.
+	 * @return The rank without its decimals, or null.
+	 */
+	private static String rank(Double rankIn)
+	{
+		return rankIn == null ? null : String.valueOf(rankIn.intValue());
+	}
+}
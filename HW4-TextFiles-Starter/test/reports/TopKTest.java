@@ -0,0 +1,142 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * Tests that a TopK holds the largest values added, from the largest down, with equal values in the order
+ *  they were added, and that it ignores values that are not numbers.
+ * @author Logan Noonan
+ *
+ */
+public class TopKTest
+{
+	/**
+	 * Returns the positions of values sorted from the largest down, with equal values in the order given.
+	 * @param values The values.
+	 * @return The positions in rank order.
+	 */
+	private static List<Integer> ranked(final double[] values)
+	{
+		List<Integer> result = new ArrayList<Integer>();
+		for (int index = 0; index < values.length; index++)
+		{
+			result.add(index);
+		}
+		Collections.sort(result, new Comparator<Integer>()
+		{
+			@Override
+			public int compare(Integer first, Integer second)
+			{
+				return Double.compare(values[second], values[first]);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Tests that the values and labels held are those of a full sort of every value added, for several k.
+	 */
+	@Test
+	public void holdsLargestValues()
+	{
+		Random random = new Random(71);
+		double[] values = new double[2000];
+		for (int index = 0; index < values.length; index++)
+		{
+			values[index] = random.nextInt(300) - 100.5;
+		}
+		List<Integer> ranked = ranked(values);
+		for (int k : new int[] {1, 2, 7, 64, 1999, 2000, 2500})
+		{
+			TopK top = new TopK(k);
+			for (int index = 0; index < values.length; index++)
+			{
+				top.add(values[index], "v" + index);
+			}
+			int held = Math.min(k, values.length);
+			double[] expectedValues = new double[held];
+			String[] expectedLabels = new String[held];
+			for (int index = 0; index < held; index++)
+			{
+				expectedValues[index] = values[ranked.get(index)];
+				expectedLabels[index] = "v" + ranked.get(index);
+			}
+			assertEquals(held, top.getSize());
+			assertArrayEquals(expectedValues, top.getValues());
+			assertArrayEquals(expectedLabels, top.getLabels());
+		}
+	}
+
+	/**
+	 * Tests that of equal values the one added first ranks higher, and that a value equal to the lowest
+	 *  held is not kept once the TopK is full.
+	 */
+	@Test
+	public void keepsFirstOfEqualValues()
+	{
+		TopK top = new TopK(3);
+		top.add(5.0, "a");
+		top.add(5.0, "b");
+		top.add(2.0, "c");
+		top.add(5.0, "d");
+		assertArrayEquals(new String[] {"a", "b", "d"}, top.getLabels());
+		assertFalse(top.accepts(5.0));
+		top.add(5.0, "e");
+		assertArrayEquals(new String[] {"a", "b", "d"}, top.getLabels());
+		assertTrue(top.accepts(6.0));
+		top.add(6.0, "f");
+		assertArrayEquals(new String[] {"f", "a", "b"}, top.getLabels());
+		assertArrayEquals(new double[] {6.0, 5.0, 5.0}, top.getValues());
+	}
+
+	/**
+	 * Tests that values that are not numbers are neither held nor accepted, while infinities are.
+	 */
+	@Test
+	public void ignoresNaN()
+	{
+		TopK top = new TopK(2);
+		assertFalse(top.accepts(Double.NaN));
+		top.add(Double.NaN, "nan");
+		assertEquals(0, top.getSize());
+		top.add(Double.NEGATIVE_INFINITY, "low");
+		top.add(Double.NaN, "nan");
+		top.add(1.5, "one");
+		top.add(Double.NaN, "nan");
+		assertArrayEquals(new String[] {"one", "low"}, top.getLabels());
+		top.add(Double.POSITIVE_INFINITY, "high");
+		assertArrayEquals(new double[] {Double.POSITIVE_INFINITY, 1.5}, top.getValues());
+		assertFalse(top.accepts(Double.NaN));
+	}
+
+	/**
+	 * Tests that a TopK must keep at least one value.
+	 */
+	@Test
+	public void rejectsNoValues()
+	{
+		assertThrows(IllegalArgumentException.class, new Executable()
+		{
+			@Override
+			public void execute() throws Throwable
+			{
+				new TopK(0);
+			}
+		});
+	}
+}
@@ -0,0 +1,193 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import reports.io.DataSource;
+
+/**
+ * Tests that a YearRankingReport lists the same companies and percentiles as a full sort of its year,
+ *  whether it is processed alone, from a stream, or with every year of its file.
+ * @author Logan Noonan
+ *
+ */
+public class YearRankingReportTest
+{
+	/**
+	 * A directory for the test files.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Returns rows with a last year of repeated values, revenues of zero, and negative profits after the
+	 *  generated years.
+	 * @return The rows, without the column names.
+	 */
+	private static List<String> rows()
+	{
+		List<String> result = new ArrayList<String>(TestData.rows(Report.MINYEAR, 3, 120, 72));
+		for (int rank = 1; rank <= 40; rank++)
+		{
+			int revenue = rank * 7 % 11;
+			result.add((Report.MINYEAR + 3) + "," + rank + "," + TestData.companyName(rank) + ","
+					+ (revenue == 0 ? "0" : revenue + "0.5") + "," + (rank * 5 % 9 - 4) + ".25");
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a value formatted as the report formats it.
+	 * @param value The value, or null.
+	 * @return The value to three decimals, or "nul".
+	 */
+	private static String format(Double value)
+	{
+		return value == null ? "nul" : String.format("%.3f", value);
+	}
+
+	/**
+	 * Appends a section of the expected report, found by sorting every value of the section.
+	 * @param builder The builder to append to.
+	 * @param names The company of each value, in the order of the file.
+	 * @param values The values, with NaN for a company without a value.
+	 * @param k The number of companies listed.
+	 */
+	private static void appendSection(StringBuilder builder, List<String> names, final List<Double> values, int k)
+	{
+		List<Integer> ranked = new ArrayList<Integer>();
+		List<Double> sorted = new ArrayList<Double>();
+		for (int index = 0; index < values.size(); index++)
+		{
+			if (!values.get(index).isNaN())
+			{
+				ranked.add(index);
+				sorted.add(values.get(index));
+			}
+		}
+		Collections.sort(sorted);
+		builder.append('\n');
+		String[] quantileNames = {"Median: ", " P90: ", " P99: "};
+		double[] quantiles = {0.5, 0.9, 0.99};
+		for (int index = 0; index < quantiles.length; index++)
+		{
+			Double value = null;
+			if (!sorted.isEmpty())
+			{
+				value = sorted.get(Math.max(0, (int) Math.ceil(quantiles[index] * sorted.size()) - 1));
+			}
+			builder.append(quantileNames[index]).append(format(value));
+		}
+		Collections.sort(ranked, new Comparator<Integer>()
+		{
+			@Override
+			public int compare(Integer first, Integer second)
+			{
+				return Double.compare(values.get(second), values.get(first));
+			}
+		});
+		for (int index = 0; index < Math.min(k, ranked.size()); index++)
+		{
+			builder.append('\n').append(index + 1).append(' ').append(names.get(ranked.get(index))).append(' ')
+					.append(format(values.get(ranked.get(index))));
+		}
+	}
+
+	/**
+	 * Returns the expected text of the report of a year, found by sorting the year's values.
+	 * @param rows The rows of the file, without the column names.
+	 * @param year The year.
+	 * @param k The number of companies listed.
+	 * @return The report's text.
+	 */
+	private static String expected(List<String> rows, int year, int k)
+	{
+		List<String> names = new ArrayList<String>();
+		List<Double> revenues = new ArrayList<Double>();
+		List<Double> profits = new ArrayList<Double>();
+		List<Double> margins = new ArrayList<Double>();
+		for (String row : rows)
+		{
+			String[] fields = row.split(",");
+			if (Integer.parseInt(fields[0]) == year)
+			{
+				double revenue = Double.parseDouble(fields[3]);
+				double profit = Double.parseDouble(fields[4]);
+				names.add(fields[2]);
+				revenues.add(revenue);
+				profits.add(profit);
+				margins.add(revenue == 0.0 ? Double.NaN : profit / revenue * 100.0);
+			}
+		}
+		StringBuilder result = new StringBuilder("Fortune 500 Top " + k + " Report for " + year);
+		appendSection(result.append("\nRevenue"), names, revenues, k);
+		appendSection(result.append("\nProfit"), names, profits, k);
+		appendSection(result.append("\nMargin"), names, margins, k);
+		return result.toString();
+	}
+
+	/**
+	 * Tests reports processed alone from a file and from a stream against a full sort of each year,
+	 *  including a year of repeated values and years with no rows, and a report not yet processed.
+	 * @throws Exception Thrown if the test file cannot be written.
+	 */
+	@Test
+	public void matchesFullSort() throws Exception
+	{
+		List<String> rows = rows();
+		File file = TestData.write(this.directory, "ranking.csv", rows);
+		StringBuilder text = new StringBuilder(TestData.HEADER);
+		for (String row : rows)
+		{
+			text.append('\n').append(row);
+		}
+		for (int k : new int[] {1, 3, 10, 200})
+		{
+			for (int year = Report.MINYEAR; year <= Report.MINYEAR + 5; year++)
+			{
+				YearRankingReport report = new YearRankingReport(file, year, k);
+				assertTrue(report.processReport());
+				assertEquals(expected(rows, year, k), report.toString());
+				YearRankingReport streamed = new YearRankingReport(DataSource.of(new StringReader(text.toString())),
+						year, k);
+				assertTrue(streamed.processReport());
+				assertEquals(expected(rows, year, k), streamed.toString());
+			}
+		}
+		assertEquals(expected(new ArrayList<String>(), Report.MINYEAR + 1, YearRankingReport.DEFAULT_K),
+				new YearRankingReport(file, Report.MINYEAR + 1).toString());
+	}
+
+	/**
+	 * Tests that every year processed in one pass matches the year processed alone.
+	 * @throws Exception Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void processesEveryYear() throws Exception
+	{
+		List<String> rows = rows();
+		File file = TestData.write(this.directory, "years.csv", rows);
+		Map<Integer, YearRankingReport> reports = YearRankingReport.processYears(file, 4);
+		assertEquals(4, reports.size());
+		for (Map.Entry<Integer, YearRankingReport> entry : reports.entrySet())
+		{
+			assertEquals(4, entry.getValue().getK());
+			assertEquals(entry.getKey().intValue(), entry.getValue().getYear());
+			assertEquals(expected(rows, entry.getKey(), 4), entry.getValue().toString());
+		}
+	}
+}
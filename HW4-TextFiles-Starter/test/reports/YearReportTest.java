@@ -0,0 +1,165 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import reports.io.ColumnarCache;
+import reports.io.FortuneDataset;
+
+/**
+ * Tests that a YearReport gives the same text as the original YearReport whichever way its rows are read:
+ *  by scanning the csv file, through the year index, from the columnar cache, from a report snapshot,
+ *  from a loaded dataset, and from a stream.
+ * @author Logan Noonan
+ *
+ */
+public class YearReportTest
+{
+	/**
+	 * The first year of the test file.
+	 */
+	private static final int FIRST_YEAR = Report.MINYEAR;
+
+	/**
+	 * The number of years of the test file.
+	 */
+	private static final int YEARS = 6;
+
+	/**
+	 * A directory for the test files.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Processes the report of a year and returns its text.
+	 * @param report The report.
+	 * @return The report's toString.
+	 */
+	private static String process(YearReport report)
+	{
+		assertTrue(report.processReport());
+		return report.toString();
+	}
+
+	/**
+	 * Tests the reports of a file scanned for the first time, and again once its year index is saved.
+	 * @throws IOException Thrown if the test file cannot be written.
+	 */
+	@Test
+	public void matchesOriginalWhenScanned() throws IOException
+	{
+		List<String> rows = TestData.rows(FIRST_YEAR, YEARS, 400, 1);
+		File file = TestData.write(this.directory, "scan.csv", rows);
+		for (int pass = 0; pass < 2; pass++)
+		{
+			for (int year = FIRST_YEAR; year < FIRST_YEAR + YEARS; year++)
+			{
+				assertEquals(TestData.yearReport(rows, year), process(new YearReport(file, year)));
+			}
+		}
+	}
+
+	/**
+	 * Tests the reports of a year the file has no rows for.
+	 * @throws IOException Thrown if the test file cannot be written.
+	 */
+	@Test
+	public void matchesOriginalForMissingYear() throws IOException
+	{
+		List<String> rows = TestData.rows(FIRST_YEAR, 2, 50, 2);
+		File file = TestData.write(this.directory, "missing.csv", rows);
+		assertEquals(TestData.yearReport(rows, Report.MAXYEAR), process(new YearReport(file, Report.MAXYEAR)));
+	}
+
+	/**
+	 * Tests the reports read from the columnar cache and from the report snapshot.
+	 * @throws IOException Thrown if the test file or its sidecar files cannot be written.
+	 */
+	@Test
+	public void matchesOriginalFromCacheAndSnapshot() throws IOException
+	{
+		List<String> rows = TestData.rows(FIRST_YEAR, YEARS, 300, 3);
+		File file = TestData.write(this.directory, "cached.csv", rows);
+		assertNotNull(ColumnarCache.convert(file));
+		for (int year = FIRST_YEAR; year < FIRST_YEAR + YEARS; year++)
+		{
+			assertEquals(TestData.yearReport(rows, year), process(new YearReport(file, year)));
+		}
+		assertNotNull(ReportSnapshot.write(file));
+		for (int year = FIRST_YEAR; year < FIRST_YEAR + YEARS; year++)
+		{
+			assertEquals(TestData.yearReport(rows, year), process(new YearReport(file, year)));
+		}
+	}
+
+	/**
+	 * Tests the reports read from a loaded dataset.
+	 * @throws IOException Thrown if the test file cannot be written or loaded.
+	 */
+	@Test
+	public void matchesOriginalFromDataset() throws IOException
+	{
+		List<String> rows = TestData.rows(FIRST_YEAR, YEARS, 200, 4);
+		File file = TestData.write(this.directory, "dataset.csv", rows);
+		FortuneDataset.load(file);
+		try
+		{
+			for (int year = FIRST_YEAR; year < FIRST_YEAR + YEARS; year++)
+			{
+				assertEquals(TestData.yearReport(rows, year), process(new YearReport(file, year)));
+			}
+		}
+		finally
+		{
+			FortuneDataset.unload(file);
+		}
+	}
+
+	/**
+	 * Tests the reports read from a stream.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void matchesOriginalFromStream() throws IOException
+	{
+		List<String> rows = TestData.rows(FIRST_YEAR, YEARS, 100, 5);
+		File file = TestData.write(this.directory, "stream.csv", rows);
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		for (int year = FIRST_YEAR; year < FIRST_YEAR + YEARS; year++)
+		{
+			assertEquals(TestData.yearReport(rows, year),
+					process(new YearReport(new ByteArrayInputStream(bytes), year)));
+		}
+	}
+
+	/**
+	 * Tests that a report processed again after the file changes gives the report of the changed file.
+	 * @throws IOException Thrown if the test file cannot be written.
+	 */
+	@Test
+	public void processesChangedFile() throws IOException
+	{
+		List<String> rows = TestData.rows(FIRST_YEAR, YEARS, 100, 6);
+		File file = TestData.write(this.directory, "changed.csv", rows);
+		YearReport report = new YearReport(file, FIRST_YEAR);
+		assertEquals(TestData.yearReport(rows, FIRST_YEAR), process(report));
+		List<String> changed = TestData.rows(FIRST_YEAR, YEARS + 1, 120, 7);
+		TestData.write(this.directory, "changed.csv", changed);
+		assertTrue(file.setLastModified(file.lastModified() + 2000));
+		assertEquals(TestData.yearReport(changed, FIRST_YEAR), process(report));
+	}
+}
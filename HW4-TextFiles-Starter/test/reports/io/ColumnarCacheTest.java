@@ -0,0 +1,121 @@
+// NAME: Logan Noonan
+
+package reports.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import reports.Report;
+import reports.TestData;
+
+/**
+ * Tests that a ColumnarCache holds the same values as its csv file, is only opened while it matches the csv
+ *  file, and is never opened when its file is incomplete.
+ * @author Logan Noonan
+ *
+ */
+public class ColumnarCacheTest
+{
+	/**
+	 * A directory for the test files.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Checks that a cache holds the values of every row.
+	 * @param cache The cache.
+	 * @param rows The rows of its csv file.
+	 */
+	private static void checkRows(ColumnarCache cache, List<String> rows)
+	{
+		assertEquals(rows.size(), cache.getRowCount());
+		for (int row = 0; row < rows.size(); row++)
+		{
+			String[] fields = rows.get(row).split(",");
+			assertEquals(Integer.parseInt(fields[0]), cache.getYear(row));
+			assertEquals(Integer.parseInt(fields[1]), cache.getRank(row));
+			assertEquals(fields[2], cache.getCompany(cache.getCompanyId(row)));
+			assertEquals(Double.parseDouble(fields[3]), cache.getRevenue(row));
+			assertEquals(Double.parseDouble(fields[4]), cache.getProfit(row));
+		}
+	}
+
+	/**
+	 * Tests a new cache and the cache opened from its file.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void holdsEveryRow() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 5, 120, 111);
+		File file = TestData.write(this.directory, "columns.csv", rows);
+		assertNull(ColumnarCache.openIfCurrent(file));
+		checkRows(ColumnarCache.convert(file), rows);
+		ColumnarCache opened = ColumnarCache.openIfCurrent(file);
+		assertNotNull(opened);
+		checkRows(opened, rows);
+		int[] ids = opened.findMatching(" " + TestData.companyName(4).toUpperCase());
+		assertEquals(1, ids.length);
+		assertEquals(TestData.companyName(4), opened.getCompany(ids[0]));
+		assertArrayEquals(new int[0], opened.findMatching("Unknown"));
+	}
+
+	/**
+	 * Tests that a cache is not opened once its csv file changes, and is opened again after converting.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void notOpenedForChangedFile() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 3, 60, 112);
+		File file = TestData.write(this.directory, "changed.csv", rows);
+		ColumnarCache.convert(file);
+		assertNotNull(ColumnarCache.openIfCurrent(file));
+		List<String> changed = TestData.rows(Report.MINYEAR, 4, 60, 113);
+		TestData.write(this.directory, "changed.csv", changed);
+		assertTrue(file.setLastModified(file.lastModified() + 2000));
+		assertNull(ColumnarCache.openIfCurrent(file));
+		ColumnarCache.convert(file);
+		checkRows(ColumnarCache.openIfCurrent(file), changed);
+	}
+
+	/**
+	 * Tests that a cache file cut short at any length is not opened. The csv file is copied to a new name
+	 *  for each length, so the cache is opened from its file rather than found in memory.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void notOpenedWhenIncomplete() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 2, 20, 114);
+		File original = TestData.write(this.directory, "original.csv", rows);
+		ColumnarCache.convert(original);
+		long length = ColumnarCache.cacheFileFor(original).length();
+		for (long cut = 0; cut < length; cut += 7)
+		{
+			File file = this.directory.resolve("cut" + cut + ".csv").toFile();
+			Files.copy(original.toPath(), file.toPath(), StandardCopyOption.COPY_ATTRIBUTES);
+			Files.copy(ColumnarCache.cacheFileFor(original).toPath(), ColumnarCache.cacheFileFor(file).toPath());
+			try (RandomAccessFile cache = new RandomAccessFile(ColumnarCache.cacheFileFor(file), "rw"))
+			{
+				cache.setLength(cut);
+			}
+			assertNull(ColumnarCache.openIfCurrent(file), "Opened a cache cut to " + cut + " bytes");
+		}
+	}
+}
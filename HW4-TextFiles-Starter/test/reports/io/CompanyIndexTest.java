@@ -0,0 +1,135 @@
+// NAME: Logan Noonan
+
+package reports.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import reports.Report;
+import reports.TestData;
+
+/**
+ * Tests that a CompanyIndex finds every row of a company by its normalized name or an alias, that the rows
+ *  it opens are the company's rows, and that it is saved to and loaded from its sidecar file.
+ * @author Logan Noonan
+ *
+ */
+public class CompanyIndexTest
+{
+	/**
+	 * A directory for the test files.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Returns the numbers of the rows of a company, counting from 0 after the column names.
+	 * @param rows The rows of the file.
+	 * @param company The company's exact name.
+	 * @return The row numbers in file order.
+	 */
+	private static int[] numbers(List<String> rows, String company)
+	{
+		List<Integer> found = new ArrayList<Integer>();
+		for (int row = 0; row < rows.size(); row++)
+		{
+			if (rows.get(row).split(",")[2].equals(company))
+			{
+				found.add(row);
+			}
+		}
+		int[] result = new int[found.size()];
+		for (int index = 0; index < result.length; index++)
+		{
+			result[index] = found.get(index);
+		}
+		return result;
+	}
+
+	/**
+	 * Tests the normalized keys of company names.
+	 */
+	@Test
+	public void normalizesNames()
+	{
+		assertEquals("general motors", CompanyIndex.normalize("General Motors"));
+		assertEquals("general motors", CompanyIndex.normalize("  general \t MOTORS "));
+		assertEquals("", CompanyIndex.normalize("   "));
+		String normal = "general motors";
+		assertSame(normal, CompanyIndex.normalize(normal));
+		assertEquals("soci\u00e9t\u00e9 g\u00e9n\u00e9rale", CompanyIndex.normalize(" SOCI\u00c9T\u00c9\nG\u00e9n\u00e9rale"));
+	}
+
+	/**
+	 * Tests the row numbers and rows of every company, from a new index and from the saved index.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void findsRowsOfCompanies() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 6, 50, 101);
+		File file = TestData.write(this.directory, "companies.csv", rows);
+		List<CompanyIndex> indexes = Arrays.asList(CompanyIndex.build(file), CompanyIndex.forFile(file),
+				CompanyIndex.forFile(file));
+		assertTrue(CompanyIndex.indexFileFor(file).isFile());
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			for (CompanyIndex index : indexes)
+			{
+				for (int company = 0; company < 102; company++)
+				{
+					String name = TestData.companyName(company);
+					int[] expected = numbers(rows, name);
+					assertArrayEquals(expected, index.getRowNumbers(name));
+					assertArrayEquals(expected, index.getRowNumbers(" " + name.toUpperCase() + " "));
+					try (CsvRowReader companyRows = index.openRows(channel, name))
+					{
+						for (int row : expected)
+						{
+							assertTrue(companyRows.nextRow());
+							String[] fields = rows.get(row).split(",");
+							assertEquals(Integer.parseInt(fields[0]), companyRows.getYear());
+							assertEquals(Integer.parseInt(fields[1]), companyRows.getRank());
+							assertEquals(name, companyRows.getCompany());
+						}
+						assertFalse(companyRows.nextRow());
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests aliases added to the index and read from the aliases file.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void resolvesAliases() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 4, 30, 102);
+		File file = TestData.write(this.directory, "aliases.csv", rows);
+		String company = rows.get(0).split(",")[2];
+		Files.write(CompanyIndex.aliasesFileFor(file).toPath(), Arrays.asList("From File=" + company));
+		CompanyIndex index = CompanyIndex.forFile(file);
+		assertArrayEquals(numbers(rows, company), index.getRowNumbers("from  file"));
+		index.addAlias("Added", company.toLowerCase());
+		assertArrayEquals(numbers(rows, company), index.getRowNumbers("ADDED"));
+		assertArrayEquals(new int[0], index.getRowNumbers("Unknown"));
+	}
+}
@@ -0,0 +1,205 @@
+// NAME: Logan Noonan
+
+package reports.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a CsvRowReader splits rows the way the original reports did for plain rows, reads quoted
+ *  fields as RFC 4180 describes, parses numbers exactly as Double.parseDouble does, and reports the offsets
+ *  of its rows.
+ * @author Logan Noonan
+ *
+ */
+public class CsvRowReaderTest
+{
+	/**
+	 * Returns a reader of text.
+	 * @param text The csv text.
+	 * @return The reader.
+	 */
+	private static CsvRowReader reader(String text)
+	{
+		InputStream input = new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+		return new CsvRowReader(input, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Tests the fields and offsets of plain rows, with a blank line and a final row without a line break.
+	 * @throws IOException Thrown if the rows cannot be read.
+	 */
+	@Test
+	public void readsPlainRows() throws IOException
+	{
+		String first = "1955,1,General Motors,9823.5,806\n";
+		String second = "1955,2,Exxon Mobil,5661.4,584.8\r\n";
+		try (CsvRowReader rows = reader(first + "\n" + second + "1956,1,General Motors,12443.3,1189.5"))
+		{
+			assertTrue(rows.nextRow());
+			assertEquals(1955, rows.getYear());
+			assertEquals(1, rows.getRank());
+			assertEquals("General Motors", rows.getCompany());
+			assertEquals(9823.5, rows.getRevenue());
+			assertEquals(806.0, rows.getProfit());
+			assertEquals(0, rows.getRowOffset());
+			assertEquals(first.length(), rows.getNextRowOffset());
+			assertTrue(rows.nextRow());
+			assertEquals("Exxon Mobil", rows.getCompany());
+			assertEquals(584.8, rows.getProfit());
+			assertEquals(first.length() + 1, rows.getRowOffset());
+			assertTrue(rows.nextRow());
+			assertEquals(1956, rows.getYear());
+			assertEquals(1189.5, rows.getProfit());
+			assertFalse(rows.nextRow());
+			assertEquals(3, rows.getRowsRead());
+		}
+	}
+
+	/**
+	 * Tests quoted fields holding commas, line breaks, and doubled quotes, and the rows after them.
+	 * @throws IOException Thrown if the rows cannot be read.
+	 */
+	@Test
+	public void readsQuotedFields() throws IOException
+	{
+		String quoted = "1990,7,\"Procter & Gamble, Co.\nThe \"\"P&G\"\" Company\",24081,1206\n";
+		try (CsvRowReader rows = reader(quoted + "1990,8,Plain,1.5,-2.25\n"))
+		{
+			assertTrue(rows.nextRow());
+			assertEquals(7, rows.getRank());
+			assertEquals("Procter & Gamble, Co.\nThe \"P&G\" Company", rows.getCompany());
+			assertEquals(24081.0, rows.getRevenue());
+			assertEquals(1206.0, rows.getProfit());
+			assertEquals(quoted.length(), rows.getNextRowOffset());
+			assertTrue(rows.nextRow());
+			assertEquals("Plain", rows.getCompany());
+			assertEquals(-2.25, rows.getProfit());
+			assertFalse(rows.nextRow());
+		}
+	}
+
+	/**
+	 * Tests that a double quote within an unquoted field is kept as it is rather than opening a quoted field
+	 *  that runs on over the following rows, and that a quoted field ends at its closing quote, whether the
+	 *  input arrives at once or a byte at a time.
+	 * @throws IOException Thrown if the rows cannot be read.
+	 */
+	@Test
+	public void keepsQuotesWithinFields() throws IOException
+	{
+		String text = "1990,9,Macy\"s,100.5,2\n1990,10,\"Toys \"\"R\"\" Us\" Inc,3,4\n"
+				+ "1990,11,Plain,5,6 \"note\n1990,12,Last,7,8\n";
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		InputStream trickle = new ByteArrayInputStream(bytes)
+		{
+			@Override
+			public synchronized int read(byte[] bufferIn, int offsetIn, int lengthIn)
+			{
+				return super.read(bufferIn, offsetIn, Math.min(1, lengthIn));
+			}
+		};
+		for (InputStream input : new InputStream[] {new ByteArrayInputStream(bytes), trickle})
+		{
+			try (CsvRowReader rows = new CsvRowReader(input, StandardCharsets.UTF_8))
+			{
+				assertTrue(rows.nextRow());
+				assertEquals("Macy\"s", rows.getCompany());
+				assertEquals(100.5, rows.getRevenue());
+				assertEquals(2.0, rows.getProfit());
+				assertTrue(rows.nextRow());
+				assertEquals(10, rows.getRank());
+				assertEquals("Toys \"R\" Us Inc", rows.getCompany());
+				assertEquals(3.0, rows.getRevenue());
+				assertTrue(rows.nextRow());
+				assertEquals("Plain", rows.getCompany());
+				assertEquals(5.0, rows.getRevenue());
+				assertTrue(rows.nextRow());
+				assertEquals(12, rows.getRank());
+				assertEquals("Last", rows.getCompany());
+				assertEquals(8.0, rows.getProfit());
+				assertFalse(rows.nextRow());
+				assertEquals(4, rows.getRowsRead());
+			}
+		}
+	}
+
+	/**
+	 * Tests that empty, absent, and placeholder values are read as missing.
+	 * @throws IOException Thrown if the rows cannot be read.
+	 */
+	@Test
+	public void readsMissingValues() throws IOException
+	{
+		try (CsvRowReader rows = reader("2000,1,A,N.A.,12\n2000,2,B,,n/a\n2000,3,C,7\n2000,4,D, - ,NULL\n"))
+		{
+			assertTrue(rows.nextRow());
+			assertTrue(Double.isNaN(rows.getRevenue()));
+			assertEquals(12.0, rows.getProfit());
+			assertTrue(rows.nextRow());
+			assertTrue(Double.isNaN(rows.getRevenue()));
+			assertTrue(Double.isNaN(rows.getProfit()));
+			assertTrue(rows.nextRow());
+			assertEquals(7.0, rows.getRevenue());
+			assertTrue(rows.isMissing(CsvRowReader.PROFIT));
+			assertTrue(Double.isNaN(rows.getProfit()));
+			assertTrue(rows.nextRow());
+			assertTrue(Double.isNaN(rows.getRevenue()));
+			assertTrue(Double.isNaN(rows.getProfit()));
+		}
+	}
+
+	/**
+	 * Tests that decimals parsed from the buffer are the doubles Double.parseDouble gives.
+	 * @throws IOException Thrown if the rows cannot be read.
+	 */
+	@Test
+	public void parsesNumbersExactly() throws IOException
+	{
+		Random random = new Random(71);
+		StringBuilder text = new StringBuilder();
+		String[] values = new String[20000];
+		for (int index = 0; index < values.length; index++)
+		{
+			StringBuilder value = new StringBuilder();
+			if (random.nextInt(4) == 0)
+			{
+				value.append('-');
+			}
+			value.append(random.nextInt(10000000));
+			int decimals = random.nextInt(8);
+			if (decimals > 0)
+			{
+				value.append('.');
+				for (int digit = 0; digit < decimals; digit++)
+				{
+					value.append(random.nextInt(10));
+				}
+			}
+			if (index % 1000 == 0)
+			{
+				value.append("e3");
+			}
+			values[index] = value.toString();
+			text.append("2001,").append(index + 1).append(",Company,").append(values[index]).append(",0\n");
+		}
+		try (CsvRowReader rows = reader(text.toString()))
+		{
+			for (String value : values)
+			{
+				assertTrue(rows.nextRow());
+				assertEquals(Double.doubleToLongBits(Double.parseDouble(value)),
+						Double.doubleToLongBits(rows.getRevenue()), value);
+			}
+		}
+	}
+}
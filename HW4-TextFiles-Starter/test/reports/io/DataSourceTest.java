@@ -0,0 +1,206 @@
+// NAME: Logan Noonan
+
+package reports.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
+
+import reports.CompanyReport;
+import reports.Report;
+import reports.TestData;
+import reports.YearReport;
+
+/**
+ * Tests that the rows of a DataSource are the rows of the csv data whether it is a plain file, a gzip
+ *  compressed Path, a Reader, or a channel, and that zstd compressed data is recognized but not read.
+ * @author Logan Noonan
+ *
+ */
+public class DataSourceTest
+{
+	/**
+	 * A directory for the test files.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Returns the text of a csv file of the column names followed by rows.
+	 * @param rows The rows.
+	 * @return The file's text.
+	 */
+	private static String text(List<String> rows)
+	{
+		StringBuilder result = new StringBuilder(TestData.HEADER).append('\n');
+		for (String row : rows)
+		{
+			result.append(row).append('\n');
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Returns a processed report's text.
+	 * @param report The report.
+	 * @return The report's toString.
+	 */
+	private static String process(YearReport report)
+	{
+		assertTrue(report.processReport());
+		return report.toString();
+	}
+
+	/**
+	 * Returns a processed report's text.
+	 * @param report The report.
+	 * @return The report's toString.
+	 */
+	private static String process(CompanyReport report)
+	{
+		assertTrue(report.processReport());
+		return report.toString();
+	}
+
+	/**
+	 * Tests that a gzip compressed Path is decompressed each time it is read.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void readsGzipPath() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 5, 60, 61);
+		Path path = this.directory.resolve("data.csv.gz");
+		try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(path)))
+		{
+			output.write(text(rows).getBytes(StandardCharsets.UTF_8));
+		}
+		DataSource source = DataSource.of(path);
+		assertNull(source.getFile());
+		assertFalse(source.isOnce());
+		for (int read = 0; read < 2; read++)
+		{
+			try (InputStream input = source.open())
+			{
+				assertArrayEquals(text(rows).getBytes(StandardCharsets.UTF_8), input.readAllBytes());
+			}
+		}
+		for (int year = Report.MINYEAR; year < Report.MINYEAR + 5; year++)
+		{
+			assertEquals(TestData.yearReport(rows, year), process(new YearReport(path, year)));
+		}
+		String name = TestData.companyName(9);
+		assertEquals(TestData.companyReport(rows, name), process(new CompanyReport(path, name)));
+		File plain = TestData.write(this.directory, "plain.csv", rows);
+		assertEquals(plain, DataSource.of(plain.toPath()).getFile());
+	}
+
+	/**
+	 * Tests a Reader of names that are not ASCII, long enough to be encoded in several blocks, so characters
+	 *  of several bytes fall across the ends of blocks.
+	 * @throws IOException Thrown if the Reader cannot be read.
+	 */
+	@Test
+	public void readsReaderOfOtherCharacters() throws IOException
+	{
+		String[] names = {"Nestl\u00e9", "\u65e5\u7acb\u88fd\u4f5c\u6240", "Caf\u00e9 \u00dcber \u20ac"};
+		List<String> rows = new ArrayList<String>();
+		for (int year = Report.MINYEAR; year < Report.MINYEAR + 40; year++)
+		{
+			for (int rank = 1; rank <= 90; rank++)
+			{
+				String company = names[rank % names.length] + " " + (rank / names.length);
+				rows.add(year + "," + rank + "," + company + "," + (rank * 31 % 997) + ".5," + (rank % 17) + ".25");
+			}
+		}
+		String text = text(rows);
+		try (InputStream input = new ReaderInputStream(new StringReader(text), StandardCharsets.UTF_8))
+		{
+			assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), input.readAllBytes());
+		}
+		DataSource source = DataSource.of(new StringReader(text));
+		assertEquals(StandardCharsets.UTF_8, source.getCharset());
+		assertTrue(source.isOnce());
+		String company = names[1] + " 7";
+		assertEquals(TestData.companyReport(rows, company), process(new CompanyReport(new StringReader(text),
+				company)));
+		assertEquals(TestData.yearReport(rows, Report.MINYEAR + 20), process(new YearReport(new StringReader(text),
+				Report.MINYEAR + 20)));
+	}
+
+	/**
+	 * Tests that a channel is read once, and that a second read is refused.
+	 * @throws IOException Thrown if the channel cannot be read.
+	 */
+	@Test
+	public void readsChannelOnce() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 4, 50, 62);
+		byte[] bytes = text(rows).getBytes(StandardCharsets.UTF_8);
+		YearReport report = new YearReport(Channels.newChannel(new ByteArrayInputStream(bytes)), Report.MINYEAR + 2);
+		assertEquals(TestData.yearReport(rows, Report.MINYEAR + 2), process(report));
+		assertFalse(report.processReport());
+		final DataSource source = DataSource.of(Channels.newChannel(new ByteArrayInputStream(bytes)));
+		assertTrue(source.isOnce());
+		assertNull(source.getFile());
+		source.open().close();
+		assertThrows(IOException.class, new Executable()
+		{
+			@Override
+			public void execute() throws Throwable
+			{
+				source.open();
+			}
+		});
+	}
+
+	/**
+	 * Tests that zstd compressed data is recognized, and is refused with a message naming zstd.
+	 * @throws IOException Thrown if the test file cannot be written.
+	 */
+	@Test
+	public void refusesZstd() throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		bytes.write(new byte[] {(byte) 0x28, (byte) 0xB5, (byte) 0x2F, (byte) 0xFD, 0, 0, 0, 0});
+		bytes.write(text(TestData.rows(Report.MINYEAR, 1, 5, 63)).getBytes(StandardCharsets.UTF_8));
+		final Path path = Files.write(this.directory.resolve("data.csv.zst"), bytes.toByteArray());
+		DataSource source = DataSource.of(path);
+		assertNull(source.getFile());
+		IOException refused = assertThrows(IOException.class, new Executable()
+		{
+			@Override
+			public void execute() throws Throwable
+			{
+				DataSource.of(path).open();
+			}
+		});
+		assertNotNull(refused.getMessage());
+		assertTrue(refused.getMessage().contains("zstd"), refused.getMessage());
+		assertFalse(new YearReport(path, Report.MINYEAR).processReport());
+		assertFalse(new CompanyReport(path, TestData.companyName(0)).processReport());
+	}
+}
@@ -0,0 +1,149 @@
+// NAME: Logan Noonan
+
+package reports.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import reports.Report;
+import reports.TestData;
+
+/**
+ * Tests that a DatasetWatcher swaps in the dataset of a changed file and converts the file's ColumnarCache
+ *  again, and that once closed it has no thread left and reloads nothing.
+ * @author Logan Noonan
+ *
+ */
+public class DatasetWatcherTest
+{
+	/**
+	 * A directory for the test files.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Rewrites a file with other rows and a later last modified time.
+	 * @param file The file.
+	 * @param rows The new rows.
+	 * @throws IOException Thrown if the file cannot be written.
+	 */
+	private void rewrite(File file, List<String> rows) throws IOException
+	{
+		long modified = file.lastModified();
+		TestData.write(this.directory, file.getName(), rows);
+		assertTrue(file.setLastModified(modified + 5000));
+	}
+
+	/**
+	 * Checks whether the thread of a watcher of a file is still alive.
+	 * @param file The file.
+	 * @return true if a thread of the watcher's name is alive.
+	 */
+	private static boolean watching(File file)
+	{
+		for (Thread thread : Thread.getAllStackTraces().keySet())
+		{
+			if (thread.isAlive() && thread.getName().equals("DatasetWatcher " + file.getName()))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Tests that a reload swaps in the new dataset, tells the listeners, and converts the file's cache again,
+	 *  so the cache matches the new rows rather than being refused for its checksum.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void reloadsDatasetAndCache() throws IOException
+	{
+		File file = TestData.write(this.directory, "reload.csv", TestData.rows(Report.MINYEAR, 2, 20, 111));
+		assertNotNull(ColumnarCache.convert(file));
+		final AtomicInteger told = new AtomicInteger();
+		DatasetWatcher watcher = new DatasetWatcher(file);
+		watcher.addListener(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				told.incrementAndGet();
+			}
+		});
+		watcher.start();
+		try
+		{
+			FortuneDataset old = watcher.getDataset();
+			assertFalse(watcher.reload());
+			this.rewrite(file, TestData.rows(Report.MINYEAR, 3, 25, 112));
+			assertTrue(watcher.reload());
+			assertEquals(1, told.get());
+			assertEquals(1, watcher.getReloadCount());
+			assertEquals(75, watcher.getDataset().getRowCount());
+			assertSame(watcher.getDataset(), FortuneDataset.getIfLoaded(file));
+			assertEquals(40, old.getRowCount());
+			ColumnarCache cache = ColumnarCache.openIfCurrent(file);
+			assertNotNull(cache);
+			assertEquals(75, cache.getRowCount());
+		}
+		finally
+		{
+			watcher.close();
+			FortuneDataset.unload(file);
+		}
+	}
+
+	/**
+	 * Tests that close waits for the watcher's thread to end, and that a closed watcher neither reloads a
+	 *  changed file nor tells its listeners.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void reloadsNothingOnceClosed() throws IOException
+	{
+		File file = TestData.write(this.directory, "closed.csv", TestData.rows(Report.MINYEAR, 2, 20, 113));
+		final AtomicInteger told = new AtomicInteger();
+		DatasetWatcher watcher = new DatasetWatcher(file);
+		watcher.addListener(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				told.incrementAndGet();
+			}
+		});
+		watcher.start();
+		try
+		{
+			FortuneDataset old = watcher.getDataset();
+			assertTrue(watching(file));
+			watcher.close();
+			assertFalse(watching(file));
+			this.rewrite(file, TestData.rows(Report.MINYEAR, 3, 25, 114));
+			assertFalse(watcher.reload());
+			assertEquals(0, told.get());
+			assertEquals(0, watcher.getReloadCount());
+			assertSame(old, watcher.getDataset());
+			watcher.close();
+		}
+		finally
+		{
+			watcher.close();
+			FortuneDataset.unload(file);
+		}
+	}
+}
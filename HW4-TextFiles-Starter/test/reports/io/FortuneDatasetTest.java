@@ -0,0 +1,197 @@
+// NAME: Logan Noonan
+
+package reports.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import reports.Report;
+import reports.TestData;
+
+/**
+ * Tests that a FortuneDataset holds every row of its file, that a loaded dataset is dropped once its file
+ *  changes, and that the dataset of a watched file is kept until it is replaced.
+ * @author Logan Noonan
+ *
+ */
+public class FortuneDatasetTest
+{
+	/**
+	 * A directory for the test files.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Checks that a dataset holds the given rows in order.
+	 * @param rows The rows of its file, without the column names.
+	 * @param dataset The dataset.
+	 */
+	private static void checkRows(List<String> rows, FortuneDataset dataset)
+	{
+		assertEquals(rows.size(), dataset.getRowCount());
+		assertEquals(rows.size() * 28L, dataset.getOffHeapBytes());
+		for (int row = 0; row < rows.size(); row++)
+		{
+			String[] fields = rows.get(row).split(",");
+			assertEquals(Integer.parseInt(fields[0]), dataset.getYear(row));
+			assertEquals(Integer.parseInt(fields[1]), dataset.getRank(row));
+			assertEquals(fields[2], dataset.getDictionary().getName(dataset.getCompanyId(row)));
+			assertEquals(Double.parseDouble(fields[3]), dataset.getRevenue(row));
+			assertEquals(Double.parseDouble(fields[4]), dataset.getProfit(row));
+			assertEquals(dataset.getRevenue(row), dataset.getRevenueColumn().get(row));
+			assertEquals(dataset.getProfit(row), dataset.getProfitColumn().get(row));
+		}
+	}
+
+	/**
+	 * Rewrites a file with other rows and a later last modified time, so it no longer matches its dataset.
+	 * @param file The file.
+	 * @param rows The new rows.
+	 * @throws IOException Thrown if the file cannot be written.
+	 */
+	private void rewrite(File file, List<String> rows) throws IOException
+	{
+		long modified = file.lastModified();
+		TestData.write(this.directory, file.getName(), rows);
+		assertTrue(file.setLastModified(modified + 5000));
+	}
+
+	/**
+	 * Tests the columns, the first run of each year, and the company index of a loaded file whose last year
+	 *  appears again after another year.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void loadsEveryRow() throws IOException
+	{
+		List<String> rows = new ArrayList<String>(TestData.rows(Report.MINYEAR, 4, 60, 81));
+		rows.addAll(TestData.rows(Report.MINYEAR + 1, 1, 5, 82));
+		File file = TestData.write(this.directory, "load.csv", rows);
+		try
+		{
+			FortuneDataset dataset = FortuneDataset.load(file);
+			checkRows(rows, dataset);
+			assertTrue(dataset.isCurrent(file));
+			assertSame(dataset, FortuneDataset.load(file));
+			assertSame(dataset, FortuneDataset.getIfLoaded(file));
+			for (int year = 0; year < 4; year++)
+			{
+				assertEquals(year * 60, dataset.getYearStart(Report.MINYEAR + year));
+				assertEquals(60, dataset.getYearRows(Report.MINYEAR + year));
+			}
+			assertEquals(-1, dataset.getYearStart(Report.MINYEAR + 4));
+			assertEquals(0, dataset.getYearRows(Report.MINYEAR + 4));
+			String company = rows.get(rows.size() - 1).split(",")[2];
+			List<Integer> expected = new ArrayList<Integer>();
+			for (int row = 0; row < rows.size(); row++)
+			{
+				if (rows.get(row).split(",")[2].equals(company))
+				{
+					expected.add(row);
+				}
+			}
+			assertNotNull(dataset.getCompanyIndex());
+			int[] found = dataset.getCompanyIndex().getRowNumbers(company);
+			assertEquals(expected.size(), found.length);
+			for (int index = 0; index < found.length; index++)
+			{
+				assertEquals(expected.get(index).intValue(), found[index]);
+			}
+			FortuneDataset.unload(file);
+			assertNull(FortuneDataset.getIfLoaded(file));
+		}
+		finally
+		{
+			FortuneDataset.unload(file);
+		}
+	}
+
+	/**
+	 * Tests that a dataset is dropped once its file changes, and that loading the file again reads the new rows.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void dropsChangedFile() throws IOException
+	{
+		File file = TestData.write(this.directory, "changed.csv", TestData.rows(Report.MINYEAR, 3, 30, 83));
+		try
+		{
+			FortuneDataset old = FortuneDataset.load(file);
+			List<String> rows = TestData.rows(Report.MINYEAR, 2, 45, 84);
+			this.rewrite(file, rows);
+			assertFalse(old.isCurrent(file));
+			assertNull(FortuneDataset.getIfLoaded(file));
+			FortuneDataset loaded = FortuneDataset.load(file);
+			checkRows(rows, loaded);
+			assertSame(loaded, FortuneDataset.getIfLoaded(file));
+			// The old dataset is unchanged for reports still reading it.
+			assertEquals(90, old.getRowCount());
+		}
+		finally
+		{
+			FortuneDataset.unload(file);
+		}
+	}
+
+	/**
+	 * Tests that the dataset of a watched file is kept after the file changes, until a dataset read from the
+	 *  new file replaces it in one step.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void keepsWatchedDatasetUntilReplaced() throws IOException
+	{
+		File file = TestData.write(this.directory, "watched.csv", TestData.rows(Report.MINYEAR, 3, 30, 85));
+		FortuneDataset.setWatched(file, true);
+		try
+		{
+			FortuneDataset old = FortuneDataset.load(file);
+			List<String> rows = TestData.rows(Report.MINYEAR, 5, 20, 86);
+			this.rewrite(file, rows);
+			assertSame(old, FortuneDataset.getIfLoaded(file));
+			assertFalse(old.isCurrent(file));
+			FortuneDataset read = FortuneDataset.read(file);
+			checkRows(rows, read);
+			assertSame(old, FortuneDataset.getIfLoaded(file));
+			FortuneDataset.replace(file, read);
+			assertSame(read, FortuneDataset.getIfLoaded(file));
+			assertTrue(read.isCurrent(file));
+		}
+		finally
+		{
+			FortuneDataset.setWatched(file, false);
+			FortuneDataset.unload(file);
+		}
+		File other = TestData.write(this.directory, "unwatched.csv", TestData.rows(Report.MINYEAR, 1, 10, 87));
+		try
+		{
+			// The dataset is kept while one of the file's two watchers is left, and dropped once both stop.
+			FortuneDataset.setWatched(other, true);
+			FortuneDataset.setWatched(other, true);
+			FortuneDataset.setWatched(other, false);
+			FortuneDataset.load(other);
+			this.rewrite(other, TestData.rows(Report.MINYEAR, 1, 11, 88));
+			assertNotNull(FortuneDataset.getIfLoaded(other));
+			FortuneDataset.setWatched(other, false);
+			assertNull(FortuneDataset.getIfLoaded(other));
+		}
+		finally
+		{
+			FortuneDataset.unload(other);
+		}
+	}
+}
@@ -0,0 +1,94 @@
+// NAME: Logan Noonan
+
+package reports.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that ReportWriter formats numbers exactly as String.format did in the original reports, and writes
+ *  a report's text unchanged.
+ * @author Logan Noonan
+ *
+ */
+public class ReportWriterTest
+{
+	/**
+	 * A directory for the test files.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Checks that a value is appended as String.format's %.3f formats it.
+	 * @param value The value.
+	 */
+	private static void checkDecimal(double value)
+	{
+		assertEquals(String.format("%.3f", value), ReportWriter.appendDecimal(new StringBuilder(), value).toString(),
+				Double.toString(value));
+	}
+
+	/**
+	 * Tests values with one decimal, as in the data files, and averages and deviations with many decimals.
+	 */
+	@Test
+	public void formatsLikeStringFormat()
+	{
+		Random random = new Random(81);
+		for (int index = 0; index < 200000; index++)
+		{
+			checkDecimal((random.nextInt(4000000) - 1000000) / 10.0);
+			checkDecimal(random.nextGaussian() * Math.pow(10, random.nextInt(12)));
+		}
+	}
+
+	/**
+	 * Tests values on a half of the last decimal, negative zero, very large values, and null.
+	 */
+	@Test
+	public void formatsEdgeCases()
+	{
+		double[] values = {0.0, -0.0, 0.0005, 0.0015, 2.0005, -2.0005, 1.0e-9, -1.0e-9, 0.9995, 999.9995,
+			1.0e15, -1.0e15, 1.0e300, Double.MAX_VALUE, Double.MIN_VALUE, 4503599627370495.5,
+			Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+		for (double value : values)
+		{
+			checkDecimal(value);
+		}
+		for (int thousandths = -100000; thousandths <= 100000; thousandths++)
+		{
+			checkDecimal(thousandths / 1000.0 + 0.0005);
+		}
+		assertEquals(String.format("%.3f", (Double) null), ReportWriter.appendDecimal(new StringBuilder(), null)
+				.toString());
+		assertEquals(String.format("%d", Long.MIN_VALUE), ReportWriter.appendWhole(new StringBuilder(),
+				Long.MIN_VALUE).toString());
+	}
+
+	/**
+	 * Tests that a report's text is written to a file in the default charset unchanged.
+	 * @throws IOException Thrown if the file cannot be written or read.
+	 */
+	@Test
+	public void writesText() throws IOException
+	{
+		File file = this.directory.resolve("report.txt").toFile();
+		StringBuilder text = ReportWriter.builder();
+		for (int line = 0; line < 5000; line++)
+		{
+			text.append("Fortune 500 Report for Company ").append(line).append('\n');
+		}
+		ReportWriter.write(file, text);
+		assertEquals(text.toString(), new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset()));
+	}
+}
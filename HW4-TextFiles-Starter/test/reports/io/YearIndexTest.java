@@ -0,0 +1,158 @@
+// NAME: Logan Noonan
+
+package reports.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import reports.Report;
+import reports.TestData;
+
+/**
+ * Tests that a YearIndex records the block of rows of each year, is saved to and loaded from its sidecar
+ *  file, and is rebuilt when the csv file, one of its blocks, or the sidecar file is not what it records.
+ * @author Logan Noonan
+ *
+ */
+public class YearIndexTest
+{
+	/**
+	 * A directory for the test files.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Checks that each block of an index holds exactly the rows of its year.
+	 * @param index The index.
+	 * @param file The csv file.
+	 * @param rows The rows of the file.
+	 * @param years The number of years of the file, starting at Report.MINYEAR.
+	 * @throws IOException Thrown if the file cannot be read.
+	 */
+	private static void checkBlocks(YearIndex index, File file, List<String> rows, int years) throws IOException
+	{
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		int perYear = rows.size() / years;
+		for (int year = Report.MINYEAR; year < Report.MINYEAR + years; year++)
+		{
+			YearIndex.Block block = index.getBlock(year);
+			assertNotNull(block);
+			assertEquals(year, block.getYear());
+			assertEquals(perYear, block.getRows());
+			StringBuilder expected = new StringBuilder();
+			for (String row : rows.subList((year - Report.MINYEAR) * perYear, (year - Report.MINYEAR + 1) * perYear))
+			{
+				expected.append(row).append(System.lineSeparator());
+			}
+			assertEquals(expected.toString(), new String(bytes, (int) block.getOffset(), (int) block.getLength(),
+					StandardCharsets.UTF_8));
+		}
+		assertNull(index.getBlock(Report.MINYEAR + years));
+	}
+
+	/**
+	 * Tests a new index, the index saved for it, and the index kept in memory.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void indexesBlocks() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 7, 90, 91);
+		File file = TestData.write(this.directory, "years.csv", rows);
+		checkBlocks(YearIndex.build(file), file, rows, 7);
+		checkBlocks(YearIndex.forFile(file), file, rows, 7);
+		assertTrue(YearIndex.indexFileFor(file).isFile());
+		checkBlocks(YearIndex.forFile(file), file, rows, 7);
+	}
+
+	/**
+	 * Tests that the index is rebuilt once the csv file changes.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void rebuildsChangedFile() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 3, 40, 92);
+		File file = TestData.write(this.directory, "changed.csv", rows);
+		checkBlocks(YearIndex.forFile(file), file, rows, 3);
+		List<String> changed = TestData.rows(Report.MINYEAR, 5, 40, 93);
+		TestData.write(this.directory, "changed.csv", changed);
+		assertTrue(file.setLastModified(file.lastModified() + 2000));
+		checkBlocks(YearIndex.forFile(file), file, changed, 5);
+	}
+
+	/**
+	 * Tests that rows moved by a rewrite that does not change the file's length or last modified time are
+	 *  not read from the old index's offsets.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void checksRewrittenBlocks() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 3, 40, 95);
+		File file = TestData.write(this.directory, "rewritten.csv", rows);
+		YearIndex.forFile(file);
+		long modified = file.lastModified();
+		List<String> changed = new ArrayList<String>(rows);
+		String[] first = changed.get(0).split(",");
+		first[3] = first[3] + "0";
+		changed.set(0, String.join(",", first));
+		String[] last = changed.get(80).split(",");
+		last[3] = last[3].substring(0, last[3].length() - 1);
+		changed.set(80, String.join(",", last));
+		TestData.write(this.directory, "rewritten.csv", changed);
+		assertTrue(file.setLastModified(modified));
+		assertEquals(rows.size(), changed.size());
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+				CsvRowReader rowReader = YearIndex.openYear(file, channel, Report.MINYEAR + 1))
+		{
+			for (String row : changed.subList(40, 80))
+			{
+				assertTrue(rowReader.nextRow());
+				assertEquals(Double.parseDouble(row.split(",")[3]), rowReader.getRevenue());
+			}
+			assertFalse(rowReader.nextRow());
+		}
+		checkBlocks(YearIndex.forFile(file), file, changed, 3);
+	}
+
+	/**
+	 * Tests that a damaged sidecar file is not used. The csv file and its index are copied to a new name, so
+	 *  the index is loaded from the damaged file rather than found in memory.
+	 * @throws IOException Thrown if the test file cannot be written or read.
+	 */
+	@Test
+	public void ignoresDamagedIndexFile() throws IOException
+	{
+		List<String> rows = TestData.rows(Report.MINYEAR, 4, 30, 94);
+		File original = TestData.write(this.directory, "original.csv", rows);
+		YearIndex.forFile(original);
+		File file = this.directory.resolve("damaged.csv").toFile();
+		Files.copy(original.toPath(), file.toPath(), StandardCopyOption.COPY_ATTRIBUTES);
+		Files.copy(YearIndex.indexFileFor(original).toPath(), YearIndex.indexFileFor(file).toPath());
+		try (RandomAccessFile damaged = new RandomAccessFile(YearIndex.indexFileFor(file), "rw"))
+		{
+			damaged.setLength(damaged.length() / 2);
+		}
+		checkBlocks(YearIndex.forFile(file), file, rows, 4);
+	}
+}
@@ -0,0 +1,75 @@
+// NAME: Logan Noonan
+
+package reports;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A StatisticsKernel using the jdk.incubator.vector API, which adds as many values at a time as the
+ *  processor's widest vectors hold.
+ * This source tree is kept apart from src/ so the report sources build without the incubator module.
+ * Compile it against the compiled report sources with --add-modules jdk.incubator.vector, put the result on
+ *  the class path, and run with --add-modules jdk.incubator.vector; Statistics then uses it in place of the
+ *  scalar kernel. The lanes are summed in a different order from the scalar kernel, so the sum of squares
+ *  may differ from it in the last bits; the running total is still added one value at a time, in order.
+ * @author Logan Noonan
+ *
+ */
+final class VectorStatisticsKernel implements StatisticsKernel
+{
+	/**
+	 * The widest vector shape of the processor.
+	 */
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	/**
+	 * Creates new VectorStatisticsKernel; called through reflection by Statistics.
+	 */
+	VectorStatisticsKernel()
+	{
+		// The kernel has no state.
+	}
+
+	/**
+	 * Adds a slice of values to running totals a vector of values at a time, then adds the values
+	 *  left over one at a time. The running total of the values is added one value at a time throughout.
+	 * @param values The values.
+	 * @param from The index of the first value.
+	 * @param to The index after the last value.
+	 * @param shift The value subtracted from each value before it is summed.
+	 * @param totals The minimum, maximum, sum, sum of squares, and total so far, updated in place.
+	 */
+	@Override
+	public void accumulate(double[] values, int from, int to, double shift, double[] totals)
+	{
+		DoubleVector minimums = DoubleVector.broadcast(SPECIES, totals[MINIMUM]);
+		DoubleVector maximums = DoubleVector.broadcast(SPECIES, totals[MAXIMUM]);
+		DoubleVector sums = DoubleVector.zero(SPECIES);
+		DoubleVector squares = DoubleVector.zero(SPECIES);
+		DoubleVector shifts = DoubleVector.broadcast(SPECIES, shift);
+		int index = from;
+		int bound = from + SPECIES.loopBound(to - from);
+		for (; index < bound; index += SPECIES.length())
+		{
+			DoubleVector chunk = DoubleVector.fromArray(SPECIES, values, index);
+			minimums = minimums.min(chunk);
+			maximums = maximums.max(chunk);
+			DoubleVector differences = chunk.sub(shifts);
+			sums = sums.add(differences);
+			squares = differences.fma(differences, squares);
+		}
+		totals[MINIMUM] = minimums.reduceLanes(VectorOperators.MIN);
+		totals[MAXIMUM] = maximums.reduceLanes(VectorOperators.MAX);
+		totals[SUM] += sums.reduceLanes(VectorOperators.ADD);
+		totals[SUM_SQUARES] += squares.reduceLanes(VectorOperators.ADD);
+		double total = totals[TOTAL];
+		for (int next = from; next < index; next++)
+		{
+			total += values[next];
+		}
+		totals[TOTAL] = total;
+		StatisticsKernel.SCALAR.accumulate(values, index, to, shift, totals);
+	}
+}